@@ -45,6 +45,7 @@ import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetailsBuil
 import org.springframework.roo.classpath.details.annotations.AnnotationAttributeValue;
 import org.springframework.roo.classpath.details.annotations.AnnotationMetadata;
 import org.springframework.roo.classpath.details.annotations.AnnotationMetadataBuilder;
+import org.springframework.roo.classpath.itd.ItdRegenerationService;
 import org.springframework.roo.file.monitor.event.FileEvent;
 import org.springframework.roo.file.monitor.event.FileEventListener;
 import org.springframework.roo.file.monitor.event.FileOperation;
@@ -54,6 +55,7 @@ import org.springframework.roo.model.JavaPackage;
 import org.springframework.roo.model.JavaSymbolName;
 import org.springframework.roo.model.JavaType;
 import org.springframework.roo.model.JdkJavaType;
+import org.springframework.roo.process.manager.CommandCallback;
 import org.springframework.roo.process.manager.FileManager;
 import org.springframework.roo.project.Path;
 import org.springframework.roo.project.ProjectOperations;
@@ -83,6 +85,7 @@ public class DbreDatabaseListenerImpl extends
     private DbreModelService dbreModelService;
     private FileManager fileManager;
     private IntegrationTestOperations integrationTestOperations;
+    private ItdRegenerationService itdRegenerationService;
     private ProjectOperations projectOperations;
     private RepositoryJpaOperations repositoryJpaOperations;
     private ServiceOperations serviceOperations;
@@ -545,22 +548,28 @@ public class DbreDatabaseListenerImpl extends
     }
 
     private void notify(final List<ClassOrInterfaceTypeDetails> entities) {
-        for (final ClassOrInterfaceTypeDetails managedIdentifierType : getManagedIdentifiers()) {
-            final MetadataItem metadataItem = getMetadataService()
-                    .evictAndGet(managedIdentifierType
-                            .getDeclaredByMetadataId());
-            if (metadataItem != null) {
-                notifyIfRequired(metadataItem);
-            }
-        }
+        // Every entity's ITDs are regenerated, so write them all at once
+        getItdRegenerationService().regenerate(new CommandCallback<Void>() {
+            public Void callback() {
+                for (final ClassOrInterfaceTypeDetails managedIdentifierType : getManagedIdentifiers()) {
+                    final MetadataItem metadataItem = getMetadataService()
+                            .evictAndGet(managedIdentifierType
+                                    .getDeclaredByMetadataId());
+                    if (metadataItem != null) {
+                        notifyIfRequired(metadataItem);
+                    }
+                }
 
-        for (final ClassOrInterfaceTypeDetails entity : entities) {
-            final MetadataItem metadataItem = getMetadataService()
-                    .evictAndGet(entity.getDeclaredByMetadataId());
-            if (metadataItem != null) {
-                notifyIfRequired(metadataItem);
+                for (final ClassOrInterfaceTypeDetails entity : entities) {
+                    final MetadataItem metadataItem = getMetadataService()
+                            .evictAndGet(entity.getDeclaredByMetadataId());
+                    if (metadataItem != null) {
+                        notifyIfRequired(metadataItem);
+                    }
+                }
+                return null;
             }
-        }
+        });
     }
 
     public void onFileEvent(final FileEvent fileEvent) {
@@ -857,6 +866,35 @@ public class DbreDatabaseListenerImpl extends
 		}
 	}
 	
+	/**
+	 * Method to get ItdRegenerationService Service implementation
+	 * 
+	 * @return
+	 */
+	public ItdRegenerationService getItdRegenerationService() {
+		if (itdRegenerationService == null) {
+			// Get all Services implement ItdRegenerationService interface
+			try {
+				ServiceReference<?>[] references = context
+						.getAllServiceReferences(
+								ItdRegenerationService.class.getName(), null);
+				
+				for (ServiceReference<?> ref : references) {
+					itdRegenerationService = (ItdRegenerationService) context.getService(ref);
+					return itdRegenerationService;
+				}
+				
+				return null;
+				
+			} catch (InvalidSyntaxException e) {
+				LOGGER.warning("Cannot load ItdRegenerationService on DbreDatabaseListenerImpl.");
+				return null;
+			}
+		} else {
+			return itdRegenerationService;
+		}
+	}
+	
 	/**
 	 * Method to get ProjectOperations Service implementation
 	 * 
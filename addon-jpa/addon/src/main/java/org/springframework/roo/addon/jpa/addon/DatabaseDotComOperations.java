@@ -1,6 +1,6 @@
 package org.springframework.roo.addon.jpa.addon;
 
-import org.springframework.roo.project.Feature;
+import org.springframework.roo.project.CacheableFeature;
 
 /**
  * Provides Database.com configuration operations.
@@ -8,5 +8,5 @@ import org.springframework.roo.project.Feature;
  * @author Alan Stewart
  * @since 1.2.0
  */
-public interface DatabaseDotComOperations extends Feature {
+public interface DatabaseDotComOperations extends CacheableFeature {
 }
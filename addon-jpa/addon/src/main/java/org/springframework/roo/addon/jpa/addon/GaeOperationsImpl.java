@@ -1,5 +1,7 @@
 package org.springframework.roo.addon.jpa.addon;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.logging.Logger;
 
 import org.apache.commons.lang3.Validate;
@@ -43,6 +45,11 @@ public class GaeOperationsImpl implements GaeOperations {
         return FeatureNames.GAE;
     }
 
+    public Collection<String> getRelevantFiles(final String moduleName) {
+        // Only depends upon the POM
+        return Collections.emptyList();
+    }
+
     public boolean isInstalledInModule(final String moduleName) {
     	
     	if(projectOperations == null){
@@ -5,7 +5,7 @@ import java.util.SortedSet;
 
 import org.springframework.roo.classpath.details.annotations.AnnotationMetadataBuilder;
 import org.springframework.roo.model.JavaType;
-import org.springframework.roo.project.Feature;
+import org.springframework.roo.project.CacheableFeature;
 
 /**
  * Provides JPA configuration and entity operations.
@@ -14,7 +14,7 @@ import org.springframework.roo.project.Feature;
  * @author Alan Stewart
  * @since 1.0
  */
-public interface JpaOperations extends Feature {
+public interface JpaOperations extends CacheableFeature {
 
     /**
      * This method is responsible for managing all JPA related artifacts
@@ -327,6 +327,18 @@ public class JpaOperationsImpl implements JpaOperations {
         return FeatureNames.JPA;
     }
 
+    private String getPersistencePath(final String moduleName) {
+    	
+    	if(pathResolver == null){
+    		pathResolver = getPathResolver();
+    	}
+    	Validate.notNull(pathResolver, "PathResolver is required");
+    	
+        return pathResolver.getIdentifier(
+                LogicalPath.getInstance(Path.SRC_MAIN_RESOURCES, moduleName),
+                PERSISTENCE_XML);
+    }
+
     private String getPersistencePathOfFocussedModule() {
     	
     	if(pathResolver == null){
@@ -338,6 +350,10 @@ public class JpaOperationsImpl implements JpaOperations {
                 PERSISTENCE_XML);
     }
 
+    public Collection<String> getRelevantFiles(final String moduleName) {
+        return Collections.singletonList(getPersistencePath(moduleName));
+    }
+
     private List<Plugin> getPlugins(final String xPathExpression,
             final Element configuration) {
         final List<Plugin> buildPlugins = new ArrayList<Plugin>();
@@ -494,21 +510,8 @@ public class JpaOperationsImpl implements JpaOperations {
     	}
     	Validate.notNull(fileManager, "FileManager is required");
     	
-    	if(pathResolver == null){
-    		pathResolver = getPathResolver();
-    	}
-    	Validate.notNull(pathResolver, "PathResolver is required");
-    	
-    	if(projectOperations == null){
-    		projectOperations = getProjectOperations();
-    	}
-    	Validate.notNull(projectOperations, "ProjectOperations is required");
-    	
-        final LogicalPath resourcesPath = LogicalPath.getInstance(
-                Path.SRC_MAIN_RESOURCES, moduleName);
         return isJpaInstallationPossible()
-                && fileManager.exists(projectOperations.getPathResolver()
-                        .getIdentifier(resourcesPath, PERSISTENCE_XML));
+                && fileManager.exists(getPersistencePath(moduleName));
     }
 
     public boolean isJpaInstallationPossible() {
@@ -1,13 +1,13 @@
 package org.springframework.roo.addon.layers.repository.jpa.addon;
 
 import org.springframework.roo.model.JavaType;
-import org.springframework.roo.project.Feature;
+import org.springframework.roo.project.CacheableFeature;
 
 /**
  * @author Stefan Schmidt
  * @since 1.2.0
  */
-public interface RepositoryJpaOperations extends Feature {
+public interface RepositoryJpaOperations extends CacheableFeature {
 
     boolean isRepositoryInstallationPossible();
 
@@ -7,6 +7,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -116,13 +118,20 @@ public class RepositoryJpaOperationsImpl implements RepositoryJpaOperations {
         return FeatureNames.JPA;
     }
 
-    public boolean isInstalledInModule(final String moduleName) {
+    private String getPersistenceXmlPath(final String moduleName) {
         final LogicalPath resourcesPath = LogicalPath.getInstance(
                 Path.SRC_MAIN_RESOURCES, moduleName);
+        return getProjectOperations().getPathResolver().getIdentifier(
+                resourcesPath, "META-INF/persistence.xml");
+    }
+
+    public Collection<String> getRelevantFiles(final String moduleName) {
+        return Collections.singletonList(getPersistenceXmlPath(moduleName));
+    }
+
+    public boolean isInstalledInModule(final String moduleName) {
         return getProjectOperations().isFocusedProjectAvailable()
-                && getFileManager().exists(getProjectOperations().getPathResolver()
-                        .getIdentifier(resourcesPath,
-                                "META-INF/persistence.xml"));
+                && getFileManager().exists(getPersistenceXmlPath(moduleName));
     }
 
     public boolean isRepositoryInstallationPossible() {
@@ -1,11 +1,15 @@
 package org.springframework.roo.addon.plural.addon;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Service;
 import org.osgi.service.component.ComponentContext;
 import org.springframework.roo.classpath.PhysicalTypeIdentifier;
 import org.springframework.roo.classpath.PhysicalTypeMetadata;
 import org.springframework.roo.classpath.itd.AbstractItdMetadataProvider;
+import org.springframework.roo.classpath.itd.GovernorProjection;
 import org.springframework.roo.classpath.itd.ItdTypeDetailsProvidingMetadataItem;
 import org.springframework.roo.model.JavaType;
 import org.springframework.roo.project.LogicalPath;
@@ -56,6 +60,12 @@ public class PluralMetadataProviderImpl extends AbstractItdMetadataProvider
         return PhysicalTypeIdentifier.createIdentifier(javaType, path);
     }
 
+    @Override
+    protected Set<GovernorProjection> getGovernorProjection() {
+        // The plural only depends on the type's name and @RooPlural
+        return EnumSet.noneOf(GovernorProjection.class);
+    }
+
     public String getItdUniquenessFilenameSuffix() {
         return "Plural";
     }
@@ -1,7 +1,7 @@
 package org.springframework.roo.addon.security.addon;
 
 import org.springframework.roo.model.JavaPackage;
-import org.springframework.roo.project.Feature;
+import org.springframework.roo.project.CacheableFeature;
 
 /**
  * Interface for {@link SecurityOperationsImpl}.
@@ -9,7 +9,7 @@ import org.springframework.roo.project.Feature;
  * @author Ben Alex
  * @since 1.0
  */
-public interface SecurityOperations extends Feature {
+public interface SecurityOperations extends CacheableFeature {
 
     String SECURITY_FILTER_NAME = "springSecurityFilterChain";
 
@@ -10,6 +10,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -286,6 +288,12 @@ public class SecurityOperationsImpl implements SecurityOperations {
         return FeatureNames.SECURITY;
     }
 
+    @Override
+    public Collection<String> getRelevantFiles(final String moduleName) {
+        // Only depends upon the POM
+        return Collections.emptyList();
+    }
+
     @Override
     public boolean isInstalledInModule(String moduleName) {
         final Pom pom = getProjectOperations().getPomFromModuleName(moduleName);
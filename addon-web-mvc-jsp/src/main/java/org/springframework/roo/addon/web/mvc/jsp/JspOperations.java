@@ -2,7 +2,7 @@ package org.springframework.roo.addon.web.mvc.jsp;
 
 import org.springframework.roo.addon.web.mvc.jsp.i18n.I18n;
 import org.springframework.roo.model.JavaType;
-import org.springframework.roo.project.Feature;
+import org.springframework.roo.project.CacheableFeature;
 import org.springframework.roo.project.LogicalPath;
 import org.w3c.dom.Document;
 
@@ -12,7 +12,7 @@ import org.w3c.dom.Document;
  * @author Stefan Schmidt
  * @author Ben Alex
  */
-public interface JspOperations extends Feature {
+public interface JspOperations extends CacheableFeature {
 
     /**
      * Creates a new Spring MVC controller.
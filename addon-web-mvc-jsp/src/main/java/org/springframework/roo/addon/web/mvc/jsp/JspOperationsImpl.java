@@ -11,6 +11,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.logging.Logger;
@@ -267,6 +269,17 @@ public class JspOperationsImpl extends AbstractOperations implements
         return FeatureNames.MVC;
     }
 
+    public Collection<String> getRelevantFiles(final String moduleName) {
+        return Collections.singletonList(getWebMvcConfigPath(moduleName));
+    }
+
+    private String getWebMvcConfigPath(final String moduleName) {
+        final LogicalPath webAppPath = LogicalPath.getInstance(
+                Path.SRC_MAIN_WEBAPP, moduleName);
+        return getProjectOperations().getPathResolver().getIdentifier(
+                webAppPath, "WEB-INF/spring/webmvc-config.xml");
+    }
+
     public void installCommonViewArtefacts() {
         installCommonViewArtefacts(getProjectOperations().getFocusedModuleName());
     }
@@ -548,10 +561,7 @@ public class JspOperationsImpl extends AbstractOperations implements
     }
 
     public boolean isInstalledInModule(final String moduleName) {
-        final LogicalPath webAppPath = LogicalPath.getInstance(
-                Path.SRC_MAIN_WEBAPP, moduleName);
-        return fileManager.exists(getProjectOperations().getPathResolver()
-                .getIdentifier(webAppPath, "WEB-INF/spring/webmvc-config.xml"));
+        return fileManager.exists(getWebMvcConfigPath(moduleName));
     }
 
     public boolean isInstallLanguageCommandAvailable() {
@@ -0,0 +1,183 @@
+package org.springframework.roo.classpath.antlrjavaparser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.github.antlrjavaparser.api.CompilationUnit;
+import com.github.antlrjavaparser.api.ImportDeclaration;
+import com.github.antlrjavaparser.api.body.BodyDeclaration;
+import com.github.antlrjavaparser.api.body.ClassOrInterfaceDeclaration;
+import com.github.antlrjavaparser.api.body.EnumDeclaration;
+import com.github.antlrjavaparser.api.body.TypeDeclaration;
+
+/**
+ * The line ranges and printed forms of the declarations of a compilation unit
+ * (package, imports, and the header and members of each top-level type), as
+ * needed by
+ * {@link UpdateCompilationUnitUtils#getPatchedContents(String, CompilationUnitOutline, String, CompilationUnitOutline)}
+ * to work out which lines of a source file have to be rewritten.
+ * <p>
+ * An outline takes a snapshot of the compilation unit, so it must be created
+ * before the compilation unit is modified.
+ * 
+ * @since 2.0.0
+ */
+public class CompilationUnitOutline {
+
+    /**
+     * The outline of a top-level type. The lines of the type are split into a
+     * header (from the start of the type to the line before its first member),
+     * one segment per member (from the line after the previous member to the
+     * last line of the member) and a footer.
+     */
+    static class TypeOutline {
+        final int beginLine;
+        final int endLine;
+        final String header;
+        final int[] memberBeginLines;
+        final int[] memberEndLines;
+        final List<String> members;
+        final String name;
+
+        private TypeOutline(final TypeDeclaration type, final String header) {
+            final List<BodyDeclaration> typeMembers = type.getMembers() == null ? Collections
+                    .<BodyDeclaration> emptyList() : type.getMembers();
+            name = type.getName();
+            this.header = header;
+            beginLine = JavaParserUtils.getBeginLine(type,
+                    type.getAnnotations());
+            endLine = type.getEndLine();
+            members = new ArrayList<String>(typeMembers.size());
+            memberBeginLines = new int[typeMembers.size()];
+            memberEndLines = new int[typeMembers.size()];
+            for (int i = 0; i < typeMembers.size(); i++) {
+                final BodyDeclaration member = typeMembers.get(i);
+                members.add(member.toString());
+                memberBeginLines[i] = JavaParserUtils.getBeginLine(member,
+                        member.getAnnotations());
+                memberEndLines[i] = member.getEndLine();
+            }
+        }
+
+        /**
+         * Returns the first line of the segment of the given member
+         * 
+         * @param index the index of the member
+         * @return a line number
+         */
+        int getSegmentBeginLine(final int index) {
+            return index == 0 ? memberBeginLines[0]
+                    : memberEndLines[index - 1] + 1;
+        }
+
+        private boolean isValid() {
+            if (beginLine < 1 || endLine < beginLine) {
+                return false;
+            }
+            int previousLine = beginLine;
+            for (int i = 0; i < members.size(); i++) {
+                if (memberBeginLines[i] <= previousLine
+                        || memberEndLines[i] < memberBeginLines[i]) {
+                    return false;
+                }
+                previousLine = memberEndLines[i];
+            }
+            return members.isEmpty() || endLine > previousLine;
+        }
+    }
+
+    /**
+     * Returns a string that changes whenever the type's declaration changes,
+     * ignoring its members
+     * 
+     * @param type the type
+     * @return <code>null</code> if this kind of type is not supported
+     */
+    private static String getHeader(final TypeDeclaration type) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(type.getBeginComments()).append('|')
+                .append(type.getAnnotations()).append('|')
+                .append(type.getModifiers()).append('|')
+                .append(type.getName()).append('|');
+        if (type instanceof ClassOrInterfaceDeclaration) {
+            final ClassOrInterfaceDeclaration clazz = (ClassOrInterfaceDeclaration) type;
+            sb.append(clazz.isInterface()).append('|')
+                    .append(clazz.getTypeParameters()).append('|')
+                    .append(clazz.getExtends()).append('|')
+                    .append(clazz.getImplements());
+        }
+        else if (type instanceof EnumDeclaration) {
+            final EnumDeclaration enumeration = (EnumDeclaration) type;
+            sb.append(enumeration.getImplements()).append('|')
+                    .append(enumeration.getEntries());
+        }
+        else {
+            return null;
+        }
+        return sb.toString();
+    }
+
+    final List<String> imports = new ArrayList<String>();
+    int importsBeginLine;
+    int importsEndLine;
+    String packageDeclaration;
+    int packageBeginLine;
+    int packageEndLine;
+    final List<TypeOutline> types = new ArrayList<TypeOutline>();
+    private boolean valid = true;
+
+    /**
+     * Constructor
+     * 
+     * @param compilationUnit the compilation unit, as parsed from its source
+     *            (required)
+     */
+    public CompilationUnitOutline(final CompilationUnit compilationUnit) {
+        int lastLine = 0;
+        if (compilationUnit.getPackage() != null) {
+            packageDeclaration = compilationUnit.getPackage().toString();
+            packageBeginLine = compilationUnit.getPackage().getBeginLine();
+            packageEndLine = compilationUnit.getPackage().getEndLine();
+            valid = packageBeginLine > lastLine
+                    && packageEndLine >= packageBeginLine;
+            lastLine = packageEndLine;
+        }
+        if (compilationUnit.getImports() != null) {
+            for (final ImportDeclaration importDeclaration : compilationUnit
+                    .getImports()) {
+                if (imports.isEmpty()) {
+                    importsBeginLine = importDeclaration.getBeginLine();
+                }
+                valid &= importDeclaration.getBeginLine() > lastLine;
+                imports.add(importDeclaration.toString());
+                importsEndLine = importDeclaration.getEndLine();
+                lastLine = importsEndLine;
+            }
+        }
+        if (compilationUnit.getTypes() != null) {
+            for (final TypeDeclaration type : compilationUnit.getTypes()) {
+                final String header = getHeader(type);
+                if (header == null) {
+                    valid = false;
+                    continue;
+                }
+                final TypeOutline typeOutline = new TypeOutline(type, header);
+                valid &= typeOutline.beginLine > lastLine
+                        && typeOutline.isValid();
+                types.add(typeOutline);
+                lastLine = typeOutline.endLine;
+            }
+        }
+    }
+
+    /**
+     * Indicates whether the compilation unit's declarations occupy distinct,
+     * ordered lines, so that they can be rewritten line by line
+     * 
+     * @return see above
+     */
+    public boolean isPatchable() {
+        return valid;
+    }
+}
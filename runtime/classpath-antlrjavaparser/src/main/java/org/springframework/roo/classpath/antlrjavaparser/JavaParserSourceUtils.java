@@ -0,0 +1,120 @@
+package org.springframework.roo.classpath.antlrjavaparser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+import org.apache.commons.lang3.Validate;
+
+import com.github.antlrjavaparser.JavaParser;
+import com.github.antlrjavaparser.ParseException;
+import com.github.antlrjavaparser.api.CompilationUnit;
+
+/**
+ * Feeds Java source held in memory to Java Parser.
+ * <p>
+ * Java Parser only reads from an {@link java.io.InputStream}, which used to
+ * mean encoding every source into a new byte array before each parse. Instead,
+ * each thread encodes into its own reusable buffer, so a parse no longer
+ * allocates a copy of the source.
+ * <p>
+ * This class is for internal use by the Java Parser module and should NOT be
+ * used by other code.
+ * 
+ * @since 2.0.0
+ */
+public final class JavaParserSourceUtils {
+
+    /**
+     * A thread-confined encoder and the buffer it encodes into
+     */
+    private static class SourceEncoder {
+        private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        private final CharsetEncoder encoder = Charset.defaultCharset()
+                .newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        private ByteArrayInputStream encode(final CharSequence source) {
+            final CharBuffer input = CharBuffer.wrap(source);
+            ByteBuffer target = buffer;
+            target.clear();
+            encoder.reset();
+            while (encoder.encode(input, target, true).isOverflow()) {
+                target = grow(target, input.remaining());
+            }
+            while (encoder.flush(target).isOverflow()) {
+                target = grow(target, 0);
+            }
+            // Keep the buffer for the next parse unless an unusually large
+            // source made it grow too big to hold on to
+            buffer = target.capacity() > MAX_RETAINED_BUFFER_SIZE ? ByteBuffer
+                    .allocate(INITIAL_BUFFER_SIZE) : target;
+            return new ByteArrayInputStream(target.array(), 0,
+                    target.position());
+        }
+
+        /**
+         * Returns a copy of the given full buffer with room for about as many
+         * bytes as the given number of characters will encode to
+         */
+        private ByteBuffer grow(final ByteBuffer full, final int remainingChars) {
+            final int needed = full.position()
+                    + (int) Math.ceil(remainingChars
+                            * (double) encoder.averageBytesPerChar());
+            final ByteBuffer grown = ByteBuffer.allocate(Math.max(needed,
+                    full.capacity() + full.capacity() / 2));
+            full.flip();
+            grown.put(full);
+            return grown;
+        }
+    }
+
+    private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<SourceEncoder> SOURCE_ENCODERS = new ThreadLocal<SourceEncoder>() {
+        @Override
+        protected SourceEncoder initialValue() {
+            return new SourceEncoder();
+        }
+    };
+
+    /**
+     * Constructor is private to prevent instantiation
+     */
+    private JavaParserSourceUtils() {
+    }
+
+    /**
+     * Parses the given Java source, using the platform's default encoding as
+     * Java Parser expects.
+     * 
+     * @param source the source of a compilation unit (required)
+     * @return the parsed compilation unit
+     * @throws ParseException if the source is not valid Java
+     * @throws IOException if the source can't be read
+     */
+    public static CompilationUnit parse(final CharSequence source)
+            throws ParseException, IOException {
+        // Java Parser has consumed the stream by the time it returns, so the
+        // buffer can be reused by the next parse on this thread
+        return JavaParser.parse(encode(source));
+    }
+
+    /**
+     * Encodes the given source into this thread's buffer, using the platform's
+     * default encoding. The returned stream is only valid until the next call
+     * on the same thread.
+     * 
+     * @param source the source to encode (required)
+     * @return a stream of the encoded source
+     */
+    static ByteArrayInputStream encode(final CharSequence source) {
+        Validate.notNull(source, "Source required");
+        return SOURCE_ENCODERS.get().encode(source);
+    }
+}
@@ -0,0 +1,258 @@
+package org.springframework.roo.classpath.antlrjavaparser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+import org.springframework.roo.classpath.antlrjavaparser.TypeDetailsCodec.SuperclassResolver;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.model.JavaType;
+import org.springframework.roo.support.logging.HandlerUtils;
+
+/**
+ * Keeps the types built by Java Parser on disk, so that a source file that
+ * hasn't changed since it was last parsed (e.g. when the shell is restarted)
+ * can be read back instead of being parsed again.
+ * <p>
+ * Each entry is named after a digest of the file's path and contents, so
+ * entries never need invalidating when a file changes; they simply stop being
+ * looked up, and are deleted when the whole project is next loaded. Naming
+ * them this way also means that whether a file has an entry can be checked
+ * without first working out the metadata ID of its type. Entries start with
+ * the version of the module and of the {@link TypeDetailsCodec} format that
+ * wrote them, the metadata ID and name of the type, and a checksum of their
+ * contents; any entry written by another version or for another type, or that
+ * can't be read for any reason, is treated as missing.
+ * <p>
+ * This class is for internal use by the Java Parser module and should NOT be
+ * used by other code.
+ * 
+ * @since 2.0.0
+ */
+public class JavaParserTypeCache {
+
+    private static final Logger LOGGER = HandlerUtils
+            .getLogger(JavaParserTypeCache.class);
+
+    private static final String ENTRY_SUFFIX = ".bin";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int MAGIC = 0x524f4f54;
+    private static final String UTF_8 = "UTF-8";
+
+    private final File directory;
+    // The entry last used for each source file, deleted once superseded
+    private final Map<String, File> entriesByFile = new ConcurrentHashMap<String, File>();
+    private final String version;
+
+    /**
+     * Constructor
+     * 
+     * @param directory the directory in which to keep the entries (required;
+     *            created when first written to)
+     * @param version the version of the code that builds the types (required)
+     */
+    public JavaParserTypeCache(final File directory, final String version) {
+        Validate.notNull(directory, "Directory required");
+        Validate.notBlank(version, "Version required");
+        this.directory = directory;
+        this.version = version;
+    }
+
+    /**
+     * Returns the type previously stored for the given file contents
+     * 
+     * @param fileIdentifier the canonical path of the type's source file
+     *            (required)
+     * @param contents the current contents of the type's source file
+     *            (required)
+     * @param declaredByMetadataId the metadata ID of the type (required)
+     * @param typeName the type to return (required)
+     * @param superclassResolver looks up the superclasses of the type and its
+     *            inner types (required)
+     * @return <code>null</code> if there is no usable entry
+     */
+    public ClassOrInterfaceTypeDetails get(final String fileIdentifier,
+            final String contents, final String declaredByMetadataId,
+            final JavaType typeName,
+            final SuperclassResolver superclassResolver) {
+        final File entry = getEntry(fileIdentifier, contents);
+        if (entry == null || !entry.isFile()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(FileUtils.openInputStream(entry));
+            if (in.readInt() != MAGIC || !version.equals(in.readUTF())
+                    || in.readInt() != TypeDetailsCodec.FORMAT_VERSION
+                    || !declaredByMetadataId.equals(in.readUTF())
+                    || !typeName.getFullyQualifiedTypeName().equals(
+                            in.readUTF())) {
+                return null;
+            }
+            final int length = in.readInt();
+            if (length < 0 || length > entry.length()) {
+                return null;
+            }
+            final long checksum = in.readLong();
+            final byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            if (getChecksum(bytes) != checksum) {
+                return null;
+            }
+            final ClassOrInterfaceTypeDetails cid = TypeDetailsCodec.decode(
+                    bytes, superclassResolver);
+            supersede(fileIdentifier, entry);
+            return cid;
+        }
+        catch (final IOException e) {
+            LOGGER.fine("Ignoring unreadable type cache entry " + entry + ": "
+                    + e.getMessage());
+            return null;
+        }
+        catch (final RuntimeException e) {
+            LOGGER.fine("Ignoring invalid type cache entry " + entry + ": "
+                    + e.getMessage());
+            return null;
+        }
+        finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private long getChecksum(final byte[] bytes) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    /**
+     * Returns the entry file for the given source file contents, which need
+     * not exist
+     * 
+     * @param fileIdentifier the canonical path of the source file (required)
+     * @param contents the contents of the source file (required)
+     * @return <code>null</code> if it can't be worked out
+     */
+    File getEntry(final String fileIdentifier, final String contents) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(fileIdentifier.getBytes(UTF_8));
+            digest.update((byte) 0);
+            final byte[] hash = digest.digest(contents.getBytes(UTF_8));
+            final StringBuilder name = new StringBuilder(hash.length * 2
+                    + ENTRY_SUFFIX.length());
+            for (final byte b : hash) {
+                name.append(HEX_DIGITS[b >> 4 & 0xF]).append(
+                        HEX_DIGITS[b & 0xF]);
+            }
+            return new File(directory, name.append(ENTRY_SUFFIX).toString());
+        }
+        catch (final NoSuchAlgorithmException e) {
+            return null;
+        }
+        catch (final UnsupportedEncodingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the given type against the given file contents, replacing any
+     * entry stored for earlier contents of the same file
+     * 
+     * @param fileIdentifier the canonical path of the type's source file
+     *            (required)
+     * @param contents the contents from which the type was built (required)
+     * @param declaredByMetadataId the metadata ID of the type (required)
+     * @param typeName the name of the type (required)
+     * @param cid the type built from those contents (required)
+     */
+    public void put(final String fileIdentifier, final String contents,
+            final String declaredByMetadataId, final JavaType typeName,
+            final ClassOrInterfaceTypeDetails cid) {
+        final File entry = getEntry(fileIdentifier, contents);
+        final byte[] bytes = TypeDetailsCodec.encode(cid);
+        if (entry == null || bytes == null) {
+            return;
+        }
+        final ByteArrayOutputStream byteStream = new ByteArrayOutputStream(
+                bytes.length + 256);
+        final DataOutputStream out = new DataOutputStream(byteStream);
+        File temporaryFile = null;
+        try {
+            out.writeInt(MAGIC);
+            out.writeUTF(version);
+            out.writeInt(TypeDetailsCodec.FORMAT_VERSION);
+            out.writeUTF(declaredByMetadataId);
+            out.writeUTF(typeName.getFullyQualifiedTypeName());
+            out.writeInt(bytes.length);
+            out.writeLong(getChecksum(bytes));
+            out.write(bytes);
+            out.flush();
+
+            // Write to a temporary file first so that other shells sharing
+            // the project never see a partly written entry
+            FileUtils.forceMkdir(directory);
+            temporaryFile = File.createTempFile("type", ".tmp", directory);
+            FileUtils.writeByteArrayToFile(temporaryFile,
+                    byteStream.toByteArray());
+            if (!temporaryFile.renameTo(entry)) {
+                FileUtils.deleteQuietly(entry);
+                if (!temporaryFile.renameTo(entry)) {
+                    return;
+                }
+            }
+            supersede(fileIdentifier, entry);
+        }
+        catch (final IOException e) {
+            LOGGER.fine("Unable to write type cache entry " + entry + ": "
+                    + e.getMessage());
+        }
+        finally {
+            FileUtils.deleteQuietly(temporaryFile);
+        }
+    }
+
+    /**
+     * Deletes every entry other than the given ones, along with any temporary
+     * files left behind by an interrupted write
+     * 
+     * @param entries the entries to keep (required)
+     */
+    public void retain(final Collection<File> entries) {
+        Validate.notNull(entries, "Entries required");
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (final File file : files) {
+            if (file.isFile() && !entries.contains(file)
+                    && !entriesByFile.containsValue(file)) {
+                FileUtils.deleteQuietly(file);
+            }
+        }
+    }
+
+    /**
+     * Records the given entry as the current one for the given source file,
+     * deleting the entry it replaces
+     */
+    private void supersede(final String fileIdentifier, final File entry) {
+        final File previousEntry = entriesByFile.put(fileIdentifier, entry);
+        if (previousEntry != null && !previousEntry.equals(entry)) {
+            FileUtils.deleteQuietly(previousEntry);
+        }
+    }
+}
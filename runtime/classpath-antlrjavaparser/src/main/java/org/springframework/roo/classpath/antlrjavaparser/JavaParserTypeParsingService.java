@@ -2,14 +2,21 @@ package org.springframework.roo.classpath.antlrjavaparser;
 
 import static org.springframework.roo.model.JavaType.OBJECT;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -17,14 +24,18 @@ import org.apache.commons.lang3.Validate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
+import org.osgi.service.component.ComponentContext;
 import org.springframework.roo.classpath.PhysicalTypeCategory;
+import org.springframework.roo.classpath.PhysicalTypeMetadata;
 import org.springframework.roo.classpath.TypeLocationService;
 import org.springframework.roo.classpath.TypeParsingService;
+import org.springframework.roo.classpath.antlrjavaparser.TypeDetailsCodec.SuperclassResolver;
 import org.springframework.roo.classpath.antlrjavaparser.details.JavaParserAnnotationMetadataBuilder;
 import org.springframework.roo.classpath.antlrjavaparser.details.JavaParserClassOrInterfaceTypeDetailsBuilder;
 import org.springframework.roo.classpath.antlrjavaparser.details.JavaParserCommentMetadataBuilder;
 import org.springframework.roo.classpath.antlrjavaparser.details.JavaParserConstructorMetadataBuilder;
 import org.springframework.roo.classpath.antlrjavaparser.details.JavaParserFieldMetadataBuilder;
+import org.springframework.roo.classpath.antlrjavaparser.details.JavaParserMemberCache;
 import org.springframework.roo.classpath.antlrjavaparser.details.JavaParserMethodMetadataBuilder;
 import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
 import org.springframework.roo.classpath.details.ConstructorMetadata;
@@ -36,9 +47,10 @@ import org.springframework.roo.metadata.MetadataService;
 import org.springframework.roo.model.JavaPackage;
 import org.springframework.roo.model.JavaSymbolName;
 import org.springframework.roo.model.JavaType;
+import org.springframework.roo.project.PathResolver;
+import org.springframework.roo.support.logging.HandlerUtils;
 
 import com.github.antlrjavaparser.ASTHelper;
-import com.github.antlrjavaparser.JavaParser;
 import com.github.antlrjavaparser.ParseException;
 import com.github.antlrjavaparser.api.CompilationUnit;
 import com.github.antlrjavaparser.api.ImportDeclaration;
@@ -58,9 +70,58 @@ import com.github.antlrjavaparser.api.type.ClassOrInterfaceType;
 @Service
 public class JavaParserTypeParsingService implements TypeParsingService {
 
+    /**
+     * A compilation unit parsed ahead of time, together with the source it was
+     * parsed from so that stale results can be detected.
+     */
+    private static class PreparsedCompilationUnit {
+        private final CompilationUnit compilationUnit;
+        private final String contents;
+
+        private PreparsedCompilationUnit(final String contents,
+                final CompilationUnit compilationUnit) {
+            this.contents = contents;
+            this.compilationUnit = compilationUnit;
+        }
+    }
+
+    private static final Logger LOGGER = HandlerUtils
+            .getLogger(JavaParserTypeParsingService.class);
+
+    private static final String TYPE_CACHE_DIRECTORY = ".roo"
+            + File.separator + "type-cache";
+
     @Reference MetadataService metadataService;
+    @Reference PathResolver pathResolver;
     @Reference TypeLocationService typeLocationService;
 
+    // Members of the project's types, reused when their files are re-parsed
+    private final JavaParserMemberCache memberCache = new JavaParserMemberCache();
+    private final Map<String, PreparsedCompilationUnit> preparsedCompilationUnits = new ConcurrentHashMap<String, PreparsedCompilationUnit>();
+    // Looks up superclasses for types read from the type cache, as the
+    // parser would have done
+    private final SuperclassResolver superclassResolver = new SuperclassResolver() {
+        public ClassOrInterfaceTypeDetails getSuperclass(
+                final JavaType superclass) {
+            final String superclassId = typeLocationService
+                    .getPhysicalTypeIdentifier(superclass);
+            if (superclassId == null) {
+                return null;
+            }
+            final PhysicalTypeMetadata superPtm = (PhysicalTypeMetadata) metadataService
+                    .get(superclassId);
+            return superPtm == null ? null : superPtm
+                    .getMemberHoldingTypeDetails();
+        }
+    };
+    private volatile JavaParserTypeCache typeCache;
+    private String version;
+
+    protected void activate(final ComponentContext context) {
+        version = context.getBundleContext().getBundle().getVersion()
+                .toString();
+    }
+
     private void addEnumConstant(final List<EnumConstantDeclaration> constants,
             final JavaSymbolName name) {
         // Determine location to insert
@@ -119,13 +180,98 @@ public class JavaParserTypeParsingService implements TypeParsingService {
         if (StringUtils.isBlank(typeContents)) {
             return null;
         }
-        return getTypeFromString(typeContents, declaredByMetadataId, typeName);
+        final JavaParserTypeCache cache = getTypeCache();
+        final PreparsedCompilationUnit preparsed = preparsedCompilationUnits
+                .remove(fileIdentifier);
+        if (cache != null) {
+            final ClassOrInterfaceTypeDetails cachedType = cache.get(
+                    fileIdentifier, typeContents, declaredByMetadataId,
+                    typeName, superclassResolver);
+            if (cachedType != null) {
+                return cachedType;
+            }
+        }
+        final ClassOrInterfaceTypeDetails cid;
+        if (preparsed != null && preparsed.contents.equals(typeContents)) {
+            cid = getTypeFromCompilationUnit(preparsed.compilationUnit,
+                    typeContents, declaredByMetadataId, typeName, memberCache);
+        }
+        else {
+            cid = getTypeFromString(typeContents, declaredByMetadataId,
+                    typeName, memberCache);
+        }
+        if (cache != null && cid != null) {
+            cache.put(fileIdentifier, typeContents, declaredByMetadataId,
+                    typeName, cid);
+        }
+        return cid;
+    }
+
+    /**
+     * Builds the {@link ClassOrInterfaceTypeDetails} for the given type from an
+     * already parsed compilation unit.
+     * 
+     * @param compilationUnit the parsed compilation unit (required)
+     * @param source the source the compilation unit was parsed from
+     *            (required)
+     * @param declaredByMetadataId the metadata ID that should be used in the
+     *            returned object (required)
+     * @param typeName the Java type to locate in the compilation unit
+     *            (required)
+     * @param typeMemberCache the cache of previously built members (can be
+     *            <code>null</code>)
+     * @return <code>null</code> if the compilation unit does not contain the
+     *         type
+     */
+    private ClassOrInterfaceTypeDetails getTypeFromCompilationUnit(
+            final CompilationUnit compilationUnit, final String source,
+            final String declaredByMetadataId, final JavaType typeName,
+            final JavaParserMemberCache typeMemberCache) {
+        final TypeDeclaration typeDeclaration = JavaParserUtils
+                .locateTypeDeclaration(compilationUnit, typeName);
+        if (typeDeclaration == null) {
+            return null;
+        }
+        return JavaParserClassOrInterfaceTypeDetailsBuilder.getInstance(
+                compilationUnit, null, typeDeclaration, declaredByMetadataId,
+                typeName, metadataService, typeLocationService,
+                typeMemberCache, source).build();
+    }
+
+    /**
+     * Returns the on-disk cache of parsed types, if there is a project to keep
+     * it in
+     * 
+     * @return <code>null</code> if none is available
+     */
+    private JavaParserTypeCache getTypeCache() {
+        if (typeCache == null && version != null) {
+            final String root;
+            try {
+                root = pathResolver.getRoot();
+            }
+            catch (final RuntimeException e) {
+                return null;
+            }
+            if (StringUtils.isNotBlank(root)) {
+                typeCache = new JavaParserTypeCache(new File(root,
+                        TYPE_CACHE_DIRECTORY), version);
+            }
+        }
+        return typeCache;
     }
 
     @Override
     public ClassOrInterfaceTypeDetails getTypeFromString(
             final String fileContents, final String declaredByMetadataId,
             final JavaType typeName) {
+        return getTypeFromString(fileContents, declaredByMetadataId, typeName,
+                null);
+    }
+
+    private ClassOrInterfaceTypeDetails getTypeFromString(
+            final String fileContents, final String declaredByMetadataId,
+            final JavaType typeName, final JavaParserMemberCache typeMemberCache) {
         if (StringUtils.isBlank(fileContents)) {
             return null;
         }
@@ -134,17 +280,10 @@ public class JavaParserTypeParsingService implements TypeParsingService {
                 "Declaring metadata ID required");
         Validate.notNull(typeName, "Java type to locate required");
         try {
-            final CompilationUnit compilationUnit = JavaParser
-                    .parse(new ByteArrayInputStream(fileContents.getBytes()));
-            final TypeDeclaration typeDeclaration = JavaParserUtils
-                    .locateTypeDeclaration(compilationUnit, typeName);
-            if (typeDeclaration == null) {
-                return null;
-            }
-            return JavaParserClassOrInterfaceTypeDetailsBuilder.getInstance(
-                    compilationUnit, null, typeDeclaration,
-                    declaredByMetadataId, typeName, metadataService,
-                    typeLocationService).build();
+            final CompilationUnit compilationUnit = JavaParserSourceUtils
+                    .parse(fileContents);
+            return getTypeFromCompilationUnit(compilationUnit, fileContents,
+                    declaredByMetadataId, typeName, typeMemberCache);
         }
         catch (final IOException e) {
             throw new IllegalStateException(e);
@@ -155,6 +294,130 @@ public class JavaParserTypeParsingService implements TypeParsingService {
         }
     }
 
+    /**
+     * Returns the original source with only the lines of the changed
+     * declarations replaced, provided that it is equivalent to the updated
+     * source; otherwise returns the updated source.
+     * 
+     * @param originalContents the original source
+     * @param originalOutline the outline of the original compilation unit
+     * @param updatedContents the source of the updated compilation unit
+     * @return the contents to write
+     */
+    private String getPatchedContents(final String originalContents,
+            final CompilationUnitOutline originalOutline,
+            final String updatedContents) {
+        try {
+            final CompilationUnit updatedCompilationUnit = JavaParserSourceUtils
+                    .parse(updatedContents);
+            final String patchedContents = UpdateCompilationUnitUtils
+                    .getPatchedContents(originalContents, originalOutline,
+                            updatedContents, new CompilationUnitOutline(
+                                    updatedCompilationUnit));
+            // Only trust the patch if it parses to the same declarations
+            if (patchedContents != null
+                    && JavaParserSourceUtils.parse(patchedContents).toString()
+                            .equals(updatedCompilationUnit.toString())) {
+                return patchedContents;
+            }
+        }
+        catch (final IOException e) {
+            LOGGER.fine("Unable to patch compilation unit: " + e.getMessage());
+        }
+        catch (final ParseException e) {
+            LOGGER.fine("Unable to patch compilation unit: " + e.getMessage());
+        }
+        return updatedContents;
+    }
+
+    @Override
+    public String patchAndGetCompilationUnitContents(
+            final String fileIdentifier, final ClassOrInterfaceTypeDetails cid) {
+        return updateAndGetCompilationUnitContents(fileIdentifier, cid, true);
+    }
+
+    @Override
+    public void prepareTypesAtLocations(
+            final Collection<String> fileIdentifiers) {
+        Validate.notNull(fileIdentifiers, "Compilation unit paths required");
+        preparsedCompilationUnits.clear();
+        if (fileIdentifiers.isEmpty()) {
+            return;
+        }
+        final JavaParserTypeCache cache = getTypeCache();
+        // Lexing and parsing a compilation unit doesn't depend on any other
+        // type, so it can be done concurrently; building the type details
+        // resolves superclasses through the metadata service and is left to
+        // the calling thread
+        final Set<File> cacheEntries = Collections
+                .newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+        final ExecutorService executor = Executors.newFixedThreadPool(Math
+                .min(Runtime.getRuntime().availableProcessors(),
+                        fileIdentifiers.size()));
+        try {
+            for (final String fileIdentifier : fileIdentifiers) {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        preparse(fileIdentifier, cache, cacheEntries);
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        // These are all the project's types, so any other entries are for
+        // deleted files or superseded contents
+        if (cache != null) {
+            cache.retain(cacheEntries);
+        }
+    }
+
+    /**
+     * Parses the given compilation unit, unless the type cache already holds
+     * the type built from its current contents
+     * 
+     * @param fileIdentifier the location of the compilation unit (required)
+     * @param cache the type cache (may be <code>null</code>)
+     * @param cacheEntries receives the cache entry for the file's current
+     *            contents, whether or not it exists yet (required)
+     */
+    private void preparse(final String fileIdentifier,
+            final JavaParserTypeCache cache, final Set<File> cacheEntries) {
+        try {
+            final String contents = FileUtils.readFileToString(new File(
+                    fileIdentifier));
+            if (StringUtils.isBlank(contents)) {
+                return;
+            }
+            if (cache != null) {
+                final File cacheEntry = cache.getEntry(fileIdentifier,
+                        contents);
+                if (cacheEntry != null) {
+                    cacheEntries.add(cacheEntry);
+                    if (cacheEntry.isFile()) {
+                        return;
+                    }
+                }
+            }
+            final CompilationUnit compilationUnit = JavaParserSourceUtils
+                    .parse(contents);
+            preparsedCompilationUnits.put(fileIdentifier,
+                    new PreparsedCompilationUnit(contents, compilationUnit));
+        }
+        catch (final Exception e) {
+            // The file will be parsed again on demand, which reports the error
+            LOGGER.fine("Unable to pre-parse '" + fileIdentifier + "': "
+                    + e.getMessage());
+        }
+    }
+
     /**
      * Appends the presented class to the end of the presented body
      * declarations. The body declarations appear within the presented
@@ -478,6 +741,12 @@ public class JavaParserTypeParsingService implements TypeParsingService {
     @Override
     public String updateAndGetCompilationUnitContents(
             final String fileIdentifier, final ClassOrInterfaceTypeDetails cid) {
+        return updateAndGetCompilationUnitContents(fileIdentifier, cid, false);
+    }
+
+    private String updateAndGetCompilationUnitContents(
+            final String fileIdentifier, final ClassOrInterfaceTypeDetails cid,
+            final boolean patch) {
         // Validate parameters
         Validate.notBlank(fileIdentifier, "Oringinal unit path required");
         Validate.notNull(cid, "Type details required");
@@ -495,8 +764,7 @@ public class JavaParserTypeParsingService implements TypeParsingService {
         }
         CompilationUnit compilationUnit;
         try {
-            compilationUnit = JavaParser.parse(new ByteArrayInputStream(
-                    fileContents.getBytes()));
+            compilationUnit = JavaParserSourceUtils.parse(fileContents);
 
         }
         catch (final IOException e) {
@@ -505,13 +773,14 @@ public class JavaParserTypeParsingService implements TypeParsingService {
         catch (final ParseException e) {
             throw new IllegalStateException(e);
         }
+        final CompilationUnitOutline originalOutline = patch ? new CompilationUnitOutline(
+                compilationUnit) : null;
 
         // Load new compilation unit from cid information
         final String cidContents = getCompilationUnitContents(cid);
         CompilationUnit cidCompilationUnit;
         try {
-            cidCompilationUnit = JavaParser.parse(new ByteArrayInputStream(
-                    cidContents.getBytes()));
+            cidCompilationUnit = JavaParserSourceUtils.parse(cidContents);
 
         }
         catch (final IOException e) {
@@ -536,6 +805,11 @@ public class JavaParserTypeParsingService implements TypeParsingService {
                 cidCompilationUnit);
 
         // Return new contents
-        return compilationUnit.toString();
+        final String updatedContents = compilationUnit.toString();
+        if (!patch) {
+            return updatedContents;
+        }
+        return getPatchedContents(fileContents, originalOutline,
+                updatedContents);
     }
 }
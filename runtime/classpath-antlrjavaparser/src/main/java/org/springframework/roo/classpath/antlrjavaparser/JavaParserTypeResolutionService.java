@@ -1,6 +1,5 @@
 package org.springframework.roo.classpath.antlrjavaparser;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 
@@ -13,7 +12,6 @@ import org.springframework.roo.classpath.TypeResolutionService;
 import org.springframework.roo.model.JavaPackage;
 import org.springframework.roo.model.JavaType;
 
-import com.github.antlrjavaparser.JavaParser;
 import com.github.antlrjavaparser.ParseException;
 import com.github.antlrjavaparser.api.CompilationUnit;
 import com.github.antlrjavaparser.api.body.TypeDeclaration;
@@ -40,8 +38,9 @@ public class JavaParserTypeResolutionService implements TypeResolutionService {
             if (StringUtils.isBlank(typeContents)) {
                 return null;
             }
-            final CompilationUnit compilationUnit = JavaParser
-                    .parse(new ByteArrayInputStream(typeContents.getBytes()));
+            // Only the declarations are needed, so skip the code blocks
+            final CompilationUnit compilationUnit = JavaParserSourceUtils
+                    .parse(JavaSourceHeaderUtils.stripCodeBlocks(typeContents));
             final String typeName = fileIdentifier.substring(
                     fileIdentifier.lastIndexOf(File.separator) + 1,
                     fileIdentifier.lastIndexOf("."));
@@ -82,8 +81,9 @@ public class JavaParserTypeResolutionService implements TypeResolutionService {
             if (StringUtils.isBlank(typeContents)) {
                 return null;
             }
-            final CompilationUnit compilationUnit = JavaParser
-                    .parse(new ByteArrayInputStream(typeContents.getBytes()));
+            // Only the declarations are needed, so skip the code blocks
+            final CompilationUnit compilationUnit = JavaParserSourceUtils
+                    .parse(JavaSourceHeaderUtils.stripCodeBlocks(typeContents));
             if (compilationUnit == null || compilationUnit.getPackage() == null) {
                 return null;
             }
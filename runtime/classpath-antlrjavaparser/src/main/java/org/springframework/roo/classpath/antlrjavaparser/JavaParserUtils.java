@@ -16,8 +16,10 @@ import org.springframework.roo.model.JavaSymbolName;
 import org.springframework.roo.model.JavaType;
 import org.springframework.roo.model.JdkJavaType;
 
+import com.github.antlrjavaparser.api.Comment;
 import com.github.antlrjavaparser.api.CompilationUnit;
 import com.github.antlrjavaparser.api.ImportDeclaration;
+import com.github.antlrjavaparser.api.Node;
 import com.github.antlrjavaparser.api.TypeParameter;
 import com.github.antlrjavaparser.api.body.ClassOrInterfaceDeclaration;
 import com.github.antlrjavaparser.api.body.ModifierSet;
@@ -56,6 +58,30 @@ public final class JavaParserUtils {
     private JavaParserUtils() {
     }
 
+    /**
+     * Returns the first line of the given node, including any annotations and
+     * comments that precede it
+     * 
+     * @param node the node
+     * @param annotations the node's annotations (can be <code>null</code>)
+     * @return a line number, or less than one if the node has no position
+     */
+    public static int getBeginLine(final Node node,
+            final List<AnnotationExpr> annotations) {
+        int beginLine = node.getBeginLine();
+        if (annotations != null) {
+            for (final AnnotationExpr annotation : annotations) {
+                beginLine = Math.min(beginLine, annotation.getBeginLine());
+            }
+        }
+        if (node.getBeginComments() != null) {
+            for (final Comment comment : node.getBeginComments()) {
+                beginLine = Math.min(beginLine, comment.getBeginLine());
+            }
+        }
+        return beginLine;
+    }
+
     /**
      * Converts the indicated {@link NameExpr} into a
      * {@link ClassOrInterfaceType}.
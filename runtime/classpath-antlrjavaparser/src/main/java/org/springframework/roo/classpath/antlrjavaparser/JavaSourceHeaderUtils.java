@@ -0,0 +1,172 @@
+package org.springframework.roo.classpath.antlrjavaparser;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Reduces Java source code to the declarations a type header parse needs.
+ * <p>
+ * The contents of every code block (method, constructor and initializer
+ * bodies, field initializer blocks and anonymous or enum constant class
+ * bodies) are located by brace matching and blanked out, so the parser only
+ * has to process declarations. Line breaks are kept so that positions reported
+ * by the parser still refer to the original source.
+ * <p>
+ * This class is for internal use by the Java Parser module and should NOT be
+ * used by other code.
+ * 
+ * @since 2.0.0
+ */
+public final class JavaSourceHeaderUtils {
+
+    private static final Set<String> TYPE_KEYWORDS = new HashSet<String>(
+            Arrays.asList("class", "enum", "interface"));
+
+    /**
+     * Constructor is private to prevent instantiation
+     */
+    private JavaSourceHeaderUtils() {
+    }
+
+    /**
+     * Returns the given Java source with the contents of all code blocks
+     * replaced by whitespace.
+     * 
+     * @param source the source of a compilation unit (required)
+     * @return the reduced source, or the given source if its braces don't
+     *         balance
+     */
+    public static String stripCodeBlocks(final String source) {
+        Validate.notNull(source, "Source required");
+        final StringBuilder sb = new StringBuilder(source.length());
+        final int length = source.length();
+        int blockDepth = 0;
+        int parenthesisDepth = 0;
+        int typeDepth = 0;
+        boolean typeKeywordSeen = false;
+        char previousSignificant = 0;
+        int i = 0;
+        while (i < length) {
+            final char c = source.charAt(i);
+            final int literalEnd = getEndOfCommentOrLiteral(source, i);
+            if (literalEnd > i) {
+                appendRange(sb, source, i, literalEnd, blockDepth > 0);
+                i = literalEnd;
+                continue;
+            }
+            if (blockDepth > 0) {
+                if (c == '{') {
+                    blockDepth++;
+                }
+                else if (c == '}') {
+                    blockDepth--;
+                }
+                sb.append(blockDepth == 0 || c == '\n' || c == '\r' ? c : ' ');
+                i++;
+                continue;
+            }
+            if (Character.isJavaIdentifierStart(c)) {
+                int end = i + 1;
+                while (end < length
+                        && Character.isJavaIdentifierPart(source.charAt(end))) {
+                    end++;
+                }
+                final String word = source.substring(i, end);
+                if (previousSignificant != '.' && TYPE_KEYWORDS.contains(word)) {
+                    typeKeywordSeen = true;
+                }
+                sb.append(word);
+                previousSignificant = source.charAt(end - 1);
+                i = end;
+                continue;
+            }
+            sb.append(c);
+            if (c == '(') {
+                parenthesisDepth++;
+            }
+            else if (c == ')') {
+                parenthesisDepth--;
+            }
+            else if (parenthesisDepth == 0) {
+                if (c == '{') {
+                    if (typeKeywordSeen) {
+                        typeDepth++;
+                    }
+                    else {
+                        blockDepth = 1;
+                    }
+                    typeKeywordSeen = false;
+                }
+                else if (c == '}') {
+                    typeDepth--;
+                    typeKeywordSeen = false;
+                }
+                else if (c == ';') {
+                    typeKeywordSeen = false;
+                }
+            }
+            if (!Character.isWhitespace(c)) {
+                previousSignificant = c;
+            }
+            i++;
+        }
+        if (blockDepth != 0 || typeDepth != 0 || parenthesisDepth != 0) {
+            return source;
+        }
+        return sb.toString();
+    }
+
+    private static void appendRange(final StringBuilder sb,
+            final String source, final int start, final int end,
+            final boolean blank) {
+        if (!blank) {
+            sb.append(source, start, end);
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            final char c = source.charAt(i);
+            sb.append(c == '\n' || c == '\r' ? c : ' ');
+        }
+    }
+
+    /**
+     * Returns the index just after the comment, string literal or character
+     * literal starting at the given index.
+     * 
+     * @param source the source being scanned
+     * @param start the index to check
+     * @return <code>start</code> if no comment or literal starts there
+     */
+    private static int getEndOfCommentOrLiteral(final String source,
+            final int start) {
+        final int length = source.length();
+        final char c = source.charAt(start);
+        final char next = start + 1 < length ? source.charAt(start + 1) : 0;
+        if (c == '/' && next == '/') {
+            int end = start + 2;
+            while (end < length && source.charAt(end) != '\n'
+                    && source.charAt(end) != '\r') {
+                end++;
+            }
+            return end;
+        }
+        if (c == '/' && next == '*') {
+            final int end = source.indexOf("*/", start + 2);
+            return end < 0 ? length : end + 2;
+        }
+        if (c == '"' || c == '\'') {
+            int end = start + 1;
+            while (end < length && source.charAt(end) != c) {
+                if (source.charAt(end) == '\\') {
+                    end++;
+                }
+                end++;
+            }
+            return Math.min(end + 1, length);
+        }
+        return start;
+    }
+}
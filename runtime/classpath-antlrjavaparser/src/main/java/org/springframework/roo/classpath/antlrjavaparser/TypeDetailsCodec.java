@@ -0,0 +1,764 @@
+package org.springframework.roo.classpath.antlrjavaparser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.roo.classpath.PhysicalTypeCategory;
+import org.springframework.roo.classpath.details.AbstractInvocableMemberMetadataBuilder;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetailsBuilder;
+import org.springframework.roo.classpath.details.ConstructorMetadata;
+import org.springframework.roo.classpath.details.ConstructorMetadataBuilder;
+import org.springframework.roo.classpath.details.FieldMetadata;
+import org.springframework.roo.classpath.details.FieldMetadataBuilder;
+import org.springframework.roo.classpath.details.IdentifiableJavaStructure;
+import org.springframework.roo.classpath.details.ImportMetadata;
+import org.springframework.roo.classpath.details.ImportMetadataBuilder;
+import org.springframework.roo.classpath.details.InitializerMetadata;
+import org.springframework.roo.classpath.details.InitializerMetadataBuilder;
+import org.springframework.roo.classpath.details.InvocableMemberMetadata;
+import org.springframework.roo.classpath.details.MethodMetadata;
+import org.springframework.roo.classpath.details.MethodMetadataBuilder;
+import org.springframework.roo.classpath.details.annotations.AnnotatedJavaType;
+import org.springframework.roo.classpath.details.annotations.AnnotationAttributeValue;
+import org.springframework.roo.classpath.details.annotations.AnnotationMetadata;
+import org.springframework.roo.classpath.details.annotations.AnnotationMetadataBuilder;
+import org.springframework.roo.classpath.details.annotations.ArrayAttributeValue;
+import org.springframework.roo.classpath.details.annotations.BooleanAttributeValue;
+import org.springframework.roo.classpath.details.annotations.CharAttributeValue;
+import org.springframework.roo.classpath.details.annotations.ClassAttributeValue;
+import org.springframework.roo.classpath.details.annotations.DoubleAttributeValue;
+import org.springframework.roo.classpath.details.annotations.EnumAttributeValue;
+import org.springframework.roo.classpath.details.annotations.IntegerAttributeValue;
+import org.springframework.roo.classpath.details.annotations.LongAttributeValue;
+import org.springframework.roo.classpath.details.annotations.NestedAnnotationAttributeValue;
+import org.springframework.roo.classpath.details.annotations.StringAttributeValue;
+import org.springframework.roo.classpath.details.comments.AbstractComment;
+import org.springframework.roo.classpath.details.comments.BlockComment;
+import org.springframework.roo.classpath.details.comments.CommentStructure;
+import org.springframework.roo.classpath.details.comments.JavadocComment;
+import org.springframework.roo.classpath.details.comments.LineComment;
+import org.springframework.roo.classpath.itd.InvocableMemberBodyBuilder;
+import org.springframework.roo.model.DataType;
+import org.springframework.roo.model.EnumDetails;
+import org.springframework.roo.model.JavaPackage;
+import org.springframework.roo.model.JavaSymbolName;
+import org.springframework.roo.model.JavaType;
+
+/**
+ * Converts the {@link ClassOrInterfaceTypeDetails} built by Java Parser to and
+ * from a compact binary form, so that they can be stored by
+ * {@link JavaParserTypeCache}.
+ * <p>
+ * Each distinct string (metadata IDs, type names, method bodies, etc.) is
+ * written once and thereafter referred to by its index. Superclass details
+ * are not written, as they are built from other compilation units; instead
+ * they are looked up again via a {@link SuperclassResolver} when the type is
+ * read, exactly as when the type is parsed.
+ * <p>
+ * This class is for internal use by the Java Parser module and should NOT be
+ * used by other code.
+ * 
+ * @since 2.0.0
+ */
+public final class TypeDetailsCodec {
+
+    /**
+     * Looks up the details of a superclass, as for a freshly parsed type
+     */
+    public interface SuperclassResolver {
+
+        /**
+         * Returns the details of the given superclass
+         * 
+         * @param superclass the superclass (never <code>null</code>)
+         * @return <code>null</code> if they are not available
+         */
+        ClassOrInterfaceTypeDetails getSuperclass(JavaType superclass);
+    }
+
+    /**
+     * Reads one encoded type, with its own string table
+     */
+    private static class Decoder {
+        private final DataInputStream in;
+        private final SuperclassResolver superclassResolver;
+        private final List<String> strings = new ArrayList<String>();
+
+        private Decoder(final byte[] bytes,
+                final SuperclassResolver superclassResolver) {
+            in = new DataInputStream(new ByteArrayInputStream(bytes));
+            this.superclassResolver = superclassResolver;
+        }
+
+        private List<AnnotationMetadata> readAnnotations() throws IOException {
+            final int count = readCount();
+            final List<AnnotationMetadata> annotations = new ArrayList<AnnotationMetadata>(
+                    count);
+            for (int i = 0; i < count; i++) {
+                final AnnotationMetadata annotation = readAnnotation();
+                annotation.setCommentStructure(readCommentStructure());
+                annotations.add(annotation);
+            }
+            return annotations;
+        }
+
+        private AnnotationMetadata readAnnotation() throws IOException {
+            final JavaType annotationType = readJavaType();
+            final int count = readCount();
+            final List<AnnotationAttributeValue<?>> attributeValues = new ArrayList<AnnotationAttributeValue<?>>(
+                    count);
+            for (int i = 0; i < count; i++) {
+                attributeValues.add(readAttributeValue());
+            }
+            return new AnnotationMetadataBuilder(annotationType,
+                    attributeValues).build();
+        }
+
+        private AnnotationAttributeValue<?> readAttributeValue()
+                throws IOException {
+            final int kind = in.readByte();
+            final JavaSymbolName name = readSymbolName();
+            switch (kind) {
+            case ARRAY_VALUE:
+                final int count = readCount();
+                final List<AnnotationAttributeValue<?>> values = new ArrayList<AnnotationAttributeValue<?>>(
+                        count);
+                for (int i = 0; i < count; i++) {
+                    values.add(readAttributeValue());
+                }
+                return new ArrayAttributeValue<AnnotationAttributeValue<?>>(
+                        name, values);
+            case BOOLEAN_VALUE:
+                return new BooleanAttributeValue(name, in.readBoolean());
+            case CHAR_VALUE:
+                return new CharAttributeValue(name, in.readChar());
+            case CLASS_VALUE:
+                return new ClassAttributeValue(name, readJavaType());
+            case DOUBLE_VALUE:
+                return new DoubleAttributeValue(name, in.readDouble(),
+                        in.readBoolean());
+            case ENUM_VALUE:
+                return new EnumAttributeValue(name, new EnumDetails(
+                        readJavaType(), readSymbolName()));
+            case INTEGER_VALUE:
+                return new IntegerAttributeValue(name, in.readInt());
+            case LONG_VALUE:
+                return new LongAttributeValue(name, in.readLong());
+            case NESTED_ANNOTATION_VALUE:
+                return new NestedAnnotationAttributeValue(name,
+                        readAnnotation());
+            case STRING_VALUE:
+                return new StringAttributeValue(name, readString());
+            default:
+                throw new IOException("Unknown attribute value kind " + kind);
+            }
+        }
+
+        private InvocableMemberBodyBuilder readBody() throws IOException {
+            return InvocableMemberBodyBuilder.getInstance()
+                    .append(readString());
+        }
+
+        private List<AbstractComment> readComments() throws IOException {
+            final int count = readNumber() - 1;
+            if (count < 0) {
+                return null;
+            }
+            if (count > in.available()) {
+                throw new IOException("Invalid count " + count);
+            }
+            final List<AbstractComment> comments = new ArrayList<AbstractComment>(
+                    count);
+            for (int i = 0; i < count; i++) {
+                final int kind = in.readByte();
+                final String comment = readString();
+                switch (kind) {
+                case BLOCK_COMMENT:
+                    comments.add(new BlockComment(comment));
+                    break;
+                case JAVADOC_COMMENT:
+                    comments.add(new JavadocComment(comment));
+                    break;
+                case LINE_COMMENT:
+                    comments.add(new LineComment(comment));
+                    break;
+                default:
+                    throw new IOException("Unknown comment kind " + kind);
+                }
+            }
+            return comments;
+        }
+
+        private CommentStructure readCommentStructure() throws IOException {
+            if (!in.readBoolean()) {
+                return null;
+            }
+            final CommentStructure commentStructure = new CommentStructure();
+            commentStructure.setBeginComments(readComments());
+            commentStructure.setInternalComments(readComments());
+            commentStructure.setEndComments(readComments());
+            return commentStructure;
+        }
+
+        /**
+         * Reads the size of something that follows, which can't exceed the
+         * number of bytes left
+         */
+        private int readCount() throws IOException {
+            final int count = readNumber();
+            if (count > in.available()) {
+                throw new IOException("Invalid count " + count);
+            }
+            return count;
+        }
+
+        private int readNumber() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                final int b = in.readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    if (value < 0) {
+                        throw new IOException("Invalid number " + value);
+                    }
+                    return value;
+                }
+            }
+            throw new IOException("Malformed number");
+        }
+
+        private JavaType readJavaType() throws IOException {
+            final String fullyQualifiedTypeName = readString();
+            if (fullyQualifiedTypeName == null) {
+                return null;
+            }
+            final JavaType enclosingType = readJavaType();
+            final int arrayDimensions = readNumber();
+            final DataType dataType = DataType.values()[readNumber()];
+            final JavaSymbolName argName = readSymbolName();
+            return new JavaType(fullyQualifiedTypeName, enclosingType,
+                    arrayDimensions, dataType, argName, readJavaTypes());
+        }
+
+        private List<JavaType> readJavaTypes() throws IOException {
+            final int count = readCount();
+            final List<JavaType> javaTypes = new ArrayList<JavaType>(count);
+            for (int i = 0; i < count; i++) {
+                javaTypes.add(readJavaType());
+            }
+            return javaTypes;
+        }
+
+        private <T extends InvocableMemberMetadata> T readMember(
+                final T member) throws IOException {
+            member.setCommentStructure(readCommentStructure());
+            return member;
+        }
+
+        private void readParameters(
+                final AbstractInvocableMemberMetadataBuilder<?> builder)
+                throws IOException {
+            final int count = readCount();
+            final List<AnnotatedJavaType> parameterTypes = new ArrayList<AnnotatedJavaType>(
+                    count);
+            final List<JavaSymbolName> parameterNames = new ArrayList<JavaSymbolName>(
+                    count);
+            for (int i = 0; i < count; i++) {
+                final AnnotatedJavaType parameterType = new AnnotatedJavaType(
+                        readJavaType(), readAnnotations());
+                parameterType.setVarArgs(in.readBoolean());
+                parameterTypes.add(parameterType);
+                parameterNames.add(readSymbolName());
+            }
+            builder.setParameterTypes(parameterTypes);
+            builder.setParameterNames(parameterNames);
+            builder.setThrowsTypes(readJavaTypes());
+        }
+
+        private String readString() throws IOException {
+            final int index = readNumber() - 1;
+            if (index < 0) {
+                return null;
+            }
+            if (index < strings.size()) {
+                return strings.get(index);
+            }
+            if (index > strings.size()) {
+                throw new IOException("Invalid string reference " + index);
+            }
+            final byte[] bytes = new byte[readCount()];
+            in.readFully(bytes);
+            final String string = new String(bytes, UTF_8);
+            strings.add(string);
+            return string;
+        }
+
+        private JavaSymbolName readSymbolName() throws IOException {
+            final String symbolName = readString();
+            return symbolName == null ? null : new JavaSymbolName(symbolName);
+        }
+
+        private ClassOrInterfaceTypeDetails readType() throws IOException {
+            final ClassOrInterfaceTypeDetailsBuilder cidBuilder = new ClassOrInterfaceTypeDetailsBuilder(
+                    readString());
+            cidBuilder.setModifier(in.readInt());
+            cidBuilder.setName(readJavaType());
+            final PhysicalTypeCategory physicalTypeCategory = PhysicalTypeCategory
+                    .values()[readNumber()];
+            cidBuilder.setPhysicalTypeCategory(physicalTypeCategory);
+            cidBuilder.setAnnotations(readAnnotations());
+            cidBuilder.setExtendsTypes(readJavaTypes());
+            cidBuilder.setImplementsTypes(readJavaTypes());
+
+            int count = readCount();
+            for (int i = 0; i < count; i++) {
+                cidBuilder.addEnumConstant(readSymbolName());
+            }
+
+            count = readCount();
+            for (int i = 0; i < count; i++) {
+                final ImportMetadataBuilder importBuilder = new ImportMetadataBuilder(
+                        readString(), in.readInt(), readPackage(),
+                        readJavaType(), in.readBoolean(), in.readBoolean());
+                importBuilder.setCommentStructure(readCommentStructure());
+                cidBuilder.add(importBuilder.build());
+            }
+
+            count = readCount();
+            for (int i = 0; i < count; i++) {
+                final FieldMetadataBuilder fieldBuilder = new FieldMetadataBuilder(
+                        readString());
+                fieldBuilder.setModifier(in.readInt());
+                fieldBuilder.setAnnotations(readAnnotations());
+                fieldBuilder.setFieldName(readSymbolName());
+                fieldBuilder.setFieldType(readJavaType());
+                fieldBuilder.setFieldInitializer(readString());
+                final FieldMetadata field = fieldBuilder.build();
+                field.setCommentStructure(readCommentStructure());
+                cidBuilder.addField(field);
+            }
+
+            count = readCount();
+            for (int i = 0; i < count; i++) {
+                final MethodMetadataBuilder methodBuilder = new MethodMetadataBuilder(
+                        readString());
+                methodBuilder.setModifier(in.readInt());
+                methodBuilder.setAnnotations(readAnnotations());
+                methodBuilder.setMethodName(readSymbolName());
+                methodBuilder.setReturnType(readJavaType());
+                readParameters(methodBuilder);
+                methodBuilder.setBodyBuilder(readBody());
+                cidBuilder.addMethod(readMember(methodBuilder.build()));
+            }
+
+            count = readCount();
+            for (int i = 0; i < count; i++) {
+                final ConstructorMetadataBuilder constructorBuilder = new ConstructorMetadataBuilder(
+                        readString());
+                constructorBuilder.setModifier(in.readInt());
+                constructorBuilder.setAnnotations(readAnnotations());
+                readParameters(constructorBuilder);
+                constructorBuilder.setBodyBuilder(readBody());
+                cidBuilder.addConstructor(readMember(constructorBuilder
+                        .build()));
+            }
+
+            count = readCount();
+            for (int i = 0; i < count; i++) {
+                final String declaredByMetadataId = readString();
+                final int modifier = in.readInt();
+                final boolean isStatic = in.readBoolean();
+                cidBuilder.addInitializer(new InitializerMetadataBuilder(
+                        declaredByMetadataId, modifier, isStatic, readBody()));
+            }
+
+            count = readCount();
+            for (int i = 0; i < count; i++) {
+                cidBuilder.addInnerType(readType());
+            }
+
+            // Obtain the superclass as the parser would have done
+            final List<JavaType> extendsTypes = cidBuilder.getExtendsTypes();
+            if (physicalTypeCategory == PhysicalTypeCategory.CLASS
+                    && extendsTypes.size() == 1) {
+                final ClassOrInterfaceTypeDetails superclass = superclassResolver
+                        .getSuperclass(extendsTypes.get(0));
+                if (superclass != null) {
+                    cidBuilder.setSuperclass(superclass);
+                }
+            }
+            return cidBuilder.build();
+        }
+
+        private JavaPackage readPackage() throws IOException {
+            final String packageName = readString();
+            return packageName == null ? null : new JavaPackage(packageName);
+        }
+    }
+
+    /**
+     * Writes one type, with its own string table
+     */
+    private static class Encoder {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+        private void writeAnnotation(final AnnotationMetadata annotation)
+                throws IOException {
+            writeJavaType(annotation.getAnnotationType());
+            final List<JavaSymbolName> attributeNames = annotation
+                    .getAttributeNames();
+            writeNumber(attributeNames.size());
+            for (final JavaSymbolName attributeName : attributeNames) {
+                writeAttributeValue(annotation.getAttribute(attributeName));
+            }
+        }
+
+        private void writeAnnotations(
+                final Collection<AnnotationMetadata> annotations)
+                throws IOException {
+            writeNumber(annotations.size());
+            for (final AnnotationMetadata annotation : annotations) {
+                writeAnnotation(annotation);
+                writeCommentStructure(annotation.getCommentStructure());
+            }
+        }
+
+        private void writeAttributeValue(final AnnotationAttributeValue<?> value)
+                throws IOException {
+            if (value instanceof ArrayAttributeValue) {
+                writeValueHeader(ARRAY_VALUE, value);
+                final List<?> elements = ((ArrayAttributeValue<?>) value)
+                        .getValue();
+                writeNumber(elements.size());
+                for (final Object element : elements) {
+                    writeAttributeValue((AnnotationAttributeValue<?>) element);
+                }
+            }
+            else if (value instanceof BooleanAttributeValue) {
+                writeValueHeader(BOOLEAN_VALUE, value);
+                out.writeBoolean(((BooleanAttributeValue) value).getValue());
+            }
+            else if (value instanceof CharAttributeValue) {
+                writeValueHeader(CHAR_VALUE, value);
+                out.writeChar(((CharAttributeValue) value).getValue());
+            }
+            else if (value instanceof ClassAttributeValue) {
+                writeValueHeader(CLASS_VALUE, value);
+                writeJavaType(((ClassAttributeValue) value).getValue());
+            }
+            else if (value instanceof DoubleAttributeValue) {
+                writeValueHeader(DOUBLE_VALUE, value);
+                out.writeDouble(((DoubleAttributeValue) value).getValue());
+                out.writeBoolean(((DoubleAttributeValue) value)
+                        .isFloatingPrecisionOnly());
+            }
+            else if (value instanceof EnumAttributeValue) {
+                writeValueHeader(ENUM_VALUE, value);
+                final EnumDetails enumDetails = ((EnumAttributeValue) value)
+                        .getValue();
+                writeJavaType(enumDetails.getType());
+                writeSymbolName(enumDetails.getField());
+            }
+            else if (value instanceof IntegerAttributeValue) {
+                writeValueHeader(INTEGER_VALUE, value);
+                out.writeInt(((IntegerAttributeValue) value).getValue());
+            }
+            else if (value instanceof LongAttributeValue) {
+                writeValueHeader(LONG_VALUE, value);
+                out.writeLong(((LongAttributeValue) value).getValue());
+            }
+            else if (value instanceof NestedAnnotationAttributeValue) {
+                writeValueHeader(NESTED_ANNOTATION_VALUE, value);
+                writeAnnotation(((NestedAnnotationAttributeValue) value)
+                        .getValue());
+            }
+            else if (value instanceof StringAttributeValue) {
+                writeValueHeader(STRING_VALUE, value);
+                writeString(((StringAttributeValue) value).getValue());
+            }
+            else {
+                throw new UnsupportedValueException();
+            }
+        }
+
+        private void writeComments(final List<AbstractComment> comments)
+                throws IOException {
+            if (comments == null) {
+                writeNumber(0);
+                return;
+            }
+            writeNumber(comments.size() + 1);
+            for (final AbstractComment comment : comments) {
+                if (comment instanceof JavadocComment) {
+                    out.writeByte(JAVADOC_COMMENT);
+                }
+                else if (comment instanceof BlockComment) {
+                    out.writeByte(BLOCK_COMMENT);
+                }
+                else if (comment instanceof LineComment) {
+                    out.writeByte(LINE_COMMENT);
+                }
+                else {
+                    throw new UnsupportedValueException();
+                }
+                writeString(comment.getComment());
+            }
+        }
+
+        private void writeCommentStructure(
+                final CommentStructure commentStructure) throws IOException {
+            out.writeBoolean(commentStructure != null);
+            if (commentStructure != null) {
+                writeComments(commentStructure.getBeginComments());
+                writeComments(commentStructure.getInternalComments());
+                writeComments(commentStructure.getEndComments());
+            }
+        }
+
+        private void writeNumber(final int number) throws IOException {
+            int value = number;
+            while ((value & ~0x7F) != 0) {
+                out.writeByte(value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        private void writeJavaType(final JavaType javaType) throws IOException {
+            if (javaType == null) {
+                writeString(null);
+                return;
+            }
+            writeString(javaType.getFullyQualifiedTypeName());
+            writeJavaType(javaType.getEnclosingType());
+            writeNumber(javaType.getArray());
+            writeNumber(javaType.getDataType().ordinal());
+            writeSymbolName(javaType.getArgName());
+            writeJavaTypes(javaType.getParameters());
+        }
+
+        private void writeJavaTypes(final List<JavaType> javaTypes)
+                throws IOException {
+            writeNumber(javaTypes.size());
+            for (final JavaType javaType : javaTypes) {
+                writeJavaType(javaType);
+            }
+        }
+
+        private void writeParameters(final InvocableMemberMetadata member)
+                throws IOException {
+            final List<AnnotatedJavaType> parameterTypes = member
+                    .getParameterTypes();
+            final List<JavaSymbolName> parameterNames = member
+                    .getParameterNames();
+            if (parameterTypes.size() != parameterNames.size()) {
+                throw new UnsupportedValueException();
+            }
+            writeNumber(parameterTypes.size());
+            for (int i = 0; i < parameterTypes.size(); i++) {
+                final AnnotatedJavaType parameterType = parameterTypes.get(i);
+                writeJavaType(parameterType.getJavaType());
+                writeAnnotations(parameterType.getAnnotations());
+                out.writeBoolean(parameterType.isVarArgs());
+                writeSymbolName(parameterNames.get(i));
+            }
+            writeJavaTypes(member.getThrowsTypes());
+        }
+
+        private void writeString(final String string) throws IOException {
+            if (string == null) {
+                writeNumber(0);
+                return;
+            }
+            final Integer index = strings.get(string);
+            if (index != null) {
+                writeNumber(index + 1);
+                return;
+            }
+            writeNumber(strings.size() + 1);
+            strings.put(string, strings.size());
+            final byte[] stringBytes = string.getBytes(UTF_8);
+            writeNumber(stringBytes.length);
+            out.write(stringBytes);
+        }
+
+        private void writeStructure(final IdentifiableJavaStructure structure)
+                throws IOException {
+            if (!structure.getCustomData().keySet().isEmpty()) {
+                // Custom data can hold anything, so can't be written
+                throw new UnsupportedValueException();
+            }
+            writeString(structure.getDeclaredByMetadataId());
+            out.writeInt(structure.getModifier());
+        }
+
+        private void writeSymbolName(final JavaSymbolName symbolName)
+                throws IOException {
+            writeString(symbolName == null ? null : symbolName.getSymbolName());
+        }
+
+        private void writeType(final ClassOrInterfaceTypeDetails cid)
+                throws IOException {
+            writeStructure(cid);
+            writeJavaType(cid.getName());
+            writeNumber(cid.getPhysicalTypeCategory().ordinal());
+            writeAnnotations(cid.getAnnotations());
+            writeJavaTypes(cid.getExtendsTypes());
+            writeJavaTypes(cid.getImplementsTypes());
+
+            writeNumber(cid.getEnumConstants().size());
+            for (final JavaSymbolName enumConstant : cid.getEnumConstants()) {
+                writeSymbolName(enumConstant);
+            }
+
+            writeNumber(cid.getRegisteredImports().size());
+            for (final ImportMetadata importMetadata : cid
+                    .getRegisteredImports()) {
+                writeStructure(importMetadata);
+                final JavaPackage importPackage = importMetadata
+                        .getImportPackage();
+                writeString(importPackage == null ? null : importPackage
+                        .getFullyQualifiedPackageName());
+                writeJavaType(importMetadata.getImportType());
+                out.writeBoolean(importMetadata.isStatic());
+                out.writeBoolean(importMetadata.isAsterisk());
+                writeCommentStructure(importMetadata.getCommentStructure());
+            }
+
+            writeNumber(cid.getDeclaredFields().size());
+            for (final FieldMetadata field : cid.getDeclaredFields()) {
+                writeStructure(field);
+                writeAnnotations(field.getAnnotations());
+                writeSymbolName(field.getFieldName());
+                writeJavaType(field.getFieldType());
+                writeString(field.getFieldInitializer());
+                writeCommentStructure(field.getCommentStructure());
+            }
+
+            writeNumber(cid.getDeclaredMethods().size());
+            for (final MethodMetadata method : cid.getDeclaredMethods()) {
+                writeStructure(method);
+                writeAnnotations(method.getAnnotations());
+                writeSymbolName(method.getMethodName());
+                writeJavaType(method.getReturnType());
+                writeParameters(method);
+                writeString(method.getBody());
+                writeCommentStructure(method.getCommentStructure());
+            }
+
+            writeNumber(cid.getDeclaredConstructors().size());
+            for (final ConstructorMetadata constructor : cid
+                    .getDeclaredConstructors()) {
+                writeStructure(constructor);
+                writeAnnotations(constructor.getAnnotations());
+                writeParameters(constructor);
+                writeString(constructor.getBody());
+                writeCommentStructure(constructor.getCommentStructure());
+            }
+
+            writeNumber(cid.getDeclaredInitializers().size());
+            for (final InitializerMetadata initializer : cid
+                    .getDeclaredInitializers()) {
+                writeStructure(initializer);
+                out.writeBoolean(initializer.isStatic());
+                writeString(initializer.getBody());
+            }
+
+            writeNumber(cid.getDeclaredInnerTypes().size());
+            for (final ClassOrInterfaceTypeDetails innerType : cid
+                    .getDeclaredInnerTypes()) {
+                writeType(innerType);
+            }
+        }
+
+        private void writeValueHeader(final int kind,
+                final AnnotationAttributeValue<?> value) throws IOException {
+            out.writeByte(kind);
+            writeSymbolName(value.getName());
+        }
+    }
+
+    /**
+     * Thrown when a type holds something this codec can't write
+     */
+    private static class UnsupportedValueException extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * The version of the encoding, which must be incremented whenever it
+     * changes, so that types written in an earlier format are not misread
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int ARRAY_VALUE = 1;
+    private static final int BLOCK_COMMENT = 1;
+    private static final int BOOLEAN_VALUE = 2;
+    private static final int CHAR_VALUE = 3;
+    private static final int CLASS_VALUE = 4;
+    private static final int DOUBLE_VALUE = 5;
+    private static final int ENUM_VALUE = 6;
+    private static final int INTEGER_VALUE = 7;
+    private static final int JAVADOC_COMMENT = 2;
+    private static final int LINE_COMMENT = 3;
+    private static final int LONG_VALUE = 8;
+    private static final int NESTED_ANNOTATION_VALUE = 9;
+    private static final int STRING_VALUE = 10;
+    private static final String UTF_8 = "UTF-8";
+
+    /**
+     * Reads a type written by {@link #encode(ClassOrInterfaceTypeDetails)}
+     * 
+     * @param bytes the encoded type (required)
+     * @param superclassResolver looks up the superclasses of the type and its
+     *            inner types (required)
+     * @return a non-<code>null</code> type
+     * @throws IOException if the bytes are not a valid encoding
+     */
+    public static ClassOrInterfaceTypeDetails decode(final byte[] bytes,
+            final SuperclassResolver superclassResolver) throws IOException {
+        try {
+            return new Decoder(bytes, superclassResolver).readType();
+        }
+        catch (final RuntimeException e) {
+            // e.g. an out of range enum ordinal or an illegal type name
+            throw new IOException("Invalid type details: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the given type, apart from its superclass, as bytes
+     * 
+     * @param cid the type to write (required)
+     * @return <code>null</code> if the type holds custom data or other values
+     *         that can't be written
+     */
+    public static byte[] encode(final ClassOrInterfaceTypeDetails cid) {
+        final Encoder encoder = new Encoder();
+        try {
+            encoder.writeType(cid);
+            encoder.out.flush();
+        }
+        catch (final IOException e) {
+            return null;
+        }
+        return encoder.bytes.toByteArray();
+    }
+
+    /**
+     * Constructor is private to prevent instantiation
+     */
+    private TypeDetailsCodec() {
+    }
+}
@@ -57,6 +57,30 @@ public class UpdateCompilationUnitUtils {
         }
     }
 
+    /**
+     * Replacement of a range of lines of a source file
+     */
+    private static class LineEdit {
+        private final int beginLine;
+        private final int endLine;
+        private final String replacement;
+
+        /**
+         * Constructor
+         * 
+         * @param beginLine the first line to replace
+         * @param endLine the last line to replace; one less than
+         *            <code>beginLine</code> to insert before that line
+         * @param replacement the text replacing those lines
+         */
+        LineEdit(final int beginLine, final int endLine,
+                final String replacement) {
+            this.beginLine = beginLine;
+            this.endLine = endLine;
+            this.replacement = replacement;
+        }
+    }
+
     /**
      * Compare two {@link ImportDeclaration}
      * 
@@ -110,6 +134,244 @@ public class UpdateCompilationUnitUtils {
         return false;
     }
 
+    /**
+     * Returns the original source of a compilation unit with only the lines of
+     * the declarations that differ from the updated compilation unit replaced
+     * by their updated source, so that unchanged declarations keep their
+     * original formatting.
+     * 
+     * @param originalContents the source the original outline was parsed from
+     * @param originalOutline the outline of the compilation unit before it was
+     *            updated
+     * @param updatedContents the source generated from the updated compilation
+     *            unit
+     * @param updatedOutline the outline of the compilation unit parsed from
+     *            <code>updatedContents</code>
+     * @return the patched source, or <code>null</code> if the changes can't be
+     *         mapped to whole lines of the original source (in which case the
+     *         updated source has to be used as is)
+     */
+    public static String getPatchedContents(final String originalContents,
+            final CompilationUnitOutline originalOutline,
+            final String updatedContents,
+            final CompilationUnitOutline updatedOutline) {
+        if (!originalOutline.isPatchable() || !updatedOutline.isPatchable()) {
+            return null;
+        }
+        final List<String> updatedLines = getLines(updatedContents);
+        final List<LineEdit> edits = new ArrayList<LineEdit>();
+
+        // Package
+        if (!ObjectUtils.equals(originalOutline.packageDeclaration,
+                updatedOutline.packageDeclaration)) {
+            if (originalOutline.packageDeclaration == null
+                    || updatedOutline.packageDeclaration == null) {
+                return null;
+            }
+            edits.add(new LineEdit(originalOutline.packageBeginLine,
+                    originalOutline.packageEndLine, join(updatedLines,
+                            updatedOutline.packageBeginLine,
+                            updatedOutline.packageEndLine)));
+        }
+
+        // Imports
+        if (!originalOutline.imports.equals(updatedOutline.imports)) {
+            if (originalOutline.imports.isEmpty()) {
+                if (originalOutline.packageDeclaration == null
+                        || updatedOutline.packageDeclaration == null) {
+                    return null;
+                }
+                // Insert after the package, along with the lines separating
+                // the imports from it
+                final int line = originalOutline.packageEndLine + 1;
+                edits.add(new LineEdit(line, line - 1, join(updatedLines,
+                        updatedOutline.packageEndLine + 1,
+                        updatedOutline.importsEndLine)));
+            }
+            else {
+                edits.add(new LineEdit(originalOutline.importsBeginLine,
+                        originalOutline.importsEndLine,
+                        updatedOutline.imports.isEmpty() ? "" : join(
+                                updatedLines, updatedOutline.importsBeginLine,
+                                updatedOutline.importsEndLine)));
+            }
+        }
+
+        // Types
+        if (originalOutline.types.size() != updatedOutline.types.size()) {
+            return null;
+        }
+        for (int i = 0; i < originalOutline.types.size(); i++) {
+            final CompilationUnitOutline.TypeOutline originalType = originalOutline.types
+                    .get(i);
+            final CompilationUnitOutline.TypeOutline updatedType = updatedOutline.types
+                    .get(i);
+            if (!originalType.name.equals(updatedType.name)) {
+                return null;
+            }
+            addTypeEdits(originalType, updatedType, updatedLines, edits);
+        }
+
+        // Apply the edits, which are in line order
+        final List<String> originalLines = getLines(originalContents);
+        final StringBuilder sb = new StringBuilder(originalContents.length());
+        int nextLine = 1;
+        for (final LineEdit edit : edits) {
+            if (edit.beginLine < nextLine
+                    || edit.endLine > originalLines.size()) {
+                return null;
+            }
+            sb.append(join(originalLines, nextLine, edit.beginLine - 1));
+            sb.append(edit.replacement);
+            nextLine = edit.endLine + 1;
+        }
+        sb.append(join(originalLines, nextLine, originalLines.size()));
+        return sb.toString();
+    }
+
+    /**
+     * Adds the edits turning the lines of the original type into those of the
+     * updated type. Members are aligned by their printed form, so that runs of
+     * removed, added or changed members each become one edit.
+     * 
+     * @param originalType the outline of the original type
+     * @param updatedType the outline of the updated type
+     * @param updatedLines the lines of the updated source
+     * @param edits the edits to add to
+     */
+    private static void addTypeEdits(
+            final CompilationUnitOutline.TypeOutline originalType,
+            final CompilationUnitOutline.TypeOutline updatedType,
+            final List<String> updatedLines, final List<LineEdit> edits) {
+        final List<String> originalMembers = originalType.members;
+        final List<String> updatedMembers = updatedType.members;
+        if (originalMembers.isEmpty() || updatedMembers.isEmpty()) {
+            if (!originalType.header.equals(updatedType.header)
+                    || !originalMembers.equals(updatedMembers)) {
+                edits.add(new LineEdit(originalType.beginLine,
+                        originalType.endLine, join(updatedLines,
+                                updatedType.beginLine, updatedType.endLine)));
+            }
+            return;
+        }
+        if (!originalType.header.equals(updatedType.header)) {
+            edits.add(new LineEdit(originalType.beginLine,
+                    originalType.memberBeginLines[0] - 1, join(updatedLines,
+                            updatedType.beginLine,
+                            updatedType.memberBeginLines[0] - 1)));
+        }
+
+        // Longest common subsequences of the member suffixes
+        final int originalCount = originalMembers.size();
+        final int updatedCount = updatedMembers.size();
+        final int[][] common = new int[originalCount + 1][updatedCount + 1];
+        for (int i = originalCount - 1; i >= 0; i--) {
+            for (int j = updatedCount - 1; j >= 0; j--) {
+                common[i][j] = originalMembers.get(i).equals(
+                        updatedMembers.get(j)) ? common[i + 1][j + 1] + 1
+                        : Math.max(common[i + 1][j], common[i][j + 1]);
+            }
+        }
+
+        int i = 0;
+        int j = 0;
+        while (i < originalCount || j < updatedCount) {
+            if (i < originalCount && j < updatedCount
+                    && originalMembers.get(i).equals(updatedMembers.get(j))) {
+                i++;
+                j++;
+                continue;
+            }
+            // Collect the run of differing members
+            final int runOriginalStart = i;
+            final int runUpdatedStart = j;
+            while (i < originalCount || j < updatedCount) {
+                if (i < originalCount && j < updatedCount
+                        && originalMembers.get(i).equals(updatedMembers.get(j))) {
+                    break;
+                }
+                if (j == updatedCount || i < originalCount
+                        && common[i + 1][j] >= common[i][j + 1]) {
+                    i++;
+                }
+                else {
+                    j++;
+                }
+            }
+            String replacement = "";
+            if (j > runUpdatedStart) {
+                replacement = join(updatedLines,
+                        updatedType.getSegmentBeginLine(runUpdatedStart),
+                        updatedType.memberEndLines[j - 1]);
+            }
+            if (i == runOriginalStart) {
+                // Insertion
+                final int line;
+                if (i == 0) {
+                    // The first member's segment starts at its first line, so
+                    // bring along the lines separating it from the inserted
+                    // members
+                    line = originalType.memberBeginLines[0];
+                    replacement += join(updatedLines,
+                            updatedType.memberEndLines[j - 1] + 1,
+                            updatedType.memberBeginLines[j] - 1);
+                }
+                else {
+                    line = originalType.memberEndLines[i - 1] + 1;
+                }
+                edits.add(new LineEdit(line, line - 1, replacement));
+            }
+            else {
+                edits.add(new LineEdit(originalType
+                        .getSegmentBeginLine(runOriginalStart),
+                        originalType.memberEndLines[i - 1], replacement));
+            }
+        }
+    }
+
+    /**
+     * Splits the given text into lines, each keeping its line terminator
+     * 
+     * @param contents the text to split
+     * @return a non-<code>null</code> list
+     */
+    private static List<String> getLines(final String contents) {
+        final List<String> lines = new ArrayList<String>();
+        int start = 0;
+        for (int i = 0; i < contents.length(); i++) {
+            final char c = contents.charAt(i);
+            final boolean crlf = c == '\r' && i + 1 < contents.length()
+                    && contents.charAt(i + 1) == '\n';
+            if (c == '\n' || c == '\r' && !crlf) {
+                lines.add(contents.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < contents.length()) {
+            lines.add(contents.substring(start));
+        }
+        return lines;
+    }
+
+    /**
+     * Joins the given range of lines
+     * 
+     * @param lines the lines
+     * @param beginLine the number of the first line to join (one-based)
+     * @param endLine the number of the last line to join; can be before
+     *            <code>beginLine</code> for an empty range
+     * @return a non-<code>null</code> string
+     */
+    private static String join(final List<String> lines, final int beginLine,
+            final int endLine) {
+        final StringBuilder sb = new StringBuilder();
+        for (int line = Math.max(beginLine, 1); line <= endLine
+                && line <= lines.size(); line++) {
+            sb.append(lines.get(line - 1));
+        }
+        return sb.toString();
+    }
+
     /**
      * Update {@code compilationUnit} imports, annotation, fields, methods...
      * from {@code cidCompilationUnit} information
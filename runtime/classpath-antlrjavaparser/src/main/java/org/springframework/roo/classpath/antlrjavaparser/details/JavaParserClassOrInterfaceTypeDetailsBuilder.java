@@ -1,8 +1,11 @@
 package org.springframework.roo.classpath.antlrjavaparser.details;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -69,10 +72,67 @@ public class JavaParserClassOrInterfaceTypeDetailsBuilder implements
             final String declaredByMetadataId, final JavaType typeName,
             final MetadataService metadataService,
             final TypeLocationService typeLocationService) {
+        return getInstance(compilationUnit, enclosingCompilationUnitServices,
+                typeDeclaration, declaredByMetadataId, typeName,
+                metadataService, typeLocationService, null, null);
+    }
+
+    /**
+     * Factory method for this builder class that reuses the unchanged members
+     * of the type's previous build
+     * 
+     * @param compilationUnit
+     * @param enclosingCompilationUnitServices
+     * @param typeDeclaration
+     * @param declaredByMetadataId
+     * @param typeName
+     * @param metadataService
+     * @param typeLocationService
+     * @param memberCache the cache of previously built members (can be
+     *            <code>null</code> to always build every member)
+     * @param source the source the compilation unit was parsed from (required
+     *            if a member cache is given)
+     * @return a non-<code>null</code> builder
+     */
+    public static JavaParserClassOrInterfaceTypeDetailsBuilder getInstance(
+            final CompilationUnit compilationUnit,
+            final CompilationUnitServices enclosingCompilationUnitServices,
+            final TypeDeclaration typeDeclaration,
+            final String declaredByMetadataId, final JavaType typeName,
+            final MetadataService metadataService,
+            final TypeLocationService typeLocationService,
+            final JavaParserMemberCache memberCache, final String source) {
+        Validate.isTrue(memberCache == null || source != null,
+                "Source required to reuse cached members");
         return new JavaParserClassOrInterfaceTypeDetailsBuilder(
                 compilationUnit, enclosingCompilationUnitServices,
                 typeDeclaration, declaredByMetadataId, typeName,
-                metadataService, typeLocationService);
+                metadataService, typeLocationService, memberCache, source,
+                memberCache == null ? null : getLineOffsets(source));
+    }
+
+    /**
+     * Returns the offset at which each line of the given source starts, in
+     * the same way as the parser counts lines
+     * 
+     * @param source the source
+     * @return a non-empty array
+     */
+    private static int[] getLineOffsets(final String source) {
+        int lineCount = 1;
+        for (int i = 0; i < source.length(); i++) {
+            if (source.charAt(i) == '\n') {
+                lineCount++;
+            }
+        }
+        final int[] lineOffsets = new int[lineCount];
+        int line = 1;
+        for (int i = 0; i < source.length(); i++) {
+            if (source.charAt(i) == '\n') {
+                lineOffsets[line++] = i + 1;
+            }
+        }
+        return lineOffsets;
     }
 
     private final CompilationUnit compilationUnit;
@@ -81,10 +141,13 @@ public class JavaParserClassOrInterfaceTypeDetailsBuilder implements
     private final String declaredByMetadataId;
     private List<ImportDeclaration> imports = new ArrayList<ImportDeclaration>();
     private final List<TypeDeclaration> innerTypes = new ArrayList<TypeDeclaration>();
+    private final int[] lineOffsets;
+    private final JavaParserMemberCache memberCache;
     private final MetadataService metadataService;
 
     private JavaType name;
     private PhysicalTypeCategory physicalTypeCategory;
+    private final String source;
     private final TypeDeclaration typeDeclaration;
     private final TypeLocationService typeLocationService;
 
@@ -98,6 +161,9 @@ public class JavaParserClassOrInterfaceTypeDetailsBuilder implements
      * @param typeName
      * @param metadataService
      * @param typeLocationService
+     * @param memberCache
+     * @param source
+     * @param lineOffsets
      */
     private JavaParserClassOrInterfaceTypeDetailsBuilder(
             final CompilationUnit compilationUnit,
@@ -105,7 +171,9 @@ public class JavaParserClassOrInterfaceTypeDetailsBuilder implements
             final TypeDeclaration typeDeclaration,
             final String declaredByMetadataId, final JavaType typeName,
             final MetadataService metadataService,
-            final TypeLocationService typeLocationService) {
+            final TypeLocationService typeLocationService,
+            final JavaParserMemberCache memberCache, final String source,
+            final int[] lineOffsets) {
         // Check
         Validate.notNull(compilationUnit, "Compilation unit required");
         Validate.notBlank(declaredByMetadataId,
@@ -119,8 +187,11 @@ public class JavaParserClassOrInterfaceTypeDetailsBuilder implements
         compilationUnitServices = enclosingCompilationUnitServices == null ? getDefaultCompilationUnitServices()
                 : enclosingCompilationUnitServices;
         this.declaredByMetadataId = declaredByMetadataId;
+        this.lineOffsets = lineOffsets;
+        this.memberCache = memberCache;
         this.metadataService = metadataService;
         name = typeName;
+        this.source = source;
         this.typeDeclaration = typeDeclaration;
         this.typeLocationService = typeLocationService;
     }
@@ -321,51 +392,83 @@ public class JavaParserClassOrInterfaceTypeDetailsBuilder implements
                 }
             }
 
+            // Members whose declarations haven't changed since the type was
+            // last built are reused rather than rebuilt
+            final String memberContext = getMemberContext(typeParameterNames);
+            final Map<String, Object> previousMembers = memberCache == null ? Collections
+                    .<String, Object> emptyMap() : memberCache.getMembers(
+                    declaredByMetadataId, memberContext);
+            final Map<String, Object> currentMembers = new HashMap<String, Object>();
+
             for (final BodyDeclaration member : members) {
+                final String memberKey = memberCache == null ? null
+                        : getMemberKey(member);
                 if (member instanceof FieldDeclaration) {
                     final FieldDeclaration castMember = (FieldDeclaration) member;
+                    int variableIndex = 0;
                     for (final VariableDeclarator var : castMember
                             .getVariables()) {
-                        final FieldMetadata field = JavaParserFieldMetadataBuilder
-                                .getInstance(declaredByMetadataId, castMember,
-                                        var, compilationUnitServices,
-                                        typeParameterNames).build();
-
-                        final CommentStructure commentStructure = new CommentStructure();
-                        JavaParserCommentMetadataBuilder.updateCommentsToRoo(
-                                commentStructure, member);
-                        field.setCommentStructure(commentStructure);
-
-                        cidBuilder.addField(field);
+                        final String fieldKey = "field" + variableIndex++
+                                + ":" + memberKey;
+                        FieldMetadata field = getPreviousMember(
+                                previousMembers, fieldKey, FieldMetadata.class);
+                        if (field == null) {
+                            field = JavaParserFieldMetadataBuilder.getInstance(
+                                    declaredByMetadataId, castMember, var,
+                                    compilationUnitServices,
+                                    typeParameterNames).build();
+
+                            final CommentStructure commentStructure = new CommentStructure();
+                            JavaParserCommentMetadataBuilder
+                                    .updateCommentsToRoo(commentStructure,
+                                            member);
+                            field.setCommentStructure(commentStructure);
+                        }
+                        currentMembers.put(fieldKey, field);
+
+                        cidBuilder.addBuiltField(field);
                     }
                 }
                 if (member instanceof MethodDeclaration) {
                     final MethodDeclaration castMember = (MethodDeclaration) member;
-                    final MethodMetadata method = JavaParserMethodMetadataBuilder
-                            .getInstance(declaredByMetadataId, castMember,
-                                    compilationUnitServices, typeParameterNames)
-                            .build();
+                    final String methodKey = "method:" + memberKey;
+                    MethodMetadata method = getPreviousMember(previousMembers,
+                            methodKey, MethodMetadata.class);
+                    if (method == null) {
+                        method = JavaParserMethodMetadataBuilder.getInstance(
+                                declaredByMetadataId, castMember,
+                                compilationUnitServices, typeParameterNames)
+                                .build();
 
-                    final CommentStructure commentStructure = new CommentStructure();
-                    JavaParserCommentMetadataBuilder.updateCommentsToRoo(
-                            commentStructure, member);
-                    method.setCommentStructure(commentStructure);
+                        final CommentStructure commentStructure = new CommentStructure();
+                        JavaParserCommentMetadataBuilder.updateCommentsToRoo(
+                                commentStructure, member);
+                        method.setCommentStructure(commentStructure);
+                    }
+                    currentMembers.put(methodKey, method);
 
-                    cidBuilder.addMethod(method);
+                    cidBuilder.addBuiltMethod(method);
                 }
                 if (member instanceof ConstructorDeclaration) {
                     final ConstructorDeclaration castMember = (ConstructorDeclaration) member;
-                    final ConstructorMetadata constructor = JavaParserConstructorMetadataBuilder
-                            .getInstance(declaredByMetadataId, castMember,
-                                    compilationUnitServices, typeParameterNames)
-                            .build();
+                    final String constructorKey = "constructor:" + memberKey;
+                    ConstructorMetadata constructor = getPreviousMember(
+                            previousMembers, constructorKey,
+                            ConstructorMetadata.class);
+                    if (constructor == null) {
+                        constructor = JavaParserConstructorMetadataBuilder
+                                .getInstance(declaredByMetadataId, castMember,
+                                        compilationUnitServices,
+                                        typeParameterNames).build();
 
-                    final CommentStructure commentStructure = new CommentStructure();
-                    JavaParserCommentMetadataBuilder.updateCommentsToRoo(
-                            commentStructure, member);
-                    constructor.setCommentStructure(commentStructure);
+                        final CommentStructure commentStructure = new CommentStructure();
+                        JavaParserCommentMetadataBuilder.updateCommentsToRoo(
+                                commentStructure, member);
+                        constructor.setCommentStructure(commentStructure);
+                    }
+                    currentMembers.put(constructorKey, constructor);
 
-                    cidBuilder.addConstructor(constructor);
+                    cidBuilder.addBuiltConstructor(constructor);
                 }
                 if (member instanceof TypeDeclaration) {
                     final TypeDeclaration castMember = (TypeDeclaration) member;
@@ -377,15 +480,80 @@ public class JavaParserClassOrInterfaceTypeDetailsBuilder implements
                     final ClassOrInterfaceTypeDetails cid = new JavaParserClassOrInterfaceTypeDetailsBuilder(
                             compilationUnit, compilationUnitServices,
                             castMember, innerTypeMetadataId, innerType,
-                            metadataService, typeLocationService).build();
+                            metadataService, typeLocationService, memberCache,
+                            source, lineOffsets).build();
                     cidBuilder.addInnerType(cid);
                 }
             }
+
+            if (memberCache != null) {
+                memberCache.putMembers(declaredByMetadataId, memberContext,
+                        currentMembers);
+            }
         }
 
         return cidBuilder.build();
     }
 
+    /**
+     * Returns a key describing everything outside a member declaration that
+     * affects how it is built, namely the package, imports, enclosing and inner
+     * type names and type parameters.
+     * 
+     * @param typeParameterNames the type's type parameter names
+     * @return a non-<code>null</code> key
+     */
+    private String getMemberContext(final Set<JavaSymbolName> typeParameterNames) {
+        final StringBuilder sb = new StringBuilder(
+                name.getFullyQualifiedTypeName());
+        sb.append('|').append(compilationUnitPackage);
+        for (final ImportDeclaration importDeclaration : imports) {
+            sb.append('|').append(importDeclaration.toString());
+        }
+        for (final TypeDeclaration innerType : innerTypes) {
+            sb.append('|').append(innerType.getName());
+        }
+        sb.append('|').append(typeParameterNames);
+        return sb.toString();
+    }
+
+    /**
+     * Returns a key that changes whenever the given member's declaration does,
+     * namely the source lines it spans (including its annotations and
+     * comments) and the column it starts at, which tells apart members
+     * declared on the same lines.
+     * 
+     * @param member the member
+     * @return a non-<code>null</code> key
+     */
+    private String getMemberKey(final BodyDeclaration member) {
+        final int beginLine = JavaParserUtils.getBeginLine(member,
+                member.getAnnotations());
+        final int endLine = member.getEndLine();
+        if (beginLine < 1 || endLine < beginLine
+                || endLine > lineOffsets.length) {
+            return member.toString();
+        }
+        final int end = endLine < lineOffsets.length ? lineOffsets[endLine]
+                : source.length();
+        final StringBuilder sb = new StringBuilder();
+        sb.append(member.getBeginColumn()).append('|')
+                .append(source, lineOffsets[beginLine - 1], end);
+        if (member.getEndComments() != null) {
+            sb.append('|').append(member.getEndComments());
+        }
+        return sb.toString();
+    }
+
+    private <T> T getPreviousMember(final Map<String, Object> previousMembers,
+            final String memberKey, final Class<T> memberType) {
+        final Object previousMember = previousMembers.get(memberKey);
+        if (memberType.isInstance(previousMember)) {
+            return memberType.cast(previousMember);
+        }
+        return null;
+    }
+
     private CompilationUnitServices getDefaultCompilationUnitServices() {
         return new CompilationUnitServices() {
             @Override
@@ -1,6 +1,5 @@
 package org.springframework.roo.classpath.antlrjavaparser.details;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -11,6 +10,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.springframework.roo.classpath.PhysicalTypeIdentifier;
 import org.springframework.roo.classpath.antlrjavaparser.CompilationUnitServices;
+import org.springframework.roo.classpath.antlrjavaparser.JavaParserSourceUtils;
 import org.springframework.roo.classpath.antlrjavaparser.JavaParserUtils;
 import org.springframework.roo.classpath.details.ConstructorMetadata;
 import org.springframework.roo.classpath.details.ConstructorMetadataBuilder;
@@ -21,7 +21,6 @@ import org.springframework.roo.model.Builder;
 import org.springframework.roo.model.JavaSymbolName;
 import org.springframework.roo.model.JavaType;
 
-import com.github.antlrjavaparser.JavaParser;
 import com.github.antlrjavaparser.ParseException;
 import com.github.antlrjavaparser.api.CompilationUnit;
 import com.github.antlrjavaparser.api.TypeParameter;
@@ -153,11 +152,9 @@ public class JavaParserConstructorMetadataBuilder implements
             sb.append("\n");
             sb.append("  }\n");
             sb.append("}\n");
-            final ByteArrayInputStream bais = new ByteArrayInputStream(sb
-                    .toString().getBytes());
             CompilationUnit ci;
             try {
-                ci = JavaParser.parse(bais);
+                ci = JavaParserSourceUtils.parse(sb);
             }
             catch (final IOException e) {
                 throw new IllegalStateException(
@@ -1,6 +1,5 @@
 package org.springframework.roo.classpath.antlrjavaparser.details;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -9,6 +8,7 @@ import java.util.Set;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.springframework.roo.classpath.antlrjavaparser.CompilationUnitServices;
+import org.springframework.roo.classpath.antlrjavaparser.JavaParserSourceUtils;
 import org.springframework.roo.classpath.antlrjavaparser.JavaParserUtils;
 import org.springframework.roo.classpath.details.FieldMetadata;
 import org.springframework.roo.classpath.details.FieldMetadataBuilder;
@@ -18,7 +18,6 @@ import org.springframework.roo.model.JavaSymbolName;
 import org.springframework.roo.model.JavaType;
 
 import com.github.antlrjavaparser.ASTHelper;
-import com.github.antlrjavaparser.JavaParser;
 import com.github.antlrjavaparser.ParseException;
 import com.github.antlrjavaparser.api.CompilationUnit;
 import com.github.antlrjavaparser.api.body.BodyDeclaration;
@@ -91,11 +90,9 @@ public class JavaParserFieldMetadataBuilder implements Builder<FieldMetadata> {
                     + field.getFieldName() + " = "
                     + field.getFieldInitializer() + ";\n");
             sb.append("}\n");
-            final ByteArrayInputStream bais = new ByteArrayInputStream(sb
-                    .toString().getBytes());
             CompilationUnit ci;
             try {
-                ci = JavaParser.parse(bais);
+                ci = JavaParserSourceUtils.parse(sb);
             }
             catch (final IOException e) {
                 throw new IllegalStateException(
@@ -0,0 +1,86 @@
+package org.springframework.roo.classpath.antlrjavaparser.details;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the member metadata built for each type the last time it was
+ * parsed, keyed by the source of each member declaration. When a type is
+ * re-parsed, members whose declarations (and the surrounding compilation unit
+ * context, i.e. package, imports and type parameters) are unchanged are reused
+ * by identity instead of being rebuilt, so downstream change detection sees
+ * the very same field, method and constructor metadata instances.
+ * <p>
+ * Only the most recently parsed types are remembered, so that types which
+ * have since been deleted or renamed are eventually forgotten.
+ * 
+ * @since 2.0.0
+ */
+public class JavaParserMemberCache {
+
+    /**
+     * The members of one type, along with the context they were built in
+     */
+    private static class TypeMembers {
+        private final String context;
+        private final Map<String, Object> members;
+
+        private TypeMembers(final String context,
+                final Map<String, Object> members) {
+            this.context = context;
+            this.members = members;
+        }
+    }
+
+    private static final int MAX_CACHED_TYPES = 5000;
+
+    // Guarded by itself, as types can be parsed concurrently
+    private final Map<String, TypeMembers> typeMembers = new LinkedHashMap<String, TypeMembers>(
+            16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<String, TypeMembers> eldest) {
+            return size() > MAX_CACHED_TYPES;
+        }
+    };
+
+    /**
+     * Returns the members built the last time the given type was parsed in the
+     * given context.
+     * 
+     * @param declaredByMetadataId the type's physical type identifier
+     * @param context the context in which the members are being built
+     * @return a non-<code>null</code> map of member declaration keys to
+     *         metadata; empty if the type was last parsed in another context
+     */
+    Map<String, Object> getMembers(final String declaredByMetadataId,
+            final String context) {
+        final TypeMembers previous;
+        synchronized (typeMembers) {
+            previous = typeMembers.get(declaredByMetadataId);
+        }
+        if (previous == null || !previous.context.equals(context)) {
+            return Collections.emptyMap();
+        }
+        return previous.members;
+    }
+
+    /**
+     * Replaces the members remembered for the given type
+     * 
+     * @param declaredByMetadataId the type's physical type identifier
+     * @param context the context in which the members were built
+     * @param members the member declaration keys and metadata
+     */
+    void putMembers(final String declaredByMetadataId, final String context,
+            final Map<String, Object> members) {
+        final TypeMembers current = new TypeMembers(context,
+                Collections.unmodifiableMap(members));
+        synchronized (typeMembers) {
+            typeMembers.put(declaredByMetadataId, current);
+        }
+    }
+}
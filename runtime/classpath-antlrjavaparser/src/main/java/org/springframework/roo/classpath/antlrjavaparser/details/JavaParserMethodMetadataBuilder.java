@@ -1,6 +1,5 @@
 package org.springframework.roo.classpath.antlrjavaparser.details;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
@@ -12,6 +11,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.springframework.roo.classpath.PhysicalTypeCategory;
 import org.springframework.roo.classpath.antlrjavaparser.CompilationUnitServices;
+import org.springframework.roo.classpath.antlrjavaparser.JavaParserSourceUtils;
 import org.springframework.roo.classpath.antlrjavaparser.JavaParserUtils;
 import org.springframework.roo.classpath.details.MethodMetadata;
 import org.springframework.roo.classpath.details.MethodMetadataBuilder;
@@ -22,7 +22,6 @@ import org.springframework.roo.model.Builder;
 import org.springframework.roo.model.JavaSymbolName;
 import org.springframework.roo.model.JavaType;
 
-import com.github.antlrjavaparser.JavaParser;
 import com.github.antlrjavaparser.ParseException;
 import com.github.antlrjavaparser.api.CompilationUnit;
 import com.github.antlrjavaparser.api.TypeParameter;
@@ -217,11 +216,9 @@ public class JavaParserMethodMetadataBuilder implements Builder<MethodMetadata>
             sb.append("\n");
             sb.append("  }\n");
             sb.append("}\n");
-            final ByteArrayInputStream bais = new ByteArrayInputStream(sb
-                    .toString().getBytes());
             CompilationUnit ci;
             try {
-                ci = JavaParser.parse(bais);
+                ci = JavaParserSourceUtils.parse(sb);
             }
             catch (final IOException e) {
                 throw new IllegalStateException(
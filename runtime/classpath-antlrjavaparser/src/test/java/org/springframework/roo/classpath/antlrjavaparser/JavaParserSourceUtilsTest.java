@@ -0,0 +1,54 @@
+package org.springframework.roo.classpath.antlrjavaparser;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.IOException;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * Unit test of {@link JavaParserSourceUtils}
+ * 
+ * @since 2.0.0
+ */
+public class JavaParserSourceUtilsTest {
+
+    private static final String SOURCE = "package com.example;\n\n"
+            + "/** Caf\u00e9 \u00fcber \u4e2d\u6587 */\npublic class Pet {\n}\n";
+
+    private void assertEncoded(final String source) throws IOException {
+        assertArrayEquals(source.getBytes(),
+                IOUtils.toByteArray(JavaParserSourceUtils.encode(source)));
+    }
+
+    private String repeat(final String text, final int times) {
+        final StringBuilder repeated = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            repeated.append(text);
+        }
+        return repeated.toString();
+    }
+
+    @Test
+    public void testEncodeEmptySource() throws Exception {
+        assertEncoded("");
+    }
+
+    @Test
+    public void testEncodeSourceLargerThanTheRetainedBuffer() throws Exception {
+        assertEncoded(repeat(SOURCE, 30000));
+        assertEncoded(SOURCE);
+    }
+
+    @Test
+    public void testEncodeSourceThatGrowsTheBuffer() throws Exception {
+        assertEncoded(repeat(SOURCE, 1000));
+        assertEncoded(SOURCE);
+    }
+
+    @Test
+    public void testEncodeSmallSource() throws Exception {
+        assertEncoded(SOURCE);
+    }
+}
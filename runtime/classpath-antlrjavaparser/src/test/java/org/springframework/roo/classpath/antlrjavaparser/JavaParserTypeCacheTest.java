@@ -0,0 +1,204 @@
+package org.springframework.roo.classpath.antlrjavaparser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.roo.classpath.PhysicalTypeCategory;
+import org.springframework.roo.classpath.antlrjavaparser.TypeDetailsCodec.SuperclassResolver;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetailsBuilder;
+import org.springframework.roo.classpath.details.FieldMetadata;
+import org.springframework.roo.classpath.details.FieldMetadataBuilder;
+import org.springframework.roo.classpath.details.MethodMetadata;
+import org.springframework.roo.classpath.details.MethodMetadataBuilder;
+import org.springframework.roo.classpath.details.annotations.AnnotatedJavaType;
+import org.springframework.roo.classpath.details.annotations.AnnotationMetadataBuilder;
+import org.springframework.roo.classpath.details.comments.CommentStructure;
+import org.springframework.roo.classpath.details.comments.CommentStructure.CommentLocation;
+import org.springframework.roo.classpath.details.comments.JavadocComment;
+import org.springframework.roo.classpath.itd.InvocableMemberBodyBuilder;
+import org.springframework.roo.model.DataType;
+import org.springframework.roo.model.JavaSymbolName;
+import org.springframework.roo.model.JavaType;
+
+/**
+ * Unit test of {@link JavaParserTypeCache} and the {@link TypeDetailsCodec}
+ * it uses
+ * 
+ * @since 2.0.0
+ */
+public class JavaParserTypeCacheTest {
+
+    private static final JavaType BASE = new JavaType("com.example.Base");
+    private static final String CONTENTS = "package com.example; public class Pet extends Base {}";
+    private static final JavaType PET = new JavaType("com.example.Pet");
+    private static final String PET_FILE = "/project/src/main/java/com/example/Pet.java";
+    private static final String PET_MID = "MID:org.springframework.roo.classpath.PhysicalTypeIdentifier#SRC_MAIN_JAVA?com.example.Pet";
+    private static final String VERSION = "2.0.0.BUILD-SNAPSHOT";
+
+    // Fixture
+    private File directory;
+    private ClassOrInterfaceTypeDetails superclass;
+    private final SuperclassResolver superclassResolver = new SuperclassResolver() {
+        public ClassOrInterfaceTypeDetails getSuperclass(final JavaType type) {
+            return BASE.equals(type) ? superclass : null;
+        }
+    };
+    private JavaParserTypeCache typeCache;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile(getClass().getSimpleName(), null);
+        directory.delete();
+        typeCache = new JavaParserTypeCache(directory, VERSION);
+        superclass = new ClassOrInterfaceTypeDetailsBuilder(
+                PET_MID.replace("Pet", "Base"), Modifier.PUBLIC, BASE,
+                PhysicalTypeCategory.CLASS).build();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(directory);
+    }
+
+    private ClassOrInterfaceTypeDetails getPet() {
+        final ClassOrInterfaceTypeDetailsBuilder cidBuilder = new ClassOrInterfaceTypeDetailsBuilder(
+                PET_MID, Modifier.PUBLIC, PET, PhysicalTypeCategory.CLASS);
+        final AnnotationMetadataBuilder entity = new AnnotationMetadataBuilder(
+                new JavaType("javax.persistence.Entity"));
+        entity.addStringAttribute("name", "pets");
+        cidBuilder.addAnnotation(entity);
+        cidBuilder.addExtendsTypes(BASE);
+
+        final FieldMetadata owners = new FieldMetadataBuilder(PET_MID,
+                Modifier.PRIVATE, new JavaSymbolName("owners"), new JavaType(
+                        "java.util.Set", 0, DataType.TYPE, null,
+                        Arrays.asList(new JavaType("com.example.Owner"))),
+                null).build();
+        final CommentStructure commentStructure = new CommentStructure();
+        commentStructure.addComment(new JavadocComment("/** The owners */"),
+                CommentLocation.BEGINNING);
+        owners.setCommentStructure(commentStructure);
+        cidBuilder.addField(owners);
+
+        cidBuilder.addMethod(new MethodMetadataBuilder(PET_MID,
+                Modifier.PUBLIC, new JavaSymbolName("setName"),
+                JavaType.VOID_PRIMITIVE, Arrays.asList(new AnnotatedJavaType(
+                        JavaType.STRING)), Arrays.asList(new JavaSymbolName(
+                        "name")), InvocableMemberBodyBuilder.getInstance()
+                        .append("this.name = name;")));
+        return cidBuilder.build();
+    }
+
+    @Test
+    public void testStoredTypeIsReadBackWithCurrentSuperclass() {
+        // Set up
+        typeCache.put(PET_FILE, CONTENTS, PET_MID, PET, getPet());
+
+        // Invoke
+        final ClassOrInterfaceTypeDetails cid = new JavaParserTypeCache(
+                directory, VERSION).get(PET_FILE, CONTENTS, PET_MID, PET,
+                superclassResolver);
+
+        // Check
+        assertNotNull(cid);
+        assertEquals(PET, cid.getName());
+        assertEquals(PET_MID, cid.getDeclaredByMetadataId());
+        assertEquals("pets", cid.getAnnotations().get(0)
+                .getAttribute("name").getValue());
+        assertEquals(BASE, cid.getSuperclass().getName());
+        final FieldMetadata field = cid.getDeclaredFields().get(0);
+        assertEquals(new JavaType("com.example.Owner"), field.getFieldType()
+                .getParameters().get(0));
+        assertEquals("/** The owners */", field.getCommentStructure()
+                .getBeginComments().get(0).getComment());
+        final MethodMetadata method = cid.getDeclaredMethods().get(0);
+        assertEquals(JavaType.STRING, method.getParameterTypes().get(0)
+                .getJavaType());
+        assertEquals("this.name = name;", method.getBody());
+    }
+
+    @Test
+    public void testEntryIsIgnoredWhenContentsChange() {
+        // Set up
+        typeCache.put(PET_FILE, CONTENTS, PET_MID, PET, getPet());
+
+        // Invoke and check
+        assertNull(typeCache.get(PET_FILE, CONTENTS + " ", PET_MID, PET,
+                superclassResolver));
+    }
+
+    @Test
+    public void testEntryForAnotherTypeIsIgnored() {
+        // Set up
+        typeCache.put(PET_FILE, CONTENTS, PET_MID, PET, getPet());
+
+        // Invoke and check
+        assertNull(typeCache.get(PET_FILE, CONTENTS,
+                PET_MID.replace("SRC_MAIN_JAVA", "SRC_TEST_JAVA"), PET,
+                superclassResolver));
+    }
+
+    @Test
+    public void testEntryWrittenByOtherVersionIsIgnored() {
+        // Set up
+        typeCache.put(PET_FILE, CONTENTS, PET_MID, PET, getPet());
+
+        // Invoke and check
+        assertNull(new JavaParserTypeCache(directory, "1.3.2.RELEASE").get(
+                PET_FILE, CONTENTS, PET_MID, PET, superclassResolver));
+    }
+
+    @Test
+    public void testCorruptEntryIsIgnored() throws IOException {
+        // Set up
+        typeCache.put(PET_FILE, CONTENTS, PET_MID, PET, getPet());
+        final File entry = directory.listFiles()[0];
+        final byte[] bytes = FileUtils.readFileToByteArray(entry);
+        bytes[bytes.length - 5] ^= 0x5A;
+        FileUtils.writeByteArrayToFile(entry, bytes);
+
+        // Invoke and check
+        assertNull(typeCache.get(PET_FILE, CONTENTS, PET_MID, PET,
+                superclassResolver));
+    }
+
+    @Test
+    public void testEntriesNotRetainedAreDeleted() {
+        // Set up
+        typeCache.put(PET_FILE, CONTENTS, PET_MID, PET, getPet());
+        typeCache.put(PET_FILE.replace("Pet", "Owner"), CONTENTS,
+                PET_MID.replace("Pet", "Owner"), PET, getPet());
+        final File petEntry = typeCache.getEntry(PET_FILE, CONTENTS);
+
+        // Invoke
+        new JavaParserTypeCache(directory, VERSION).retain(Arrays
+                .asList(petEntry));
+
+        // Check
+        assertEquals(Arrays.asList(petEntry),
+                Arrays.asList(directory.listFiles()));
+    }
+
+    @Test
+    public void testSupersededEntryIsDeleted() {
+        // Set up
+        typeCache.put(PET_FILE, CONTENTS, PET_MID, PET, getPet());
+
+        // Invoke
+        typeCache.put(PET_FILE, CONTENTS + " ", PET_MID, PET, getPet());
+
+        // Check
+        assertEquals(1, directory.listFiles().length);
+    }
+}
@@ -13,6 +13,7 @@ import org.powermock.modules.junit4.PowerMockRunner;
 import org.springframework.roo.classpath.TypeLocationService;
 import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
 import org.springframework.roo.classpath.antlrjavaparser.details.JavaParserClassOrInterfaceTypeDetailsBuilder;
+import org.springframework.roo.classpath.antlrjavaparser.details.JavaParserMemberCache;
 import org.springframework.roo.metadata.MetadataService;
 import org.springframework.roo.model.JavaType;
 
@@ -105,7 +106,9 @@ public class JavaParserTypeParsingServiceTest {
                         (CompilationUnitServices) eq(null),
                         eq(mockTypeDeclaration), eq(DECLARED_BY_MID),
                         eq(mockTargetType), eq(mockMetadataService),
-                        eq(mockTypeLocationService))).thenReturn(mockBuilder);
+                        eq(mockTypeLocationService),
+                        (JavaParserMemberCache) eq(null), eq(SOURCE_FILE)))
+                .thenReturn(mockBuilder);
 
         // Invoke
         final ClassOrInterfaceTypeDetails locatedType = typeParsingService
@@ -0,0 +1,44 @@
+package org.springframework.roo.classpath.antlrjavaparser;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Unit test of {@link JavaSourceHeaderUtils}
+ * 
+ * @since 2.0.0
+ */
+public class JavaSourceHeaderUtilsTest {
+
+    @Test
+    public void testStripCodeBlocksKeepsDeclarations() {
+        final String source = "@Foo({\"a\", \"b\"}) public class A extends B {\n"
+                + "  private int[] x = { 1 };\n"
+                + "  public String get() { return \"}\"; }\n"
+                + "  enum E { X { void y() {} }, Z }\n" + "}";
+        final String expected = "@Foo({\"a\", \"b\"}) public class A extends B {\n"
+                + "  private int[] x = {   };\n"
+                + "  public String get() {             }\n"
+                + "  enum E { X {             }, Z }\n" + "}";
+
+        assertEquals(expected, JavaSourceHeaderUtils.stripCodeBlocks(source));
+    }
+
+    @Test
+    public void testStripCodeBlocksIgnoresTypeKeywordsInClassLiterals() {
+        final String source = "@Foo(A.class) interface I {\n"
+                + "  Object o = new Object() {\n  };\n}";
+        final String expected = "@Foo(A.class) interface I {\n"
+                + "  Object o = new Object() {\n  };\n}";
+
+        assertEquals(expected, JavaSourceHeaderUtils.stripCodeBlocks(source));
+    }
+
+    @Test
+    public void testStripCodeBlocksReturnsUnbalancedSourceUnchanged() {
+        final String source = "class A { void b() { }";
+
+        assertEquals(source, JavaSourceHeaderUtils.stripCodeBlocks(source));
+    }
+}
@@ -348,6 +348,40 @@ public class NewUpdateCompilationUnitTest {
 
     }
 
+    @Test
+    public void testSimpleClassPatchAddAnnotation() throws Exception {
+
+        // Set up
+        final File file = getResource(SIMPLE_CLASS_FILE_PATH);
+        final String fileContents = getResourceContents(file);
+
+        final ClassOrInterfaceTypeDetails simpleInterfaceDetails = typeParsingService
+                .getTypeFromString(fileContents, SIMPLE_CLASS_DECLARED_BY_MID,
+                        SIMPLE_CLASS_TYPE);
+
+        final AnnotationMetadataBuilder annotationBuilder = new AnnotationMetadataBuilder(
+                new JavaType(
+                        "org.springframework.roo.addon.javabean.addon.RooToString"));
+        final ClassOrInterfaceTypeDetails newSimpleInterfaceDetails = addAnnotation(
+                simpleInterfaceDetails, annotationBuilder.build());
+
+        // Invoke
+        final String result = typeParsingService
+                .patchAndGetCompilationUnitContents(file.getCanonicalPath(),
+                        newSimpleInterfaceDetails);
+
+        saveResult(file, result, "-patchedAnnotation");
+
+        assertTrue(result
+                .contains("import org.springframework.roo.addon.javabean.addon.RooToString;"));
+        assertTrue(result.contains("@RooToString"));
+
+        // Unchanged members keep their original formatting
+        assertTrue(result
+                .contains("\tSet<String>[] setArray = new Set<String>[] {null, null, null};"));
+        assertTrue(result.contains("\tprivate final String valor;"));
+    }
+
     public static ClassOrInterfaceTypeDetails addField(
             final ClassOrInterfaceTypeDetails ptd, final FieldMetadata field) {
         final ClassOrInterfaceTypeDetailsBuilder cidBuilder = new ClassOrInterfaceTypeDetailsBuilder(
@@ -0,0 +1,95 @@
+package org.springframework.roo.classpath.antlrjavaparser.details;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.roo.classpath.antlrjavaparser.JavaParserSourceUtils;
+import org.springframework.roo.classpath.antlrjavaparser.JavaParserUtils;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.model.JavaSymbolName;
+import org.springframework.roo.model.JavaType;
+
+import com.github.antlrjavaparser.api.CompilationUnit;
+
+/**
+ * Unit test of {@link JavaParserClassOrInterfaceTypeDetailsBuilder}
+ * 
+ * @since 2.0.0
+ */
+public class JavaParserClassOrInterfaceTypeDetailsBuilderTest {
+
+    private static final JavaSymbolName AGE = new JavaSymbolName("age");
+    private static final String DECLARED_BY_MID = "MID:foo#bar";
+    private static final JavaSymbolName GET_AGE = new JavaSymbolName("getAge");
+    private static final JavaSymbolName GET_NAME = new JavaSymbolName(
+            "getName");
+    private static final JavaSymbolName NAME = new JavaSymbolName("name");
+    private static final JavaType PET = new JavaType("com.example.Pet");
+
+    private static final String SOURCE = "package com.example;\n\n"
+            + "public class Pet {\n\n" + "    private String name;\n\n"
+            + "    private int age;\n\n" + "    public Pet() {\n    }\n\n"
+            + "    public String getName() {\n        return name;\n    }\n\n"
+            + "    public int getAge() {\n        return age;\n    }\n}\n";
+
+    // The age field now spans two lines, moving every member after it
+    private static final String EDITED_SOURCE = SOURCE.replace(
+            "private int age;", "private int age =\n            1;");
+
+    // Fixture
+    private JavaParserMemberCache memberCache;
+
+    private ClassOrInterfaceTypeDetails build(final String source)
+            throws Exception {
+        final CompilationUnit compilationUnit = JavaParserSourceUtils
+                .parse(source);
+        return JavaParserClassOrInterfaceTypeDetailsBuilder.getInstance(
+                compilationUnit, null,
+                JavaParserUtils.locateTypeDeclaration(compilationUnit, PET),
+                DECLARED_BY_MID, PET, null, null, memberCache, source).build();
+    }
+
+    @Before
+    public void setUp() {
+        memberCache = new JavaParserMemberCache();
+    }
+
+    @Test
+    public void testRebuildingEditedSourceReusesUnchangedMembers()
+            throws Exception {
+        // Set up
+        final ClassOrInterfaceTypeDetails original = build(SOURCE);
+
+        // Invoke
+        final ClassOrInterfaceTypeDetails edited = build(EDITED_SOURCE);
+
+        // Check
+        assertSame(original.getDeclaredField(NAME),
+                edited.getDeclaredField(NAME));
+        assertSame(original.getMethod(GET_NAME), edited.getMethod(GET_NAME));
+        assertSame(original.getMethod(GET_AGE), edited.getMethod(GET_AGE));
+        assertSame(original.getDeclaredConstructors().get(0), edited
+                .getDeclaredConstructors().get(0));
+        assertNotSame(original.getDeclaredField(AGE),
+                edited.getDeclaredField(AGE));
+    }
+
+    @Test
+    public void testRebuildingWithoutMemberCacheRebuildsEveryMember()
+            throws Exception {
+        // Set up
+        memberCache = null;
+        final ClassOrInterfaceTypeDetails original = build(SOURCE);
+
+        // Invoke
+        final ClassOrInterfaceTypeDetails rebuilt = build(SOURCE);
+
+        // Check
+        assertNotSame(original.getDeclaredField(NAME),
+                rebuilt.getDeclaredField(NAME));
+        assertNotSame(original.getMethod(GET_NAME),
+                rebuilt.getMethod(GET_NAME));
+    }
+}
@@ -0,0 +1,223 @@
+package org.springframework.roo.classpath;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A log of changes to a set of keys (e.g. type names), read by any number of
+ * consumers through their own cursor.
+ * <p>
+ * Every change is appended to the log with the next sequence number. Each
+ * consumer's cursor remembers the sequence number it has read up to, so a
+ * poll only replays the changes made since that consumer's previous poll,
+ * rather than every change being pushed to every consumer as it happens. Once
+ * all cursors have moved past an entry, it is discarded.
+ * <p>
+ * A consumer's first poll sees every key currently in the log as changed. So
+ * that a consumer that stops polling can't make the log grow without bound,
+ * a cursor that falls too far behind is moved to the end of the log and, like
+ * a new one, sees every current key as changed when it next polls.
+ * 
+ * @since 2.0.0
+ */
+public class ChangeLog {
+
+    /**
+     * A consumer's position in the log, along with the keys it has been told
+     * about but not yet consumed
+     */
+    private static class Cursor {
+        private final Set<String> pending;
+        private long position;
+
+        private Cursor(final Set<String> pending, final long position) {
+            this.pending = pending;
+            this.position = position;
+        }
+    }
+
+    /**
+     * A change to one key
+     */
+    private static class Entry {
+        private final String key;
+        private final boolean removal;
+
+        private Entry(final String key, final boolean removal) {
+            this.key = key;
+            this.removal = removal;
+        }
+    }
+
+    /**
+     * The default number of entries beyond which lagging cursors are moved to
+     * the end of the log
+     */
+    static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    private final Map<String, Cursor> cursors = new HashMap<String, Cursor>();
+    private final List<Entry> entries = new ArrayList<Entry>();
+    private long firstSequence;
+    private final Set<String> keys = new LinkedHashSet<String>();
+    private final int maxEntries;
+
+    /**
+     * Constructor for a log that keeps up to {@value #DEFAULT_MAX_ENTRIES}
+     * entries
+     */
+    public ChangeLog() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param maxEntries the number of entries beyond which lagging cursors are
+     *            moved to the end of the log (must be positive)
+     */
+    ChangeLog(final int maxEntries) {
+        Validate.isTrue(maxEntries > 0, "Maximum entries must be positive");
+        this.maxEntries = maxEntries;
+    }
+
+    private void append(final Entry entry) {
+        if (cursors.isEmpty()) {
+            // Nobody will ever replay it
+            firstSequence++;
+            return;
+        }
+        entries.add(entry);
+        if (entries.size() > maxEntries) {
+            expireLaggingCursors();
+        }
+    }
+
+    /**
+     * Discards the entries that every cursor has already read
+     */
+    private void compact() {
+        long lowestPosition = getSequence();
+        for (final Cursor cursor : cursors.values()) {
+            lowestPosition = Math.min(lowestPosition, cursor.position);
+        }
+        if (lowestPosition > firstSequence) {
+            entries.subList(0, (int) (lowestPosition - firstSequence)).clear();
+            firstSequence = lowestPosition;
+        }
+    }
+
+    /**
+     * Moves every cursor in the older half of the log to the end of it, with
+     * every current key pending, then discards the entries no longer needed
+     */
+    private void expireLaggingCursors() {
+        final long oldestKeptPosition = getSequence() - maxEntries / 2;
+        for (final Cursor cursor : cursors.values()) {
+            if (cursor.position < oldestKeptPosition) {
+                cursor.pending.clear();
+                cursor.pending.addAll(keys);
+                cursor.position = getSequence();
+            }
+        }
+        compact();
+    }
+
+    private Cursor getCursor(final String consumer) {
+        Validate.notNull(consumer, "Consumer required");
+        Cursor cursor = cursors.get(consumer);
+        if (cursor == null) {
+            cursor = new Cursor(new LinkedHashSet<String>(keys),
+                    getSequence());
+            cursors.put(consumer, cursor);
+            return cursor;
+        }
+        // Replay the changes since this consumer's last poll
+        for (int i = (int) (cursor.position - firstSequence); i < entries
+                .size(); i++) {
+            final Entry entry = entries.get(i);
+            if (entry.removal) {
+                cursor.pending.remove(entry.key);
+            }
+            else {
+                cursor.pending.add(entry.key);
+            }
+        }
+        cursor.position = getSequence();
+        compact();
+        return cursor;
+    }
+
+    /**
+     * Returns the number of entries currently kept
+     * 
+     * @return a non-negative number
+     */
+    synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the sequence number the next change will be given
+     * 
+     * @return a non-negative number
+     */
+    public synchronized long getSequence() {
+        return firstSequence + entries.size();
+    }
+
+    /**
+     * Indicates whether the given key has changed since the given consumer
+     * last polled it, and if so consumes that change.
+     * 
+     * @param consumer the consumer's unique name (required)
+     * @param key the key to check
+     * @return see above
+     */
+    public synchronized boolean pollChange(final String consumer,
+            final String key) {
+        return getCursor(consumer).pending.remove(key);
+    }
+
+    /**
+     * Returns and consumes all the keys that have changed since the given
+     * consumer's previous poll.
+     * 
+     * @param consumer the consumer's unique name (required)
+     * @return a non-<code>null</code> set, in the order the keys first changed
+     */
+    public synchronized Set<String> pollChanges(final String consumer) {
+        final Cursor cursor = getCursor(consumer);
+        final Set<String> changes = new LinkedHashSet<String>(cursor.pending);
+        cursor.pending.clear();
+        return changes;
+    }
+
+    /**
+     * Records that the given key has been added or changed
+     * 
+     * @param key the key that changed (required)
+     */
+    public synchronized void recordChange(final String key) {
+        Validate.notNull(key, "Key required");
+        keys.add(key);
+        append(new Entry(key, false));
+    }
+
+    /**
+     * Records that the given key has been removed, which withdraws any change
+     * to it that has not yet been consumed
+     * 
+     * @param key the key that was removed (required)
+     */
+    public synchronized void recordRemoval(final String key) {
+        Validate.notNull(key, "Key required");
+        keys.remove(key);
+        append(new Entry(key, true));
+    }
+}
@@ -1,5 +1,7 @@
 package org.springframework.roo.classpath;
 
+import java.util.Set;
+
 import org.springframework.roo.classpath.details.ItdTypeDetails;
 import org.springframework.roo.model.JavaType;
 
@@ -19,6 +21,19 @@ public interface ItdDiscoveryService {
      */
     void addItdTypeDetails(ItdTypeDetails itdTypeDetails);
 
+    /**
+     * Returns the fully-qualified names of the types whose ITDs have changed
+     * since the last invocation by the requesting class, which on the first
+     * invocation is every type that has ITDs. Only the changes made since the
+     * requesting class last asked are examined, whether it asked through this
+     * method or {@link #haveItdsChanged(String, JavaType)}.
+     * 
+     * @param requestingClass the class requesting the changed types (required)
+     * @return a non-<code>null</code> set of fully-qualified type names
+     * @since 2.0.0
+     */
+    Set<String> getTypesWithChangedItds(String requestingClass);
+
     /**
      * Indicates whether ITDs associate with the passed in type has changed
      * since last invocation by the requesting class.
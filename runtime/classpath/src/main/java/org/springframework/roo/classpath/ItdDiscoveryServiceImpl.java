@@ -1,11 +1,11 @@
 package org.springframework.roo.classpath;
 
 import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Service;
 import org.springframework.roo.classpath.details.ItdTypeDetails;
@@ -22,7 +22,7 @@ import org.springframework.roo.model.JavaType;
 @Service
 public class ItdDiscoveryServiceImpl implements ItdDiscoveryService {
 
-    private final Map<String, Set<String>> changeMap = new HashMap<String, Set<String>>();
+    private final ChangeLog changeLog = new ChangeLog();
     private final Map<String, String> itdIdToTypeMap = new HashMap<String, String>();
     private final Map<String, Map<String, MemberHoldingTypeDetails>> typeMap = new HashMap<String, Map<String, MemberHoldingTypeDetails>>();
 
@@ -46,48 +46,45 @@ public class ItdDiscoveryServiceImpl implements ItdDiscoveryService {
         updateChanges(itdTypeDetails.getGovernor().getName(), false);
     }
 
+    public Set<String> getTypesWithChangedItds(final String requestingClass) {
+        Validate.notNull(requestingClass, "Requesting class required");
+        return changeLog.pollChanges(requestingClass);
+    }
+
     public boolean haveItdsChanged(final String requestingClass,
             final JavaType javaType) {
-        Set<String> changesSinceLastRequest = changeMap.get(requestingClass);
-        if (changesSinceLastRequest == null) {
-            changesSinceLastRequest = new LinkedHashSet<String>(
-                    typeMap.keySet());
-            changeMap.put(requestingClass, changesSinceLastRequest);
-        }
-        for (final String changedId : changesSinceLastRequest) {
-            if (changedId.equals(javaType.getFullyQualifiedTypeName())) {
-                changesSinceLastRequest.remove(changedId);
-                return true;
-            }
-        }
-        return false;
+        return changeLog.pollChange(requestingClass,
+                javaType.getFullyQualifiedTypeName());
     }
 
     public void removeItdTypeDetails(final String itdTypeDetailsId) {
         if (StringUtils.isBlank(itdTypeDetailsId)) {
             return;
         }
-        final String type = itdIdToTypeMap.get(itdTypeDetailsId);
+        final String type = itdIdToTypeMap.remove(itdTypeDetailsId);
         if (type != null) {
             final Map<String, MemberHoldingTypeDetails> typeDetailsHashMap = typeMap
                     .get(type);
             if (typeDetailsHashMap != null) {
                 typeDetailsHashMap.remove(itdTypeDetailsId);
             }
-            updateChanges(new JavaType(type), true);
+            // The type only stops having ITDs once its last one is removed
+            if (typeDetailsHashMap == null || typeDetailsHashMap.isEmpty()) {
+                typeMap.remove(type);
+                updateChanges(new JavaType(type), true);
+            }
+            else {
+                updateChanges(new JavaType(type), false);
+            }
         }
     }
 
     private void updateChanges(final JavaType javaType, final boolean remove) {
-        for (final String requestingClass : changeMap.keySet()) {
-            if (remove) {
-                changeMap.get(requestingClass).remove(
-                        javaType.getFullyQualifiedTypeName());
-            }
-            else {
-                changeMap.get(requestingClass).add(
-                        javaType.getFullyQualifiedTypeName());
-            }
+        if (remove) {
+            changeLog.recordRemoval(javaType.getFullyQualifiedTypeName());
+        }
+        else {
+            changeLog.recordChange(javaType.getFullyQualifiedTypeName());
         }
     }
 }
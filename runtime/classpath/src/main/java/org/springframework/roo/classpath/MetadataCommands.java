@@ -10,6 +10,8 @@ import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
 import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
 import org.springframework.roo.classpath.details.MemberHoldingTypeDetails;
+import org.springframework.roo.classpath.layers.LayerService;
+import org.springframework.roo.classpath.persistence.PersistenceMemberLocator;
 import org.springframework.roo.classpath.scanner.MemberDetailsScanner;
 import org.springframework.roo.metadata.MetadataDependencyRegistry;
 import org.springframework.roo.metadata.MetadataIdentificationUtils;
@@ -32,10 +34,12 @@ public class MetadataCommands implements CommandMarker {
 
     private static final String METADATA_FOR_MODULE_COMMAND = "metadata for module";
 
+    @Reference private LayerService layerService;
     @Reference private MemberDetailsScanner memberDetailsScanner;
     @Reference private MetadataDependencyRegistry metadataDependencyRegistry;
     @Reference private MetadataLogger metadataLogger;
     @Reference private MetadataService metadataService;
+    @Reference private PersistenceMemberLocator persistenceMemberLocator;
     @Reference private ProjectOperations projectOperations;
     @Reference private TypeLocationService typeLocationService;
 
@@ -157,7 +161,9 @@ public class MetadataCommands implements CommandMarker {
         for (final MetadataTimingStatistic stat : metadataLogger.getTimings()) {
             sb.append(stat.toString()).append(LINE_SEPARATOR);
         }
-        sb.append(metadataService.toString());
+        sb.append(metadataService.toString()).append(LINE_SEPARATOR);
+        sb.append(persistenceMemberLocator.toString()).append(LINE_SEPARATOR);
+        sb.append(layerService.toString());
         return sb.toString();
     }
 
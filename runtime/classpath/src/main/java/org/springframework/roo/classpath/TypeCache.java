@@ -23,6 +23,37 @@ public interface TypeCache {
 
     String getTypeIdFromTypeFilePath(String typeFilePath);
 
+    /**
+     * Returns the identifiers of the cached types that directly extend the
+     * given type
+     * 
+     * @param superType the type to look for (required)
+     * @return a non-<code>null</code> set
+     * @since 2.0.0
+     */
+    Set<String> getTypeIdentifiersExtending(JavaType superType);
+
+    /**
+     * Returns the identifiers of the cached types that directly implement the
+     * given interface
+     * 
+     * @param interfaceType the interface to look for (required)
+     * @return a non-<code>null</code> set
+     * @since 2.0.0
+     */
+    Set<String> getTypeIdentifiersImplementing(JavaType interfaceType);
+
+    /**
+     * Returns the identifiers of the cached types that declare a field of the
+     * given type, or of a generic type having the given type as a parameter
+     * (e.g. <code>Set&lt;Owner&gt;</code> for <code>Owner</code>)
+     * 
+     * @param fieldType the field type to look for (required)
+     * @return a non-<code>null</code> set
+     * @since 2.0.0
+     */
+    Set<String> getTypeIdentifiersWithFieldOfType(JavaType fieldType);
+
     Set<String> getTypeNamesForModuleFilePath(String moduleFilePath);
 
     void removeType(String typeIdentifier);
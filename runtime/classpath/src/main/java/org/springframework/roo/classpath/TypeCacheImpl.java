@@ -1,5 +1,6 @@
 package org.springframework.roo.classpath;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -9,6 +10,7 @@ import org.apache.commons.lang3.Validate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Service;
 import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.classpath.details.FieldMetadata;
 import org.springframework.roo.model.JavaType;
 import org.springframework.roo.project.maven.Pom;
 
@@ -16,9 +18,87 @@ import org.springframework.roo.project.maven.Pom;
 @Service
 public class TypeCacheImpl implements TypeCache {
 
+    private static void addTypeNames(final JavaType type,
+            final Set<String> typeNames) {
+        typeNames.add(type.getFullyQualifiedTypeName());
+        for (final JavaType parameter : type.getParameters()) {
+            addTypeNames(parameter, typeNames);
+        }
+    }
+
+    private static Set<String> getTypeNames(final Collection<JavaType> types) {
+        final Set<String> typeNames = new HashSet<String>();
+        for (final JavaType type : types) {
+            typeNames.add(type.getFullyQualifiedTypeName());
+        }
+        return typeNames;
+    }
+
+    /**
+     * Adds the given type identifier to the given index against each of the
+     * given keys, and records those keys against the identifier so they can
+     * be removed again when the type changes
+     * 
+     * @param index the index to update
+     * @param indexedKeys the keys each identifier is currently indexed against
+     * @param mid the type identifier
+     * @param keys the keys to index the identifier against
+     */
+    private static void index(final Map<String, Set<String>> index,
+            final Map<String, Set<String>> indexedKeys, final String mid,
+            final Set<String> keys) {
+        unindex(index, indexedKeys, mid);
+        if (keys.isEmpty()) {
+            return;
+        }
+        indexedKeys.put(mid, keys);
+        for (final String key : keys) {
+            Set<String> mids = index.get(key);
+            if (mids == null) {
+                mids = new HashSet<String>();
+                index.put(key, mids);
+            }
+            mids.add(mid);
+        }
+    }
+
+    private static Set<String> lookup(final Map<String, Set<String>> index,
+            final JavaType javaType) {
+        Validate.notNull(javaType, "Java type required");
+        final Set<String> mids = index.get(javaType
+                .getFullyQualifiedTypeName());
+        if (mids == null) {
+            return new HashSet<String>();
+        }
+        return new HashSet<String>(mids);
+    }
+
+    private static void unindex(final Map<String, Set<String>> index,
+            final Map<String, Set<String>> indexedKeys, final String mid) {
+        final Set<String> previousKeys = indexedKeys.remove(mid);
+        if (previousKeys == null) {
+            return;
+        }
+        for (final String previousKey : previousKeys) {
+            final Set<String> mids = index.get(previousKey);
+            if (mids != null) {
+                mids.remove(mid);
+                if (mids.isEmpty()) {
+                    index.remove(previousKey);
+                }
+            }
+        }
+    }
+
+    private final Map<String, Set<String>> fieldTypeNameToMidsMap = new HashMap<String, Set<String>>();
+    private final Map<String, Set<String>> interfaceNameToMidsMap = new HashMap<String, Set<String>>();
+    private final Map<String, Set<String>> midToFieldTypeNamesMap = new HashMap<String, Set<String>>();
+    private final Map<String, Set<String>> midToInterfaceNamesMap = new HashMap<String, Set<String>>();
+    private final Map<String, Set<String>> midToSuperTypeNamesMap = new HashMap<String, Set<String>>();
     private final Map<String, ClassOrInterfaceTypeDetails> midToTypeDetailsMap = new HashMap<String, ClassOrInterfaceTypeDetails>();
     private final Map<String, Set<String>> moduleFilePathToTypeNamesMap = new HashMap<String, Set<String>>();
     private final Map<String, Set<String>> simpleTypeNameTypesMap = new HashMap<String, Set<String>>();
+    private final Map<String, Set<String>> superTypeNameToMidsMap = new HashMap<String, Set<String>>();
     private final Map<String, String> typeFilePathToMidMap = new HashMap<String, String>();
     private final Map<String, String> typeIdentifierToFilePathMap = new HashMap<String, String>();
     private final Map<String, String> typeNameToMidMap = new HashMap<String, String>();
@@ -52,6 +132,19 @@ public class TypeCacheImpl implements TypeCache {
         }
 
         simpleTypeNameTypesMap.get(simpleTypeName).add(fullyQualifiedTypeName);
+
+        // Hierarchy and field type indexes
+        final String mid = cid.getDeclaredByMetadataId();
+        index(superTypeNameToMidsMap, midToSuperTypeNamesMap, mid,
+                getTypeNames(cid.getExtendsTypes()));
+        index(interfaceNameToMidsMap, midToInterfaceNamesMap, mid,
+                getTypeNames(cid.getImplementsTypes()));
+        final Set<String> fieldTypeNames = new HashSet<String>();
+        for (final FieldMetadata field : cid.getDeclaredFields()) {
+            addTypeNames(field.getFieldType(), fieldTypeNames);
+        }
+        index(fieldTypeNameToMidsMap, midToFieldTypeNamesMap, mid,
+                fieldTypeNames);
     }
 
     public void cacheTypeAgainstModule(final Pom pom, final JavaType javaType) {
@@ -92,6 +185,20 @@ public class TypeCacheImpl implements TypeCache {
         return typeFilePathToMidMap.get(typeFilePath);
     }
 
+    public Set<String> getTypeIdentifiersExtending(final JavaType superType) {
+        return lookup(superTypeNameToMidsMap, superType);
+    }
+
+    public Set<String> getTypeIdentifiersImplementing(
+            final JavaType interfaceType) {
+        return lookup(interfaceNameToMidsMap, interfaceType);
+    }
+
+    public Set<String> getTypeIdentifiersWithFieldOfType(
+            final JavaType fieldType) {
+        return lookup(fieldTypeNameToMidsMap, fieldType);
+    }
+
     public Set<String> getTypeNamesForModuleFilePath(final String moduleFilePath) {
         Validate.notBlank(moduleFilePath, "Pom file path required");
         if (!moduleFilePathToTypeNamesMap.containsKey(moduleFilePath)) {
@@ -125,6 +232,11 @@ public class TypeCacheImpl implements TypeCache {
             typeFilePathToMidMap.remove(filePath);
             typeIdentifierToFilePathMap.remove(typeIdentifier);
         }
-
+        unindex(superTypeNameToMidsMap, midToSuperTypeNamesMap,
+                typeIdentifier);
+        unindex(interfaceNameToMidsMap, midToInterfaceNamesMap,
+                typeIdentifier);
+        unindex(fieldTypeNameToMidsMap, midToFieldTypeNamesMap,
+                typeIdentifier);
     }
 }
@@ -18,6 +18,30 @@ import org.springframework.roo.project.maven.Pom;
  */
 public interface TypeLocationService {
 
+    /**
+     * Returns the {@link ClassOrInterfaceTypeDetails}s of the project types
+     * that extend the given type, either directly or through other project
+     * types.
+     * 
+     * @param superType the class or interface being extended (required)
+     * @return a non-<code>null</code> set
+     * @since 2.0.0
+     */
+    Set<ClassOrInterfaceTypeDetails> findClassesOrInterfaceDetailsExtending(
+            JavaType superType);
+
+    /**
+     * Returns the {@link ClassOrInterfaceTypeDetails}s of the project types
+     * that implement the given interface, either directly or through a project
+     * superclass or sub-interface.
+     * 
+     * @param interfaceType the interface being implemented (required)
+     * @return a non-<code>null</code> set
+     * @since 2.0.0
+     */
+    Set<ClassOrInterfaceTypeDetails> findClassesOrInterfaceDetailsImplementing(
+            JavaType interfaceType);
+
     /**
      * Returns a set of {@link ClassOrInterfaceTypeDetails}s that possess the
      * specified annotations (specified as a vararg).
@@ -40,6 +64,19 @@ public interface TypeLocationService {
     Set<ClassOrInterfaceTypeDetails> findClassesOrInterfaceDetailsWithTag(
             Object tag);
 
+    /**
+     * Returns the {@link ClassOrInterfaceTypeDetails}s of the project types
+     * that declare a field of the given type, or of a generic type having the
+     * given type as a parameter (e.g. <code>Set&lt;Owner&gt;</code> for
+     * <code>Owner</code>).
+     * 
+     * @param fieldType the field type to look for (required)
+     * @return a non-<code>null</code> set
+     * @since 2.0.0
+     */
+    Set<ClassOrInterfaceTypeDetails> findClassesOrInterfaceDetailsWithFieldOfType(
+            JavaType fieldType);
+
     /**
      * Returns a set of {@link JavaType}s that possess the specified annotations
      * (specified as a vararg).
@@ -172,6 +209,19 @@ public interface TypeLocationService {
     @Deprecated
     Collection<String> getTypesForModule(String modulePath);
 
+    /**
+     * Returns the fully-qualified names of the types that have changed since
+     * the last invocation by the requesting class, which on the first
+     * invocation is every type in the project. Only the changes made since the
+     * requesting class last asked are examined, whether it asked through this
+     * method or {@link #hasTypeChanged(String, JavaType)}.
+     * 
+     * @param requestingClass the class requesting the changed types (required)
+     * @return a non-<code>null</code> set of fully-qualified type names
+     * @since 2.0.0
+     */
+    Set<String> getChangedTypes(String requestingClass);
+
     /**
      * Indicates whether the passed in type has changed since last invocation by
      * the requesting class.
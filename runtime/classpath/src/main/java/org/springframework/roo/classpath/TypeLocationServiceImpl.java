@@ -10,6 +10,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -77,6 +78,8 @@ public class TypeLocationServiceImpl implements TypeLocationService {
         }
     };
 
+    private static final String POM_FILE_NAME = "pom.xml";
+
     private static final String JAVA_FILES_ANT_PATH = "**" + File.separatorChar
             + "*.java";
 
@@ -155,12 +158,16 @@ public class TypeLocationServiceImpl implements TypeLocationService {
     private MetadataService metadataService;
     private ProjectOperations projectOperations;
     private TypeCache typeCache;
+    private TypeParsingService typeParsingService;
     private TypeResolutionService typeResolutionService;
 
     private final Map<JavaType, Set<String>> annotationToMidMap = new HashMap<JavaType, Set<String>>();
-    private final Map<String, Set<String>> changeMap = new HashMap<String, Set<String>>();
+    private final ChangeLog changeLog = new ChangeLog();
     private final Set<String> dirtyFiles = new HashSet<String>();
     private final Set<String> discoveredTypes = new HashSet<String>();
+    private final Map<String, Pom> parentPathToModuleMap = new HashMap<String, Pom>();
+    private final Map<String, PhysicalPath> parentPathToPhysicalPathMap = new HashMap<String, PhysicalPath>();
+    private final Map<String, String> typeNameToFilePathMap = new HashMap<String, String>();
     private final Map<String, Set<Object>> typeCustomDataMap = new HashMap<String, Set<Object>>();
     private final Map<Object, Set<String>> tagToMidMap = new HashMap<Object, Set<String>>();
     private final Map<String, Set<JavaType>> typeAnnotationMap = new HashMap<String, Set<JavaType>>();
@@ -193,20 +200,86 @@ public class TypeLocationServiceImpl implements TypeLocationService {
         // the last invocation by this class
         for (final String change : getFileMonitorService()
                 .getDirtyFiles(TypeLocationServiceImpl.class.getName())) {
-            if (doesPathIndicateJavaType(change)) {
+            if (change.endsWith(POM_FILE_NAME)) {
+                // The module layout may have changed, so the cached source
+                // paths can no longer be trusted
+                parentPathToModuleMap.clear();
+                parentPathToPhysicalPathMap.clear();
+                continue;
+            }
+            final String typeName = getJavaTypeName(change);
+            if (typeName != null) {
                 discoveredTypes.add(change);
                 dirtyFiles.add(change);
+                typeNameToFilePathMap.put(typeName, change);
             }
         }
         return discoveredTypes;
     }
 
     private boolean doesPathIndicateJavaType(final String fileCanonicalPath) {
+        return getJavaTypeName(fileCanonicalPath) != null;
+    }
+
+    /**
+     * Returns the fully-qualified name of the Java type declared by the given
+     * file, based on its location within its module's source paths.
+     * 
+     * @param fileCanonicalPath the canonical path of the file (required)
+     * @return <code>null</code> if the path does not indicate a Java type
+     */
+    private String getJavaTypeName(final String fileCanonicalPath) {
         Validate.notBlank(fileCanonicalPath, "File canonical path required");
-        return fileCanonicalPath.endsWith(".java")
-                && !fileCanonicalPath.endsWith("package-info.java")
-                && JavaSymbolName
-                        .isLegalJavaName(getProposedJavaType(fileCanonicalPath));
+        if (!fileCanonicalPath.endsWith(".java")
+                || fileCanonicalPath.endsWith("package-info.java")) {
+            return null;
+        }
+        final String typeName = getProposedJavaType(fileCanonicalPath);
+        if (!JavaSymbolName.isLegalJavaName(typeName)) {
+            return null;
+        }
+        return typeName;
+    }
+
+    public Set<ClassOrInterfaceTypeDetails> findClassesOrInterfaceDetailsExtending(
+            final JavaType superType) {
+        Validate.notNull(superType, "Super type required");
+        updateTypeCache();
+        final Set<String> mids = getSubtypeIdentifiers(Collections
+                .singleton(superType));
+        return Collections.unmodifiableSet(getTypeDetails(mids));
+    }
+
+    public Set<ClassOrInterfaceTypeDetails> findClassesOrInterfaceDetailsImplementing(
+            final JavaType interfaceType) {
+        Validate.notNull(interfaceType, "Interface type required");
+        updateTypeCache();
+
+        // The interface and its sub-interfaces
+        final Set<JavaType> interfaces = new LinkedHashSet<JavaType>();
+        interfaces.add(interfaceType);
+        final Set<String> subInterfaceMids = getSubtypeIdentifiers(Collections
+                .singleton(interfaceType));
+        for (final ClassOrInterfaceTypeDetails subInterface : getTypeDetails(subInterfaceMids)) {
+            interfaces.add(subInterface.getName());
+        }
+
+        // Their implementations and the subclasses of those
+        final Set<JavaType> implementations = new LinkedHashSet<JavaType>();
+        final Set<String> mids = new LinkedHashSet<String>();
+        for (final JavaType implementedType : interfaces) {
+            for (final String mid : getTypeCache()
+                    .getTypeIdentifiersImplementing(implementedType)) {
+                final ClassOrInterfaceTypeDetails implementation = getTypeCache()
+                        .getTypeDetails(mid);
+                if (implementation != null) {
+                    mids.add(mid);
+                    implementations.add(implementation.getName());
+                }
+            }
+        }
+        mids.addAll(getSubtypeIdentifiers(implementations));
+        return Collections.unmodifiableSet(getTypeDetails(mids));
     }
 
     public Set<ClassOrInterfaceTypeDetails> findClassesOrInterfaceDetailsWithAnnotation(
@@ -249,6 +322,14 @@ public class TypeLocationServiceImpl implements TypeLocationService {
         return Collections.unmodifiableSet(types);
     }
 
+    public Set<ClassOrInterfaceTypeDetails> findClassesOrInterfaceDetailsWithFieldOfType(
+            final JavaType fieldType) {
+        Validate.notNull(fieldType, "Field type required");
+        updateTypeCache();
+        return Collections.unmodifiableSet(getTypeDetails(getTypeCache()
+                .getTypeIdentifiersWithFieldOfType(fieldType)));
+    }
+
     public Set<JavaType> findTypesWithAnnotation(
             final JavaType... annotationsToDetect) {
         return findTypesWithAnnotation(Arrays.asList(annotationsToDetect));
@@ -270,14 +351,39 @@ public class TypeLocationServiceImpl implements TypeLocationService {
         return Collections.unmodifiableSet(types);
     }
 
-    private String getParentPath(final JavaType javaType) {
-        final String relativePath = javaType.getRelativeFileName();
-        for (final String typePath : discoverTypes()) {
-            if (typePath.endsWith(relativePath)) {
-                return StringUtils.removeEnd(typePath, relativePath);
+    /**
+     * Returns the identifiers of the project types that extend any of the
+     * given types, directly or through other project types
+     * 
+     * @param superTypes the types being extended
+     * @return a non-<code>null</code> set
+     */
+    private Set<String> getSubtypeIdentifiers(
+            final Collection<JavaType> superTypes) {
+        final Set<String> subtypeIdentifiers = new LinkedHashSet<String>();
+        final LinkedList<JavaType> typesToVisit = new LinkedList<JavaType>(
+                superTypes);
+        while (!typesToVisit.isEmpty()) {
+            for (final String mid : getTypeCache().getTypeIdentifiersExtending(
+                    typesToVisit.removeFirst())) {
+                final ClassOrInterfaceTypeDetails subtype = getTypeCache()
+                        .getTypeDetails(mid);
+                if (subtype != null && subtypeIdentifiers.add(mid)) {
+                    typesToVisit.add(subtype.getName());
+                }
             }
         }
-        return null;
+        return subtypeIdentifiers;
+    }
+
+    private String getParentPath(final JavaType javaType) {
+        discoverTypes();
+        final String typePath = typeNameToFilePathMap.get(javaType
+                .getFullyQualifiedTypeName());
+        if (typePath == null) {
+            return null;
+        }
+        return StringUtils.removeEnd(typePath, javaType.getRelativeFileName());
     }
 
     private PhysicalPath getPhysicalPath(final JavaType javaType) {
@@ -286,6 +392,13 @@ public class TypeLocationServiceImpl implements TypeLocationService {
         if (parentPath == null) {
             return null;
         }
+        final PhysicalPath cachedPhysicalPath = parentPathToPhysicalPathMap
+                .get(parentPath);
+        if (cachedPhysicalPath != null) {
+            getTypeCache().cacheTypeAgainstModule(
+                    parentPathToModuleMap.get(parentPath), javaType);
+            return cachedPhysicalPath;
+        }
         for (final Pom pom : getProjectOperations().getPoms()) {
             for (final PhysicalPath physicalPath : pom.getPhysicalPaths()) {
                 if (physicalPath.isSource()) {
@@ -293,6 +406,9 @@ public class TypeLocationServiceImpl implements TypeLocationService {
                             .ensureTrailingSeparator(physicalPath
                                     .getLocationPath());
                     if (pathLocation.startsWith(parentPath)) {
+                        parentPathToPhysicalPathMap.put(parentPath,
+                                physicalPath);
+                        parentPathToModuleMap.put(parentPath, pom);
                         getTypeCache().cacheTypeAgainstModule(pom, javaType);
                         return physicalPath;
                     }
@@ -544,6 +660,26 @@ public class TypeLocationServiceImpl implements TypeLocationService {
         return javaTypes;
     }
 
+    public Set<String> getChangedTypes(final String requestingClass) {
+        Validate.notNull(requestingClass, "Requesting class required");
+
+        updateTypeCache();
+        return changeLog.pollChanges(requestingClass);
+    }
+
+    private Set<ClassOrInterfaceTypeDetails> getTypeDetails(
+            final Collection<String> mids) {
+        final Set<ClassOrInterfaceTypeDetails> types = new LinkedHashSet<ClassOrInterfaceTypeDetails>();
+        for (final String mid : mids) {
+            final ClassOrInterfaceTypeDetails located = getTypeCache()
+                    .getTypeDetails(mid);
+            if (located != null) {
+                types.add(located);
+            }
+        }
+        return types;
+    }
+
     public Set<String> getTypesForModule(final String modulePath) {
         Validate.notNull(modulePath, "Module path required");
         return getTypeCache().getTypeNamesForModuleFilePath(modulePath);
@@ -555,27 +691,12 @@ public class TypeLocationServiceImpl implements TypeLocationService {
         Validate.notNull(javaType, "Java type required");
 
         updateTypeCache();
-        Set<String> changesSinceLastRequest = changeMap.get(requestingClass);
-        if (changesSinceLastRequest == null) {
-            changesSinceLastRequest = new LinkedHashSet<String>();
-            for (final String typeIdentifier : getTypeCache()
-                    .getAllTypeIdentifiers()) {
-                changesSinceLastRequest.add(getTypeCache()
-                        .getTypeDetails(typeIdentifier).getName()
-                        .getFullyQualifiedTypeName());
-            }
-            changeMap.put(requestingClass, changesSinceLastRequest);
-        }
-        for (final String changedId : changesSinceLastRequest) {
-            if (changedId.equals(javaType.getFullyQualifiedTypeName())) {
-                changesSinceLastRequest.remove(changedId);
-                return true;
-            }
-        }
-        return false;
+        return changeLog.pollChange(requestingClass,
+                javaType.getFullyQualifiedTypeName());
     }
 
     private void initTypeMap() {
+        final List<String> javaFiles = new ArrayList<String>();
         for (final Pom pom : getProjectOperations().getPoms()) {
             for (final PhysicalPath path : pom.getPhysicalPaths()) {
                 if (path.isSource()) {
@@ -584,11 +705,20 @@ public class TypeLocationServiceImpl implements TypeLocationService {
                             + JAVA_FILES_ANT_PATH;
                     for (final FileDetails file : getFileManager()
                             .findMatchingAntPath(allJavaFiles)) {
-                        cacheType(file.getCanonicalPath());
+                        javaFiles.add(file.getCanonicalPath());
                     }
                 }
             }
         }
+        // Parse every compilation unit up front (concurrently where the
+        // parsing service supports it), then publish the results one by one
+        final TypeParsingService parsingService = getTypeParsingService();
+        if (parsingService != null) {
+            parsingService.prepareTypesAtLocations(javaFiles);
+        }
+        for (final String javaFile : javaFiles) {
+            cacheType(javaFile);
+        }
     }
 
     public boolean isInProject(final JavaType javaType) {
@@ -710,13 +840,11 @@ public class TypeLocationServiceImpl implements TypeLocationService {
 
     private void updateChanges(final String typeName, final boolean remove) {
         Validate.notNull(typeName, "Type name required");
-        for (final String requestingClass : changeMap.keySet()) {
-            if (remove) {
-                changeMap.get(requestingClass).remove(typeName);
-            }
-            else {
-                changeMap.get(requestingClass).add(typeName);
-            }
+        if (remove) {
+            changeLog.recordRemoval(typeName);
+        }
+        else {
+            changeLog.recordChange(typeName);
         }
     }
 
@@ -837,6 +965,27 @@ public class TypeLocationServiceImpl implements TypeLocationService {
     	}
     }
     
+    public TypeParsingService getTypeParsingService(){
+    	if(typeParsingService == null){
+        	// Get all Services implement TypeParsingService interface
+    		try {
+    			ServiceReference<?>[] references = context.getAllServiceReferences(TypeParsingService.class.getName(), null);
+    			
+    			for(ServiceReference<?> ref : references){
+    				return (TypeParsingService) context.getService(ref);
+    			}
+    			
+    			return null;
+    			
+    		} catch (InvalidSyntaxException e) {
+    			LOGGER.warning("Cannot load TypeParsingService on TypeLocationServiceImpl.");
+    			return null;
+    		}
+    	}else{
+    		return typeParsingService;
+    	}
+    }
+    
     public TypeResolutionService getTypeResolutionService(){
     	if(typeResolutionService == null){
         	// Get all Services implement TypeResolutionService interface
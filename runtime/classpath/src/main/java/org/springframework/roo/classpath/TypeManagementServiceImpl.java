@@ -113,7 +113,7 @@ public class TypeManagementServiceImpl implements TypeManagementService {
         }
         if (existsFile) {
             newContents = typeParsingService
-                    .updateAndGetCompilationUnitContents(fileCanonicalPath, cid);
+                    .patchAndGetCompilationUnitContents(fileCanonicalPath, cid);
         }
         else {
             newContents = typeParsingService.getCompilationUnitContents(cid);
@@ -1,5 +1,7 @@
 package org.springframework.roo.classpath;
 
+import java.util.Collection;
+
 import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
 import org.springframework.roo.model.JavaType;
 
@@ -58,6 +60,19 @@ public interface TypeParsingService {
     ClassOrInterfaceTypeDetails getTypeFromString(String typeContents,
             String declaredByMetadataId, JavaType javaType);
 
+    /**
+     * Parses the given compilation units in bulk, ahead of the individual
+     * {@link #getTypeAtLocation(String, String, JavaType)} calls that will
+     * request them. This is used when populating the type cache for a whole
+     * project, as implementations may parse the files concurrently, and may
+     * discard anything they keep about compilation units not in the project.
+     * Any previously prepared results that were not requested are discarded.
+     * 
+     * @param fileIdentifiers the locations of all the project's compilation
+     *            units (required)
+     */
+    void prepareTypesAtLocations(Collection<String> fileIdentifiers);
+
     /**
      * Returns the compilation unit contents that represents the java file
      * updated with the passed class or interface details. The difference with
@@ -71,4 +86,20 @@ public interface TypeParsingService {
      */
     String updateAndGetCompilationUnitContents(String fileIdentifier,
             ClassOrInterfaceTypeDetails cid);
+
+    /**
+     * Returns the contents of the given java file updated with the passed
+     * class or interface details, like
+     * {@link #updateAndGetCompilationUnitContents(String, ClassOrInterfaceTypeDetails)}
+     * , except that only the lines of the declarations that actually changed
+     * are rewritten; everything else keeps its original text and formatting.
+     * If the changes can't safely be limited to those lines, the whole
+     * compilation unit is regenerated instead.
+     * 
+     * @param fileIdentifier canonical path of file
+     * @param cid a parsed representation of a class or interface (required)
+     * @return a valid Java compilation unit contents (never null or empty)
+     */
+    String patchAndGetCompilationUnitContents(String fileIdentifier,
+            ClassOrInterfaceTypeDetails cid);
 }
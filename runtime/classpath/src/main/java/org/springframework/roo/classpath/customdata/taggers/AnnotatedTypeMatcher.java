@@ -36,6 +36,15 @@ public class AnnotatedTypeMatcher extends TypeMatcher {
         this.customDataKey = customDataKey;
     }
 
+    /**
+     * Returns the annotation types this matcher matches on
+     * 
+     * @return a non-<code>null</code> list
+     */
+    List<JavaType> getAnnotationTypes() {
+        return annotationTypesToMatchOn;
+    }
+
     public CustomDataKey<MemberHoldingTypeDetails> getCustomDataKey() {
         return customDataKey;
     }
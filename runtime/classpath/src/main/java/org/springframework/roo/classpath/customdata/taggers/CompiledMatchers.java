@@ -0,0 +1,423 @@
+package org.springframework.roo.classpath.customdata.taggers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.springframework.roo.classpath.details.ConstructorMetadata;
+import org.springframework.roo.classpath.details.FieldMetadata;
+import org.springframework.roo.classpath.details.MemberHoldingTypeDetails;
+import org.springframework.roo.classpath.details.MethodMetadata;
+import org.springframework.roo.classpath.details.annotations.AnnotatedJavaType;
+import org.springframework.roo.classpath.details.annotations.AnnotationMetadata;
+import org.springframework.roo.classpath.scanner.MemberDetailsBuilder;
+import org.springframework.roo.model.CustomDataAccessor;
+import org.springframework.roo.model.CustomDataKey;
+import org.springframework.roo.model.JavaSymbolName;
+import org.springframework.roo.model.JavaType;
+
+/**
+ * The {@link Matcher}s registered with a {@link CustomDataKeyDecorator},
+ * compiled into tables keyed by annotation type, constructor arity and method
+ * name, so that each kind of member can be tagged in a single pass over the
+ * members instead of one pass per matcher.
+ * <p>
+ * Only instances of the matcher classes in this package are compiled into
+ * these tables; any other matchers (e.g. subclasses) are applied as before by
+ * calling their <code>matches</code> method. Instances are immutable and are
+ * compiled again whenever a matcher is registered or unregistered.
+ * 
+ * @since 2.0.0
+ */
+final class CompiledMatchers {
+
+    private static <K, V> void put(final Map<K, List<V>> table, final K key,
+            final V value) {
+        List<V> values = table.get(key);
+        if (values == null) {
+            values = new ArrayList<V>();
+            table.put(key, values);
+        }
+        values.add(value);
+    }
+
+    // The registered matchers of each kind, in registration order
+    private final List<ConstructorMatcher> constructorMatchers = new ArrayList<ConstructorMatcher>();
+    private final List<FieldMatcher> fieldMatchers = new ArrayList<FieldMatcher>();
+    private final List<MethodMatcher> methodMatchers = new ArrayList<MethodMatcher>();
+    private final List<TypeMatcher> typeMatchers = new ArrayList<TypeMatcher>();
+
+    // The dispatch tables, plus the matchers that can't be dispatched on
+    private final Map<Integer, List<ConstructorMatcher>> constructorMatchersByArity = new HashMap<Integer, List<ConstructorMatcher>>();
+    private final List<ConstructorMatcher> otherConstructorMatchers = new ArrayList<ConstructorMatcher>();
+    private final Map<String, List<Integer>> fieldMatchersByAnnotation = new HashMap<String, List<Integer>>();
+    private final List<FieldMatcher> otherFieldMatchers = new ArrayList<FieldMatcher>();
+    private final List<MethodMatcher> otherMethodMatchers = new ArrayList<MethodMatcher>();
+    private final Map<String, List<Integer>> typeMatchersByAnnotation = new HashMap<String, List<Integer>>();
+    private final List<TypeMatcher> otherTypeMatchers = new ArrayList<TypeMatcher>();
+
+    /*
+     * The field matchers in the field table: the registered ones first, then
+     * any others that method matchers use to work out method names; the
+     * tables refer to them by their index in this list, which keeps the
+     * registration order when several of them match the same field
+     */
+    private final List<FieldMatcher> indexedFieldMatchers = new ArrayList<FieldMatcher>();
+    private final int taggingFieldMatcherCount;
+    private final List<AnnotatedTypeMatcher> indexedTypeMatchers = new ArrayList<AnnotatedTypeMatcher>();
+
+    /**
+     * Constructor
+     * 
+     * @param matchers the matchers to compile (required)
+     */
+    CompiledMatchers(
+            final Collection<Matcher<? extends CustomDataAccessor>> matchers) {
+        for (final Matcher<? extends CustomDataAccessor> matcher : matchers) {
+            if (matcher instanceof ConstructorMatcher) {
+                constructorMatchers.add((ConstructorMatcher) matcher);
+            }
+            if (matcher instanceof FieldMatcher) {
+                fieldMatchers.add((FieldMatcher) matcher);
+            }
+            if (matcher instanceof MethodMatcher) {
+                methodMatchers.add((MethodMatcher) matcher);
+            }
+            if (matcher instanceof TypeMatcher) {
+                typeMatchers.add((TypeMatcher) matcher);
+            }
+        }
+
+        for (final ConstructorMatcher constructorMatcher : constructorMatchers) {
+            if (constructorMatcher.getClass() == ConstructorMatcher.class) {
+                put(constructorMatchersByArity, constructorMatcher
+                        .getParameterTypes().size(), constructorMatcher);
+            }
+            else {
+                otherConstructorMatchers.add(constructorMatcher);
+            }
+        }
+
+        for (final FieldMatcher fieldMatcher : fieldMatchers) {
+            if (!indexFieldMatcher(fieldMatcher)) {
+                otherFieldMatchers.add(fieldMatcher);
+            }
+        }
+        taggingFieldMatcherCount = indexedFieldMatchers.size();
+
+        for (final MethodMatcher methodMatcher : methodMatchers) {
+            if (methodMatcher.getClass() == MethodMatcher.class) {
+                for (final FieldMatcher fieldMatcher : methodMatcher
+                        .getFieldTaggers()) {
+                    if (!indexedFieldMatchers.contains(fieldMatcher)) {
+                        indexFieldMatcher(fieldMatcher);
+                    }
+                }
+            }
+            else {
+                otherMethodMatchers.add(methodMatcher);
+            }
+        }
+
+        for (final TypeMatcher typeMatcher : typeMatchers) {
+            if (typeMatcher.getClass() == AnnotatedTypeMatcher.class) {
+                final AnnotatedTypeMatcher annotatedTypeMatcher = (AnnotatedTypeMatcher) typeMatcher;
+                final Set<String> annotationTypeNames = new HashSet<String>();
+                for (final JavaType annotationType : annotatedTypeMatcher
+                        .getAnnotationTypes()) {
+                    annotationTypeNames.add(annotationType
+                            .getFullyQualifiedTypeName());
+                }
+                for (final String annotationTypeName : annotationTypeNames) {
+                    put(typeMatchersByAnnotation, annotationTypeName,
+                            indexedTypeMatchers.size());
+                }
+                indexedTypeMatchers.add(annotatedTypeMatcher);
+            }
+            else {
+                otherTypeMatchers.add(typeMatcher);
+            }
+        }
+    }
+
+    List<ConstructorMatcher> getConstructorMatchers() {
+        return constructorMatchers;
+    }
+
+    List<FieldMatcher> getFieldMatchers() {
+        return fieldMatchers;
+    }
+
+    List<MethodMatcher> getMethodMatchers() {
+        return methodMatchers;
+    }
+
+    List<TypeMatcher> getTypeMatchers() {
+        return typeMatchers;
+    }
+
+    /**
+     * Adds the given field matcher to the field table, if it's a plain
+     * {@link FieldMatcher}
+     * 
+     * @return <code>false</code> if it can't be added
+     */
+    private boolean indexFieldMatcher(final FieldMatcher fieldMatcher) {
+        if (fieldMatcher.getClass() != FieldMatcher.class) {
+            return false;
+        }
+        final Set<String> annotationTypeNames = new HashSet<String>(
+                fieldMatcher.getAnnotationTypeNames());
+        for (final String annotationTypeName : annotationTypeNames) {
+            put(fieldMatchersByAnnotation, annotationTypeName,
+                    indexedFieldMatchers.size());
+        }
+        indexedFieldMatchers.add(fieldMatcher);
+        return true;
+    }
+
+    /**
+     * Tags the members of the given types that any of the matchers match
+     * 
+     * @param memberHoldingTypeDetailsList the types to tag (required)
+     * @param pluralMap the plurals of those types, keyed by metadata ID
+     * @param memberDetailsBuilder the builder to add the tags to (required)
+     * @return the keys of the tags that were added
+     */
+    Set<CustomDataKey<?>> tag(
+            final List<MemberHoldingTypeDetails> memberHoldingTypeDetailsList,
+            final Map<String, String> pluralMap,
+            final MemberDetailsBuilder memberDetailsBuilder) {
+        final Set<CustomDataKey<?>> addedTags = new HashSet<CustomDataKey<?>>();
+        final Map<FieldMatcher, List<FieldMetadata>> matchedFields = tagFields(
+                memberHoldingTypeDetailsList, memberDetailsBuilder, addedTags);
+        tagMethods(memberHoldingTypeDetailsList, pluralMap, matchedFields,
+                memberDetailsBuilder, addedTags);
+        tagConstructors(memberHoldingTypeDetailsList, memberDetailsBuilder,
+                addedTags);
+        tagTypes(memberHoldingTypeDetailsList, memberDetailsBuilder, addedTags);
+        return addedTags;
+    }
+
+    private void tagConstructors(
+            final List<MemberHoldingTypeDetails> memberHoldingTypeDetailsList,
+            final MemberDetailsBuilder memberDetailsBuilder,
+            final Set<CustomDataKey<?>> addedTags) {
+        if (!constructorMatchersByArity.isEmpty()) {
+            for (final MemberHoldingTypeDetails memberHoldingTypeDetails : memberHoldingTypeDetailsList) {
+                for (final ConstructorMetadata constructor : memberHoldingTypeDetails
+                        .getDeclaredConstructors()) {
+                    final List<ConstructorMatcher> candidates = constructorMatchersByArity
+                            .get(constructor.getParameterTypes().size());
+                    if (candidates == null) {
+                        continue;
+                    }
+                    final List<JavaType> parameterTypes = AnnotatedJavaType
+                            .convertFromAnnotatedJavaTypes(constructor
+                                    .getParameterTypes());
+                    for (final ConstructorMatcher constructorMatcher : candidates) {
+                        if (constructorMatcher.getParameterTypes().equals(
+                                parameterTypes)
+                                && memberDetailsBuilder.tag(constructor,
+                                        constructorMatcher.getCustomDataKey(),
+                                        constructorMatcher
+                                                .getTagValue(constructor))) {
+                            addedTags.add(constructorMatcher.getCustomDataKey());
+                        }
+                    }
+                }
+            }
+        }
+        for (final ConstructorMatcher constructorMatcher : otherConstructorMatchers) {
+            for (final ConstructorMetadata constructor : constructorMatcher
+                    .matches(memberHoldingTypeDetailsList)) {
+                if (memberDetailsBuilder.tag(constructor,
+                        constructorMatcher.getCustomDataKey(),
+                        constructorMatcher.getTagValue(constructor))) {
+                    addedTags.add(constructorMatcher.getCustomDataKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Tags the fields matched by the registered field matchers
+     * 
+     * @return the fields matched by each field matcher in the field table
+     */
+    private Map<FieldMatcher, List<FieldMetadata>> tagFields(
+            final List<MemberHoldingTypeDetails> memberHoldingTypeDetailsList,
+            final MemberDetailsBuilder memberDetailsBuilder,
+            final Set<CustomDataKey<?>> addedTags) {
+        final Map<FieldMatcher, List<FieldMetadata>> matchedFields = new IdentityHashMap<FieldMatcher, List<FieldMetadata>>();
+        if (!fieldMatchersByAnnotation.isEmpty()) {
+            for (final MemberHoldingTypeDetails memberHoldingTypeDetails : memberHoldingTypeDetailsList) {
+                for (final FieldMetadata field : memberHoldingTypeDetails
+                        .getDeclaredFields()) {
+                    final SortedMap<Integer, FieldMatcher> matches = new TreeMap<Integer, FieldMatcher>();
+                    for (final AnnotationMetadata annotation : field
+                            .getAnnotations()) {
+                        final List<Integer> candidates = fieldMatchersByAnnotation
+                                .get(annotation.getAnnotationType()
+                                        .getFullyQualifiedTypeName());
+                        if (candidates != null) {
+                            for (final Integer index : candidates) {
+                                matches.put(index,
+                                        indexedFieldMatchers.get(index));
+                            }
+                        }
+                    }
+                    for (final Map.Entry<Integer, FieldMatcher> match : matches
+                            .entrySet()) {
+                        final FieldMatcher fieldMatcher = match.getValue();
+                        put(matchedFields, fieldMatcher, field);
+                        if (match.getKey() < taggingFieldMatcherCount
+                                && memberDetailsBuilder.tag(field,
+                                        fieldMatcher.getCustomDataKey(),
+                                        fieldMatcher.getTagValue(field))) {
+                            addedTags.add(fieldMatcher.getCustomDataKey());
+                        }
+                    }
+                }
+            }
+        }
+        for (final FieldMatcher fieldMatcher : otherFieldMatchers) {
+            for (final FieldMetadata field : fieldMatcher
+                    .matches(memberHoldingTypeDetailsList)) {
+                if (memberDetailsBuilder.tag(field,
+                        fieldMatcher.getCustomDataKey(),
+                        fieldMatcher.getTagValue(field))) {
+                    addedTags.add(fieldMatcher.getCustomDataKey());
+                }
+            }
+        }
+        return matchedFields;
+    }
+
+    private void tagMethods(
+            final List<MemberHoldingTypeDetails> memberHoldingTypeDetailsList,
+            final Map<String, String> pluralMap,
+            final Map<FieldMatcher, List<FieldMetadata>> matchedFields,
+            final MemberDetailsBuilder memberDetailsBuilder,
+            final Set<CustomDataKey<?>> addedTags) {
+        // Work out which method names each matcher is looking for in these
+        // particular types
+        final Map<JavaSymbolName, List<MethodMatcher>> methodMatchersByName = new HashMap<JavaSymbolName, List<MethodMatcher>>();
+        for (final MethodMatcher methodMatcher : methodMatchers) {
+            if (methodMatcher.getClass() != MethodMatcher.class) {
+                continue;
+            }
+            final List<FieldMetadata> fields = new ArrayList<FieldMetadata>();
+            for (final FieldMatcher fieldMatcher : methodMatcher
+                    .getFieldTaggers()) {
+                if (indexedFieldMatchers.contains(fieldMatcher)) {
+                    final List<FieldMetadata> matches = matchedFields
+                            .get(fieldMatcher);
+                    fields.addAll(matches == null ? Collections
+                            .<FieldMetadata> emptyList() : matches);
+                }
+                else {
+                    fields.addAll(fieldMatcher
+                            .matches(memberHoldingTypeDetailsList));
+                }
+            }
+            for (final JavaSymbolName methodName : methodMatcher
+                    .getMethodNames(memberHoldingTypeDetailsList, pluralMap,
+                            fields)) {
+                put(methodMatchersByName, methodName, methodMatcher);
+            }
+        }
+
+        if (!methodMatchersByName.isEmpty()) {
+            for (final MemberHoldingTypeDetails memberHoldingTypeDetails : memberHoldingTypeDetailsList) {
+                for (final MethodMetadata method : memberHoldingTypeDetails
+                        .getDeclaredMethods()) {
+                    final List<MethodMatcher> matches = methodMatchersByName
+                            .get(method.getMethodName());
+                    if (matches == null) {
+                        continue;
+                    }
+                    for (final MethodMatcher methodMatcher : matches) {
+                        if (memberDetailsBuilder.tag(method,
+                                methodMatcher.getCustomDataKey(),
+                                methodMatcher.getTagValue(method))) {
+                            addedTags.add(methodMatcher.getCustomDataKey());
+                        }
+                    }
+                }
+            }
+        }
+        for (final MethodMatcher methodMatcher : otherMethodMatchers) {
+            for (final MethodMetadata method : methodMatcher.matches(
+                    memberHoldingTypeDetailsList, pluralMap)) {
+                if (memberDetailsBuilder.tag(method,
+                        methodMatcher.getCustomDataKey(),
+                        methodMatcher.getTagValue(method))) {
+                    addedTags.add(methodMatcher.getCustomDataKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Tags the given types themselves (not their members) that any of the type
+     * matchers match
+     * 
+     * @param memberHoldingTypeDetailsList the types to tag (required)
+     * @param memberDetailsBuilder the builder to add the tags to (required)
+     * @param addedTags the set to which to add the keys of the tags that were
+     *            added (required)
+     */
+    void tagTypes(
+            final List<MemberHoldingTypeDetails> memberHoldingTypeDetailsList,
+            final MemberDetailsBuilder memberDetailsBuilder,
+            final Set<CustomDataKey<?>> addedTags) {
+        if (!typeMatchersByAnnotation.isEmpty()) {
+            for (final MemberHoldingTypeDetails memberHoldingTypeDetails : memberHoldingTypeDetailsList) {
+                final SortedMap<Integer, AnnotatedTypeMatcher> matches = new TreeMap<Integer, AnnotatedTypeMatcher>();
+                for (final AnnotationMetadata annotation : memberHoldingTypeDetails
+                        .getAnnotations()) {
+                    final List<Integer> candidates = typeMatchersByAnnotation
+                            .get(annotation.getAnnotationType()
+                                    .getFullyQualifiedTypeName());
+                    if (candidates == null) {
+                        continue;
+                    }
+                    for (final Integer index : candidates) {
+                        final AnnotatedTypeMatcher typeMatcher = indexedTypeMatchers
+                                .get(index);
+                        if (typeMatcher.getAnnotationTypes().contains(
+                                annotation.getAnnotationType())) {
+                            matches.put(index, typeMatcher);
+                        }
+                    }
+                }
+                for (final AnnotatedTypeMatcher typeMatcher : matches.values()) {
+                    if (memberDetailsBuilder.tag(memberHoldingTypeDetails,
+                            typeMatcher.getCustomDataKey(),
+                            typeMatcher.getTagValue(memberHoldingTypeDetails))) {
+                        addedTags.add(typeMatcher.getCustomDataKey());
+                    }
+                }
+            }
+        }
+        for (final TypeMatcher typeMatcher : otherTypeMatchers) {
+            for (final MemberHoldingTypeDetails typeDetails : typeMatcher
+                    .matches(memberHoldingTypeDetailsList)) {
+                if (memberDetailsBuilder.tag(typeDetails,
+                        typeMatcher.getCustomDataKey(),
+                        typeMatcher.getTagValue(typeDetails))) {
+                    addedTags.add(typeMatcher.getCustomDataKey());
+                }
+            }
+        }
+    }
+}
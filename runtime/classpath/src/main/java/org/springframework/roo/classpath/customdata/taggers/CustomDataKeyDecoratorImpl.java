@@ -1,25 +1,25 @@
 package org.springframework.roo.classpath.customdata.taggers;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.Validate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Service;
 import org.jvnet.inflector.Noun;
 import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
-import org.springframework.roo.classpath.details.ConstructorMetadata;
-import org.springframework.roo.classpath.details.FieldMetadata;
 import org.springframework.roo.classpath.details.MemberHoldingTypeDetails;
-import org.springframework.roo.classpath.details.MethodMetadata;
 import org.springframework.roo.classpath.scanner.MemberDetails;
 import org.springframework.roo.classpath.scanner.MemberDetailsBuilder;
 import org.springframework.roo.model.CustomDataAccessor;
+import org.springframework.roo.model.CustomDataKey;
 
 /**
  * An implementation of {@link CustomDataKeyDecorator}.
@@ -31,14 +31,27 @@ import org.springframework.roo.model.CustomDataAccessor;
 @Service
 public class CustomDataKeyDecoratorImpl implements CustomDataKeyDecorator {
 
-    private final Map<String, String> pluralMap = new HashMap<String, String>();
-    private final Map<String, Matcher<? extends CustomDataAccessor>> taggerMap = new HashMap<String, Matcher<? extends CustomDataAccessor>>();
+    // Concurrent, as the member details of different types can be scanned
+    // (and therefore decorated) at the same time
+    private final Map<String, String> pluralMap = new ConcurrentHashMap<String, String>();
+    private final Map<String, Matcher<? extends CustomDataAccessor>> taggerMap = new ConcurrentHashMap<String, Matcher<? extends CustomDataAccessor>>();
+    private final AtomicLong version = new AtomicLong();
+    // The contents of the taggerMap, compiled after each change to it
+    private volatile CompiledMatchers compiledMatchers = new CompiledMatchers(
+            taggerMap.values());
 
-    public MemberDetails decorate(final String requestingClass,
-            final MemberDetails memberDetails) {
-        final MemberDetailsBuilder memberDetailsBuilder = new MemberDetailsBuilder(
-                memberDetails);
+    /**
+     * Compiles the current matchers into the tables used for decorating;
+     * called after every change to the {@link #taggerMap}
+     */
+    private synchronized void compileMatchers() {
+        compiledMatchers = new CompiledMatchers(taggerMap.values());
+        version.incrementAndGet();
+    }
 
+    public Set<CustomDataKey<?>> decorate(final String requestingClass,
+            final MemberDetails memberDetails,
+            final MemberDetailsBuilder memberDetailsBuilder) {
         for (final MemberHoldingTypeDetails memberHoldingTypeDetails : memberDetails
                 .getDetails()) {
             if (memberHoldingTypeDetails instanceof ClassOrInterfaceTypeDetails) {
@@ -55,79 +68,26 @@ public class CustomDataKeyDecoratorImpl implements CustomDataKeyDecorator {
 
         // Locate any requests that we add custom data to identifiable java
         // structures
-        for (final FieldMatcher fieldTagger : getFieldTaggers()) {
-            for (final FieldMetadata field : fieldTagger.matches(memberDetails
-                    .getDetails())) {
-                memberDetailsBuilder.tag(field, fieldTagger.getCustomDataKey(),
-                        fieldTagger.getTagValue(field));
-            }
-        }
-
-        for (final MethodMatcher methodTagger : getMethodTaggers()) {
-            for (final MethodMetadata method : methodTagger.matches(
-                    memberDetails.getDetails(), pluralMap)) {
-                memberDetailsBuilder.tag(method,
-                        methodTagger.getCustomDataKey(),
-                        methodTagger.getTagValue(method));
-            }
-        }
-
-        for (final ConstructorMatcher constructorTagger : getConstructorTaggers()) {
-            for (final ConstructorMetadata constructor : constructorTagger
-                    .matches(memberDetails.getDetails())) {
-                memberDetailsBuilder.tag(constructor,
-                        constructorTagger.getCustomDataKey(),
-                        constructorTagger.getTagValue(constructor));
-            }
-        }
-
-        for (final TypeMatcher typeTagger : getTypeTaggers()) {
-            for (final MemberHoldingTypeDetails typeDetails : typeTagger
-                    .matches(memberDetails.getDetails())) {
-                memberDetailsBuilder.tag(typeDetails,
-                        typeTagger.getCustomDataKey(),
-                        typeTagger.getTagValue(typeDetails));
-            }
-        }
-
-        return memberDetailsBuilder.build();
+        return compiledMatchers.tag(memberDetails.getDetails(), pluralMap,
+                memberDetailsBuilder);
     }
 
     public MemberDetails decorateTypes(final String requestingClass,
             final MemberDetails memberDetails) {
         final MemberDetailsBuilder memberDetailsBuilder = new MemberDetailsBuilder(
                 memberDetails);
-        for (final TypeMatcher typeTagger : getTypeTaggers()) {
-            for (final MemberHoldingTypeDetails typeDetails : typeTagger
-                    .matches(memberDetails.getDetails())) {
-                memberDetailsBuilder.tag(typeDetails,
-                        typeTagger.getCustomDataKey(),
-                        typeTagger.getTagValue(typeDetails));
-            }
-        }
+        compiledMatchers.tagTypes(memberDetails.getDetails(),
+                memberDetailsBuilder, new HashSet<CustomDataKey<?>>());
         return memberDetailsBuilder.build();
     }
 
     public List<ConstructorMatcher> getConstructorTaggers() {
-        final List<ConstructorMatcher> constructorTaggers = new ArrayList<ConstructorMatcher>();
-        for (final Matcher<? extends CustomDataAccessor> matcher : taggerMap
-                .values()) {
-            if (matcher instanceof ConstructorMatcher) {
-                constructorTaggers.add((ConstructorMatcher) matcher);
-            }
-        }
-        return constructorTaggers;
+        return new ArrayList<ConstructorMatcher>(
+                compiledMatchers.getConstructorMatchers());
     }
 
     public List<FieldMatcher> getFieldTaggers() {
-        final List<FieldMatcher> fieldTaggers = new ArrayList<FieldMatcher>();
-        for (final Matcher<? extends CustomDataAccessor> matcher : taggerMap
-                .values()) {
-            if (matcher instanceof FieldMatcher) {
-                fieldTaggers.add((FieldMatcher) matcher);
-            }
-        }
-        return fieldTaggers;
+        return new ArrayList<FieldMatcher>(compiledMatchers.getFieldMatchers());
     }
 
     /**
@@ -149,25 +109,20 @@ public class CustomDataKeyDecoratorImpl implements CustomDataKeyDecorator {
     }
 
     public List<MethodMatcher> getMethodTaggers() {
-        final List<MethodMatcher> methodTaggers = new ArrayList<MethodMatcher>();
-        for (final Matcher<? extends CustomDataAccessor> matcher : taggerMap
-                .values()) {
-            if (matcher instanceof MethodMatcher) {
-                methodTaggers.add((MethodMatcher) matcher);
-            }
-        }
-        return methodTaggers;
+        return new ArrayList<MethodMatcher>(compiledMatchers.getMethodMatchers());
+    }
+
+    public Set<CustomDataKey<?>> getTagDependencies() {
+        // Matchers match on names, types and annotations, never on tags
+        return Collections.emptySet();
     }
 
     public List<TypeMatcher> getTypeTaggers() {
-        final List<TypeMatcher> typeTaggers = new ArrayList<TypeMatcher>();
-        for (final Matcher<? extends CustomDataAccessor> matcher : taggerMap
-                .values()) {
-            if (matcher instanceof TypeMatcher) {
-                typeTaggers.add((TypeMatcher) matcher);
-            }
-        }
-        return typeTaggers;
+        return new ArrayList<TypeMatcher>(compiledMatchers.getTypeMatchers());
+    }
+
+    public long getVersion() {
+        return version.get();
     }
 
     public void registerMatcher(final String addingClass,
@@ -175,6 +130,7 @@ public class CustomDataKeyDecoratorImpl implements CustomDataKeyDecorator {
         Validate.notNull(addingClass, "The calling class must be specified");
         Validate.notNull(matcher, "The matcher must be specified");
         taggerMap.put(addingClass + matcher.getCustomDataKey(), matcher);
+        compileMatchers();
     }
 
     public void registerMatchers(final Class<?> addingClass,
@@ -202,5 +158,8 @@ public class CustomDataKeyDecoratorImpl implements CustomDataKeyDecorator {
         for (final String taggerKey : toRemove) {
             taggerMap.remove(taggerKey);
         }
+        if (!toRemove.isEmpty()) {
+            compileMatchers();
+        }
     }
 }
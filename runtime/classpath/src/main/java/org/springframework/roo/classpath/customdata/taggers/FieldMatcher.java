@@ -120,6 +120,21 @@ public class FieldMatcher implements Matcher<FieldMetadata> {
         return map;
     }
 
+    /**
+     * Returns the fully-qualified names of the annotation types this matcher
+     * matches on
+     * 
+     * @return a non-<code>null</code> list
+     */
+    List<String> getAnnotationTypeNames() {
+        final List<String> annotationTypeNames = new ArrayList<String>();
+        for (final AnnotationMetadata annotation : annotations) {
+            annotationTypeNames.add(annotation.getAnnotationType()
+                    .getFullyQualifiedTypeName());
+        }
+        return annotationTypeNames;
+    }
+
     public CustomDataKey<FieldMetadata> getCustomDataKey() {
         return customDataKey;
     }
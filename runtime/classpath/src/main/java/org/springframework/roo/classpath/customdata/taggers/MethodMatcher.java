@@ -126,6 +126,16 @@ public class MethodMatcher implements Matcher<MethodMetadata> {
         return customDataKey;
     }
 
+    /**
+     * Returns the field matchers that determine the accessor or mutator
+     * method names this matcher matches
+     * 
+     * @return a non-<code>null</code> list
+     */
+    List<FieldMatcher> getFieldTaggers() {
+        return fieldTaggers;
+    }
+
     private List<FieldMetadata> getFieldsInterestedIn(
             final List<MemberHoldingTypeDetails> memberHoldingTypeDetailsList) {
         final List<FieldMetadata> fields = new ArrayList<FieldMetadata>();
@@ -135,6 +145,37 @@ public class MethodMatcher implements Matcher<MethodMetadata> {
         return fields;
     }
 
+    /**
+     * Returns the names of the methods this matcher matches within the given
+     * types
+     * 
+     * @param memberHoldingTypeDetailsList the types being matched (required)
+     * @param pluralMap the plurals of those types, keyed by metadata ID
+     * @param fields the fields matched by this matcher's field taggers
+     *            (required)
+     * @return a non-<code>null</code> set
+     */
+    Set<JavaSymbolName> getMethodNames(
+            final List<MemberHoldingTypeDetails> memberHoldingTypeDetailsList,
+            final Map<String, String> pluralMap,
+            final List<FieldMetadata> fields) {
+        final Set<JavaSymbolName> methodNames = new HashSet<JavaSymbolName>();
+        final JavaSymbolName userDefinedMethodName = getUserDefinedMethod(
+                memberHoldingTypeDetailsList, pluralMap);
+        if (userDefinedMethodName == null) {
+            for (final FieldMetadata field : fields) {
+                methodNames.add(new JavaSymbolName(getPrefix()
+                        + StringUtils.capitalize(field.getFieldName()
+                                .getSymbolName())));
+            }
+        }
+        else {
+            methodNames.add(new JavaSymbolName(userDefinedMethodName
+                    .getSymbolName() + additionalSuffix));
+        }
+        return methodNames;
+    }
+
     private ClassOrInterfaceTypeDetails getMostConcreteClassOrInterfaceTypeDetails(
             final List<MemberHoldingTypeDetails> memberHoldingTypeDetailsList) {
         ClassOrInterfaceTypeDetails cid = null;
@@ -219,22 +260,10 @@ public class MethodMatcher implements Matcher<MethodMetadata> {
     public List<MethodMetadata> matches(
             final List<MemberHoldingTypeDetails> memberHoldingTypeDetailsList,
             final Map<String, String> pluralMap) {
-        final List<FieldMetadata> fields = getFieldsInterestedIn(memberHoldingTypeDetailsList);
+        final Set<JavaSymbolName> methodNames = getMethodNames(
+                memberHoldingTypeDetailsList, pluralMap,
+                getFieldsInterestedIn(memberHoldingTypeDetailsList));
         final List<MethodMetadata> methods = new ArrayList<MethodMetadata>();
-        final Set<JavaSymbolName> methodNames = new HashSet<JavaSymbolName>();
-        final JavaSymbolName userDefinedMethodName = getUserDefinedMethod(
-                memberHoldingTypeDetailsList, pluralMap);
-        if (userDefinedMethodName == null) {
-            for (final FieldMetadata field : fields) {
-                methodNames.add(new JavaSymbolName(getPrefix()
-                        + StringUtils.capitalize(field.getFieldName()
-                                .getSymbolName())));
-            }
-        }
-        else {
-            methodNames.add(new JavaSymbolName(userDefinedMethodName
-                    .getSymbolName() + additionalSuffix));
-        }
         for (final MemberHoldingTypeDetails memberHoldingTypeDetails : memberHoldingTypeDetailsList) {
             for (final MethodMetadata method : memberHoldingTypeDetails
                     .getDeclaredMethods()) {
@@ -4,7 +4,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.roo.model.Builder;
 import org.springframework.roo.model.JavaType;
@@ -20,6 +22,10 @@ import org.springframework.roo.model.JavaType;
 public abstract class AbstractMemberHoldingTypeDetailsBuilder<T extends MemberHoldingTypeDetails>
         extends AbstractIdentifiableAnnotatedJavaStructureBuilder<T> {
 
+    // The already built members to declare as-is, keyed by their builders
+    private final Map<ConstructorMetadataBuilder, ConstructorMetadata> builtConstructors = new IdentityHashMap<ConstructorMetadataBuilder, ConstructorMetadata>();
+    private final Map<FieldMetadataBuilder, FieldMetadata> builtFields = new IdentityHashMap<FieldMetadataBuilder, FieldMetadata>();
+    private final Map<MethodMetadataBuilder, MethodMetadata> builtMethods = new IdentityHashMap<MethodMetadataBuilder, MethodMetadata>();
     private final List<ConstructorMetadataBuilder> declaredConstructors = new ArrayList<ConstructorMetadataBuilder>();
     private final List<FieldMetadataBuilder> declaredFields = new ArrayList<FieldMetadataBuilder>();
     private final List<InitializerMetadataBuilder> declaredInitializers = new ArrayList<InitializerMetadataBuilder>();
@@ -62,6 +68,72 @@ public abstract class AbstractMemberHoldingTypeDetailsBuilder<T extends MemberHo
         init(existing);
     }
 
+    /**
+     * Adds the given constructor to this builder as-is, i.e. the type being
+     * built will declare this very instance rather than a copy of it. Any
+     * changes made to its builder (as returned by
+     * {@link #getDeclaredConstructors()}) are therefore ignored.
+     * 
+     * @param constructor the constructor to add; can be <code>null</code>
+     * @return <code>true</code> if the state of this builder changed
+     * @since 2.0.0
+     */
+    public final boolean addBuiltConstructor(
+            final ConstructorMetadata constructor) {
+        if (constructor == null) {
+            return false;
+        }
+        final ConstructorMetadataBuilder constructorBuilder = new ConstructorMetadataBuilder(
+                constructor);
+        if (!addConstructor(constructorBuilder)) {
+            return false;
+        }
+        builtConstructors.put(constructorBuilder, constructor);
+        return true;
+    }
+
+    /**
+     * Adds the given field to this builder as-is; see
+     * {@link #addBuiltConstructor(ConstructorMetadata)}
+     * 
+     * @param field the field to add; can be <code>null</code>
+     * @return <code>true</code> if the state of this builder changed
+     * @since 2.0.0
+     */
+    public final boolean addBuiltField(final FieldMetadata field) {
+        if (field == null) {
+            return false;
+        }
+        final FieldMetadataBuilder fieldBuilder = new FieldMetadataBuilder(
+                field);
+        if (!addField(fieldBuilder)) {
+            return false;
+        }
+        builtFields.put(fieldBuilder, field);
+        return true;
+    }
+
+    /**
+     * Adds the given method to this builder as-is; see
+     * {@link #addBuiltConstructor(ConstructorMetadata)}
+     * 
+     * @param method the method to add; can be <code>null</code>
+     * @return <code>true</code> if the state of this builder changed
+     * @since 2.0.0
+     */
+    public final boolean addBuiltMethod(final MethodMetadata method) {
+        if (method == null) {
+            return false;
+        }
+        final MethodMetadataBuilder methodBuilder = new MethodMetadataBuilder(
+                method);
+        if (!addMethod(methodBuilder)) {
+            return false;
+        }
+        builtMethods.put(methodBuilder, method);
+        return true;
+    }
+
     public final boolean addConstructor(final ConstructorMetadata constructor) {
         if (constructor == null) {
             return false;
@@ -191,7 +263,8 @@ public abstract class AbstractMemberHoldingTypeDetailsBuilder<T extends MemberHo
     public final List<ConstructorMetadata> buildConstructors() {
         final List<ConstructorMetadata> result = new ArrayList<ConstructorMetadata>();
         for (final ConstructorMetadataBuilder builder : declaredConstructors) {
-            result.add(builder.build());
+            final ConstructorMetadata built = builtConstructors.get(builder);
+            result.add(built == null ? builder.build() : built);
         }
         return result;
     }
@@ -199,7 +272,8 @@ public abstract class AbstractMemberHoldingTypeDetailsBuilder<T extends MemberHo
     public final List<FieldMetadata> buildFields() {
         final List<FieldMetadata> result = new ArrayList<FieldMetadata>();
         for (final FieldMetadataBuilder builder : declaredFields) {
-            result.add(builder.build());
+            final FieldMetadata built = builtFields.get(builder);
+            result.add(built == null ? builder.build() : built);
         }
         return result;
     }
@@ -223,7 +297,8 @@ public abstract class AbstractMemberHoldingTypeDetailsBuilder<T extends MemberHo
     public final List<MethodMetadata> buildMethods() {
         final List<MethodMetadata> result = new ArrayList<MethodMetadata>();
         for (final MethodMetadataBuilder builder : declaredMethods) {
-            result.add(builder.build());
+            final MethodMetadata built = builtMethods.get(builder);
+            result.add(built == null ? builder.build() : built);
         }
         return result;
     }
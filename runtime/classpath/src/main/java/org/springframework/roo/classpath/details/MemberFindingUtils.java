@@ -300,19 +300,10 @@ public final class MemberFindingUtils {
     public static List<FieldMetadata> getFieldsWithTag(
             final MemberDetails memberDetails, final Object tagKey) {
         Validate.notNull(tagKey, "Custom data key required");
-        final List<FieldMetadata> fields = new ArrayList<FieldMetadata>();
-        if (memberDetails != null) {
-            for (final MemberHoldingTypeDetails memberHoldingTypeDetails : memberDetails
-                    .getDetails()) {
-                for (final FieldMetadata field : memberHoldingTypeDetails
-                        .getDeclaredFields()) {
-                    if (field.getCustomData().keySet().contains(tagKey)) {
-                        fields.add(field);
-                    }
-                }
-            }
+        if (memberDetails == null) {
+            return new ArrayList<FieldMetadata>();
         }
-        return fields;
+        return memberDetails.getFieldsWithTag(tagKey);
     }
 
     /**
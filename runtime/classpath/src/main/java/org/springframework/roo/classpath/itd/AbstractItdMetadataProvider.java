@@ -1,7 +1,10 @@
 package org.springframework.roo.classpath.itd;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang3.Validate;
 import org.apache.felix.scr.annotations.Component;
@@ -92,6 +95,11 @@ public abstract class AbstractItdMetadataProvider extends
      */
     private boolean dependsOnGovernorTypeDetailAvailability = true;
     protected FileManager fileManager;
+    /**
+     * The fingerprint of the governor from which each metadata instance was
+     * last produced, if this provider declares a {@link GovernorProjection}
+     */
+    private final Map<String, String> governorFingerprints = new HashMap<String, String>();
     /** We don't care about trigger annotations; we always produce metadata */
     private boolean ignoreTriggerAnnotations = false;
     protected ItdDiscoveryService itdDiscoveryService;
@@ -165,6 +173,10 @@ public abstract class AbstractItdMetadataProvider extends
     private void deleteItd(final String metadataIdentificationString,
             final String itdFilename, final String reason, final boolean now) {
     	
+        final ItdRegenerationBatch batch = ItdRegenerationBatch.getCurrent();
+        if (batch != null) {
+            batch.discard(itdFilename);
+        }
         if (now) {
             getFileManager().delete(itdFilename, reason);
         }
@@ -187,6 +199,8 @@ public abstract class AbstractItdMetadataProvider extends
                 "Unexpected request for '%s' to this provider (which uses '%s')",
                 metadataIdentificationString, getProvidesType());
 
+        governorFingerprints.remove(metadataIdentificationString);
+
         // Remove the upstream dependencies for this instance (we'll be
         // recreating them later, if needed)
         getMetadataDependencyRegistry()
@@ -244,6 +258,11 @@ public abstract class AbstractItdMetadataProvider extends
 
         final String itdFilename = governorPhysicalTypeMetadata
                 .getItdCanonicalPath(this);
+        final ItdRegenerationBatch batch = ItdRegenerationBatch.getCurrent();
+        if (!produceMetadata && batch != null) {
+            // Don't write a version of the ITD produced earlier in the batch
+            batch.discard(itdFilename);
+        }
         if (!produceMetadata && isGovernor(cid)
                 && getFileManager().exists(itdFilename)) {
             // We don't seem to want metadata anymore, yet the ITD physically
@@ -281,39 +300,50 @@ public abstract class AbstractItdMetadataProvider extends
             // contain any members for the resulting ITD etc
 
             // Handle the management of the ITD file
-            boolean deleteItdFile = false;
             final ItdTypeDetails itdTypeDetails = metadata
                     .getMemberHoldingTypeDetails();
 
             if (itdTypeDetails == null) {
                 // The ITD has no members
-                deleteItdFile = true;
+                deleteItd(metadataIdentificationString, itdFilename, null,
+                        false);
             }
-
-            if (!deleteItdFile) {
-                // We have some members in the ITD, so decide if we're to write
+            else {
+                // We have some members in the ITD, so make them visible (even
+                // if a batch is yet to write them) and decide if we're to write
                 // something to disk
-                final ItdSourceFileComposer itdSourceFileComposer = new ItdSourceFileComposer(
-                        metadata.getMemberHoldingTypeDetails());
-
-                // Decide whether the get an ITD on-disk based on whether there
-                // is physical content to write
-                if (itdSourceFileComposer.isContent()) {
-                    // We have content to write
-                    getItdDiscoveryService().addItdTypeDetails(itdTypeDetails);
-                    final String itd = itdSourceFileComposer.getOutput();
-                    getFileManager().createOrUpdateTextFileIfRequired(itdFilename,
-                            itd, false);
+                getItdDiscoveryService().addItdTypeDetails(itdTypeDetails);
+                if (batch == null) {
+                    writeItd(metadataIdentificationString, itdFilename,
+                            new ItdSourceFileComposer(itdTypeDetails));
                 }
                 else {
-                    // We don't have content to write
-                    deleteItdFile = true;
+                    batch.compose(itdFilename, itdTypeDetails,
+                            new ItdRegenerationBatch.ItdWriter() {
+                                public void failed(final String filename) {
+                                    governorFingerprints
+                                            .remove(metadataIdentificationString);
+                                    getMetadataService().evict(
+                                            metadataIdentificationString);
+                                }
+
+                                public void write(final String filename,
+                                        final ItdSourceFileComposer composer) {
+                                    writeItd(metadataIdentificationString,
+                                            filename, composer);
+                                }
+                            });
                 }
             }
 
-            if (deleteItdFile) {
-                deleteItd(metadataIdentificationString, itdFilename, null,
-                        false);
+            final Set<GovernorProjection> governorProjection = getGovernorProjection();
+            if (governorProjection != null) {
+                final String fingerprint = GovernorFingerprint.of(cid,
+                        governorProjection);
+                if (fingerprint != null) {
+                    governorFingerprints.put(metadataIdentificationString,
+                            fingerprint);
+                }
             }
 
             // Eagerly notify that the metadata has been updated; this also
@@ -327,6 +357,51 @@ public abstract class AbstractItdMetadataProvider extends
         return null;
     }
 
+    /**
+     * Writes the given composed ITD to disk, or deletes it if it has no
+     * content
+     * 
+     * @param metadataIdentificationString the ITD's metadata ID
+     * @param itdFilename the ITD's filename
+     * @param itdSourceFileComposer the ITD's composed source
+     */
+    private void writeItd(final String metadataIdentificationString,
+            final String itdFilename,
+            final ItdSourceFileComposer itdSourceFileComposer) {
+        // Decide whether the get an ITD on-disk based on whether there
+        // is physical content to write
+        if (itdSourceFileComposer.isContent()) {
+            // We have content to write
+            final String itd = itdSourceFileComposer.getOutput();
+            getFileManager().createOrUpdateTextFileIfRequired(itdFilename,
+                    itd, false);
+        }
+        else {
+            // We don't have content to write
+            deleteItd(metadataIdentificationString, itdFilename, null, false);
+        }
+    }
+
+    /**
+     * Returns the parts of the governor on which this provider's metadata
+     * depends. If this provider is notified of a change to the governor that
+     * leaves these parts as they were when its metadata was last produced,
+     * the metadata is not produced again. This implementation returns
+     * <code>null</code>, i.e. any change to the governor causes the metadata
+     * to be produced again.
+     * <p>
+     * Subclasses should only return a projection if their metadata depends on
+     * nothing else about the governor; other upstream dependencies, such as
+     * the governor's {@link MemberDetails}, notify this provider separately.
+     * 
+     * @return <code>null</code> to depend on the whole governor, or an empty
+     *         set to depend only on its declaration and annotations
+     * @since 2.0.0
+     */
+    protected Set<GovernorProjection> getGovernorProjection() {
+        return null;
+    }
+
     /**
      * Called whenever there is a requirement to convert a local metadata
      * identification string (ie an instance identifier consistent with
@@ -536,6 +611,35 @@ public abstract class AbstractItdMetadataProvider extends
         return ignoreTriggerAnnotations;
     }
 
+    /**
+     * Indicates whether the given notification is for a change to the
+     * governor of the given metadata that leaves the parts of the governor on
+     * which it depends unchanged.
+     * 
+     * @param upstreamDependency the upstream MID of the notification
+     * @param downstreamDependency the instance-specific MID to be notified
+     * @return see above
+     */
+    private boolean isGovernorUnchanged(final String upstreamDependency,
+            final String downstreamDependency) {
+        final String previousFingerprint = governorFingerprints
+                .get(downstreamDependency);
+        if (previousFingerprint == null
+                || !upstreamDependency
+                        .equals(getGovernorPhysicalTypeIdentifier(downstreamDependency))) {
+            return false;
+        }
+        final PhysicalTypeMetadata governorPhysicalTypeMetadata = (PhysicalTypeMetadata) getMetadataService()
+                .get(upstreamDependency);
+        if (governorPhysicalTypeMetadata == null
+                || !governorPhysicalTypeMetadata.isValid()) {
+            return false;
+        }
+        return previousFingerprint.equals(GovernorFingerprint.of(
+                governorPhysicalTypeMetadata.getMemberHoldingTypeDetails(),
+                getGovernorProjection()));
+    }
+
     private boolean isNotificationForJavaType(final String mid) {
         return MetadataIdentificationUtils.getMetadataClass(mid).equals(
                 MetadataIdentificationUtils
@@ -598,6 +702,10 @@ public abstract class AbstractItdMetadataProvider extends
         // and it
         // directly notified downstreams as part of that method (BPA 10 Dec
         // 2010)
+        if (isGovernorUnchanged(upstreamDependency, downstreamDependency)) {
+            // Only parts of the governor this metadata ignores have changed
+            return;
+        }
         getMetadataService().evictAndGet(downstreamDependency);
     }
 
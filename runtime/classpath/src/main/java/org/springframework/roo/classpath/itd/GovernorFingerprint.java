@@ -0,0 +1,178 @@
+package org.springframework.roo.classpath.itd;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.classpath.details.ConstructorMetadata;
+import org.springframework.roo.classpath.details.FieldMetadata;
+import org.springframework.roo.classpath.details.InvocableMemberMetadata;
+import org.springframework.roo.classpath.details.MethodMetadata;
+import org.springframework.roo.classpath.details.annotations.AnnotatedJavaType;
+import org.springframework.roo.classpath.details.annotations.AnnotationAttributeValue;
+import org.springframework.roo.classpath.details.annotations.AnnotationMetadata;
+import org.springframework.roo.classpath.details.annotations.ArrayAttributeValue;
+import org.springframework.roo.classpath.details.annotations.NestedAnnotationAttributeValue;
+import org.springframework.roo.model.JavaSymbolName;
+
+/**
+ * Computes a digest of the parts of a governor given by a set of
+ * {@link GovernorProjection}s, so that two versions of a governor can be
+ * compared without keeping either of them.
+ * 
+ * @since 2.0.0
+ */
+final class GovernorFingerprint {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Returns the fingerprint of the given governor
+     * 
+     * @param governor the governor (can be <code>null</code>)
+     * @param projection the parts of the governor to include (required)
+     * @return <code>null</code> if the governor is <code>null</code> or its
+     *         fingerprint can't be computed
+     */
+    static String of(final ClassOrInterfaceTypeDetails governor,
+            final Set<GovernorProjection> projection) {
+        if (governor == null) {
+            return null;
+        }
+        final StringBuilder description = new StringBuilder();
+        appendType(governor, projection, description);
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-1").digest(
+                    description.toString().getBytes("UTF-8"));
+            final StringBuilder fingerprint = new StringBuilder(
+                    hash.length * 2);
+            for (final byte b : hash) {
+                fingerprint.append(HEX_DIGITS[b >> 4 & 0xF]).append(
+                        HEX_DIGITS[b & 0xF]);
+            }
+            return fingerprint.toString();
+        }
+        catch (final NoSuchAlgorithmException e) {
+            return null;
+        }
+        catch (final UnsupportedEncodingException e) {
+            return null;
+        }
+    }
+
+    private static void appendAnnotation(final AnnotationMetadata annotation,
+            final StringBuilder description) {
+        description.append('@').append(annotation.getAnnotationType())
+                .append('(');
+        for (final JavaSymbolName attributeName : annotation
+                .getAttributeNames()) {
+            description.append(attributeName).append('=');
+            appendAttributeValue(annotation.getAttribute(attributeName),
+                    description);
+            description.append(',');
+        }
+        description.append(')');
+    }
+
+    private static void appendAnnotations(
+            final List<AnnotationMetadata> annotations,
+            final StringBuilder description) {
+        for (final AnnotationMetadata annotation : annotations) {
+            appendAnnotation(annotation, description);
+        }
+    }
+
+    private static void appendAttributeValue(
+            final AnnotationAttributeValue<?> value,
+            final StringBuilder description) {
+        // Nested annotations don't have a stable toString()
+        if (value instanceof NestedAnnotationAttributeValue) {
+            appendAnnotation(
+                    ((NestedAnnotationAttributeValue) value).getValue(),
+                    description);
+        }
+        else if (value instanceof ArrayAttributeValue) {
+            description.append('{');
+            for (final AnnotationAttributeValue<?> element : ((ArrayAttributeValue<?>) value)
+                    .getValue()) {
+                appendAttributeValue(element, description);
+                description.append(',');
+            }
+            description.append('}');
+        }
+        else if (value != null) {
+            description.append(value.getValue());
+        }
+    }
+
+    private static void appendInvocableMember(
+            final InvocableMemberMetadata member,
+            final StringBuilder description) {
+        description.append(member.getModifier());
+        appendAnnotations(member.getAnnotations(), description);
+        description.append('(');
+        for (final AnnotatedJavaType parameterType : member
+                .getParameterTypes()) {
+            appendAnnotations(parameterType.getAnnotations(), description);
+            description.append(parameterType.getJavaType()).append(',');
+        }
+        description.append(member.getParameterNames()).append(')')
+                .append(member.getThrowsTypes()).append('\n');
+    }
+
+    private static void appendType(final ClassOrInterfaceTypeDetails type,
+            final Set<GovernorProjection> projection,
+            final StringBuilder description) {
+        description.append(type.getModifier()).append(' ')
+                .append(type.getPhysicalTypeCategory()).append(' ')
+                .append(type.getName()).append(type.getExtendsTypes())
+                .append(type.getImplementsTypes())
+                .append(type.getEnumConstants()).append('\n');
+        appendAnnotations(type.getAnnotations(), description);
+        description.append('\n');
+
+        if (projection.contains(GovernorProjection.FIELDS)) {
+            for (final FieldMetadata field : type.getDeclaredFields()) {
+                description.append(field.getModifier()).append(' ')
+                        .append(field.getFieldType()).append(' ')
+                        .append(field.getFieldName()).append('=')
+                        .append(field.getFieldInitializer());
+                appendAnnotations(field.getAnnotations(), description);
+                description.append('\n');
+            }
+        }
+        if (projection.contains(GovernorProjection.CONSTRUCTORS)) {
+            for (final ConstructorMetadata constructor : type
+                    .getDeclaredConstructors()) {
+                description.append("<init>");
+                appendInvocableMember(constructor, description);
+            }
+        }
+        if (projection.contains(GovernorProjection.METHODS)) {
+            for (final MethodMetadata method : type.getDeclaredMethods()) {
+                description.append(method.getReturnType()).append(' ')
+                        .append(method.getMethodName());
+                appendInvocableMember(method, description);
+            }
+        }
+        for (final ClassOrInterfaceTypeDetails innerType : type
+                .getDeclaredInnerTypes()) {
+            description.append("{\n");
+            appendType(innerType, projection, description);
+            description.append("}\n");
+        }
+        if (type.getSuperclass() != null) {
+            description.append("super\n");
+            appendType(type.getSuperclass(), projection, description);
+        }
+    }
+
+    /**
+     * Constructor is private to prevent instantiation
+     */
+    private GovernorFingerprint() {
+    }
+}
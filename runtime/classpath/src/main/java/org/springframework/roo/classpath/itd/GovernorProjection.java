@@ -0,0 +1,33 @@
+package org.springframework.roo.classpath.itd;
+
+/**
+ * The parts of a governor, besides its declaration and annotations, on which
+ * an {@link AbstractItdMetadataProvider}'s metadata can depend.
+ * <p>
+ * A governor's declaration (name, category, modifiers, supertypes and enum
+ * constants), its type-level annotations and the same projection of its
+ * superclass and inner types are always taken into account; comments, method
+ * and constructor bodies and initializer blocks never are.
+ * 
+ * @since 2.0.0
+ */
+public enum GovernorProjection {
+
+    /**
+     * The modifiers, signatures and annotations of the governor's
+     * constructors, including their parameter names
+     */
+    CONSTRUCTORS,
+
+    /**
+     * The modifiers, names, types, initializers and annotations of the
+     * governor's fields
+     */
+    FIELDS,
+
+    /**
+     * The modifiers, signatures and annotations of the governor's methods,
+     * including their parameter names
+     */
+    METHODS
+}
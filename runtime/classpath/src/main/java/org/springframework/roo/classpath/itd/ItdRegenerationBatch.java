@@ -0,0 +1,189 @@
+package org.springframework.roo.classpath.itd;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.Validate;
+import org.springframework.roo.classpath.details.ItdTypeDetails;
+
+/**
+ * Collects the ITDs produced while a number of governors are regenerated
+ * together, so that their source can be composed in parallel and written in
+ * order of filename once they have all been produced.
+ * <p>
+ * Metadata is still produced one governor at a time on the thread that opened
+ * the batch, as the metadata service is not thread-safe; only the composition
+ * of each ITD's source, which depends on nothing but its immutable
+ * {@link ItdTypeDetails}, is handed to other threads.
+ * 
+ * @since 2.0.0
+ */
+final class ItdRegenerationBatch {
+
+    /**
+     * Writes (or deletes) a composed ITD on behalf of the provider that
+     * produced it.
+     */
+    interface ItdWriter {
+
+        /**
+         * @param itdFilename the canonical path of the ITD
+         * @param composer the composed ITD source
+         */
+        void write(String itdFilename, ItdSourceFileComposer composer);
+
+        /**
+         * Called instead of {@link #write} if the ITD could not be composed or
+         * written, so that the provider can forget the metadata it came from
+         * 
+         * @param itdFilename the canonical path of the ITD
+         */
+        void failed(String itdFilename);
+    }
+
+    private static class PendingItd {
+
+        final Future<ItdSourceFileComposer> composer;
+        final ItdWriter writer;
+
+        PendingItd(final Future<ItdSourceFileComposer> composer,
+                final ItdWriter writer) {
+            this.composer = composer;
+            this.writer = writer;
+        }
+    }
+
+    private static final ThreadLocal<ItdRegenerationBatch> CURRENT = new ThreadLocal<ItdRegenerationBatch>();
+
+    /**
+     * Returns the batch open on the current thread
+     * 
+     * @return <code>null</code> if none is open
+     */
+    static ItdRegenerationBatch getCurrent() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Opens a batch on the current thread; callers must {@link #close()} it
+     * 
+     * @param threads the number of threads with which to compose ITDs
+     * @return a non-<code>null</code> batch
+     */
+    static ItdRegenerationBatch open(final int threads) {
+        Validate.validState(CURRENT.get() == null,
+                "An ITD regeneration batch is already open");
+        final ItdRegenerationBatch batch = new ItdRegenerationBatch(
+                Executors.newFixedThreadPool(Math.max(1, threads)));
+        CURRENT.set(batch);
+        return batch;
+    }
+
+    private final ExecutorService executor;
+    private final Map<String, PendingItd> pendingItds = new HashMap<String, PendingItd>();
+
+    private ItdRegenerationBatch(final ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Ends this batch, discarding any ITDs produced since the last
+     * {@link #commit()}
+     */
+    void close() {
+        CURRENT.remove();
+        pendingItds.clear();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Writes the ITDs composed so far, in order of filename. An ITD that can't
+     * be composed or written doesn't stop the others being written; its
+     * writer is told instead, and the first such failure is rethrown once the
+     * rest have been written.
+     */
+    void commit() {
+        final Map<String, PendingItd> itdsToWrite = new TreeMap<String, PendingItd>(
+                pendingItds);
+        pendingItds.clear();
+        RuntimeException failure = null;
+        for (final Entry<String, PendingItd> entry : itdsToWrite.entrySet()) {
+            final PendingItd pendingItd = entry.getValue();
+            try {
+                pendingItd.writer.write(entry.getKey(),
+                        getComposer(entry.getKey(), pendingItd));
+            }
+            catch (final RuntimeException e) {
+                pendingItd.writer.failed(entry.getKey());
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Starts composing the given ITD, replacing any earlier version of it
+     * produced in this batch
+     * 
+     * @param itdFilename the canonical path of the ITD (required)
+     * @param itdTypeDetails the ITD to compose (required)
+     * @param writer writes the ITD once composed (required)
+     */
+    void compose(final String itdFilename,
+            final ItdTypeDetails itdTypeDetails, final ItdWriter writer) {
+        Validate.notBlank(itdFilename, "ITD filename required");
+        Validate.notNull(itdTypeDetails, "ITD type details required");
+        Validate.notNull(writer, "ITD writer required");
+        final Future<ItdSourceFileComposer> composer = executor
+                .submit(new Callable<ItdSourceFileComposer>() {
+                    public ItdSourceFileComposer call() {
+                        return new ItdSourceFileComposer(itdTypeDetails);
+                    }
+                });
+        discard(itdFilename);
+        pendingItds.put(itdFilename, new PendingItd(composer, writer));
+    }
+
+    /**
+     * Forgets any version of the given ITD produced in this batch, e.g.
+     * because it has since been deleted
+     * 
+     * @param itdFilename the canonical path of the ITD
+     */
+    void discard(final String itdFilename) {
+        final PendingItd pendingItd = pendingItds.remove(itdFilename);
+        if (pendingItd != null) {
+            pendingItd.composer.cancel(false);
+        }
+    }
+
+    private ItdSourceFileComposer getComposer(final String itdFilename,
+            final PendingItd pendingItd) {
+        try {
+            return pendingItd.composer.get();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while composing "
+                    + itdFilename, e);
+        }
+        catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Unable to compose "
+                    + itdFilename, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.springframework.roo.classpath.itd;
+
+import org.springframework.roo.process.manager.CommandCallback;
+
+/**
+ * Regenerates the ITDs of a number of governors together, e.g. after a
+ * command has changed many types at once.
+ * 
+ * @since 2.0.0
+ */
+public interface ItdRegenerationService {
+
+    /**
+     * Makes the given changes, composing the ITDs that they cause to be
+     * regenerated in parallel and writing them in order of filename once the
+     * changes are complete. If the changes fail part way through, the ITDs
+     * regenerated up to that point are still written.
+     * 
+     * @param <T> the type of result
+     * @param changes the changes to make, typically by evicting and getting
+     *            the metadata upstream of the ITDs (required)
+     * @return the result of the changes (can be <code>null</code>)
+     */
+    <T> T regenerate(CommandCallback<T> changes);
+}
@@ -0,0 +1,45 @@
+package org.springframework.roo.classpath.itd;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Service;
+import org.springframework.roo.process.manager.CommandCallback;
+
+/**
+ * Implementation of {@link ItdRegenerationService}.
+ * <p>
+ * The composition of each regenerated ITD is left to an
+ * {@link ItdRegenerationBatch}, which the {@link AbstractItdMetadataProvider}
+ * producing it finds open on the current thread.
+ * 
+ * @since 2.0.0
+ */
+@Component
+@Service
+public class ItdRegenerationServiceImpl implements ItdRegenerationService {
+
+    public <T> T regenerate(final CommandCallback<T> changes) {
+        Validate.notNull(changes, "Changes required");
+        if (ItdRegenerationBatch.getCurrent() != null) {
+            // Already regenerating as part of a batch; join it
+            return changes.callback();
+        }
+        final ItdRegenerationBatch batch = ItdRegenerationBatch.open(Runtime
+                .getRuntime().availableProcessors());
+        try {
+            final T result;
+            try {
+                result = changes.callback();
+            }
+            finally {
+                // Even after a failure, the metadata produced so far is
+                // cached, so its ITDs must be written
+                batch.commit();
+            }
+            return result;
+        }
+        finally {
+            batch.close();
+        }
+    }
+}
@@ -3,21 +3,32 @@ package org.springframework.roo.classpath.layers;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.ReferenceStrategy;
 import org.apache.felix.scr.annotations.Service;
+import org.springframework.roo.classpath.TypeLocationService;
 import org.springframework.roo.model.JavaType;
 
 /**
  * The {@link LayerService} implementation.
+ * <p>
+ * The additions returned for each caller are cached until a type in the
+ * project changes or the set of {@link LayerProvider}s changes, as layer
+ * providers work out their additions from the annotations of the types
+ * involved.
  * 
  * @author Stefan Schmidt
  * @since 1.2.0
@@ -55,16 +66,66 @@ public class LayerServiceImpl implements LayerService {
         }
     }
 
+    /**
+     * The result of asking the layer providers for some additions; a
+     * <code>null</code> result is cached as well
+     */
+    private static class CachedAdditions {
+
+        private final MemberTypeAdditions additions;
+
+        CachedAdditions(final MemberTypeAdditions additions) {
+            this.additions = additions;
+        }
+    }
+
+    private static final int MAX_CACHED_ADDITIONS = 5000;
+
     // Mutex
     private final Object mutex = new Object();
 
+    // Guarded by itself, as are the hit and miss counts
+    private final Map<String, CachedAdditions> additionsCache = new LinkedHashMap<String, CachedAdditions>(
+            16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<String, CachedAdditions> eldest) {
+            return size() > MAX_CACHED_ADDITIONS;
+        }
+    };
+    private int cacheHits = 0;
+    private int cacheMisses = 0;
+    // The providers in descending order of position, replaced when they change
+    private volatile List<LayerProvider> providerList = Collections
+            .emptyList();
     private final SortedSet<LayerProvider> providers = new TreeSet<LayerProvider>(
             new DescendingLayerComparator());
 
+    @Reference TypeLocationService typeLocationService;
+
     protected void bindLayerProvider(final LayerProvider provider) {
         synchronized (mutex) {
             providers.add(provider);
+            providersChanged();
+        }
+    }
+
+    private String getCacheKey(final String metadataIdentificationString,
+            final String methodIdentifier, final JavaType targetEntity,
+            final JavaType idType, final int layerPosition,
+            final boolean autowire, final MethodParameter... methodParameters) {
+        final StringBuilder cacheKey = new StringBuilder(
+                metadataIdentificationString).append('|')
+                .append(methodIdentifier).append('|').append(targetEntity)
+                .append('|').append(idType).append('|').append(layerPosition)
+                .append('|').append(autowire);
+        for (final MethodParameter methodParameter : methodParameters) {
+            cacheKey.append('|').append(methodParameter.getLeft()).append(' ')
+                    .append(methodParameter.getRight());
         }
+        return cacheKey.toString();
     }
 
     public MemberTypeAdditions getMemberTypeAdditions(
@@ -110,8 +171,27 @@ public class LayerServiceImpl implements LayerService {
                 "metadataIdentificationString is required");
         Validate.notBlank(methodIdentifier, "methodIdentifier is required");
         Validate.notNull(targetEntity, "targetEntity is required");
-        for (final LayerProvider provider : new ArrayList<LayerProvider>(
-                providers)) {
+
+        final boolean typesChanged = !typeLocationService.getChangedTypes(
+                getClass().getName()).isEmpty();
+        final String cacheKey = getCacheKey(metadataIdentificationString,
+                methodIdentifier, targetEntity, idType, layerPosition,
+                autowire, methodParameters);
+        synchronized (additionsCache) {
+            if (typesChanged) {
+                additionsCache.clear();
+            }
+            final CachedAdditions cached = additionsCache.get(cacheKey);
+            if (cached != null) {
+                cacheHits++;
+                return cached.additions;
+            }
+            cacheMisses++;
+        }
+
+        final List<LayerProvider> currentProviders = providerList;
+        MemberTypeAdditions result = null;
+        for (final LayerProvider provider : currentProviders) {
             if (provider.getLayerPosition() >= layerPosition) {
                 continue;
             }
@@ -120,16 +200,48 @@ public class LayerServiceImpl implements LayerService {
                             methodIdentifier, targetEntity, idType, autowire,
                             methodParameters);
             if (additions != null) {
-                return additions;
+                result = additions;
+                break;
+            }
+        }
+
+        synchronized (additionsCache) {
+            // Don't cache the result if the providers changed meanwhile
+            if (currentProviders == providerList) {
+                additionsCache.put(cacheKey, new CachedAdditions(result));
             }
         }
-        return null;
+        return result;
+    }
+
+    /**
+     * Takes a new snapshot of the providers and discards any additions they
+     * returned; callers must hold the mutex
+     */
+    private void providersChanged() {
+        providerList = Collections
+                .unmodifiableList(new ArrayList<LayerProvider>(providers));
+        synchronized (additionsCache) {
+            additionsCache.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        final ToStringBuilder builder = new ToStringBuilder(this);
+        synchronized (additionsCache) {
+            builder.append("cacheHits", cacheHits);
+            builder.append("cacheMisses", cacheMisses);
+            builder.append("cacheCurrentSize", additionsCache.size());
+        }
+        return builder.toString().replaceFirst("@[0-9a-f]+", ":");
     }
 
     protected void unbindLayerProvider(final LayerProvider provider) {
         synchronized (mutex) {
             if (providers.contains(provider)) {
                 providers.remove(provider);
+                providersChanged();
             }
         }
     }
@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
@@ -31,54 +32,127 @@ import org.springframework.roo.model.JavaType;
 @Service
 public class PersistenceMemberLocatorImpl implements PersistenceMemberLocator {
 
+    /**
+     * The persistence members of a domain type, along with the member details
+     * from which they were found
+     */
+    private static class PersistenceMembers {
+
+        private final List<FieldMetadata> embeddedIdFields;
+        private final MethodMetadata idAccessor;
+        private final List<FieldMetadata> idFields;
+        private final JavaType idType;
+        private final MemberDetails memberDetails;
+        private final MethodMetadata versionAccessor;
+        private final FieldMetadata versionField;
+
+        PersistenceMembers(final MemberDetails memberDetails,
+                final List<FieldMetadata> idFields,
+                final List<FieldMetadata> embeddedIdFields,
+                final MethodMetadata idAccessor,
+                final FieldMetadata versionField,
+                final MethodMetadata versionAccessor) {
+            this.embeddedIdFields = embeddedIdFields;
+            this.idAccessor = idAccessor;
+            this.idFields = idFields;
+            this.idType = idFields == null ? null : idFields.get(0)
+                    .getFieldType();
+            this.memberDetails = memberDetails;
+            this.versionAccessor = versionAccessor;
+            this.versionField = versionField;
+        }
+    }
+
     @Reference private ItdDiscoveryService itdDiscoveryService;
     @Reference private MemberDetailsScanner memberDetailsScanner;
     @Reference private TypeLocationService typeLocationService;
 
-    private final Map<JavaType, List<FieldMetadata>> domainTypeEmbeddedIdFieldsCache = new HashMap<JavaType, List<FieldMetadata>>();
-    private final Map<JavaType, MethodMetadata> domainTypeIdAccessorCache = new HashMap<JavaType, MethodMetadata>();
-    private final Map<JavaType, JavaType> domainTypeIdCache = new HashMap<JavaType, JavaType>();
-    private final Map<JavaType, List<FieldMetadata>> domainTypeIdFieldsCache = new HashMap<JavaType, List<FieldMetadata>>();
-    private final Map<JavaType, MethodMetadata> domainTypeVersionAccessorCache = new HashMap<JavaType, MethodMetadata>();
-    private final Map<JavaType, FieldMetadata> domainTypeVersionFieldCache = new HashMap<JavaType, FieldMetadata>();
+    private int cacheHits = 0;
+    private int cacheMisses = 0;
+    private final Map<JavaType, PersistenceMembers> persistenceMembersCache = new HashMap<JavaType, PersistenceMembers>();
 
     public List<FieldMetadata> getEmbeddedIdentifierFields(
             final JavaType domainType) {
-        updateCache(domainType);
-        if (domainTypeEmbeddedIdFieldsCache.containsKey(domainType)) {
+        final PersistenceMembers persistenceMembers = getPersistenceMembers(domainType);
+        if (persistenceMembers != null
+                && persistenceMembers.embeddedIdFields != null) {
             return new ArrayList<FieldMetadata>(
-                    domainTypeEmbeddedIdFieldsCache.get(domainType));
+                    persistenceMembers.embeddedIdFields);
         }
         return new ArrayList<FieldMetadata>();
     }
 
+    /**
+     * Returns the embedded ID fields of the type with the given member details
+     * 
+     * @return <code>null</code> if the type has no embedded ID
+     */
+    private List<FieldMetadata> getEmbeddedIdFields(final MemberDetails details) {
+        final List<FieldMetadata> embeddedIdFields = details
+                .getFieldsWithTag(CustomDataKeys.EMBEDDED_ID_FIELD);
+        if (embeddedIdFields.isEmpty()) {
+            return null;
+        }
+        final List<FieldMetadata> fields = new ArrayList<FieldMetadata>();
+        final MemberDetails memberDetails = getMemberDetails(embeddedIdFields
+                .get(0).getFieldType());
+        if (memberDetails != null) {
+            for (final FieldMetadata field : memberDetails.getFields()) {
+                if (!field.getCustomData().keySet()
+                        .contains(CustomDataKeys.SERIAL_VERSION_UUID_FIELD)) {
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
     public MethodMetadata getIdentifierAccessor(final JavaType domainType) {
-        updateCache(domainType);
-        return domainTypeIdAccessorCache.get(domainType);
+        final PersistenceMembers persistenceMembers = getPersistenceMembers(domainType);
+        return persistenceMembers == null ? null
+                : persistenceMembers.idAccessor;
     }
 
     public List<FieldMetadata> getIdentifierFields(final JavaType domainType) {
-        updateCache(domainType);
-        if (domainTypeIdFieldsCache.containsKey(domainType)) {
-            return new ArrayList<FieldMetadata>(
-                    domainTypeIdFieldsCache.get(domainType));
-        }
-        else if (domainTypeEmbeddedIdFieldsCache.containsKey(domainType)) {
-            return new ArrayList<FieldMetadata>(
-                    domainTypeEmbeddedIdFieldsCache.get(domainType));
+        final PersistenceMembers persistenceMembers = getPersistenceMembers(domainType);
+        if (persistenceMembers != null) {
+            if (persistenceMembers.idFields != null) {
+                return new ArrayList<FieldMetadata>(persistenceMembers.idFields);
+            }
+            else if (persistenceMembers.embeddedIdFields != null) {
+                return new ArrayList<FieldMetadata>(
+                        persistenceMembers.embeddedIdFields);
+            }
         }
 
         return new ArrayList<FieldMetadata>();
     }
 
-    public JavaType getIdentifierType(final JavaType domainType) {
-        updateCache(domainType);
-        if (domainTypeIdCache.containsKey(domainType)) {
-            return domainTypeIdCache.get(domainType);
+    /**
+     * Returns the ID fields of the type with the given member details, or
+     * failing that its embedded ID fields
+     * 
+     * @return <code>null</code> if there are neither
+     */
+    private List<FieldMetadata> getIdFields(final MemberDetails details) {
+        final List<FieldMetadata> idFields = details
+                .getFieldsWithTag(CustomDataKeys.IDENTIFIER_FIELD);
+        if (!idFields.isEmpty()) {
+            return idFields;
+        }
+        final List<FieldMetadata> embeddedIdFields = details
+                .getFieldsWithTag(CustomDataKeys.EMBEDDED_ID_FIELD);
+        if (!embeddedIdFields.isEmpty()) {
+            return embeddedIdFields;
         }
         return null;
     }
 
+    public JavaType getIdentifierType(final JavaType domainType) {
+        final PersistenceMembers persistenceMembers = getPersistenceMembers(domainType);
+        return persistenceMembers == null ? null : persistenceMembers.idType;
+    }
+
     private MemberDetails getMemberDetails(
             final ClassOrInterfaceTypeDetails typeDetails) {
         return memberDetailsScanner.getMemberDetails(getClass().getName(),
@@ -95,122 +169,21 @@ public class PersistenceMemberLocatorImpl implements PersistenceMemberLocator {
                 typeDetails);
     }
 
-    public MethodMetadata getVersionAccessor(final JavaType domainType) {
-        updateCache(domainType);
-        return domainTypeVersionAccessorCache.get(domainType);
-    }
-
-    public FieldMetadata getVersionField(final JavaType domainType) {
-        updateCache(domainType);
-        return domainTypeVersionFieldCache.get(domainType);
-    }
-
-    private boolean haveAssociatedTypesChanged(final JavaType javaType) {
-        return typeLocationService.hasTypeChanged(getClass().getName(),
-                javaType)
-                || itdDiscoveryService.haveItdsChanged(getClass().getName(),
-                        javaType);
-    }
-
-    private void populateEmbeddedIdFields(final MemberDetails details,
-            final JavaType type) {
-        final List<FieldMetadata> embeddedIdFields = MemberFindingUtils
-                .getFieldsWithTag(details, CustomDataKeys.EMBEDDED_ID_FIELD);
-        if (!embeddedIdFields.isEmpty()) {
-            domainTypeEmbeddedIdFieldsCache.remove(type);
-            domainTypeEmbeddedIdFieldsCache.put(type,
-                    new ArrayList<FieldMetadata>());
-            final MemberDetails memberDetails = getMemberDetails(embeddedIdFields
-                    .get(0).getFieldType());
-            if (memberDetails != null) {
-                for (final FieldMetadata field : memberDetails.getFields()) {
-                    if (!field.getCustomData().keySet()
-                            .contains(CustomDataKeys.SERIAL_VERSION_UUID_FIELD)) {
-                        domainTypeEmbeddedIdFieldsCache.get(type).add(field);
-                    }
-                }
-            }
-        }
-        else if (domainTypeEmbeddedIdFieldsCache.containsKey(type)) {
-            domainTypeEmbeddedIdFieldsCache.remove(type);
-        }
-    }
-
-    private void populateIdAccessors(final MemberDetails details,
-            final JavaType type) {
-        final MethodMetadata idAccessor = MemberFindingUtils
-                .getMostConcreteMethodWithTag(details,
-                        CustomDataKeys.IDENTIFIER_ACCESSOR_METHOD);
-        if (idAccessor != null) {
-            domainTypeIdAccessorCache.put(type, idAccessor);
-        }
-        else if (domainTypeIdAccessorCache.containsKey(type)) {
-            domainTypeIdAccessorCache.remove(type);
-        }
-    }
-
-    private void populateIdFields(final MemberDetails details,
-            final JavaType type) {
-        final List<FieldMetadata> idFields = MemberFindingUtils
-                .getFieldsWithTag(details, CustomDataKeys.IDENTIFIER_FIELD);
-        final List<FieldMetadata> embeddedIdFields = MemberFindingUtils
-                .getFieldsWithTag(details, CustomDataKeys.EMBEDDED_ID_FIELD);
-        if (!idFields.isEmpty()) {
-            domainTypeIdFieldsCache.put(type, idFields);
-        }
-        else if (!embeddedIdFields.isEmpty()) {
-            domainTypeIdFieldsCache.put(type, embeddedIdFields);
-        }
-        else if (domainTypeIdFieldsCache.containsKey(type)) {
-            domainTypeIdFieldsCache.remove(type);
-        }
-    }
-
-    private void populateIdTypes(final MemberDetails details,
-            final JavaType type) {
-        final List<FieldMetadata> idFields = MemberFindingUtils
-                .getFieldsWithTag(details, CustomDataKeys.IDENTIFIER_FIELD);
-        final List<FieldMetadata> embeddedIdFields = MemberFindingUtils
-                .getFieldsWithTag(details, CustomDataKeys.EMBEDDED_ID_FIELD);
-        if (!idFields.isEmpty()) {
-            domainTypeIdCache.put(type, idFields.get(0).getFieldType());
-        }
-        else if (!embeddedIdFields.isEmpty()) {
-            domainTypeIdCache.put(type, embeddedIdFields.get(0).getFieldType());
-        }
-        else {
-            domainTypeIdCache.remove(type);
-        }
-    }
-
-    private void populateVersionAccessor(final MemberDetails details,
-            final JavaType type) {
-        final MethodMetadata versionAccessor = MemberFindingUtils
-                .getMostConcreteMethodWithTag(details,
-                        CustomDataKeys.VERSION_ACCESSOR_METHOD);
-        if (versionAccessor != null) {
-            domainTypeVersionAccessorCache.put(type, versionAccessor);
-        }
-        else if (domainTypeVersionAccessorCache.containsKey(type)) {
-            domainTypeVersionAccessorCache.remove(type);
-        }
-    }
-
-    private void populateVersionField(final MemberDetails details,
-            final JavaType type) {
-        final List<FieldMetadata> versionFields = MemberFindingUtils
-                .getFieldsWithTag(details, CustomDataKeys.VERSION_FIELD);
-        if (!versionFields.isEmpty()) {
-            domainTypeVersionFieldCache.put(type, versionFields.get(0));
-        }
-        else if (domainTypeVersionFieldCache.containsKey(type)) {
-            domainTypeVersionFieldCache.remove(type);
-        }
-    }
-
-    private void updateCache(final JavaType domainType) {
+    /**
+     * Returns the persistence members of the given domain type, finding them
+     * again only if the type's member details have changed since they were
+     * last found
+     * 
+     * @param domainType the domain type
+     * @return <code>null</code> if they have never been found, e.g. because
+     *         the type isn't persistent
+     */
+    private PersistenceMembers getPersistenceMembers(final JavaType domainType) {
+        final PersistenceMembers cached = persistenceMembersCache
+                .get(domainType);
         if (!haveAssociatedTypesChanged(domainType)) {
-            return;
+            cacheHits++;
+            return cached;
         }
 
         final ClassOrInterfaceTypeDetails domainTypeDetails = typeLocationService
@@ -218,27 +191,62 @@ public class PersistenceMemberLocatorImpl implements PersistenceMemberLocator {
         if (domainTypeDetails == null
                 || !domainTypeDetails.getCustomData().keySet()
                         .contains(CustomDataKeys.PERSISTENT_TYPE)) {
-            return;
+            cacheHits++;
+            return cached;
         }
 
+        // The member details are only built again if something they're built
+        // from has changed
         final MemberDetails memberDetails = getMemberDetails(domainTypeDetails);
+        if (cached != null && cached.memberDetails == memberDetails) {
+            cacheHits++;
+            return cached;
+        }
 
-        // Update normal persistence ID fields cache
-        populateIdTypes(memberDetails, domainType);
+        cacheMisses++;
+        final PersistenceMembers persistenceMembers = new PersistenceMembers(
+                memberDetails, getIdFields(memberDetails),
+                getEmbeddedIdFields(memberDetails),
+                MemberFindingUtils.getMostConcreteMethodWithTag(memberDetails,
+                        CustomDataKeys.IDENTIFIER_ACCESSOR_METHOD),
+                getVersionField(memberDetails),
+                MemberFindingUtils.getMostConcreteMethodWithTag(memberDetails,
+                        CustomDataKeys.VERSION_ACCESSOR_METHOD));
+        persistenceMembersCache.put(domainType, persistenceMembers);
+        return persistenceMembers;
+    }
 
-        // Update normal persistence ID cache
-        populateIdFields(memberDetails, domainType);
+    public MethodMetadata getVersionAccessor(final JavaType domainType) {
+        final PersistenceMembers persistenceMembers = getPersistenceMembers(domainType);
+        return persistenceMembers == null ? null
+                : persistenceMembers.versionAccessor;
+    }
 
-        // Update embedded ID fields cache
-        populateEmbeddedIdFields(memberDetails, domainType);
+    public FieldMetadata getVersionField(final JavaType domainType) {
+        final PersistenceMembers persistenceMembers = getPersistenceMembers(domainType);
+        return persistenceMembers == null ? null
+                : persistenceMembers.versionField;
+    }
 
-        // Update ID accessor cache
-        populateIdAccessors(memberDetails, domainType);
+    private FieldMetadata getVersionField(final MemberDetails details) {
+        final List<FieldMetadata> versionFields = details
+                .getFieldsWithTag(CustomDataKeys.VERSION_FIELD);
+        return versionFields.isEmpty() ? null : versionFields.get(0);
+    }
 
-        // Update version field cache
-        populateVersionField(memberDetails, domainType);
+    private boolean haveAssociatedTypesChanged(final JavaType javaType) {
+        return typeLocationService.hasTypeChanged(getClass().getName(),
+                javaType)
+                || itdDiscoveryService.haveItdsChanged(getClass().getName(),
+                        javaType);
+    }
 
-        // Update version accessor cache
-        populateVersionAccessor(memberDetails, domainType);
+    @Override
+    public String toString() {
+        final ToStringBuilder builder = new ToStringBuilder(this);
+        builder.append("cacheHits", cacheHits);
+        builder.append("cacheMisses", cacheMisses);
+        builder.append("cacheCurrentSize", persistenceMembersCache.size());
+        return builder.toString().replaceFirst("@[0-9a-f]+", ":");
     }
 }
@@ -89,6 +89,16 @@ public interface MemberDetails {
      */
     List<FieldMetadata> getFields();
 
+    /**
+     * Searches all {@link MemberHoldingTypeDetails} and returns all fields
+     * which contain a given {@link CustomData} tag.
+     * 
+     * @param tagKey the {@link CustomData} key to search for (required)
+     * @return zero or more fields (never null)
+     * @since 2.0.0
+     */
+    List<FieldMetadata> getFieldsWithTag(Object tagKey);
+
     /**
      * Locates a method with the name presented. Searches all
      * {@link MemberDetails} until the first such method is located or none can
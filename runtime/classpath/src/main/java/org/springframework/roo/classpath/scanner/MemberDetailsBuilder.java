@@ -196,7 +196,7 @@ public class MemberDetailsBuilder {
         return originalMemberDetails;
     }
 
-    private void doModification(final ConstructorMetadata constructor,
+    private boolean doModification(final ConstructorMetadata constructor,
             final CustomData customData) {
         final MemberHoldingTypeDetails memberHoldingTypeDetails = memberHoldingTypeDetailsMap
                 .get(constructor.getDeclaredByMetadataId());
@@ -212,11 +212,13 @@ public class MemberDetailsBuilder {
                 typeDetailsBuilder
                         .addDataToConstructor(constructor, customData);
                 changed = true;
+                return true;
             }
         }
+        return false;
     }
 
-    private void doModification(final FieldMetadata field,
+    private boolean doModification(final FieldMetadata field,
             final CustomData customData) {
         final MemberHoldingTypeDetails memberHoldingTypeDetails = memberHoldingTypeDetailsMap
                 .get(field.getDeclaredByMetadataId());
@@ -229,11 +231,13 @@ public class MemberDetailsBuilder {
                 final TypeDetailsBuilder typeDetailsBuilder = getTypeDetailsBuilder(memberHoldingTypeDetails);
                 typeDetailsBuilder.addDataToField(field, customData);
                 changed = true;
+                return true;
             }
         }
+        return false;
     }
 
-    private void doModification(final MemberHoldingTypeDetails type,
+    private boolean doModification(final MemberHoldingTypeDetails type,
             final CustomData customData) {
         final MemberHoldingTypeDetails memberHoldingTypeDetails = memberHoldingTypeDetailsMap
                 .get(type.getDeclaredByMetadataId());
@@ -244,11 +248,13 @@ public class MemberDetailsBuilder {
                 final TypeDetailsBuilder typeDetailsBuilder = getTypeDetailsBuilder(memberHoldingTypeDetails);
                 typeDetailsBuilder.getCustomData().append(customData);
                 changed = true;
+                return true;
             }
         }
+        return false;
     }
 
-    private void doModification(final MethodMetadata method,
+    private boolean doModification(final MethodMetadata method,
             final CustomData customData) {
         final MemberHoldingTypeDetails memberHoldingTypeDetails = memberHoldingTypeDetailsMap
                 .get(method.getDeclaredByMetadataId());
@@ -263,8 +269,10 @@ public class MemberDetailsBuilder {
                 final TypeDetailsBuilder typeDetailsBuilder = getTypeDetailsBuilder(memberHoldingTypeDetails);
                 typeDetailsBuilder.addDataToMethod(method, customData);
                 changed = true;
+                return true;
             }
         }
+        return false;
     }
 
     private TypeDetailsBuilder getTypeDetailsBuilder(
@@ -282,29 +290,36 @@ public class MemberDetailsBuilder {
         return typeDetailsBuilder;
     }
 
-    public <T> void tag(final T toModify, final CustomDataKey<T> key,
+    /**
+     * Tags the given member with the given key and value, unless it already
+     * has a tag with that key
+     * 
+     * @param toModify the member to tag; can be a field, method, constructor
+     *            or type
+     * @param key the key of the tag (required)
+     * @param value the value of the tag (can be <code>null</code>)
+     * @return <code>true</code> if the tag was added
+     */
+    public <T> boolean tag(final T toModify, final CustomDataKey<T> key,
             final Object value) {
+        final CustomDataBuilder customDataBuilder = new CustomDataBuilder();
+        customDataBuilder.put(key, value);
         if (toModify instanceof FieldMetadata) {
-            final CustomDataBuilder customDataBuilder = new CustomDataBuilder();
-            customDataBuilder.put(key, value);
-            doModification((FieldMetadata) toModify, customDataBuilder.build());
+            return doModification((FieldMetadata) toModify,
+                    customDataBuilder.build());
         }
         else if (toModify instanceof MethodMetadata) {
-            final CustomDataBuilder customDataBuilder = new CustomDataBuilder();
-            customDataBuilder.put(key, value);
-            doModification((MethodMetadata) toModify, customDataBuilder.build());
+            return doModification((MethodMetadata) toModify,
+                    customDataBuilder.build());
         }
         else if (toModify instanceof ConstructorMetadata) {
-            final CustomDataBuilder customDataBuilder = new CustomDataBuilder();
-            customDataBuilder.put(key, value);
-            doModification((ConstructorMetadata) toModify,
+            return doModification((ConstructorMetadata) toModify,
                     customDataBuilder.build());
         }
         else if (toModify instanceof MemberHoldingTypeDetails) {
-            final CustomDataBuilder customDataBuilder = new CustomDataBuilder();
-            customDataBuilder.put(key, value);
-            doModification((MemberHoldingTypeDetails) toModify,
+            return doModification((MemberHoldingTypeDetails) toModify,
                     customDataBuilder.build());
         }
+        return false;
     }
 }
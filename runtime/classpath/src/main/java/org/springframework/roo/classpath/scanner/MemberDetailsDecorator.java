@@ -1,7 +1,10 @@
 package org.springframework.roo.classpath.scanner;
 
+import java.util.Set;
+
 import org.springframework.roo.classpath.details.MemberHoldingTypeDetails;
 import org.springframework.roo.model.CustomDataAccessor;
+import org.springframework.roo.model.CustomDataKey;
 
 /**
  * Provides the ability to modify or log the result of a
@@ -14,30 +17,35 @@ import org.springframework.roo.model.CustomDataAccessor;
 public interface MemberDetailsDecorator {
 
     /**
-     * Evaluates the incoming {@link MemberDetails} and either (a) returns the
-     * same instance if no changes are necessary or (b) returns a new instance
-     * of {@link MemberDetails} if changes are needed.
+     * Evaluates the incoming {@link MemberDetails} and adds any tags it
+     * requires to the given builder, returning the keys of the tags that were
+     * actually added, i.e. that the given {@link MemberDetails} didn't already
+     * have.
      * <p>
-     * This method will be called repeatedly until such time as every
-     * {@link MemberDetailsDecorator} returns the same {@link MemberDetails}
-     * instance as was passed. <em>It is therefore essential that a
-     * new instance is only returned if an actual change to the result is required.</em>
-     * An implementation can safely return the same {@link MemberDetails} as it
-     * was passed if in doubt, as it will always be re-invoked later on if
-     * another decorator changes the {@link MemberDetails} instance. Thus even
-     * decorators that depend on other decorators populating the
+     * The first time {@link MemberDetails} are scanned, every
+     * {@link MemberDetailsDecorator} is called once. After that, a decorator
+     * is only called again if another decorator added a tag whose key is among
+     * its {@link #getTagDependencies() tag dependencies}, and this repeats until
+     * no more tags are added. Decorators must therefore only report a tag key
+     * when a tag was actually added (see
+     * {@link MemberDetailsBuilder#tag(Object, CustomDataKey, Object)}). Thus
+     * even decorators that depend on other decorators populating the
      * {@link MemberDetails} (eg with new {@link CustomDataAccessor}
      * information) can be executed in any order whatsoever, as they need only
-     * look for the expected data and return the same {@link MemberDetails} if
-     * it is not found.
+     * look for the expected data and add nothing if it is not found.
      * 
      * @param requestingClass the fully-qualified class name requesting the
      *            member details (required)
      * @param memberDetails the current member holders (required)
-     * @return the originally-passed details (where possible) or a replacement
-     *         details (never returns null)
+     * @param memberDetailsBuilder the builder to which to add any tags; it
+     *            can also be receiving tags from other decorators (required)
+     * @return the keys of the tags added (never null; empty if nothing was
+     *         added)
+     * @since 2.0.0
      */
-    MemberDetails decorate(String requestingClass, MemberDetails memberDetails);
+    Set<CustomDataKey<?>> decorate(String requestingClass,
+            MemberDetails memberDetails,
+            MemberDetailsBuilder memberDetailsBuilder);
 
     /**
      * Performs essentially the same function as decorate but only decorates
@@ -52,4 +60,27 @@ public interface MemberDetailsDecorator {
      */
     MemberDetails decorateTypes(String requestingClass,
             MemberDetails memberDetails);
+
+    /**
+     * Returns the keys of the tags that this decorator reads when deciding
+     * what to tag, so that it's only called again when another decorator has
+     * added one of those tags. Decorators that only look at member names,
+     * types and annotations (none of which decorators change) can return an
+     * empty set.
+     * 
+     * @return <code>null</code> if this decorator could depend on any tag
+     * @since 2.0.0
+     */
+    Set<CustomDataKey<?>> getTagDependencies();
+
+    /**
+     * Returns a number that changes whenever this decorator might decorate
+     * the same {@link MemberDetails} differently than it did before, e.g.
+     * because the rules it applies have changed. This allows the results of
+     * decorating a given {@link MemberDetails} to be reused until then.
+     * 
+     * @return the current version of this decorator
+     * @since 2.0.0
+     */
+    long getVersion();
 }
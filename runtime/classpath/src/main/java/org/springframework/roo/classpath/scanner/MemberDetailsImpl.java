@@ -5,8 +5,10 @@ import static org.springframework.roo.classpath.customdata.CustomDataKeys.EMBEDD
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.Validate;
@@ -17,6 +19,7 @@ import org.springframework.roo.classpath.details.FieldMetadata;
 import org.springframework.roo.classpath.details.MemberFindingUtils;
 import org.springframework.roo.classpath.details.MemberHoldingTypeDetails;
 import org.springframework.roo.classpath.details.MethodMetadata;
+import org.springframework.roo.classpath.details.annotations.AnnotatedJavaType;
 import org.springframework.roo.classpath.details.annotations.AnnotationMetadata;
 import org.springframework.roo.classpath.persistence.PersistenceMemberLocator;
 import org.springframework.roo.model.JavaSymbolName;
@@ -25,13 +28,82 @@ import org.springframework.roo.support.util.CollectionUtils;
 
 /**
  * Default implementation of {@link MemberDetails}.
+ * <p>
+ * The members of all the {@link MemberHoldingTypeDetails} are indexed by name,
+ * annotation type and custom data key the first time they're looked up, so
+ * that repeated lookups don't have to visit every member.
  * 
  * @author Ben Alex
  * @since 1.1
  */
 public class MemberDetailsImpl implements MemberDetails {
 
+    /**
+     * The members of a {@link MemberDetailsImpl}, in the order of its
+     * {@link MemberHoldingTypeDetails}
+     */
+    private static class MemberIndex {
+
+        private static <K, V> List<V> get(final Map<K, List<V>> index,
+                final K key) {
+            final List<V> values = index.get(key);
+            if (values == null) {
+                return Collections.emptyList();
+            }
+            return values;
+        }
+
+        private static <K, V> void put(final Map<K, List<V>> index,
+                final K key, final V value) {
+            List<V> values = index.get(key);
+            if (values == null) {
+                values = new ArrayList<V>();
+                index.put(key, values);
+            }
+            values.add(value);
+        }
+
+        // Keyed by type name, as JavaType's equality also takes into account
+        // type parameters; the same goes for method parameter types
+        private final Map<String, List<AnnotationMetadata>> annotationsByTypeName = new HashMap<String, List<AnnotationMetadata>>();
+        private final List<ConstructorMetadata> constructors = new ArrayList<ConstructorMetadata>();
+        private final List<FieldMetadata> fields = new ArrayList<FieldMetadata>();
+        private final Map<Object, List<FieldMetadata>> fieldsByTag = new HashMap<Object, List<FieldMetadata>>();
+        private final List<MethodMetadata> methods = new ArrayList<MethodMetadata>();
+        private final Map<JavaSymbolName, List<MethodMetadata>> methodsByName = new HashMap<JavaSymbolName, List<MethodMetadata>>();
+        private final Map<Object, List<MethodMetadata>> methodsByTag = new HashMap<Object, List<MethodMetadata>>();
+
+        private MemberIndex(final List<MemberHoldingTypeDetails> details) {
+            for (final MemberHoldingTypeDetails memberHoldingTypeDetails : details) {
+                for (final AnnotationMetadata annotation : memberHoldingTypeDetails
+                        .getAnnotations()) {
+                    put(annotationsByTypeName, annotation.getAnnotationType()
+                            .getFullyQualifiedTypeName(), annotation);
+                }
+                constructors.addAll(memberHoldingTypeDetails
+                        .getDeclaredConstructors());
+                for (final FieldMetadata field : memberHoldingTypeDetails
+                        .getDeclaredFields()) {
+                    fields.add(field);
+                    for (final Object tagKey : field.getCustomData().keySet()) {
+                        put(fieldsByTag, tagKey, field);
+                    }
+                }
+                for (final MethodMetadata method : memberHoldingTypeDetails
+                        .getDeclaredMethods()) {
+                    methods.add(method);
+                    put(methodsByName, method.getMethodName(), method);
+                    for (final Object tagKey : method.getCustomData().keySet()) {
+                        put(methodsByTag, tagKey, method);
+                    }
+                }
+            }
+        }
+    }
+
     private final List<MemberHoldingTypeDetails> details = new ArrayList<MemberHoldingTypeDetails>();
+    // Immutable once built, so it can be shared without locking
+    private volatile MemberIndex index;
 
     /**
      * Constructs a new instance.
@@ -47,22 +119,18 @@ public class MemberDetailsImpl implements MemberDetails {
 
     public AnnotationMetadata getAnnotation(final JavaType type) {
         Validate.notNull(type, "Annotation type to locate required");
-        for (final MemberHoldingTypeDetails memberHoldingTypeDetails : details) {
-            final AnnotationMetadata md = memberHoldingTypeDetails
-                    .getAnnotation(type);
-            if (md != null) {
-                return md;
+        for (final AnnotationMetadata annotation : MemberIndex.get(
+                getIndex().annotationsByTypeName,
+                type.getFullyQualifiedTypeName())) {
+            if (annotation.getAnnotationType().equals(type)) {
+                return annotation;
             }
         }
         return null;
     }
 
     public List<ConstructorMetadata> getConstructors() {
-        final List<ConstructorMetadata> result = new ArrayList<ConstructorMetadata>();
-        for (final MemberHoldingTypeDetails memberHoldingTypeDetails : details) {
-            result.addAll(memberHoldingTypeDetails.getDeclaredConstructors());
-        }
-        return result;
+        return new ArrayList<ConstructorMetadata>(getIndex().constructors);
     }
 
     public List<MemberHoldingTypeDetails> getDetails() {
@@ -78,42 +146,42 @@ public class MemberDetailsImpl implements MemberDetails {
     }
 
     public List<FieldMetadata> getFields() {
-        final List<FieldMetadata> result = new ArrayList<FieldMetadata>();
-        for (final MemberHoldingTypeDetails memberHoldingTypeDetails : details) {
-            result.addAll(memberHoldingTypeDetails.getDeclaredFields());
+        return new ArrayList<FieldMetadata>(getIndex().fields);
+    }
+
+    public List<FieldMetadata> getFieldsWithTag(final Object tagKey) {
+        Validate.notNull(tagKey, "Custom data key required");
+        return new ArrayList<FieldMetadata>(MemberIndex.get(
+                getIndex().fieldsByTag, tagKey));
+    }
+
+    private MemberIndex getIndex() {
+        MemberIndex memberIndex = index;
+        if (memberIndex == null) {
+            memberIndex = new MemberIndex(details);
+            index = memberIndex;
         }
-        return result;
+        return memberIndex;
     }
 
     public MethodMetadata getMethod(final JavaSymbolName methodName) {
-        for (final MemberHoldingTypeDetails memberHoldingTypeDetails : details) {
-            final MethodMetadata md = MemberFindingUtils.getDeclaredMethod(
-                    memberHoldingTypeDetails, methodName);
-            if (md != null) {
-                return md;
-            }
-        }
-        return null;
+        return CollectionUtils.firstElementOf(MemberIndex.get(
+                getIndex().methodsByName, methodName));
     }
 
     public MethodMetadata getMethod(final JavaSymbolName methodName,
             final List<JavaType> parameters) {
-        for (final MemberHoldingTypeDetails memberHoldingTypeDetails : details) {
-            final MethodMetadata md = MemberFindingUtils.getDeclaredMethod(
-                    memberHoldingTypeDetails, methodName, parameters);
-            if (md != null) {
-                return md;
-            }
-        }
-        return null;
+        return getMethod(methodName, parameters, null);
     }
 
     public MethodMetadata getMethod(final JavaSymbolName methodName,
             final List<JavaType> parameters, final String excludingMid) {
-        for (final MemberHoldingTypeDetails memberHoldingTypeDetails : details) {
-            final MethodMetadata method = MemberFindingUtils.getDeclaredMethod(
-                    memberHoldingTypeDetails, methodName, parameters);
-            if (method != null
+        final List<JavaType> parameterTypes = parameters == null ? new ArrayList<JavaType>()
+                : parameters;
+        for (final MethodMetadata method : MemberIndex.get(
+                getIndex().methodsByName, methodName)) {
+            if (AnnotatedJavaType.convertFromAnnotatedJavaTypes(
+                    method.getParameterTypes()).equals(parameterTypes)
                     && !method.getDeclaredByMetadataId().equals(excludingMid)) {
                 return method;
             }
@@ -122,26 +190,19 @@ public class MemberDetailsImpl implements MemberDetails {
     }
 
     public List<MethodMetadata> getMethods() {
-        final List<MethodMetadata> result = new ArrayList<MethodMetadata>();
-        for (final MemberHoldingTypeDetails memberHoldingTypeDetails : details) {
-            result.addAll(memberHoldingTypeDetails.getDeclaredMethods());
-        }
-        return result;
+        return new ArrayList<MethodMetadata>(getIndex().methods);
     }
 
     public List<MethodMetadata> getMethodsWithTag(final Object tagKey) {
         Validate.notNull(tagKey, "Custom data key required");
-        final List<MethodMetadata> result = new ArrayList<MethodMetadata>();
-        for (final MethodMetadata method : getMethods()) {
-            if (method.getCustomData().keySet().contains(tagKey)) {
-                result.add(method);
-            }
-        }
-        return result;
+        return new ArrayList<MethodMetadata>(MemberIndex.get(
+                getIndex().methodsByTag, tagKey));
     }
 
     public MethodMetadata getMostConcreteMethodWithTag(final Object tagKey) {
-        return CollectionUtils.firstElementOf(getMethodsWithTag(tagKey));
+        Validate.notNull(tagKey, "Custom data key required");
+        return CollectionUtils.firstElementOf(MemberIndex.get(
+                getIndex().methodsByTag, tagKey));
     }
 
     public Set<JavaType> getPersistentFieldTypes(final JavaType thisType,
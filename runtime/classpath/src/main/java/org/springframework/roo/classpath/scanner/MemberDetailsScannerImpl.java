@@ -1,8 +1,14 @@
 package org.springframework.roo.classpath.scanner;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.logging.Logger;
@@ -20,13 +26,16 @@ import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
 import org.springframework.roo.classpath.details.MemberHoldingTypeDetails;
 import org.springframework.roo.classpath.itd.ItdMetadataProvider;
 import org.springframework.roo.classpath.itd.ItdTypeDetailsProvidingMetadataItem;
+import org.springframework.roo.metadata.MetadataDependencyRegistry;
 import org.springframework.roo.metadata.MetadataIdentificationUtils;
 import org.springframework.roo.metadata.MetadataItem;
+import org.springframework.roo.metadata.MetadataNotificationListener;
 import org.springframework.roo.metadata.MetadataProvider;
 import org.springframework.roo.metadata.MetadataService;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
+import org.springframework.roo.model.CustomDataKey;
 import org.springframework.roo.support.logging.HandlerUtils;
 
 /**
@@ -42,20 +51,71 @@ import org.springframework.roo.support.logging.HandlerUtils;
  * the metadata infrastructure does not require special type naming approaches
  * to be employed. The ordering behaviour exists solely to simplify debugging
  * for add-on developers and log comparison between invocations.
+ * <p>
+ * The {@link MemberDetails} assembled for each requesting class and governor
+ * are kept until a metadata notification concerns any of the metadata they
+ * were assembled from. They are only returned again if the governor, its
+ * superclasses, the ITD metadata found for them and the decorators are all the
+ * same instances (and decorator versions) as before, in which case assembling
+ * and decorating them again would give an equal result.
  * 
  * @author Ben Alex
  * @since 1.1
  */
 @Component
 @Service
-public class MemberDetailsScannerImpl implements MemberDetailsScanner {
+public class MemberDetailsScannerImpl implements MemberDetailsScanner,
+        MetadataNotificationListener {
+
+    /**
+     * The member details assembled for one requesting class and governor,
+     * along with what they were assembled from
+     */
+    private static class CachedMemberDetails {
+        private final List<Object> inputs;
+        private final MemberDetails memberDetails;
+        private final Set<String> metadataIds;
+
+        private CachedMemberDetails(final List<Object> inputs,
+                final Set<String> metadataIds, final MemberDetails memberDetails) {
+            this.inputs = inputs;
+            this.metadataIds = metadataIds;
+            this.memberDetails = memberDetails;
+        }
+
+        /**
+         * Indicates whether these member details were assembled from the given
+         * inputs, i.e. from the same instances and decorator versions
+         * 
+         * @param currentInputs the inputs to compare against
+         * @return see above
+         */
+        private boolean isAssembledFrom(final List<Object> currentInputs) {
+            if (inputs.size() != currentInputs.size()) {
+                return false;
+            }
+            for (int i = 0; i < inputs.size(); i++) {
+                final Object input = inputs.get(i);
+                final Object currentInput = currentInputs.get(i);
+                if (input != currentInput
+                        && !(input instanceof Long && input
+                                .equals(currentInput))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 
 	protected final static Logger LOGGER = HandlerUtils.getLogger(MemberDetailsScannerImpl.class);
 	
+    private static final int MAX_CACHED_MEMBER_DETAILS = 5000;
+
 	// ------------ OSGi component attributes ----------------
    	private BundleContext context;
    	
    	protected MetadataService metadataService;
+   	protected MetadataDependencyRegistry metadataDependencyRegistry;
    	
    	protected void activate(final ComponentContext context) {
     	this.context = context.getBundleContext();
@@ -70,7 +130,7 @@ public class MemberDetailsScannerImpl implements MemberDetailsScanner {
                 }
             });
 
-    // Mutex
+    // Mutex guarding the registration of decorators and providers
     private final Object lock = new Object();
 
     private final SortedSet<MetadataProvider> providers = new TreeSet<MetadataProvider>(
@@ -82,6 +142,29 @@ public class MemberDetailsScannerImpl implements MemberDetailsScanner {
                 }
             });
 
+    // Snapshots of the above, read without locking by getMemberDetails
+    private volatile List<MemberDetailsDecorator> decoratorList = Collections
+            .emptyList();
+    private volatile List<MetadataProvider> providerList = Collections
+            .emptyList();
+
+    // Guarded by itself, as is cacheKeysByMetadataId
+    private final Map<String, CachedMemberDetails> memberDetailsCache = new LinkedHashMap<String, CachedMemberDetails>(
+            16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<String, CachedMemberDetails> eldest) {
+            if (size() > MAX_CACHED_MEMBER_DETAILS) {
+                unindex(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+    private final Map<String, Set<String>> cacheKeysByMetadataId = new HashMap<String, Set<String>>();
+
     protected void bindDecorators() {
     	synchronized (lock) {
         	// Get all Services implement MemberDetailsDecorator interface
@@ -94,6 +177,7 @@ public class MemberDetailsScannerImpl implements MemberDetailsScanner {
     		} catch (InvalidSyntaxException e) {
     			LOGGER.warning("Cannot load MemberDetailsDecorator on MemberDetailsScannerImpl.");
     		}
+    		decoratorList = new ArrayList<MemberDetailsDecorator>(decorators);
         }
     }
 
@@ -115,11 +199,59 @@ public class MemberDetailsScannerImpl implements MemberDetailsScanner {
     		} catch (InvalidSyntaxException e) {
     			LOGGER.warning("Cannot load MetadataProvider on MemberDetailsScannerImpl.");
     		}
+    		providerList = new ArrayList<MetadataProvider>(providers);
         }
     }
 
     protected void deactivate(final ComponentContext componentContext) {
-        // Empty
+        if (metadataDependencyRegistry != null) {
+            metadataDependencyRegistry.removeNotificationListener(this);
+        }
+    }
+
+    /**
+     * Indicates whether the given decorator reads any of the given tags
+     * 
+     * @param decorator the decorator to check
+     * @param tags the keys of the tags to check for
+     * @return see above
+     */
+    private boolean dependsOnAny(final MemberDetailsDecorator decorator,
+            final Set<CustomDataKey<?>> tags) {
+        final Set<CustomDataKey<?>> tagDependencies = decorator
+                .getTagDependencies();
+        if (tagDependencies == null) {
+            return true;
+        }
+        for (final CustomDataKey<?> tagDependency : tagDependencies) {
+            if (tags.contains(tagDependency)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Discards any member details assembled from the metadata with the given
+     * ID
+     * 
+     * @param metadataId the metadata ID
+     */
+    private void evictMemberDetails(final String metadataId) {
+        synchronized (memberDetailsCache) {
+            final Set<String> cacheKeys = cacheKeysByMetadataId
+                    .remove(metadataId);
+            if (cacheKeys == null) {
+                return;
+            }
+            for (final String cacheKey : cacheKeys) {
+                final CachedMemberDetails cached = memberDetailsCache
+                        .remove(cacheKey);
+                if (cached != null) {
+                    unindex(cacheKey, cached);
+                }
+            }
+        }
     }
 
     public final MemberDetails getMemberDetails(final String requestingClass,
@@ -129,103 +261,174 @@ public class MemberDetailsScannerImpl implements MemberDetailsScanner {
     		metadataService = getMetadataService();
     	}
     	
-    	if(providers.isEmpty()){
+    	if(metadataDependencyRegistry == null){
+    		metadataDependencyRegistry = getMetadataDependencyRegistry();
+    		if (metadataDependencyRegistry != null) {
+    		    metadataDependencyRegistry.addNotificationListener(this);
+    		}
+    	}
+    	
+    	if(providerList.isEmpty()){
     		bindProviders();
     	}
     	
-    	if(decorators.isEmpty()){
+    	if(decoratorList.isEmpty()){
     		bindDecorators();
     	}
     	
         if (cid == null) {
             return null;
         }
-        synchronized (lock) {
-            // Create a list of discovered members
-            final List<MemberHoldingTypeDetails> memberHoldingTypeDetails = new ArrayList<MemberHoldingTypeDetails>();
+        final List<MetadataProvider> currentProviders = providerList;
+        final List<MemberDetailsDecorator> currentDecorators = decoratorList;
 
-            // Build a List representing the class hierarchy, where the first
-            // element is the absolute superclass
-            final List<ClassOrInterfaceTypeDetails> cidHierarchy = new ArrayList<ClassOrInterfaceTypeDetails>();
-            while (cid != null) {
-                cidHierarchy.add(0, cid); // Note to the top of the list
-                cid = cid.getSuperclass();
-            }
+        // Create a list of discovered members
+        final List<MemberHoldingTypeDetails> memberHoldingTypeDetails = new ArrayList<MemberHoldingTypeDetails>();
+
+        // The instances the result is assembled from, and their metadata IDs
+        final List<Object> inputs = new ArrayList<Object>();
+        final Set<String> metadataIds = new HashSet<String>();
+
+        // Build a List representing the class hierarchy, where the first
+        // element is the absolute superclass
+        final String cacheKey = requestingClass + ">"
+                + cid.getDeclaredByMetadataId();
+        final List<ClassOrInterfaceTypeDetails> cidHierarchy = new ArrayList<ClassOrInterfaceTypeDetails>();
+        while (cid != null) {
+            cidHierarchy.add(0, cid); // Note to the top of the list
+            cid = cid.getSuperclass();
+        }
+
+        // Now we add this governor, plus all of its superclasses
+        for (final ClassOrInterfaceTypeDetails currentClass : cidHierarchy) {
+            memberHoldingTypeDetails.add(currentClass);
+            inputs.add(currentClass);
+            metadataIds.add(currentClass.getDeclaredByMetadataId());
+
+            // Locate all MetadataProvider instances that provide ITDs and
+            // thus MemberHoldingTypeDetails information
+            for (final MetadataProvider mp : currentProviders) {
+                // Skip non-ITD providers
+                if (!(mp instanceof ItdMetadataProvider)) {
+                    continue;
+                }
 
-            // Now we add this governor, plus all of its superclasses
-            for (final ClassOrInterfaceTypeDetails currentClass : cidHierarchy) {
-                memberHoldingTypeDetails.add(currentClass);
-
-                // Locate all MetadataProvider instances that provide ITDs and
-                // thus MemberHoldingTypeDetails information
-                for (final MetadataProvider mp : providers) {
-                    // Skip non-ITD providers
-                    if (!(mp instanceof ItdMetadataProvider)) {
-                        continue;
-                    }
-
-                    // Skip myself
-                    if (mp.getClass().getName().equals(requestingClass)) {
-                        continue;
-                    }
-
-                    // Determine the key the ITD provider uses for this
-                    // particular type
-                    final String key = ((ItdMetadataProvider) mp)
-                            .getIdForPhysicalJavaType(currentClass
-                                    .getDeclaredByMetadataId());
-                    Validate.isTrue(
-                            MetadataIdentificationUtils
-                                    .isIdentifyingInstance(key),
-                            "ITD metadata provider '%s' returned an illegal key ('%s')",
-                            mp, key);
-
-                    // Get the metadata and ensure we have ITD type details
-                    // available
-                    final MetadataItem metadataItem = metadataService.get(key);
-                    if (metadataItem == null || !metadataItem.isValid()) {
-                        continue;
-                    }
-                    Validate.isInstanceOf(
-                            ItdTypeDetailsProvidingMetadataItem.class,
-                            metadataItem,
-                            "ITD metadata provider '%s' failed to return the correct metadata type",
-                            mp);
-                    final ItdTypeDetailsProvidingMetadataItem itdTypeDetailsMd = (ItdTypeDetailsProvidingMetadataItem) metadataItem;
-                    if (itdTypeDetailsMd.getMemberHoldingTypeDetails() == null) {
-                        continue;
-                    }
-
-                    // Capture the member details
-                    memberHoldingTypeDetails.add(itdTypeDetailsMd
-                            .getMemberHoldingTypeDetails());
+                // Skip myself
+                if (mp.getClass().getName().equals(requestingClass)) {
+                    continue;
                 }
+
+                // Determine the key the ITD provider uses for this
+                // particular type
+                final String key = ((ItdMetadataProvider) mp)
+                        .getIdForPhysicalJavaType(currentClass
+                                .getDeclaredByMetadataId());
+                Validate.isTrue(
+                        MetadataIdentificationUtils
+                                .isIdentifyingInstance(key),
+                        "ITD metadata provider '%s' returned an illegal key ('%s')",
+                        mp, key);
+
+                // Get the metadata and ensure we have ITD type details
+                // available
+                final MetadataItem metadataItem = metadataService.get(key);
+                inputs.add(metadataItem);
+                metadataIds.add(key);
+                if (metadataItem == null || !metadataItem.isValid()) {
+                    continue;
+                }
+                Validate.isInstanceOf(
+                        ItdTypeDetailsProvidingMetadataItem.class,
+                        metadataItem,
+                        "ITD metadata provider '%s' failed to return the correct metadata type",
+                        mp);
+                final ItdTypeDetailsProvidingMetadataItem itdTypeDetailsMd = (ItdTypeDetailsProvidingMetadataItem) metadataItem;
+                if (itdTypeDetailsMd.getMemberHoldingTypeDetails() == null) {
+                    continue;
+                }
+
+                // Capture the member details
+                memberHoldingTypeDetails.add(itdTypeDetailsMd
+                        .getMemberHoldingTypeDetails());
             }
+        }
+
+        for (final MemberDetailsDecorator decorator : currentDecorators) {
+            inputs.add(decorator);
+            inputs.add(decorator.getVersion());
+        }
 
-            // Turn out list of discovered members into a result
-            MemberDetails result = new MemberDetailsImpl(
-                    memberHoldingTypeDetails);
-
-            // Loop until such time as we complete a full loop where no changes
-            // are made to the result
-            boolean additionalLoopRequired = true;
-            while (additionalLoopRequired) {
-                additionalLoopRequired = false;
-                for (final MemberDetailsDecorator decorator : decorators) {
-                    final MemberDetails newResult = decorator.decorate(
-                            requestingClass, result);
-                    Validate.isTrue(newResult != null,
-                            "Decorator '%s' returned an illegal result",
-                            decorator.getClass().getName());
-                    if (newResult != null && !newResult.equals(result)) {
-                        additionalLoopRequired = true;
-                    }
-                    result = newResult;
+        // Reuse the result of an earlier scan of exactly the same inputs
+        synchronized (memberDetailsCache) {
+            final CachedMemberDetails cached = memberDetailsCache
+                    .get(cacheKey);
+            if (cached != null && cached.isAssembledFrom(inputs)) {
+                return cached.memberDetails;
+            }
+        }
+
+        // Turn out list of discovered members into a result
+        MemberDetails result = new MemberDetailsImpl(memberHoldingTypeDetails);
+
+        // Apply every decorator once, then keep re-applying those that read
+        // the tags added in the previous round until a round adds no tags
+        Set<CustomDataKey<?>> addedTags = null;
+        while (addedTags == null || !addedTags.isEmpty()) {
+            final MemberDetailsBuilder memberDetailsBuilder = new MemberDetailsBuilder(
+                    result);
+            final Set<CustomDataKey<?>> tagsAddedThisRound = new HashSet<CustomDataKey<?>>();
+            for (final MemberDetailsDecorator decorator : currentDecorators) {
+                if (addedTags != null && !dependsOnAny(decorator, addedTags)) {
+                    continue;
                 }
+                final Set<CustomDataKey<?>> tags = decorator.decorate(
+                        requestingClass, result, memberDetailsBuilder);
+                Validate.isTrue(tags != null,
+                        "Decorator '%s' returned an illegal result",
+                        decorator.getClass().getName());
+                tagsAddedThisRound.addAll(tags);
+            }
+            if (!tagsAddedThisRound.isEmpty()) {
+                result = memberDetailsBuilder.build();
             }
+            addedTags = tagsAddedThisRound;
+        }
 
-            return result;
+        synchronized (memberDetailsCache) {
+            final CachedMemberDetails previous = memberDetailsCache.put(
+                    cacheKey, new CachedMemberDetails(inputs, metadataIds,
+                            result));
+            if (previous != null) {
+                unindex(cacheKey, previous);
+            }
+            for (final String metadataId : metadataIds) {
+                Set<String> cacheKeys = cacheKeysByMetadataId.get(metadataId);
+                if (cacheKeys == null) {
+                    cacheKeys = new HashSet<String>();
+                    cacheKeysByMetadataId.put(metadataId, cacheKeys);
+                }
+                cacheKeys.add(cacheKey);
+            }
         }
+
+        return result;
+    }
+
+    public MetadataDependencyRegistry getMetadataDependencyRegistry(){
+    	// Get all Services implement MetadataDependencyRegistry interface
+		try {
+			ServiceReference<?>[] references = this.context.getAllServiceReferences(MetadataDependencyRegistry.class.getName(), null);
+			
+			for(ServiceReference<?> ref : references){
+				return (MetadataDependencyRegistry) this.context.getService(ref);
+			}
+			
+			return null;
+			
+		} catch (InvalidSyntaxException e) {
+			LOGGER.warning("Cannot load MetadataDependencyRegistry on MemberDetailsScannerImpl.");
+			return null;
+		}
     }
 
     public MetadataService getMetadataService(){
@@ -244,4 +447,31 @@ public class MemberDetailsScannerImpl implements MemberDetailsScanner {
 			return null;
 		}
     }
-}
\ No newline at end of file
+
+    public void notify(final String upstreamDependency,
+            final String downstreamDependency) {
+        // Any change to metadata that member details were assembled from
+        // makes them out of date
+        evictMemberDetails(upstreamDependency);
+        if (downstreamDependency != null) {
+            evictMemberDetails(downstreamDependency);
+        }
+    }
+
+    /**
+     * Removes the given cache entry from the index by metadata ID; the caller
+     * must hold the cache's lock
+     */
+    private void unindex(final String cacheKey,
+            final CachedMemberDetails cached) {
+        for (final String metadataId : cached.metadataIds) {
+            final Set<String> cacheKeys = cacheKeysByMetadataId.get(metadataId);
+            if (cacheKeys != null) {
+                cacheKeys.remove(cacheKey);
+                if (cacheKeys.isEmpty()) {
+                    cacheKeysByMetadataId.remove(metadataId);
+                }
+            }
+        }
+    }
+}
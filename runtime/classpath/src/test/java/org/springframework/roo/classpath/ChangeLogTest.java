@@ -0,0 +1,113 @@
+package org.springframework.roo.classpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test of {@link ChangeLog}
+ * 
+ * @since 2.0.0
+ */
+public class ChangeLogTest {
+
+    private static final String CONSUMER_1 = "consumer1";
+    private static final String CONSUMER_2 = "consumer2";
+
+    // Fixture
+    private ChangeLog changeLog;
+
+    @Before
+    public void setUp() {
+        changeLog = new ChangeLog();
+    }
+
+    @Test
+    public void testCursorThatStopsPollingIsExpiredAndSeesAllKeys() {
+        // Set up
+        changeLog = new ChangeLog(4);
+        changeLog.pollChanges(CONSUMER_1);
+        changeLog.pollChanges(CONSUMER_2);
+        changeLog.recordChange("a");
+        changeLog.recordChange("b");
+        changeLog.recordRemoval("a");
+
+        // Invoke
+        for (int i = 0; i < 10; i++) {
+            changeLog.recordChange("c");
+            changeLog.pollChanges(CONSUMER_1);
+        }
+
+        // Check
+        assertTrue(changeLog.getEntryCount() <= 4);
+        assertEquals(new LinkedHashSet<String>(Arrays.asList("b", "c")),
+                changeLog.pollChanges(CONSUMER_2));
+        assertEquals(Collections.emptySet(), changeLog.pollChanges(CONSUMER_2));
+    }
+
+    @Test
+    public void testFirstPollSeesAllKeys() {
+        // Set up
+        changeLog.recordChange("a");
+        changeLog.recordChange("b");
+        changeLog.recordChange("c");
+        changeLog.recordRemoval("b");
+
+        // Invoke and check
+        assertEquals(new LinkedHashSet<String>(Arrays.asList("a", "c")),
+                changeLog.pollChanges(CONSUMER_1));
+        assertEquals(Collections.emptySet(), changeLog.pollChanges(CONSUMER_1));
+    }
+
+    @Test
+    public void testPollChangeConsumesOnlyThatKey() {
+        // Set up
+        changeLog.pollChanges(CONSUMER_1);
+        changeLog.recordChange("a");
+        changeLog.recordChange("b");
+
+        // Invoke and check
+        assertTrue(changeLog.pollChange(CONSUMER_1, "a"));
+        assertFalse(changeLog.pollChange(CONSUMER_1, "a"));
+        assertTrue(changeLog.pollChange(CONSUMER_1, "b"));
+    }
+
+    @Test
+    public void testRemovalWithdrawsPendingChange() {
+        // Set up
+        changeLog.pollChanges(CONSUMER_1);
+        changeLog.recordChange("a");
+        changeLog.recordRemoval("a");
+
+        // Invoke and check
+        assertFalse(changeLog.pollChange(CONSUMER_1, "a"));
+    }
+
+    @Test
+    public void testEntriesAreCompactedOnceAllCursorsHavePassed() {
+        // Set up
+        changeLog.pollChanges(CONSUMER_1);
+        changeLog.pollChanges(CONSUMER_2);
+        changeLog.recordChange("a");
+        changeLog.recordChange("b");
+
+        // Invoke
+        assertEquals(new LinkedHashSet<String>(Arrays.asList("a", "b")),
+                changeLog.pollChanges(CONSUMER_1));
+        changeLog.recordChange("c");
+
+        // Check
+        assertEquals(new LinkedHashSet<String>(Arrays.asList("a", "b", "c")),
+                changeLog.pollChanges(CONSUMER_2));
+        assertEquals(Collections.singleton("c"),
+                changeLog.pollChanges(CONSUMER_1));
+        assertEquals(3, changeLog.getSequence());
+    }
+}
@@ -0,0 +1,116 @@
+package org.springframework.roo.classpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.classpath.details.FieldMetadata;
+import org.springframework.roo.model.DataType;
+import org.springframework.roo.model.JavaType;
+
+/**
+ * Unit test of the hierarchy and field type indexes of {@link TypeCacheImpl}
+ * 
+ * @since 2.0.0
+ */
+public class TypeCacheImplTest {
+
+    private static final JavaType BASE = new JavaType("com.example.Base");
+    private static final JavaType OWNER = new JavaType("com.example.Owner");
+    private static final JavaType PET = new JavaType("com.example.Pet");
+    private static final String PET_MID = "MID:pet";
+    private static final JavaType SERIALIZABLE = new JavaType(
+            "java.io.Serializable");
+
+    // Fixture
+    private TypeCacheImpl typeCache;
+
+    @Before
+    public void setUp() {
+        typeCache = new TypeCacheImpl();
+    }
+
+    private ClassOrInterfaceTypeDetails getMockType(final String mid,
+            final JavaType name, final List<JavaType> extendsTypes,
+            final List<JavaType> implementsTypes, final JavaType... fieldTypes) {
+        final ClassOrInterfaceTypeDetails mockType = mock(ClassOrInterfaceTypeDetails.class);
+        when(mockType.getDeclaredByMetadataId()).thenReturn(mid);
+        when(mockType.getName()).thenReturn(name);
+        when(mockType.getExtendsTypes()).thenReturn(extendsTypes);
+        when(mockType.getImplementsTypes()).thenReturn(implementsTypes);
+        final List<FieldMetadata> fields = new ArrayList<FieldMetadata>();
+        for (final JavaType fieldType : fieldTypes) {
+            final FieldMetadata mockField = mock(FieldMetadata.class);
+            when(mockField.getFieldType()).thenReturn(fieldType);
+            fields.add(mockField);
+        }
+        doReturn(fields).when(mockType).getDeclaredFields();
+        return mockType;
+    }
+
+    @Test
+    public void testIndexesAreUpdatedWhenTypeChanges() {
+        // Set up
+        typeCache.cacheType("Pet.java", getMockType(PET_MID, PET,
+                Arrays.asList(BASE), Arrays.asList(SERIALIZABLE), OWNER));
+
+        // Invoke
+        typeCache.cacheType("Pet.java", getMockType(PET_MID, PET,
+                Collections.<JavaType> emptyList(),
+                Arrays.asList(SERIALIZABLE)));
+
+        // Check
+        assertTrue(typeCache.getTypeIdentifiersExtending(BASE).isEmpty());
+        assertEquals(Collections.singleton(PET_MID),
+                typeCache.getTypeIdentifiersImplementing(SERIALIZABLE));
+        assertTrue(typeCache.getTypeIdentifiersWithFieldOfType(OWNER)
+                .isEmpty());
+    }
+
+    @Test
+    public void testIndexesAreClearedWhenTypeIsRemoved() {
+        // Set up
+        typeCache.cacheType("Pet.java", getMockType(PET_MID, PET,
+                Arrays.asList(BASE), Arrays.asList(SERIALIZABLE), OWNER));
+
+        // Invoke
+        typeCache.removeType(PET_MID);
+
+        // Check
+        assertTrue(typeCache.getTypeIdentifiersExtending(BASE).isEmpty());
+        assertTrue(typeCache.getTypeIdentifiersImplementing(SERIALIZABLE)
+                .isEmpty());
+        assertTrue(typeCache.getTypeIdentifiersWithFieldOfType(OWNER)
+                .isEmpty());
+    }
+
+    @Test
+    public void testTypeIsIndexedAgainstGenericFieldTypeParameters() {
+        // Set up
+        final JavaType setOfOwners = new JavaType("java.util.Set", 0,
+                DataType.TYPE, null, Arrays.asList(OWNER));
+
+        // Invoke
+        typeCache.cacheType("Pet.java", getMockType(PET_MID, PET,
+                Arrays.asList(BASE), Arrays.asList(SERIALIZABLE), setOfOwners));
+
+        // Check
+        assertEquals(Collections.singleton(PET_MID),
+                typeCache.getTypeIdentifiersExtending(BASE));
+        assertEquals(Collections.singleton(PET_MID),
+                typeCache.getTypeIdentifiersWithFieldOfType(OWNER));
+        assertEquals(Collections.singleton(PET_MID),
+                typeCache.getTypeIdentifiersWithFieldOfType(new JavaType(
+                        "java.util.Set")));
+    }
+}
@@ -0,0 +1,132 @@
+package org.springframework.roo.classpath.customdata.taggers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.roo.classpath.customdata.CustomDataKeys.IDENTIFIER_ACCESSOR_METHOD;
+import static org.springframework.roo.classpath.customdata.CustomDataKeys.IDENTIFIER_FIELD;
+import static org.springframework.roo.classpath.customdata.CustomDataKeys.NO_ARG_CONSTRUCTOR;
+import static org.springframework.roo.classpath.customdata.CustomDataKeys.PERSISTENT_TYPE;
+import static org.springframework.roo.classpath.details.annotations.AnnotationMetadataBuilder.JPA_ID_ANNOTATION;
+
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.roo.classpath.PhysicalTypeCategory;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetailsBuilder;
+import org.springframework.roo.classpath.details.ConstructorMetadataBuilder;
+import org.springframework.roo.classpath.details.FieldMetadataBuilder;
+import org.springframework.roo.classpath.details.MemberHoldingTypeDetails;
+import org.springframework.roo.classpath.details.MethodMetadataBuilder;
+import org.springframework.roo.classpath.details.annotations.AnnotationMetadataBuilder;
+import org.springframework.roo.classpath.itd.InvocableMemberBodyBuilder;
+import org.springframework.roo.classpath.scanner.MemberDetails;
+import org.springframework.roo.classpath.scanner.MemberDetailsBuilder;
+import org.springframework.roo.model.CustomDataKey;
+import org.springframework.roo.model.JavaSymbolName;
+import org.springframework.roo.model.JavaType;
+
+/**
+ * Unit test of {@link CustomDataKeyDecoratorImpl}
+ * 
+ * @since 2.0.0
+ */
+public class CustomDataKeyDecoratorImplTest {
+
+    private static final JavaType ENTITY = new JavaType(
+            "javax.persistence.Entity");
+    private static final String PET_MID = "MID:org.springframework.roo.classpath.PhysicalTypeIdentifier#SRC_MAIN_JAVA?com.example.Pet";
+
+    // Fixture
+    private CustomDataKeyDecoratorImpl decorator;
+    private MemberDetails memberDetails;
+
+    @Before
+    public void setUp() {
+        decorator = new CustomDataKeyDecoratorImpl();
+
+        final ClassOrInterfaceTypeDetailsBuilder cidBuilder = new ClassOrInterfaceTypeDetailsBuilder(
+                PET_MID, Modifier.PUBLIC, new JavaType("com.example.Pet"),
+                PhysicalTypeCategory.CLASS);
+        cidBuilder.addAnnotation(new AnnotationMetadataBuilder(ENTITY));
+        cidBuilder.addConstructor(new ConstructorMetadataBuilder(PET_MID));
+        final FieldMetadataBuilder idBuilder = new FieldMetadataBuilder(
+                PET_MID, Modifier.PRIVATE, new JavaSymbolName("id"),
+                JavaType.LONG_OBJECT, null);
+        idBuilder.addAnnotation(JPA_ID_ANNOTATION);
+        cidBuilder.addField(idBuilder);
+        cidBuilder.addField(new FieldMetadataBuilder(PET_MID,
+                Modifier.PRIVATE, new JavaSymbolName("name"),
+                JavaType.STRING, null));
+        for (final String methodName : Arrays.asList("getId", "getName")) {
+            cidBuilder.addMethod(new MethodMetadataBuilder(PET_MID,
+                    Modifier.PUBLIC, new JavaSymbolName(methodName),
+                    JavaType.OBJECT, InvocableMemberBodyBuilder.getInstance()
+                            .appendFormalLine("return null;")));
+        }
+        memberDetails = new MemberDetailsBuilder(
+                Arrays.<MemberHoldingTypeDetails> asList(cidBuilder.build()))
+                .build();
+    }
+
+    private void registerMatchers() {
+        decorator.registerMatchers(getClass(), FieldMatcher.JPA_ID,
+                new MethodMatcher(Arrays.asList(FieldMatcher.JPA_ID),
+                        IDENTIFIER_ACCESSOR_METHOD, true),
+                new ConstructorMatcher(NO_ARG_CONSTRUCTOR),
+                new AnnotatedTypeMatcher(PERSISTENT_TYPE, ENTITY));
+    }
+
+    @Test
+    public void testDecorateTagsMatchingMembers() {
+        // Set up
+        registerMatchers();
+        final MemberDetailsBuilder memberDetailsBuilder = new MemberDetailsBuilder(
+                memberDetails);
+
+        // Invoke
+        final Set<CustomDataKey<?>> addedTags = decorator.decorate(
+                getClass().getName(), memberDetails, memberDetailsBuilder);
+
+        // Check
+        assertEquals(new HashSet<CustomDataKey<?>>(Arrays.asList(
+                IDENTIFIER_FIELD, IDENTIFIER_ACCESSOR_METHOD,
+                NO_ARG_CONSTRUCTOR, PERSISTENT_TYPE)), addedTags);
+        final MemberDetails decorated = memberDetailsBuilder.build();
+        assertEquals(1, decorated.getFieldsWithTag(IDENTIFIER_FIELD).size());
+        assertEquals("id", decorated.getFieldsWithTag(IDENTIFIER_FIELD).get(0)
+                .getFieldName().getSymbolName());
+        assertEquals("getId",
+                decorated.getMostConcreteMethodWithTag(
+                        IDENTIFIER_ACCESSOR_METHOD).getMethodName()
+                        .getSymbolName());
+        assertTrue(decorated.getConstructors().get(0).getCustomData()
+                .keySet().contains(NO_ARG_CONSTRUCTOR));
+        assertTrue(decorated.getDetails().get(0).getCustomData().keySet()
+                .contains(PERSISTENT_TYPE));
+
+        // Decorating the result adds nothing more
+        assertTrue(decorator.decorate(getClass().getName(), decorated,
+                new MemberDetailsBuilder(decorated)).isEmpty());
+    }
+
+    @Test
+    public void testUnregisteredMatchersNoLongerApply() {
+        // Set up
+        registerMatchers();
+        final long version = decorator.getVersion();
+
+        // Invoke
+        decorator.unregisterMatchers(getClass());
+
+        // Check
+        assertFalse(version == decorator.getVersion());
+        assertTrue(decorator.getFieldTaggers().isEmpty());
+        assertTrue(decorator.decorate(getClass().getName(), memberDetails,
+                new MemberDetailsBuilder(memberDetails)).isEmpty());
+    }
+}
@@ -1,6 +1,8 @@
 package org.springframework.roo.classpath.details;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -8,9 +10,11 @@ import static org.mockito.Mockito.when;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.roo.model.JavaSymbolName;
 import org.springframework.roo.model.JavaType;
 
 /**
@@ -158,4 +162,33 @@ public class AbstractMemberHoldingTypeDetailsBuilderTest {
         assertEquals(Arrays.asList(mockInnerType1, mockInnerType2),
                 builder.getDeclaredInnerTypes());
     }
+
+    @Test
+    public void testBuildReturnsMembersAddedAsIs() {
+        // Set up
+        final FieldMetadata builtField = new FieldMetadataBuilder(
+                DECLARED_BY_MID, 0, new JavaSymbolName("name"),
+                JavaType.STRING, null).build();
+        final MethodMetadata builtMethod = new MethodMetadataBuilder(
+                DECLARED_BY_MID, 0, new JavaSymbolName("getName"),
+                JavaType.STRING, null).build();
+        final ConstructorMetadata builtConstructor = new ConstructorMetadataBuilder(
+                DECLARED_BY_MID).build();
+
+        // Invoke
+        builder.addBuiltField(builtField);
+        builder.addField(builtField);
+        builder.addBuiltMethod(builtMethod);
+        builder.addBuiltConstructor(builtConstructor);
+
+        // Check
+        final List<FieldMetadata> fields = builder.buildFields();
+        assertEquals(2, fields.size());
+        assertSame(builtField, fields.get(0));
+        assertNotSame(builtField, fields.get(1));
+        assertEquals(Collections.singletonList(builtMethod),
+                builder.buildMethods());
+        assertEquals(Collections.singletonList(builtConstructor),
+                builder.buildConstructors());
+    }
 }
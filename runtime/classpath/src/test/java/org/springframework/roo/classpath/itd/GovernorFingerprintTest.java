@@ -0,0 +1,92 @@
+package org.springframework.roo.classpath.itd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.Modifier;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.springframework.roo.classpath.PhysicalTypeCategory;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetailsBuilder;
+import org.springframework.roo.classpath.details.FieldMetadataBuilder;
+import org.springframework.roo.classpath.details.MethodMetadataBuilder;
+import org.springframework.roo.classpath.details.annotations.AnnotationMetadataBuilder;
+import org.springframework.roo.model.JavaSymbolName;
+import org.springframework.roo.model.JavaType;
+
+/**
+ * Unit test of {@link GovernorFingerprint}
+ * 
+ * @since 2.0.0
+ */
+public class GovernorFingerprintTest {
+
+    private static final Set<GovernorProjection> FIELDS = EnumSet
+            .of(GovernorProjection.FIELDS);
+    private static final String PET_MID = "MID:org.springframework.roo.classpath.PhysicalTypeIdentifier#SRC_MAIN_JAVA?com.example.Pet";
+
+    private ClassOrInterfaceTypeDetails getPet(final String fieldName,
+            final String methodBody, final String tableName) {
+        final ClassOrInterfaceTypeDetailsBuilder cidBuilder = new ClassOrInterfaceTypeDetailsBuilder(
+                PET_MID, Modifier.PUBLIC, new JavaType("com.example.Pet"),
+                PhysicalTypeCategory.CLASS);
+        final AnnotationMetadataBuilder table = new AnnotationMetadataBuilder(
+                new JavaType("javax.persistence.Table"));
+        table.addStringAttribute("name", tableName);
+        cidBuilder.addAnnotation(table);
+        cidBuilder.addField(new FieldMetadataBuilder(PET_MID,
+                Modifier.PRIVATE, new JavaSymbolName(fieldName),
+                JavaType.STRING, null));
+        final MethodMetadataBuilder method = new MethodMetadataBuilder(
+                PET_MID, Modifier.PUBLIC, new JavaSymbolName("describe"),
+                JavaType.STRING, InvocableMemberBodyBuilder.getInstance()
+                        .appendFormalLine(methodBody));
+        cidBuilder.addMethod(method);
+        return cidBuilder.build();
+    }
+
+    @Test
+    public void testMethodBodiesAreIgnored() {
+        assertEquals(
+                GovernorFingerprint.of(getPet("name", "return name;", "pet"),
+                        FIELDS),
+                GovernorFingerprint.of(
+                        getPet("name", "return \"Pet\";", "pet"), FIELDS));
+    }
+
+    @Test
+    public void testProjectedMembersAreIncluded() {
+        final String fingerprint = GovernorFingerprint.of(
+                getPet("name", "", "pet"), FIELDS);
+        assertNotNull(fingerprint);
+        assertFalse(fingerprint.equals(GovernorFingerprint.of(
+                getPet("nickname", "", "pet"), FIELDS)));
+    }
+
+    @Test
+    public void testMembersOutsideProjectionAreIgnored() {
+        final Set<GovernorProjection> none = EnumSet
+                .noneOf(GovernorProjection.class);
+        assertEquals(GovernorFingerprint.of(getPet("name", "", "pet"), none),
+                GovernorFingerprint.of(getPet("nickname", "", "pet"), none));
+    }
+
+    @Test
+    public void testAnnotationsAreAlwaysIncluded() {
+        final Set<GovernorProjection> none = EnumSet
+                .noneOf(GovernorProjection.class);
+        assertFalse(GovernorFingerprint.of(getPet("name", "", "pet"), none)
+                .equals(GovernorFingerprint.of(getPet("name", "", "pets"),
+                        none)));
+    }
+
+    @Test
+    public void testMissingGovernorHasNoFingerprint() {
+        assertNull(GovernorFingerprint.of(null, FIELDS));
+    }
+}
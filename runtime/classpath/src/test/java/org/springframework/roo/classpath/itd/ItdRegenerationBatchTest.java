@@ -0,0 +1,135 @@
+package org.springframework.roo.classpath.itd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.roo.classpath.PhysicalTypeCategory;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetailsBuilder;
+import org.springframework.roo.classpath.details.FieldMetadataBuilder;
+import org.springframework.roo.classpath.details.ItdTypeDetails;
+import org.springframework.roo.classpath.details.ItdTypeDetailsBuilder;
+import org.springframework.roo.model.JavaSymbolName;
+import org.springframework.roo.model.JavaType;
+
+/**
+ * Unit test of {@link ItdRegenerationBatch}
+ * 
+ * @since 2.0.0
+ */
+public class ItdRegenerationBatchTest {
+
+    private static final String BAD_ITD = "bad.aj";
+    private static final String ITD_MID = "MID:com.example.Itd#SRC_MAIN_JAVA?com.example.Pet";
+    private static final String PET_MID = "MID:org.springframework.roo.classpath.PhysicalTypeIdentifier#SRC_MAIN_JAVA?com.example.Pet";
+
+    // Fixture
+    private ItdRegenerationBatch batch;
+    private final List<String> failedItds = new ArrayList<String>();
+    private final List<String> writtenItds = new ArrayList<String>();
+    private final ItdRegenerationBatch.ItdWriter writer = new ItdRegenerationBatch.ItdWriter() {
+        public void failed(final String itdFilename) {
+            failedItds.add(itdFilename);
+        }
+
+        public void write(final String itdFilename,
+                final ItdSourceFileComposer composer) {
+            assertTrue(composer.isContent());
+            if (BAD_ITD.equals(itdFilename)) {
+                throw new IllegalStateException("Unable to write "
+                        + itdFilename);
+            }
+            writtenItds.add(itdFilename);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        batch = ItdRegenerationBatch.open(2);
+    }
+
+    @After
+    public void tearDown() {
+        batch.close();
+    }
+
+    private ItdTypeDetails getItd() {
+        final ClassOrInterfaceTypeDetails governor = new ClassOrInterfaceTypeDetailsBuilder(
+                PET_MID, Modifier.PUBLIC, new JavaType("com.example.Pet"),
+                PhysicalTypeCategory.CLASS).build();
+        final ItdTypeDetailsBuilder builder = new ItdTypeDetailsBuilder(
+                ITD_MID, governor, new JavaType("com.example.Pet_Roo_Itd"),
+                false);
+        builder.addField(new FieldMetadataBuilder(ITD_MID, Modifier.PRIVATE,
+                new JavaSymbolName("name"), JavaType.STRING, null));
+        return builder.build();
+    }
+
+    @Test
+    public void testItdsAreWrittenInOrderOfFilename() {
+        // Set up
+        batch.compose("c.aj", getItd(), writer);
+        batch.compose("a.aj", getItd(), writer);
+        batch.compose("b.aj", getItd(), writer);
+
+        // Invoke
+        batch.commit();
+
+        // Check
+        assertEquals(Arrays.asList("a.aj", "b.aj", "c.aj"), writtenItds);
+    }
+
+    @Test
+    public void testDiscardedAndRecomposedItdsAreWrittenOnce() {
+        // Set up
+        batch.compose("a.aj", getItd(), writer);
+        batch.compose("a.aj", getItd(), writer);
+        batch.compose("b.aj", getItd(), writer);
+        batch.discard("b.aj");
+
+        // Invoke
+        batch.commit();
+        batch.commit();
+
+        // Check
+        assertEquals(Arrays.asList("a.aj"), writtenItds);
+    }
+
+    @Test
+    public void testFailedItdDoesNotStopTheOthersBeingWritten() {
+        // Set up
+        batch.compose("a.aj", getItd(), writer);
+        batch.compose(BAD_ITD, getItd(), writer);
+        batch.compose("c.aj", getItd(), writer);
+
+        // Invoke
+        try {
+            batch.commit();
+            fail("Expected the failure to write " + BAD_ITD);
+        }
+        catch (final IllegalStateException expected) {
+        }
+
+        // Check
+        assertEquals(Arrays.asList("a.aj", "c.aj"), writtenItds);
+        assertEquals(Arrays.asList(BAD_ITD), failedItds);
+    }
+
+    @Test
+    public void testBatchIsCurrentUntilClosed() {
+        assertSame(batch, ItdRegenerationBatch.getCurrent());
+        batch.close();
+        assertNull(ItdRegenerationBatch.getCurrent());
+    }
+}
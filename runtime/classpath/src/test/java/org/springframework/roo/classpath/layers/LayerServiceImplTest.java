@@ -0,0 +1,108 @@
+package org.springframework.roo.classpath.layers;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.roo.classpath.TypeLocationService;
+import org.springframework.roo.model.JavaType;
+
+/**
+ * Unit test of {@link LayerServiceImpl}
+ * 
+ * @since 2.0.0
+ */
+public class LayerServiceImplTest {
+
+    private static final String CALLER_MID = "MID:com.example.Caller#SRC_MAIN_JAVA?com.example.PetController";
+    private static final String METHOD_ID = "findAll";
+    private static final JavaType PET = new JavaType("com.example.Pet");
+
+    // Fixture
+    private final MemberTypeAdditions additions = new MemberTypeAdditions(
+            null, METHOD_ID, "petService.findAll()", false, null);
+    private LayerServiceImpl layerService;
+    @Mock private LayerProvider mockLayerProvider;
+    @Mock private TypeLocationService mockTypeLocationService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        layerService = new LayerServiceImpl();
+        layerService.typeLocationService = mockTypeLocationService;
+        when(mockLayerProvider.getLayerPosition()).thenReturn(
+                LayerType.SERVICE.getPosition());
+        layerService.bindLayerProvider(mockLayerProvider);
+    }
+
+    private MemberTypeAdditions getAdditions() {
+        return layerService.getMemberTypeAdditions(CALLER_MID, METHOD_ID, PET,
+                JavaType.LONG_OBJECT, LayerType.HIGHEST.getPosition());
+    }
+
+    @Test
+    public void testRepeatedRequestIsAnsweredFromCache() {
+        // Set up
+        when(
+                mockLayerProvider.getMemberTypeAdditions(CALLER_MID,
+                        METHOD_ID, PET, JavaType.LONG_OBJECT, true))
+                .thenReturn(additions);
+
+        // Invoke
+        final MemberTypeAdditions first = getAdditions();
+        final MemberTypeAdditions second = getAdditions();
+
+        // Check
+        assertSame(additions, first);
+        assertSame(additions, second);
+        verify(mockLayerProvider, times(1)).getMemberTypeAdditions(
+                CALLER_MID, METHOD_ID, PET, JavaType.LONG_OBJECT, true);
+        assertTrue(layerService.toString().endsWith(
+                "[cacheHits=1,cacheMisses=1,cacheCurrentSize=1]"));
+    }
+
+    @Test
+    public void testCacheIsClearedWhenTypesChange() {
+        // Set up
+        assertNull(getAdditions());
+        when(mockTypeLocationService.getChangedTypes(LayerServiceImpl.class
+                .getName())).thenReturn(
+                Collections.singleton(PET.getFullyQualifiedTypeName()));
+
+        // Invoke
+        assertNull(getAdditions());
+
+        // Check
+        verify(mockLayerProvider, times(2)).getMemberTypeAdditions(
+                CALLER_MID, METHOD_ID, PET, JavaType.LONG_OBJECT, true);
+    }
+
+    @Test
+    public void testCacheIsClearedWhenProvidersChange() {
+        // Set up
+        assertNull(getAdditions());
+        final LayerProvider otherLayerProvider = mock(LayerProvider.class);
+        when(otherLayerProvider.getLayerPosition()).thenReturn(
+                LayerType.REPOSITORY.getPosition());
+        when(
+                otherLayerProvider.getMemberTypeAdditions(CALLER_MID,
+                        METHOD_ID, PET, JavaType.LONG_OBJECT, true))
+                .thenReturn(additions);
+
+        // Invoke
+        layerService.bindLayerProvider(otherLayerProvider);
+
+        // Check
+        assertSame(additions, getAdditions());
+    }
+}
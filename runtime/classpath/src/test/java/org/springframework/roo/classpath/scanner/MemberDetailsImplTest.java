@@ -0,0 +1,156 @@
+package org.springframework.roo.classpath.scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.springframework.roo.classpath.customdata.CustomDataKeys.IDENTIFIER_ACCESSOR_METHOD;
+import static org.springframework.roo.classpath.customdata.CustomDataKeys.IDENTIFIER_FIELD;
+
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.roo.classpath.PhysicalTypeCategory;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetailsBuilder;
+import org.springframework.roo.classpath.details.FieldMetadata;
+import org.springframework.roo.classpath.details.FieldMetadataBuilder;
+import org.springframework.roo.classpath.details.MethodMetadata;
+import org.springframework.roo.classpath.details.MethodMetadataBuilder;
+import org.springframework.roo.classpath.details.annotations.AnnotatedJavaType;
+import org.springframework.roo.classpath.details.annotations.AnnotationMetadataBuilder;
+import org.springframework.roo.classpath.itd.InvocableMemberBodyBuilder;
+import org.springframework.roo.model.JavaSymbolName;
+import org.springframework.roo.model.JavaType;
+
+/**
+ * Unit test of the member lookups of {@link MemberDetailsImpl}
+ * 
+ * @since 2.0.0
+ */
+public class MemberDetailsImplTest {
+
+    private static final JavaType BASE = new JavaType("com.example.Base");
+    private static final String BASE_MID = "MID:org.springframework.roo.classpath.PhysicalTypeIdentifier#SRC_MAIN_JAVA?com.example.Base";
+    private static final JavaType ENTITY = new JavaType(
+            "javax.persistence.Entity");
+    private static final int MEMBERS_PER_TYPE = 100;
+    private static final JavaType PET = new JavaType("com.example.Pet");
+    private static final String PET_MID = "MID:org.springframework.roo.classpath.PhysicalTypeIdentifier#SRC_MAIN_JAVA?com.example.Pet";
+
+    // Fixture
+    private MemberDetails memberDetails;
+
+    @Before
+    public void setUp() {
+        final ClassOrInterfaceTypeDetails base = getType(BASE_MID, BASE);
+        final ClassOrInterfaceTypeDetails pet = getType(PET_MID, PET);
+        memberDetails = new MemberDetailsImpl(Arrays.asList(base, pet));
+    }
+
+    /**
+     * Returns a type with fields "field0" onwards, of which the first is
+     * tagged as an ID, and setters "setField0" onwards, each of which is
+     * overloaded to take either a String or an int
+     */
+    private ClassOrInterfaceTypeDetails getType(final String mid,
+            final JavaType name) {
+        final ClassOrInterfaceTypeDetailsBuilder cidBuilder = new ClassOrInterfaceTypeDetailsBuilder(
+                mid, Modifier.PUBLIC, name, PhysicalTypeCategory.CLASS);
+        cidBuilder.addAnnotation(new AnnotationMetadataBuilder(ENTITY));
+        for (int i = 0; i < MEMBERS_PER_TYPE / 2; i++) {
+            final FieldMetadataBuilder fieldBuilder = new FieldMetadataBuilder(
+                    mid, Modifier.PRIVATE, new JavaSymbolName("field" + i),
+                    JavaType.STRING, null);
+            if (i == 0) {
+                fieldBuilder.putCustomData(IDENTIFIER_FIELD, null);
+            }
+            cidBuilder.addField(fieldBuilder);
+            for (final JavaType parameterType : Arrays.asList(
+                    JavaType.STRING, JavaType.INT_PRIMITIVE)) {
+                final MethodMetadataBuilder methodBuilder = new MethodMetadataBuilder(
+                        mid, Modifier.PUBLIC,
+                        new JavaSymbolName("setField" + i),
+                        JavaType.VOID_PRIMITIVE,
+                        Arrays.asList(new AnnotatedJavaType(parameterType)),
+                        Arrays.asList(new JavaSymbolName("value")),
+                        InvocableMemberBodyBuilder.getInstance());
+                if (i == 0 && parameterType.equals(JavaType.STRING)) {
+                    methodBuilder.putCustomData(IDENTIFIER_ACCESSOR_METHOD,
+                            null);
+                }
+                cidBuilder.addMethod(methodBuilder);
+            }
+        }
+        return cidBuilder.build();
+    }
+
+    @Test
+    public void testGetMembersReturnsAllMembersInOrder() {
+        // Invoke
+        final List<FieldMetadata> fields = memberDetails.getFields();
+        final List<MethodMetadata> methods = memberDetails.getMethods();
+
+        // Check
+        assertEquals(MEMBERS_PER_TYPE, fields.size());
+        assertEquals(BASE_MID, fields.get(0).getDeclaredByMetadataId());
+        assertEquals(PET_MID, fields.get(MEMBERS_PER_TYPE - 1)
+                .getDeclaredByMetadataId());
+        assertEquals(MEMBERS_PER_TYPE * 2, methods.size());
+        assertEquals(Collections.emptyList(), memberDetails.getConstructors());
+    }
+
+    @Test
+    public void testGetMethodFindsFirstMatchingSignature() {
+        // Set up
+        final JavaSymbolName methodName = new JavaSymbolName("setField7");
+        final List<JavaType> parameters = Arrays.asList(JavaType.INT_PRIMITIVE);
+
+        // Invoke
+        final MethodMetadata method = memberDetails.getMethod(methodName,
+                parameters);
+
+        // Check
+        assertEquals(BASE_MID, method.getDeclaredByMetadataId());
+        assertEquals(JavaType.INT_PRIMITIVE, method.getParameterTypes().get(0)
+                .getJavaType());
+        assertEquals(PET_MID,
+                memberDetails.getMethod(methodName, parameters, BASE_MID)
+                        .getDeclaredByMetadataId());
+        assertSame(memberDetails.getMethods().get(14),
+                memberDetails.getMethod(methodName));
+        assertNull(memberDetails.getMethod(methodName, null));
+        assertNull(memberDetails.getMethod(new JavaSymbolName("getField7")));
+    }
+
+    @Test
+    public void testGetMembersWithTag() {
+        // Invoke
+        final List<FieldMetadata> idFields = memberDetails
+                .getFieldsWithTag(IDENTIFIER_FIELD);
+        final List<MethodMetadata> idAccessors = memberDetails
+                .getMethodsWithTag(IDENTIFIER_ACCESSOR_METHOD);
+
+        // Check
+        assertEquals(2, idFields.size());
+        assertEquals(BASE_MID, idFields.get(0).getDeclaredByMetadataId());
+        assertEquals(2, idAccessors.size());
+        assertSame(idAccessors.get(0),
+                memberDetails
+                        .getMostConcreteMethodWithTag(IDENTIFIER_ACCESSOR_METHOD));
+        assertEquals(Collections.emptyList(),
+                memberDetails.getMethodsWithTag(IDENTIFIER_FIELD));
+    }
+
+    @Test
+    public void testGetAnnotation() {
+        // Invoke and check
+        assertEquals(ENTITY, memberDetails.getAnnotation(ENTITY)
+                .getAnnotationType());
+        assertNull(memberDetails.getAnnotation(new JavaType(
+                "javax.persistence.Embeddable")));
+    }
+}
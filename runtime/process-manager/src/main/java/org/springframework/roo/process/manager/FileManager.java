@@ -7,6 +7,7 @@ import org.springframework.roo.file.monitor.FileMonitorService;
 import org.springframework.roo.file.monitor.NotifiableFileMonitorService;
 import org.springframework.roo.file.monitor.event.FileDetails;
 import org.springframework.roo.file.undo.UndoManager;
+import org.w3c.dom.Document;
 
 /**
  * Represents the primary means for add-ons to modify the underlying disk
@@ -198,6 +199,20 @@ public interface FileManager {
      */
     InputStream getInputStream(String fileIdentifier);
 
+    /**
+     * Obtains the DOM of the indicated XML file for modification in place.
+     * Until the deferred changes are committed or cleared, every caller gets
+     * the same instance, so that a series of changes to one file is parsed
+     * once and serialized once, rather than once per change. Callers must
+     * invoke {@link #updateXmlDocument(String, String)} after changing it.
+     * 
+     * @param fileIdentifier the XML file to read (required, in canonical path
+     *            format)
+     * @return the document (never null)
+     * @since 2.0.0
+     */
+    Document getXmlDocument(String fileIdentifier);
+
     /**
      * Obtains an already-existing file for reading. The path should be in
      * canonical file name format.
@@ -230,4 +245,17 @@ public interface FileManager {
      * @return a mutable presentation (never null)
      */
     MutableFile updateFile(String fileIdentifier);
+
+    /**
+     * Indicates that the document obtained from
+     * {@link #getXmlDocument(String)} has been changed. The file is written
+     * with the document's contents when deferred changes are committed; until
+     * then, {@link #getInputStream(String)} returns those contents.
+     * 
+     * @param fileIdentifier the XML file that was changed (required, in
+     *            canonical path format)
+     * @param descriptionOfChange a description of the change (can be blank)
+     * @since 2.0.0
+     */
+    void updateXmlDocument(String fileIdentifier, String descriptionOfChange);
 }
\ No newline at end of file
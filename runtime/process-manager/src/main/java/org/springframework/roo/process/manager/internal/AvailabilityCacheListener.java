@@ -0,0 +1,39 @@
+package org.springframework.roo.process.manager.internal;
+
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Reference;
+import org.osgi.service.component.ComponentContext;
+import org.springframework.roo.process.manager.ProcessManager;
+import org.springframework.roo.process.manager.event.ProcessManagerStatus;
+import org.springframework.roo.process.manager.event.ProcessManagerStatusListener;
+import org.springframework.roo.process.manager.event.ProcessManagerStatusProvider;
+import org.springframework.roo.shell.Parser;
+
+/**
+ * Clears the shell's cached availability indicator results whenever the
+ * {@link ProcessManager} changes status, i.e. around each transaction it runs
+ * (commands, including changes of module focus, background polls and undos),
+ * as any of them may have changed the project those indicators inspect.
+ * 
+ * @since 2.0.0
+ */
+@Component
+public class AvailabilityCacheListener implements ProcessManagerStatusListener {
+
+    @Reference private Parser parser;
+    @Reference private ProcessManagerStatusProvider processManagerStatusProvider;
+
+    protected void activate(final ComponentContext context) {
+        processManagerStatusProvider.addProcessManagerStatusListener(this);
+    }
+
+    protected void deactivate(final ComponentContext context) {
+        processManagerStatusProvider.removeProcessManagerStatusListener(this);
+    }
+
+    public void onProcessManagerStatusChange(
+            final ProcessManagerStatus oldStatus,
+            final ProcessManagerStatus newStatus) {
+        parser.clearAvailabilityCache();
+    }
+}
@@ -7,14 +7,25 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.logging.Logger;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.felix.scr.annotations.Component;
@@ -39,6 +50,8 @@ import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
 import org.springframework.roo.support.logging.HandlerUtils;
+import org.springframework.roo.support.util.XmlUtils;
+import org.w3c.dom.Document;
 
 /**
  * Default implementation of {@link FileManager}.
@@ -50,12 +63,45 @@ import org.springframework.roo.support.logging.HandlerUtils;
 @Service
 public class DefaultFileManager implements FileManager, UndoListener {
 
+    /**
+     * The digest of the contents this class last wrote to a file, along with
+     * the size and timestamp the file had straight afterwards
+     */
+    private static class WrittenFile {
+        private final byte[] digest;
+        private final long lastModified;
+        private final long length;
+
+        private WrittenFile(final File file, final byte[] digest) {
+            this.digest = digest;
+            lastModified = file.lastModified();
+            length = file.length();
+        }
+
+        /**
+         * Indicates whether the given file still has exactly the contents with
+         * the given digest, i.e. it hasn't been touched since it was written
+         * and those contents are the ones that were written
+         */
+        private boolean hasContents(final File file, final byte[] digest) {
+            return file.lastModified() == lastModified
+                    && file.length() == length
+                    && Arrays.equals(this.digest, digest);
+        }
+    }
+
 	protected final static Logger LOGGER = HandlerUtils.getLogger(DefaultFileManager.class);
 	
     /** key: file identifier, value: new description of change */
     private final Map<String, String> deferredDescriptionOfChanges = new LinkedHashMap<String, String>();
     /** key: file identifier, value: new textual content */
     private final Map<String, String> deferredFileWrites = new LinkedHashMap<String, String>();
+    /** the XML files whose DOM has changed since it was last serialized */
+    private final Set<String> changedXmlDocuments = new LinkedHashSet<String>();
+    /** key: file identifier, value: the DOM being changed in place */
+    private final Map<String, Document> xmlDocuments = new HashMap<String, Document>();
+    /** key: file identifier, value: what this class last wrote to it */
+    private final Map<String, WrittenFile> writtenFiles = new HashMap<String, WrittenFile>();
 
     // ------------ OSGi component attributes ----------------
    	private BundleContext context;
@@ -76,9 +122,20 @@ public class DefaultFileManager implements FileManager, UndoListener {
     public void clear() {
         deferredFileWrites.clear();
         deferredDescriptionOfChanges.clear();
+        xmlDocuments.clear();
+        changedXmlDocuments.clear();
+        // Clearing is how an undo reaches this class, and an undo can restore
+        // earlier contents with the same size and (coarse) timestamp as those
+        // last written
+        writtenFiles.clear();
     }
 
     public void commit() {
+        for (final String fileIdentifier : new ArrayList<String>(
+                changedXmlDocuments)) {
+            serializeXmlDocument(fileIdentifier);
+        }
+        xmlDocuments.clear();
         final Map<String, String> toRemove = new LinkedHashMap<String, String>(
                 deferredFileWrites);
         try {
@@ -176,10 +233,17 @@ public class DefaultFileManager implements FileManager, UndoListener {
 
     private void createOrUpdateTextFileIfRequired(final String fileIdentifier,
             final String newContents, final String descriptionOfChange) {
+        final byte[] digest = getDigest(newContents);
         MutableFile mutableFile = null;
         if (exists(fileIdentifier)) {
-            // First verify if the file has even changed
+            // First verify if the file has even changed, without reading it if
+            // it still holds what we last wrote to it
             final File file = new File(fileIdentifier);
+            final WrittenFile writtenFile = writtenFiles.get(fileIdentifier);
+            if (writtenFile != null && digest != null
+                    && writtenFile.hasContents(file, digest)) {
+                return;
+            }
             String existing = null;
             try {
                 existing = FileUtils.readFileToString(file);
@@ -190,6 +254,9 @@ public class DefaultFileManager implements FileManager, UndoListener {
             if (!newContents.equals(existing)) {
                 mutableFile = updateFile(fileIdentifier);
             }
+            else {
+                recordWrite(fileIdentifier, digest);
+            }
         }
         else {
             mutableFile = createFile(fileIdentifier);
@@ -213,30 +280,39 @@ public class DefaultFileManager implements FileManager, UndoListener {
             finally {
                 IOUtils.closeQuietly(outputStream);
             }
+            recordWrite(fileIdentifier, digest);
         }
     }
 
     public void createOrUpdateTextFileIfRequired(final String fileIdentifier,
             final String newContents, final String descriptionOfChange,
             final boolean writeImmediately) {
+        // The given contents supersede any DOM obtained for this file
+        xmlDocuments.remove(fileIdentifier);
+        changedXmlDocuments.remove(fileIdentifier);
         if (writeImmediately) {
+            deferredFileWrites.remove(fileIdentifier);
+            deferredDescriptionOfChanges.remove(fileIdentifier);
             createOrUpdateTextFileIfRequired(fileIdentifier, newContents,
                     descriptionOfChange);
         }
         else {
             deferredFileWrites.put(fileIdentifier, newContents);
+            deferDescriptionOfChange(fileIdentifier, descriptionOfChange);
+        }
+    }
 
-            String deferredDescriptionOfChange = StringUtils.defaultIfEmpty(
-                    deferredDescriptionOfChanges.get(fileIdentifier), "");
-            if (StringUtils.isNotBlank(deferredDescriptionOfChange)
-                    && !deferredDescriptionOfChange.trim().endsWith(";")) {
-                deferredDescriptionOfChange += "; ";
-            }
-            deferredDescriptionOfChanges.put(
-                    fileIdentifier,
-                    deferredDescriptionOfChange
-                            + StringUtils.stripToEmpty(descriptionOfChange));
+    private void deferDescriptionOfChange(final String fileIdentifier,
+            final String descriptionOfChange) {
+        String deferredDescriptionOfChange = StringUtils.defaultIfEmpty(
+                deferredDescriptionOfChanges.get(fileIdentifier), "");
+        if (StringUtils.isNotBlank(deferredDescriptionOfChange)
+                && !deferredDescriptionOfChange.trim().endsWith(";")) {
+            deferredDescriptionOfChange += "; ";
         }
+        deferredDescriptionOfChanges.put(fileIdentifier,
+                deferredDescriptionOfChange
+                        + StringUtils.stripToEmpty(descriptionOfChange));
     }
 
     protected void deactivate(final ComponentContext context) {
@@ -272,6 +348,9 @@ public class DefaultFileManager implements FileManager, UndoListener {
         final File actual = new File(fileIdentifier);
         Validate.isTrue(actual.exists(), "File '%s' does not exist",
                 fileIdentifier);
+        writtenFiles.remove(fileIdentifier);
+        xmlDocuments.remove(fileIdentifier);
+        changedXmlDocuments.remove(fileIdentifier);
         try {
             fileMonitorService.notifyDeleted(actual.getCanonicalPath());
         }
@@ -300,7 +379,34 @@ public class DefaultFileManager implements FileManager, UndoListener {
         return fileMonitorService.findMatchingAntPath(antPath);
     }
 
+    /**
+     * Returns a digest of the bytes that writing the given text to a file
+     * would produce, computed without holding those bytes in memory
+     * 
+     * @param contents the text to digest (required)
+     * @return <code>null</code> if it can't be computed
+     */
+    private byte[] getDigest(final String contents) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            // Same encoding as IOUtils.write(String, OutputStream)
+            final Writer writer = new OutputStreamWriter(
+                    new DigestOutputStream(NullOutputStream.NULL_OUTPUT_STREAM,
+                            digest));
+            writer.write(contents);
+            writer.flush();
+            return digest.digest();
+        }
+        catch (final NoSuchAlgorithmException e) {
+            return null;
+        }
+        catch (final IOException e) {
+            return null;
+        }
+    }
+
     public InputStream getInputStream(final String fileIdentifier) {
+        serializeXmlDocument(fileIdentifier);
         if (deferredFileWrites.containsKey(fileIdentifier)) {
             return new BufferedInputStream(new ByteArrayInputStream(
                     deferredFileWrites.get(fileIdentifier).getBytes()));
@@ -322,6 +428,16 @@ public class DefaultFileManager implements FileManager, UndoListener {
         }
     }
 
+    public Document getXmlDocument(final String fileIdentifier) {
+        Validate.notBlank(fileIdentifier, "File identifier required");
+        Document document = xmlDocuments.get(fileIdentifier);
+        if (document == null) {
+            document = XmlUtils.readXml(getInputStream(fileIdentifier));
+            xmlDocuments.put(fileIdentifier, document);
+        }
+        return document;
+    }
+
     public void onUndoEvent(final UndoEvent event) {
         if (event.isUndoing()) {
             clear();
@@ -341,6 +457,21 @@ public class DefaultFileManager implements FileManager, UndoListener {
         return new FileDetails(f, f.lastModified());
     }
 
+    /**
+     * Remembers that the given file now holds the contents with the given
+     * digest, so that writing the same contents again can be skipped without
+     * reading the file
+     */
+    private void recordWrite(final String fileIdentifier, final byte[] digest) {
+        if (digest == null) {
+            writtenFiles.remove(fileIdentifier);
+        }
+        else {
+            writtenFiles.put(fileIdentifier, new WrittenFile(new File(
+                    fileIdentifier), digest));
+        }
+    }
+
     public int scan() {
     	if(fileMonitorService == null){
     		fileMonitorService = getFileMonitorService();
@@ -349,6 +480,19 @@ public class DefaultFileManager implements FileManager, UndoListener {
         return fileMonitorService.scanNotified();
     }
 
+    /**
+     * Renders the DOM of the given XML file as a deferred write, if it has
+     * changed since it was last rendered
+     * 
+     * @param fileIdentifier the file in question
+     */
+    private void serializeXmlDocument(final String fileIdentifier) {
+        if (changedXmlDocuments.remove(fileIdentifier)) {
+            deferredFileWrites.put(fileIdentifier,
+                    XmlUtils.nodeToString(xmlDocuments.get(fileIdentifier)));
+        }
+    }
+
     public MutableFile updateFile(final String fileIdentifier) {
     	if(fileMonitorService == null){
     		fileMonitorService = getFileMonitorService();
@@ -376,6 +520,14 @@ public class DefaultFileManager implements FileManager, UndoListener {
         renderer.setIncludeHashCode(processManager.isDevelopmentMode());
         return new DefaultMutableFile(actual, fileMonitorService, renderer);
     }
+
+    public void updateXmlDocument(final String fileIdentifier,
+            final String descriptionOfChange) {
+        Validate.isTrue(xmlDocuments.containsKey(fileIdentifier),
+                "No document has been obtained for '%s'", fileIdentifier);
+        changedXmlDocuments.add(fileIdentifier);
+        deferDescriptionOfChange(fileIdentifier, descriptionOfChange);
+    }
     
     public NotifiableFileMonitorService getFileMonitorService(){
     	// Get all Services implement NotifiableFileMonitorService interface
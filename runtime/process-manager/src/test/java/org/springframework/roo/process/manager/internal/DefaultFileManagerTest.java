@@ -0,0 +1,186 @@
+package org.springframework.roo.process.manager.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.component.ComponentContext;
+import org.springframework.roo.file.monitor.NotifiableFileMonitorService;
+import org.springframework.roo.file.undo.FilenameResolver;
+import org.springframework.roo.file.undo.UndoManager;
+import org.springframework.roo.process.manager.ProcessManager;
+import org.springframework.roo.support.util.XmlUtils;
+import org.w3c.dom.Document;
+
+/**
+ * Unit test of the XML document handling of {@link DefaultFileManager}
+ * 
+ * @since 2.0.0
+ */
+public class DefaultFileManagerTest {
+
+    private static final String POM = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"
+            + IOUtils.LINE_SEPARATOR + "<project/>" + IOUtils.LINE_SEPARATOR;
+
+    // Fixture
+    private DefaultFileManager fileManager;
+    private File pom;
+    private String pomPath;
+
+    /**
+     * Makes the given service available from the given mock context
+     */
+    private void addService(final BundleContext mockBundleContext,
+            final Class<?> serviceType, final Object service)
+            throws InvalidSyntaxException {
+        final ServiceReference<?> mockReference = mock(ServiceReference.class);
+        when(
+                mockBundleContext.getAllServiceReferences(
+                        serviceType.getName(), null)).thenReturn(
+                new ServiceReference<?>[] { mockReference });
+        when(mockBundleContext.getService(mockReference)).thenReturn(service);
+    }
+
+    /**
+     * Changes the given POM document and reports the change to the file
+     * manager
+     */
+    private void changeDocument(final Document document) {
+        document.getDocumentElement().appendChild(
+                document.createElement("modelVersion"));
+        fileManager.updateXmlDocument(pomPath, "added model version");
+    }
+
+    private String readPom() throws IOException {
+        return FileUtils.readFileToString(pom);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        pom = File.createTempFile("pom", ".xml");
+        FileUtils.writeStringToFile(pom, POM);
+        pomPath = pom.getCanonicalPath();
+
+        final BundleContext mockBundleContext = mock(BundleContext.class);
+        addService(mockBundleContext, FilenameResolver.class,
+                mock(FilenameResolver.class));
+        addService(mockBundleContext, NotifiableFileMonitorService.class,
+                mock(NotifiableFileMonitorService.class));
+        addService(mockBundleContext, ProcessManager.class,
+                mock(ProcessManager.class));
+        addService(mockBundleContext, UndoManager.class,
+                mock(UndoManager.class));
+        final ComponentContext mockComponentContext = mock(ComponentContext.class);
+        when(mockComponentContext.getBundleContext()).thenReturn(
+                mockBundleContext);
+
+        fileManager = new DefaultFileManager();
+        fileManager.activate(mockComponentContext);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(pom);
+    }
+
+    @Test
+    public void testChangedDocumentIsWrittenOnCommit() throws Exception {
+        // Set up
+        final Document document = fileManager.getXmlDocument(pomPath);
+        changeDocument(document);
+
+        // Invoke
+        fileManager.commit();
+
+        // Check
+        assertEquals(XmlUtils.nodeToString(document), readPom());
+        assertNotSame(document, fileManager.getXmlDocument(pomPath));
+    }
+
+    @Test
+    public void testChangedDocumentIsDiscardedOnClear() throws Exception {
+        // Set up
+        changeDocument(fileManager.getXmlDocument(pomPath));
+
+        // Invoke
+        fileManager.clear();
+        fileManager.commit();
+
+        // Check
+        assertEquals(POM, readPom());
+        assertEquals(0, fileManager.getXmlDocument(pomPath)
+                .getDocumentElement().getChildNodes().getLength());
+    }
+
+    @Test
+    public void testClearForgetsWhatWasWritten() throws Exception {
+        // Set up
+        final String newPom = POM.replace("<project/>",
+                "<project>x</project>");
+        fileManager.createOrUpdateTextFileIfRequired(pomPath, newPom, true);
+        final long lastModified = pom.lastModified();
+        // As an undo would, restoring the same size and timestamp
+        FileUtils.writeStringToFile(pom, POM.replace("<project/>",
+                "<project>y</project>"));
+        pom.setLastModified(lastModified);
+
+        // Invoke
+        fileManager.clear();
+        fileManager.createOrUpdateTextFileIfRequired(pomPath, newPom, true);
+
+        // Check
+        assertEquals(newPom, readPom());
+    }
+
+    @Test
+    public void testGetInputStreamReturnsChangedDocument() throws Exception {
+        // Set up
+        final Document document = fileManager.getXmlDocument(pomPath);
+        changeDocument(document);
+
+        // Invoke
+        final String contents = IOUtils.toString(fileManager
+                .getInputStream(pomPath));
+
+        // Check
+        assertEquals(XmlUtils.nodeToString(document), contents);
+        assertEquals(POM, readPom());
+    }
+
+    @Test
+    public void testGetXmlDocumentReturnsSameDocumentUntilCommitted() {
+        // Invoke
+        final Document document = fileManager.getXmlDocument(pomPath);
+
+        // Check
+        assertSame(document, fileManager.getXmlDocument(pomPath));
+        assertEquals("project", document.getDocumentElement().getTagName());
+    }
+
+    @Test
+    public void testUnchangedDocumentIsNotWrittenOnCommit() throws Exception {
+        // Set up
+        fileManager.getXmlDocument(pomPath);
+        final long lastModified = pom.lastModified();
+
+        // Invoke
+        fileManager.commit();
+
+        // Check
+        assertEquals(POM, readPom());
+        assertEquals(lastModified, pom.lastModified());
+    }
+}
@@ -20,6 +20,10 @@ import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.ReferenceStrategy;
+import org.springframework.roo.file.monitor.FileMonitorService;
+import org.springframework.roo.file.monitor.event.FileEvent;
+import org.springframework.roo.file.monitor.event.FileEventListener;
+import org.springframework.roo.file.monitor.event.FileOperation;
 import org.springframework.roo.metadata.MetadataService;
 import org.springframework.roo.model.JavaPackage;
 import org.springframework.roo.process.manager.FileManager;
@@ -45,7 +49,8 @@ import org.w3c.dom.Element;
 //@SuppressWarnings("deprecation")
 @Component(componentAbstract = true)
 @Reference(name = "feature", strategy = ReferenceStrategy.EVENT, policy = ReferencePolicy.DYNAMIC, referenceInterface = Feature.class, cardinality = ReferenceCardinality.OPTIONAL_MULTIPLE)
-public abstract class AbstractProjectOperations implements ProjectOperations {
+public abstract class AbstractProjectOperations implements ProjectOperations,
+        FileEventListener {
 
     static final String ADDED = "added";
     static final String CHANGED = "changed";
@@ -84,8 +89,10 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
     }
 
     private final Map<String, Feature> features = new HashMap<String, Feature>();
+    private final FeatureStateCache featureStates = new FeatureStateCache();
 
     @Reference FileManager fileManager;
+    @Reference FileMonitorService fileMonitorService;
     @Reference MetadataService metadataService;
     @Reference PathResolver pathResolver;
 
@@ -111,13 +118,15 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
         Validate.notNull(pom,
                 "The pom is not available, so plugin addition cannot be performed");
 
-        final Document document = XmlUtils.readXml(fileManager
-                .getInputStream(pom.getPath()));
+        final Document document = fileManager.getXmlDocument(pom.getPath());
         final Element root = document.getDocumentElement();
-        final Element pluginsElement = DomUtils.createChildIfNotExists(
-                "/project/build/plugins", root, document);
-        final List<Element> existingPluginElements = XmlUtils.findElements(
-                "plugin", pluginsElement);
+        // The document is shared until the transaction ends, so the plugins
+        // element is only created once a plugin is actually added to it
+        Element pluginsElement = XmlUtils.findFirstElement(
+                "/project/build/plugins", root);
+        final List<Element> existingPluginElements = pluginsElement == null ? Collections
+                .<Element> emptyList() : XmlUtils.findElements("plugin",
+                pluginsElement);
 
         final List<String> addedPlugins = new ArrayList<String>();
         final List<String> removedPlugins = new ArrayList<String>();
@@ -157,6 +166,10 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
                 if (!inserted) {
                     // We didn't encounter any existing dependencies with the
                     // same coordinates; add it now
+                    if (pluginsElement == null) {
+                        pluginsElement = DomUtils.createChildIfNotExists(
+                                "/project/build/plugins", root, document);
+                    }
                     pluginsElement.appendChild(newPlugin.getElement(document));
                     addedPlugins.add(newPlugin.getSimpleDescription());
                 }
@@ -166,8 +179,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
         if (!newPlugins.isEmpty()) {
             final String message = getPomPluginsUpdateMessage(addedPlugins,
                     removedPlugins);
-            fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
-                    XmlUtils.nodeToString(document), message, false);
+            fileManager.updateXmlDocument(pom.getPath(), message);
         }
     }
 
@@ -180,12 +192,14 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
         Validate.notNull(pom,
                 "The pom is not available, so dependencies cannot be added");
 
-        final Document document = XmlUtils.readXml(fileManager
-                .getInputStream(pom.getPath()));
-        final Element dependenciesElement = DomUtils.createChildIfNotExists(
-                "dependencies", document.getDocumentElement(), document);
-        final List<Element> existingDependencyElements = XmlUtils.findElements(
-                "dependency", dependenciesElement);
+        final Document document = fileManager.getXmlDocument(pom.getPath());
+        final Element root = document.getDocumentElement();
+        // Created only when a dependency is added to it (see addBuildPlugins)
+        Element dependenciesElement = XmlUtils.findFirstElement(
+                "dependencies", root);
+        final List<Element> existingDependencyElements = dependenciesElement == null ? Collections
+                .<Element> emptyList() : XmlUtils.findElements("dependency",
+                dependenciesElement);
 
         final List<String> addedDependencies = new ArrayList<String>();
         final List<String> removedDependencies = new ArrayList<String>();
@@ -226,6 +240,10 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
                 if (!inserted) {
                     // We didn't encounter any existing dependencies with the
                     // same coordinates; add it now
+                    if (dependenciesElement == null) {
+                        dependenciesElement = DomUtils.createChildIfNotExists(
+                                "dependencies", root, document);
+                    }
                     dependenciesElement.appendChild(newDependency
                             .getElement(document));
                     addedDependencies.add(newDependency.getSimpleDescription());
@@ -238,8 +256,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
         if (!newDependencies.isEmpty() || !skippedDependencies.isEmpty()) {
             final String message = getPomDependenciesUpdateMessage(
                     addedDependencies, removedDependencies, skippedDependencies);
-            fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
-                    XmlUtils.nodeToString(document), message, false);
+            fileManager.updateXmlDocument(pom.getPath(), message);
         }
     }
 
@@ -289,8 +306,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
             return;
         }
 
-        final Document document = XmlUtils.readXml(fileManager
-                .getInputStream(pom.getPath()));
+        final Document document = fileManager.getXmlDocument(pom.getPath());
         final Element root = document.getDocumentElement();
         final String descriptionOfChange;
         final Element buildElement = XmlUtils.findFirstElement(
@@ -312,8 +328,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
                     + filter.getValue() + "'";
         }
 
-        fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
-                XmlUtils.nodeToString(document), descriptionOfChange, false);
+        fileManager.updateXmlDocument(pom.getPath(), descriptionOfChange);
     }
 
     public void addModuleDependency(final String moduleToDependUpon) {
@@ -369,8 +384,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
             return;
         }
 
-        final Document document = XmlUtils.readXml(fileManager
-                .getInputStream(pom.getPath()));
+        final Document document = fileManager.getXmlDocument(pom.getPath());
         final Element root = document.getDocumentElement();
         final String descriptionOfChange;
         final Element existing = XmlUtils.findFirstElement(
@@ -391,8 +405,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
                     + property.getName() + "' to '" + property.getValue() + "'";
         }
 
-        fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
-                XmlUtils.nodeToString(document), descriptionOfChange, false);
+        fileManager.updateXmlDocument(pom.getPath(), descriptionOfChange);
     }
 
     public void addRepositories(final String moduleName,
@@ -422,11 +435,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
             return;
         }
 
-        final Document document = XmlUtils.readXml(fileManager
-                .getInputStream(pom.getPath()));
-        final Element repositoriesElement = DomUtils.createChildIfNotExists(
-                containingPath, document.getDocumentElement(), document);
-
+        final Document document = fileManager.getXmlDocument(pom.getPath());
         final List<String> addedRepositories = new ArrayList<String>();
         for (final Repository repository : repositories) {
             if ("pluginRepository".equals(path)) {
@@ -440,16 +449,19 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
                 }
             }
             if (repository != null) {
-                repositoriesElement.appendChild(repository.getElement(document,
-                        path));
+                DomUtils.createChildIfNotExists(containingPath,
+                        document.getDocumentElement(), document).appendChild(
+                        repository.getElement(document, path));
                 addedRepositories.add(repository.getUrl());
             }
         }
+        if (addedRepositories.isEmpty()) {
+            return;
+        }
         final String message = getDescriptionOfChange(ADDED, addedRepositories,
                 path, containingPath);
 
-        fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
-                XmlUtils.nodeToString(document), message, false);
+        fileManager.updateXmlDocument(pom.getPath(), message);
     }
 
     public void addRepository(final String moduleName,
@@ -478,8 +490,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
             return;
         }
 
-        final Document document = XmlUtils.readXml(fileManager
-                .getInputStream(pom.getPath()));
+        final Document document = fileManager.getXmlDocument(pom.getPath());
         final Element buildElement = XmlUtils.findFirstElement(
                 "/project/build", document.getDocumentElement());
         final Element resourcesElement = DomUtils.createChildIfNotExists(
@@ -488,13 +499,13 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
         final String descriptionOfChange = highlight(ADDED + " resource") + " "
                 + resource.getSimpleDescription();
 
-        fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
-                XmlUtils.nodeToString(document), descriptionOfChange, false);
+        fileManager.updateXmlDocument(pom.getPath(), descriptionOfChange);
     }
 
     protected void bindFeature(final Feature feature) {
         if (feature != null) {
             features.put(feature.getName(), feature);
+            featureStates.remove(feature.getName());
         }
     }
 
@@ -620,7 +631,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
             return false;
         }
         for (final String moduleName : getModuleNames()) {
-            if (feature.isInstalledInModule(moduleName)) {
+            if (isInstalledInModule(feature, moduleName)) {
                 return true;
             }
         }
@@ -633,7 +644,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
         if (feature == null) {
             return false;
         }
-        if (feature.isInstalledInModule(moduleName)) {
+        if (isInstalledInModule(feature, moduleName)) {
             return true;
         }
         return false;
@@ -644,13 +655,33 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
         for (final String featureName : featureNames) {
             final Feature feature = features.get(featureName);
             if (feature != null
-                    && feature.isInstalledInModule(getFocusedModuleName())) {
+                    && isInstalledInModule(feature, getFocusedModuleName())) {
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * Indicates whether the given feature is installed in the given module,
+     * using the cached state for a {@link CacheableFeature} if none of the
+     * files it depends upon have changed since it was last checked
+     * 
+     * @param feature the feature to check (required)
+     * @param moduleName the module to check (can be blank)
+     * @return see above
+     */
+    private boolean isInstalledInModule(final Feature feature,
+            final String moduleName) {
+        if (!(feature instanceof CacheableFeature)) {
+            return feature.isInstalledInModule(moduleName);
+        }
+        featureStates.invalidate(fileMonitorService
+                .getDirtyFiles(FeatureStateCache.class.getName()));
+        return featureStates.isInstalledInModule((CacheableFeature) feature,
+                moduleName);
+    }
+
     public boolean isFocusedProjectAvailable() {
         return isProjectAvailable(getFocusedModuleName());
     }
@@ -667,6 +698,15 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
         return getProjectMetadata(moduleName) != null;
     }
 
+    public void onFileEvent(final FileEvent fileEvent) {
+        // The dirty files reported by the file monitor don't include deleted
+        // ones, so feature states that depend upon them are forgotten here
+        if (fileEvent.getOperation() == FileOperation.DELETED) {
+            featureStates.invalidate(Collections.singleton(fileEvent
+                    .getFileDetails().getCanonicalPath()));
+        }
+    }
+
     public void removeBuildPlugin(final String moduleName, final Plugin plugin) {
         Validate.isTrue(isProjectAvailable(moduleName),
                 "Plugin modification prohibited at this time");
@@ -703,8 +743,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
             return;
         }
 
-        final Document document = XmlUtils.readXml(fileManager
-                .getInputStream(pom.getPath()));
+        final Document document = fileManager.getXmlDocument(pom.getPath());
         final Element root = document.getDocumentElement();
         final Element pluginsElement = XmlUtils.findFirstElement(
                 "/project/build/plugins", root);
@@ -738,8 +777,13 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
         final String message = getDescriptionOfChange(REMOVED, removedPlugins,
                 "plugin", "plugins");
 
-        fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
-                XmlUtils.nodeToString(document), message, writeImmediately);
+        if (writeImmediately) {
+            fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
+                    XmlUtils.nodeToString(document), message, true);
+        }
+        else {
+            fileManager.updateXmlDocument(pom.getPath(), message);
+        }
     }
 
     public void removeDependencies(final String moduleName,
@@ -757,8 +801,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
             return;
         }
 
-        final Document document = XmlUtils.readXml(fileManager
-                .getInputStream(pom.getPath()));
+        final Document document = fileManager.getXmlDocument(pom.getPath());
         final Element root = document.getDocumentElement();
         final Element dependenciesElement = XmlUtils.findFirstElement(
                 "/project/dependencies", root);
@@ -796,8 +839,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
         final String message = getDescriptionOfChange(REMOVED,
                 removedDependencies, "dependency", "dependencies");
 
-        fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
-                XmlUtils.nodeToString(document), message, false);
+        fileManager.updateXmlDocument(pom.getPath(), message);
     }
 
     public void removeDependency(final String moduleName,
@@ -828,8 +870,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
             return;
         }
 
-        final Document document = XmlUtils.readXml(fileManager
-                .getInputStream(pom.getPath()));
+        final Document document = fileManager.getXmlDocument(pom.getPath());
         final Element root = document.getDocumentElement();
 
         String descriptionOfChange = "";
@@ -847,8 +888,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
 
         DomUtils.removeTextNodes(dependenciesElement);
 
-        fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
-                XmlUtils.nodeToString(document), descriptionOfChange, false);
+        fileManager.updateXmlDocument(pom.getPath(), descriptionOfChange);
     }
 
     public final void removeDependency(final String moduleName,
@@ -880,8 +920,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
             return;
         }
 
-        final Document document = XmlUtils.readXml(fileManager
-                .getInputStream(pom.getPath()));
+        final Document document = fileManager.getXmlDocument(pom.getPath());
         final Element root = document.getDocumentElement();
 
         final Element filtersElement = XmlUtils.findFirstElement(
@@ -910,8 +949,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
 
         DomUtils.removeTextNodes(root);
 
-        fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
-                XmlUtils.nodeToString(document), descriptionOfChange, false);
+        fileManager.updateXmlDocument(pom.getPath(), descriptionOfChange);
     }
 
     public void removePluginRepository(final String moduleName,
@@ -934,8 +972,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
             return;
         }
 
-        final Document document = XmlUtils.readXml(fileManager
-                .getInputStream(pom.getPath()));
+        final Document document = fileManager.getXmlDocument(pom.getPath());
         final Element root = document.getDocumentElement();
         final Element propertiesElement = XmlUtils.findFirstElement(
                 "/project/properties", root);
@@ -953,8 +990,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
 
         DomUtils.removeTextNodes(propertiesElement);
 
-        fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
-                XmlUtils.nodeToString(document), descriptionOfChange, false);
+        fileManager.updateXmlDocument(pom.getPath(), descriptionOfChange);
     }
 
     public void removeRepository(final String moduleName,
@@ -982,8 +1018,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
             }
         }
 
-        final Document document = XmlUtils.readXml(fileManager
-                .getInputStream(pom.getPath()));
+        final Document document = fileManager.getXmlDocument(pom.getPath());
         final Element root = document.getDocumentElement();
 
         String descriptionOfChange = "";
@@ -997,8 +1032,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
             }
         }
 
-        fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
-                XmlUtils.nodeToString(document), descriptionOfChange, false);
+        fileManager.updateXmlDocument(pom.getPath(), descriptionOfChange);
     }
 
     public void removeResource(final String moduleName, final Resource resource) {
@@ -1012,8 +1046,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
             return;
         }
 
-        final Document document = XmlUtils.readXml(fileManager
-                .getInputStream(pom.getPath()));
+        final Document document = fileManager.getXmlDocument(pom.getPath());
         final Element root = document.getDocumentElement();
         final Element resourcesElement = XmlUtils.findFirstElement(
                 "/project/build/resources", root);
@@ -1041,8 +1074,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
 
         DomUtils.removeTextNodes(root);
 
-        fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
-                XmlUtils.nodeToString(document), descriptionOfChange, false);
+        fileManager.updateXmlDocument(pom.getPath(), descriptionOfChange);
     }
 
     public void setModule(final Pom module) {
@@ -1052,11 +1084,14 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
                 Shell.WINDOW_TITLE_SLOT);
         shell.setPromptPath(module.getModuleName());
         pomManagementService.setFocusedModule(module);
+        // Some features' states depend upon which module has the focus
+        featureStates.clear();
     }
 
     protected void unbindFeature(final Feature feature) {
         if (feature != null) {
             features.remove(feature.getName());
+            featureStates.remove(feature.getName());
         }
     }
 
@@ -1091,8 +1126,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
             return;
         }
 
-        final Document document = XmlUtils.readXml(fileManager
-                .getInputStream(pom.getPath()));
+        final Document document = fileManager.getXmlDocument(pom.getPath());
         final Element root = document.getDocumentElement();
         final Element dependencyElement = XmlUtils.findFirstElement(
                 "/project/dependencies/dependency[groupId = '"
@@ -1136,10 +1170,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
         }
 
         if (descriptionOfChange != null) {
-            fileManager
-                    .createOrUpdateTextFileIfRequired(pom.getPath(),
-                            XmlUtils.nodeToString(document),
-                            descriptionOfChange, false);
+            fileManager.updateXmlDocument(pom.getPath(), descriptionOfChange);
         }
     }
 
@@ -1150,19 +1181,20 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
         Validate.notNull(pom,
                 "The pom is not available, so the project type cannot be changed");
 
-        final Document document = XmlUtils.readXml(fileManager
-                .getInputStream(pom.getPath()));
-        final Element packaging = DomUtils.createChildIfNotExists("packaging",
-                document.getDocumentElement(), document);
-        if (packaging.getTextContent().equals(projectType.getType())) {
+        final Document document = fileManager.getXmlDocument(pom.getPath());
+        final Element root = document.getDocumentElement();
+        final Element packaging = XmlUtils.findFirstElement("packaging",
+                root);
+        if (packaging != null
+                && packaging.getTextContent().equals(projectType.getType())) {
             return;
         }
 
-        packaging.setTextContent(projectType.getType());
+        DomUtils.createChildIfNotExists("packaging", root, document)
+                .setTextContent(projectType.getType());
         final String descriptionOfChange = highlight(UPDATED + " project type")
                 + " to " + projectType.getType();
 
-        fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
-                XmlUtils.nodeToString(document), descriptionOfChange, false);
+        fileManager.updateXmlDocument(pom.getPath(), descriptionOfChange);
     }
 }
@@ -0,0 +1,26 @@
+package org.springframework.roo.project;
+
+import java.util.Collection;
+
+/**
+ * A {@link Feature} whose installation in a given module can only change when
+ * a POM or one of a few known files changes, which allows
+ * {@link ProjectOperations} to cache whether it's installed instead of asking
+ * it every time.
+ * 
+ * @since 2.0.0
+ */
+public interface CacheableFeature extends Feature {
+
+    /**
+     * Returns the files, other than the project's POMs, whose creation,
+     * modification or deletion can change whether this feature is installed in
+     * the given module
+     * 
+     * @param moduleName the name of the module to check (can be blank for the
+     *            root or only module)
+     * @return the canonical paths of those files (never <code>null</code>, can
+     *         be empty if this feature only depends on the POMs)
+     */
+    Collection<String> getRelevantFiles(String moduleName);
+}
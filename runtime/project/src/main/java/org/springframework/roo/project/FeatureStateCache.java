@@ -0,0 +1,118 @@
+package org.springframework.roo.project;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers whether each {@link CacheableFeature} is installed in each module,
+ * until the file monitor reports a change to (or the deletion of) a POM or one
+ * of the files that feature declares as relevant.
+ * 
+ * @since 2.0.0
+ */
+class FeatureStateCache {
+
+    private static final String POM_SUFFIX = File.separator + "pom.xml";
+
+    private final Map<String, Set<String>> featuresByRelevantFile = new HashMap<String, Set<String>>();
+    private long generation;
+    private final Map<String, Map<String, Boolean>> installedModules = new HashMap<String, Map<String, Boolean>>();
+
+    /**
+     * Forgets the states of all features, e.g. because the focused module has
+     * changed
+     */
+    synchronized void clear() {
+        installedModules.clear();
+        featuresByRelevantFile.clear();
+        generation++;
+    }
+
+    /**
+     * Forgets the states that depend upon any of the given files
+     * 
+     * @param changedFiles the canonical paths of the files that have changed
+     *            (required)
+     */
+    synchronized void invalidate(final Collection<String> changedFiles) {
+        for (final String changedFile : changedFiles) {
+            if (changedFile.endsWith(POM_SUFFIX)) {
+                // POMs determine the modules and most features
+                clear();
+                return;
+            }
+            final Set<String> featureNames = featuresByRelevantFile
+                    .remove(changedFile);
+            if (featureNames != null) {
+                for (final String featureName : featureNames) {
+                    installedModules.remove(featureName);
+                }
+                generation++;
+            }
+        }
+    }
+
+    /**
+     * Indicates whether the given feature is installed in the given module,
+     * asking the feature only if its state is not already known
+     * 
+     * @param feature the feature to check (required)
+     * @param moduleName the module to check (can be blank)
+     * @return see above
+     */
+    boolean isInstalledInModule(final CacheableFeature feature,
+            final String moduleName) {
+        final long generationBeforeCheck;
+        synchronized (this) {
+            final Map<String, Boolean> modules = installedModules.get(feature
+                    .getName());
+            if (modules != null && modules.containsKey(moduleName)) {
+                return modules.get(moduleName);
+            }
+            generationBeforeCheck = generation;
+        }
+        // Called without holding the lock, as features can call back into
+        // ProjectOperations
+        final boolean installed = feature.isInstalledInModule(moduleName);
+        final Collection<String> relevantFiles = feature
+                .getRelevantFiles(moduleName);
+        synchronized (this) {
+            // Don't cache a state that may have been invalidated meanwhile
+            if (generation == generationBeforeCheck) {
+                Map<String, Boolean> modules = installedModules.get(feature
+                        .getName());
+                if (modules == null) {
+                    modules = new HashMap<String, Boolean>();
+                    installedModules.put(feature.getName(), modules);
+                }
+                modules.put(moduleName, installed);
+                for (final String relevantFile : relevantFiles) {
+                    Set<String> featureNames = featuresByRelevantFile
+                            .get(relevantFile);
+                    if (featureNames == null) {
+                        featureNames = new HashSet<String>();
+                        featuresByRelevantFile.put(relevantFile, featureNames);
+                    }
+                    featureNames.add(feature.getName());
+                }
+            }
+        }
+        return installed;
+    }
+
+    /**
+     * Forgets the state of the given feature in every module, e.g. because it
+     * has been unbound
+     * 
+     * @param featureName the name of the feature (can be <code>null</code>)
+     */
+    synchronized void remove(final String featureName) {
+        if (installedModules.remove(featureName) != null) {
+            generation++;
+        }
+    }
+}
@@ -24,14 +24,12 @@ import org.springframework.roo.file.monitor.FileMonitorService;
 import org.springframework.roo.metadata.MetadataDependencyRegistry;
 import org.springframework.roo.metadata.MetadataService;
 import org.springframework.roo.process.manager.FileManager;
+import org.springframework.roo.project.maven.ParsedPom;
 import org.springframework.roo.project.maven.Pom;
 import org.springframework.roo.project.maven.PomFactory;
 import org.springframework.roo.shell.Shell;
 import org.springframework.roo.support.osgi.OSGiUtils;
 import org.springframework.roo.support.util.FileUtils;
-import org.springframework.roo.support.util.XmlUtils;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 @Component
 @Service
@@ -62,6 +60,60 @@ public class PomManagementServiceImpl implements PomManagementService {
         }
     }
 
+    /**
+     * A trie of module root directories, keyed by path segment, so that the
+     * module containing a given file can be found without consulting the file
+     * system.
+     */
+    private static class ModuleRootTrie {
+        private final Map<String, ModuleRootTrie> children = new HashMap<String, ModuleRootTrie>();
+        private Pom pom;
+
+        /**
+         * Returns the module with the deepest root directory that contains the
+         * given path (or is that path)
+         * 
+         * @param path the canonical path of a file or directory
+         * @return <code>null</code> if no known module contains that path
+         */
+        Pom getModule(final String path) {
+            ModuleRootTrie node = this;
+            Pom module = pom;
+            for (final String segment : StringUtils.split(path, SEPARATOR)) {
+                node = node.children.get(segment);
+                if (node == null) {
+                    break;
+                }
+                if (node.pom != null) {
+                    module = node.pom;
+                }
+            }
+            return module;
+        }
+
+        /**
+         * Records the given module under the directory containing its POM
+         * 
+         * @param module the module to record (required)
+         */
+        void put(final Pom module) {
+            final String pomPath = module.getPath();
+            ModuleRootTrie node = this;
+            for (final String segment : StringUtils.split(
+                    pomPath.substring(0,
+                            Math.max(0, pomPath.lastIndexOf(SEPARATOR))),
+                    SEPARATOR)) {
+                ModuleRootTrie child = node.children.get(segment);
+                if (child == null) {
+                    child = new ModuleRootTrie();
+                    node.children.put(segment, child);
+                }
+                node = child;
+            }
+            node.pom = module;
+        }
+    }
+
     private static final String SEPARATOR = File.separator;
     private static final String DEFAULT_POM_NAME = "pom.xml";
     private static final String DEFAULT_RELATIVE_PATH = ".." + SEPARATOR
@@ -75,6 +127,7 @@ public class PomManagementServiceImpl implements PomManagementService {
     @Reference Shell shell;
 
     private String focusedModulePath;
+    private ModuleRootTrie moduleRoots = new ModuleRootTrie();
     private final Map<String, Pom> pomMap = new LinkedHashMap<String, Pom>();
     private String projectRootDirectory;
     private final Set<String> toBeParsed = new HashSet<String>();
@@ -93,6 +146,7 @@ public class PomManagementServiceImpl implements PomManagementService {
      */
     void addPom(final Pom pom) {
         pomMap.put(pom.getPath(), pom);
+        updateModuleRoots();
     }
 
     private void findUnparsedPoms() {
@@ -121,28 +175,9 @@ public class PomManagementServiceImpl implements PomManagementService {
 
     public Pom getModuleForFileIdentifier(final String fileIdentifier) {
         updatePomCache();
-        String startingPoint = FileUtils.getFirstDirectory(fileIdentifier);
-        String pomPath = FileUtils.ensureTrailingSeparator(startingPoint)
-                + DEFAULT_POM_NAME;
-        File pom = new File(pomPath);
-        while (!pom.exists()) {
-            if (startingPoint.equals(SEPARATOR)) {
-                break;
-            }
-            startingPoint = StringUtils.removeEnd(startingPoint, SEPARATOR);
-            
-            if (startingPoint.lastIndexOf(SEPARATOR) < 0) {
-            	break;
-            }
-            startingPoint = startingPoint.substring(0,
-                    startingPoint.lastIndexOf(SEPARATOR));
-            startingPoint = StringUtils.removeEnd(startingPoint, SEPARATOR);
-
-            pomPath = FileUtils.ensureTrailingSeparator(startingPoint)
-                    + DEFAULT_POM_NAME;
-            pom = new File(pomPath);
-        }
-        return getPomFromPath(pomPath);
+        // A file can't also be a module root, so matching the whole path
+        // gives the same answer as matching its directory
+        return moduleRoots.getModule(fileIdentifier);
     }
 
     private String getModuleName(final String pomDirectory) {
@@ -202,12 +237,11 @@ public class PomManagementServiceImpl implements PomManagementService {
                 catch (IOException ignored) {
                 }
                 if (StringUtils.isNotBlank(pomContents)) {
-                    final Element rootElement = XmlUtils
-                            .stringToElement(pomContents);
-                    resolvePoms(rootElement, pathToChangedPom, pomModuleMap);
+                    final ParsedPom parsedPom = ParsedPom.parse(pomContents);
+                    resolvePoms(parsedPom, pathToChangedPom, pomModuleMap);
                     final String moduleName = getModuleName(FileUtils
                             .getFirstDirectory(pathToChangedPom));
-                    final Pom pom = pomFactory.getInstance(rootElement,
+                    final Pom pom = pomFactory.getInstance(parsedPom,
                             pathToChangedPom, moduleName);
                     Validate.notNull(pom,
                             "POM is null for module '%s' and path '%s'",
@@ -221,55 +255,43 @@ public class PomManagementServiceImpl implements PomManagementService {
         return newPoms;
     }
 
-    private void resolveChildModulePoms(final Element pomRoot,
+    private void resolveChildModulePoms(final ParsedPom parsedPom,
             final String pomPath, final Map<String, String> pomSet) {
-        for (final Element module : XmlUtils.findElements(
-                "/project/modules/module", pomRoot)) {
-            final String moduleName = module.getTextContent();
-            if (StringUtils.isNotBlank(moduleName)) {
-                final String modulePath = resolveRelativePath(pomPath,
-                        moduleName);
-                final boolean alreadyDiscovered = pomSet
-                        .containsKey(modulePath);
-                pomSet.put(modulePath, moduleName);
-                if (!alreadyDiscovered) {
-                    final Document pomDocument = XmlUtils.readXml(fileManager
-                            .getInputStream(modulePath));
-                    final Element root = pomDocument.getDocumentElement();
-                    resolvePoms(root, modulePath, pomSet);
-                }
+        for (final String moduleName : parsedPom.getModuleNames()) {
+            final String modulePath = resolveRelativePath(pomPath, moduleName);
+            final boolean alreadyDiscovered = pomSet.containsKey(modulePath);
+            pomSet.put(modulePath, moduleName);
+            if (!alreadyDiscovered) {
+                resolvePoms(
+                        ParsedPom.parse(fileManager.getInputStream(modulePath)),
+                        modulePath, pomSet);
             }
         }
     }
 
     private void resolveParentPom(final String pomPath,
-            final Map<String, String> pomSet, final Element parentElement) {
-        final String relativePath = XmlUtils.getTextContent("/relativePath",
-                parentElement, DEFAULT_RELATIVE_PATH);
-        final String parentPomPath = resolveRelativePath(pomPath, relativePath);
+            final Map<String, String> pomSet) {
+        final String parentPomPath = resolveRelativePath(pomPath,
+                DEFAULT_RELATIVE_PATH);
         final boolean alreadyDiscovered = pomSet.containsKey(parentPomPath);
         if (!alreadyDiscovered) {
             pomSet.put(parentPomPath, pomSet.get(parentPomPath));
             if (new File(parentPomPath).isFile()) {
-                final Document pomDocument = XmlUtils.readXml(fileManager
-                        .getInputStream(parentPomPath));
-                final Element root = pomDocument.getDocumentElement();
-                resolvePoms(root, parentPomPath, pomSet);
+                resolvePoms(ParsedPom.parse(fileManager
+                        .getInputStream(parentPomPath)), parentPomPath, pomSet);
             }
         }
     }
 
-    private void resolvePoms(final Element pomRoot, final String pomPath,
+    private void resolvePoms(final ParsedPom parsedPom, final String pomPath,
             final Map<String, String> pomSet) {
         pomSet.put(pomPath, pomSet.get(pomPath)); // ensures this key exists
 
-        final Element parentElement = XmlUtils.findFirstElement(
-                "/project/parent", pomRoot);
-        if (parentElement != null) {
-            resolveParentPom(pomPath, pomSet, parentElement);
+        if (parsedPom.hasParent()) {
+            resolveParentPom(pomPath, pomSet);
         }
 
-        resolveChildModulePoms(pomRoot, pomPath, pomSet);
+        resolveChildModulePoms(parsedPom, pomPath, pomSet);
     }
 
     private String resolveRelativePath(String relativeTo,
@@ -340,10 +362,19 @@ public class PomManagementServiceImpl implements PomManagementService {
         final Collection<Pom> newPoms = parseUnparsedPoms();
         if (!newPoms.isEmpty()) {
             sortPomMap();
+            updateModuleRoots();
         }
         updateProjectMetadataForModules(newPoms);
     }
 
+    private void updateModuleRoots() {
+        final ModuleRootTrie newModuleRoots = new ModuleRootTrie();
+        for (final Pom pom : pomMap.values()) {
+            newModuleRoots.put(pom);
+        }
+        moduleRoots = newModuleRoots;
+    }
+
     private void updateProjectMetadataForModules(final Iterable<Pom> newPoms) {
         for (final Pom pom : newPoms) {
             final String projectMetadataId = ProjectMetadata
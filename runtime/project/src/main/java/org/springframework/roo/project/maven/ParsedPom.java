@@ -0,0 +1,485 @@
+package org.springframework.roo.project.maven;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.springframework.roo.project.Dependency;
+import org.springframework.roo.project.Filter;
+import org.springframework.roo.project.Plugin;
+import org.springframework.roo.project.Property;
+import org.springframework.roo.project.Repository;
+import org.springframework.roo.project.Resource;
+import org.springframework.roo.support.util.XmlUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * The parts of a <code>pom.xml</code> file that a {@link Pom} is built from,
+ * read in one streaming pass rather than by building a DOM of the whole file
+ * and querying it with XPath.
+ * <p>
+ * Elements are matched the way the DOM-based {@link PomFactory} matches them,
+ * i.e. by name regardless of any prefix, taking the first occurrence of
+ * single-valued elements. Dependencies, plugins, repositories, resources,
+ * filters and properties are still parsed by their own
+ * {@link Element}-based constructors, but from a DOM fragment holding just
+ * that element.
+ * 
+ * @since 2.0.0
+ */
+public final class ParsedPom {
+
+    private static final String REPORT_CDATA_EVENT = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+    private static final XMLInputFactory XML_INPUT_FACTORY;
+
+    static {
+        XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+        // Like the DOM parser used for POMs
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE,
+                Boolean.FALSE);
+        // Keeps CDATA sections in plugin configurations intact
+        if (XML_INPUT_FACTORY.isPropertySupported(REPORT_CDATA_EVENT)) {
+            XML_INPUT_FACTORY.setProperty(REPORT_CDATA_EVENT, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Reads the given POM
+     * 
+     * @param inputStream the POM's contents (required); closed by this method
+     * @return a non-<code>null</code> instance
+     * @throws IllegalStateException if the POM isn't well-formed
+     */
+    public static ParsedPom parse(final InputStream inputStream) {
+        Validate.notNull(inputStream, "InputStream required");
+        try {
+            return parse(XML_INPUT_FACTORY.createXMLStreamReader(inputStream));
+        }
+        catch (final XMLStreamException e) {
+            throw new IllegalStateException(e);
+        }
+        finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * Reads the given POM
+     * 
+     * @param pomContents the POM's contents (required)
+     * @return a non-<code>null</code> instance
+     * @throws IllegalStateException if the POM isn't well-formed
+     */
+    public static ParsedPom parse(final String pomContents) {
+        Validate.notNull(pomContents, "POM contents required");
+        try {
+            return parse(XML_INPUT_FACTORY
+                    .createXMLStreamReader(new StringReader(pomContents)));
+        }
+        catch (final XMLStreamException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ParsedPom parse(final XMLStreamReader reader)
+            throws XMLStreamException {
+        try {
+            final ParsedPom parsedPom = new ParsedPom();
+            parsedPom.read(reader);
+            return parsedPom;
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Returns the name of the given element or attribute without any prefix,
+     * i.e. the name an unprefixed XPath name test would match
+     */
+    private static String unprefixed(final String name) {
+        return name.substring(name.lastIndexOf(':') + 1);
+    }
+
+    private String artifactId;
+    private final List<Dependency> dependencies = new ArrayList<Dependency>();
+    private Document document;
+    private final List<Filter> filters = new ArrayList<Filter>();
+    private String groupId;
+    private boolean hasParent;
+    private final List<String> moduleNames = new ArrayList<String>();
+    private String name;
+    private String packaging;
+    private String packagingProvider;
+    private String parentGroupId;
+    private String parentVersion;
+    private final List<Repository> pluginRepositories = new ArrayList<Repository>();
+    private final List<Plugin> plugins = new ArrayList<Plugin>();
+    private final List<Property> properties = new ArrayList<Property>();
+    private String relativePath;
+    private final List<Repository> repositories = new ArrayList<Repository>();
+    private final List<Resource> resources = new ArrayList<Resource>();
+    private String sourceDirectory;
+    private String testSourceDirectory;
+    private String version;
+
+    private ParsedPom() {
+    }
+
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    public List<Dependency> getDependencies() {
+        return Collections.unmodifiableList(dependencies);
+    }
+
+    public List<Filter> getFilters() {
+        return Collections.unmodifiableList(filters);
+    }
+
+    /**
+     * Returns the groupId of the project, falling back to that of its parent
+     * 
+     * @return <code>null</code> if neither is present
+     */
+    public String getGroupId() {
+        if (StringUtils.isNotBlank(groupId)) {
+            return groupId;
+        }
+        return parentGroupId;
+    }
+
+    /**
+     * Returns the names of the modules listed by this POM
+     * 
+     * @return a non-<code>null</code> list of non-blank names
+     */
+    public List<String> getModuleNames() {
+        return Collections.unmodifiableList(moduleNames);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the packaging of the project
+     * 
+     * @param valueIfNull the packaging to assume if none is declared
+     * @return see above
+     */
+    public String getPackaging(final String valueIfNull) {
+        return packaging == null ? valueIfNull : packaging;
+    }
+
+    /**
+     * Returns the ID of the Roo packaging provider declared by the
+     * "roo.packaging.provider" property
+     * 
+     * @param valueIfNull the ID to assume if none is declared
+     * @return see above
+     */
+    public String getPackagingProviderId(final String valueIfNull) {
+        return packagingProvider == null ? valueIfNull : packagingProvider;
+    }
+
+    public List<Repository> getPluginRepositories() {
+        return Collections.unmodifiableList(pluginRepositories);
+    }
+
+    public List<Plugin> getPlugins() {
+        return Collections.unmodifiableList(plugins);
+    }
+
+    /**
+     * Returns the project's own groupId, i.e. without falling back to that of
+     * its parent
+     * 
+     * @return <code>null</code> if not present
+     */
+    String getProjectGroupId() {
+        return groupId;
+    }
+
+    /**
+     * Returns the project's own version, i.e. without falling back to that of
+     * its parent
+     * 
+     * @return <code>null</code> if not present
+     */
+    String getProjectVersion() {
+        return version;
+    }
+
+    public List<Property> getProperties() {
+        return Collections.unmodifiableList(properties);
+    }
+
+    /**
+     * Returns the content of any <code>relativePath</code> element directly
+     * within the <code>project</code> element
+     * 
+     * @return <code>null</code> if not present
+     */
+    String getRelativePath() {
+        return relativePath;
+    }
+
+    public List<Repository> getRepositories() {
+        return Collections.unmodifiableList(repositories);
+    }
+
+    public List<Resource> getResources() {
+        return Collections.unmodifiableList(resources);
+    }
+
+    public String getSourceDirectory() {
+        return sourceDirectory;
+    }
+
+    public String getTestSourceDirectory() {
+        return testSourceDirectory;
+    }
+
+    /**
+     * Returns the version of the project, falling back to that of its parent
+     * 
+     * @return <code>null</code> if neither is present
+     */
+    public String getVersion() {
+        return version == null ? parentVersion : version;
+    }
+
+    /**
+     * Indicates whether the POM declares a parent
+     * 
+     * @return see above
+     */
+    public boolean hasParent() {
+        return hasParent;
+    }
+
+    private void read(final XMLStreamReader reader) throws XMLStreamException {
+        String path = "";
+        while (reader.hasNext()) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                path = path.substring(0, path.lastIndexOf('/'));
+            }
+            else if (event == XMLStreamConstants.START_ELEMENT) {
+                final String parentPath = path;
+                path = parentPath + "/" + unprefixed(reader.getLocalName());
+                if (readElement(path, parentPath, reader)) {
+                    // The element has been consumed up to its end
+                    path = parentPath;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the element at which the given reader is positioned, if it's one
+     * that a {@link Pom} is built from
+     * 
+     * @param path the element's path from the document root
+     * @param parentPath the path of its parent element
+     * @param reader the reader
+     * @return <code>false</code> if the reader is to descend into the element,
+     *         otherwise <code>true</code>, in which case it has been consumed
+     *         up to and including its end tag
+     * @throws XMLStreamException
+     */
+    private boolean readElement(final String path, final String parentPath,
+            final XMLStreamReader reader) throws XMLStreamException {
+        if ("/project".equals(path) || "/project/build".equals(path)
+                || "/project/build/filters".equals(path)
+                || "/project/build/plugins".equals(path)
+                || "/project/build/resources".equals(path)
+                || "/project/dependencies".equals(path)
+                || "/project/modules".equals(path)
+                || "/project/pluginRepositories".equals(path)
+                || "/project/properties".equals(path)
+                || "/project/repositories".equals(path)) {
+            return false;
+        }
+        if ("/project/parent".equals(path)) {
+            hasParent = true;
+            return false;
+        }
+        if ("/project/properties".equals(parentPath)) {
+            final Element element = readFragment(reader);
+            if (packagingProvider == null
+                    && "roo.packaging.provider".equals(unprefixed(element
+                            .getNodeName()))) {
+                packagingProvider = element.getTextContent();
+            }
+            properties.add(new Property(element));
+        }
+        else if ("/project/dependencies/dependency".equals(path)) {
+            dependencies.add(new Dependency(readFragment(reader)));
+        }
+        else if ("/project/build/plugins/plugin".equals(path)) {
+            plugins.add(new Plugin(readFragment(reader)));
+        }
+        else if ("/project/repositories/repository".equals(path)) {
+            repositories.add(new Repository(readFragment(reader)));
+        }
+        else if ("/project/pluginRepositories/pluginRepository".equals(path)) {
+            pluginRepositories.add(new Repository(readFragment(reader)));
+        }
+        else if ("/project/build/resources/resource".equals(path)) {
+            resources.add(new Resource(readFragment(reader)));
+        }
+        else if ("/project/build/filters/filter".equals(path)) {
+            filters.add(new Filter(readFragment(reader)));
+        }
+        else if ("/project/modules/module".equals(path)) {
+            final String moduleName = readText(reader);
+            if (StringUtils.isNotBlank(moduleName)) {
+                moduleNames.add(moduleName);
+            }
+        }
+        else if ("/project/artifactId".equals(path)) {
+            artifactId = readFirstText(artifactId, reader);
+        }
+        else if ("/project/groupId".equals(path)) {
+            groupId = readFirstText(groupId, reader);
+        }
+        else if ("/project/name".equals(path)) {
+            name = readFirstText(name, reader);
+        }
+        else if ("/project/packaging".equals(path)) {
+            packaging = readFirstText(packaging, reader);
+        }
+        else if ("/project/relativePath".equals(path)) {
+            relativePath = readFirstText(relativePath, reader);
+        }
+        else if ("/project/version".equals(path)) {
+            version = readFirstText(version, reader);
+        }
+        else if ("/project/parent/groupId".equals(path)) {
+            parentGroupId = readFirstText(parentGroupId, reader);
+        }
+        else if ("/project/parent/version".equals(path)) {
+            parentVersion = readFirstText(parentVersion, reader);
+        }
+        else if ("/project/build/sourceDirectory".equals(path)) {
+            sourceDirectory = readFirstText(sourceDirectory, reader);
+        }
+        else if ("/project/build/testSourceDirectory".equals(path)) {
+            testSourceDirectory = readFirstText(testSourceDirectory, reader);
+        }
+        else {
+            skip(reader);
+        }
+        return true;
+    }
+
+    private String readFirstText(final String existingText,
+            final XMLStreamReader reader) throws XMLStreamException {
+        final String text = readText(reader);
+        return existingText == null ? text : existingText;
+    }
+
+    /**
+     * Copies the element at which the given reader is positioned into a
+     * stand-alone DOM element
+     * 
+     * @param reader the reader, positioned at a start tag
+     * @return a non-<code>null</code> element
+     * @throws XMLStreamException
+     */
+    private Element readFragment(final XMLStreamReader reader)
+            throws XMLStreamException {
+        if (document == null) {
+            document = XmlUtils.getDocumentBuilder().newDocument();
+        }
+        final Element element = document.createElement(reader.getLocalName());
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            final String prefix = reader.getAttributePrefix(i);
+            final String localName = reader.getAttributeLocalName(i);
+            element.setAttribute(StringUtils.isEmpty(prefix) ? localName
+                    : prefix + ":" + localName, reader.getAttributeValue(i));
+        }
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+                element.appendChild(readFragment(reader));
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.SPACE:
+                element.appendChild(document.createTextNode(reader.getText()));
+                break;
+            case XMLStreamConstants.CDATA:
+                element.appendChild(document.createCDATASection(reader
+                        .getText()));
+                break;
+            case XMLStreamConstants.COMMENT:
+                element.appendChild(document.createComment(reader.getText()));
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                return element;
+            default:
+                break;
+            }
+        }
+        return element;
+    }
+
+    /**
+     * Returns the text content of the element at which the given reader is
+     * positioned, as {@link org.w3c.dom.Node#getTextContent()} would
+     * 
+     * @param reader the reader, positioned at a start tag
+     * @return a non-<code>null</code> string
+     * @throws XMLStreamException
+     */
+    private String readText(final XMLStreamReader reader)
+            throws XMLStreamException {
+        final StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            switch (reader.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+                depth++;
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                depth--;
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                text.append(reader.getText());
+                break;
+            default:
+                break;
+            }
+        }
+        return text.toString();
+    }
+
+    private void skip(final XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
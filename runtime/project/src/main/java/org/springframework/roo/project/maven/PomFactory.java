@@ -20,4 +20,17 @@ public interface PomFactory {
      * @return a non-<code>null</code> instance
      */
     Pom getInstance(Element root, String pomPath, String moduleName);
+
+    /**
+     * Creates a {@link Pom} from a <code>pom.xml</code> file that has been
+     * read without building a DOM
+     * 
+     * @param parsedPom the contents of the XML file (required)
+     * @param pomPath the canonical path of the XML file (required)
+     * @param moduleName the name of the module to which the POM belongs (blank
+     *            means the root or only POM)
+     * @return a non-<code>null</code> instance
+     * @since 2.0.0
+     */
+    Pom getInstance(ParsedPom parsedPom, String pomPath, String moduleName);
 }
@@ -109,6 +109,40 @@ public class PomFactoryImpl implements PomFactory {
                 filters, plugins, resources, pomPath, moduleName, paths);
     }
 
+    public Pom getInstance(final ParsedPom parsedPom, final String pomPath,
+            final String moduleName) {
+        Validate.notNull(parsedPom, "Parsed POM is required");
+        Validate.notBlank(pomPath, "POM's canonical path is required");
+        final String packaging = parsedPom.getPackaging(DEFAULT_PACKAGING);
+        List<Module> modules = null;
+        if ("pom".equalsIgnoreCase(packaging)) {
+            modules = new ArrayList<Module>();
+            for (final String module : parsedPom.getModuleNames()) {
+                modules.add(new Module(module, resolveRelativePath(pomPath,
+                        module)));
+            }
+        }
+        Parent parent = null;
+        if (parsedPom.hasParent()) {
+            // Same coordinates as the ParentBuilder reads from the DOM
+            parent = new Parent(parsedPom.getProjectGroupId(),
+                    parsedPom.getArtifactId(), parsedPom.getProjectVersion(),
+                    parsedPom.getRelativePath(), resolveRelativePath(pomPath,
+                            DEFAULT_RELATIVE_PATH));
+        }
+        final Collection<Path> paths = getPaths(parsedPom
+                .getPackagingProviderId(packaging));
+        return new Pom(parsedPom.getGroupId(), parsedPom.getArtifactId(),
+                parsedPom.getVersion(), packaging, parsedPom.getDependencies(),
+                parent, modules, parsedPom.getProperties(),
+                parsedPom.getName(), parsedPom.getRepositories(),
+                parsedPom.getPluginRepositories(),
+                parsedPom.getSourceDirectory(),
+                parsedPom.getTestSourceDirectory(), parsedPom.getFilters(),
+                parsedPom.getPlugins(), parsedPom.getResources(), pomPath,
+                moduleName, paths);
+    }
+
     private List<Module> getModules(final Element root, final String pomPath,
             final String packaging) {
         if (!"pom".equalsIgnoreCase(packaging)) {
@@ -139,8 +173,11 @@ public class PomFactoryImpl implements PomFactory {
     }
 
     private Collection<Path> getPaths(final Element root, final String packaging) {
-        final String packagingProviderId = XmlUtils.getTextContent(
-                PACKAGING_PROVIDER_PROPERTY_XPATH, root, packaging);
+        return getPaths(XmlUtils.getTextContent(
+                PACKAGING_PROVIDER_PROPERTY_XPATH, root, packaging));
+    }
+
+    private Collection<Path> getPaths(final String packagingProviderId) {
         final PackagingProvider packagingProvider = packagingProviderRegistry
                 .getPackagingProvider(packagingProviderId);
         Validate.notNull(packagingProvider,
@@ -0,0 +1,125 @@
+package org.springframework.roo.project;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test of {@link FeatureStateCache}
+ * 
+ * @since 2.0.0
+ */
+public class FeatureStateCacheTest {
+
+    private static final String MODULE_NAME = "web";
+    private static final String RELEVANT_FILE = File.separator + "project"
+            + File.separator + "config.xml";
+    private static final String POM = File.separator + "project"
+            + File.separator + "pom.xml";
+
+    /**
+     * A feature that counts how often it's checked
+     */
+    private static class StubFeature implements CacheableFeature {
+
+        int checks;
+        boolean installed;
+
+        public String getName() {
+            return "stub";
+        }
+
+        public Collection<String> getRelevantFiles(final String moduleName) {
+            return Collections.singletonList(RELEVANT_FILE);
+        }
+
+        public boolean isInstalledInModule(final String moduleName) {
+            checks++;
+            return installed;
+        }
+    }
+
+    private StubFeature feature;
+    private FeatureStateCache featureStates;
+
+    @Before
+    public void setUp() {
+        feature = new StubFeature();
+        featureStates = new FeatureStateCache();
+    }
+
+    @Test
+    public void testChangeToOtherFileKeepsState() {
+        // Set up
+        featureStates.isInstalledInModule(feature, MODULE_NAME);
+        feature.installed = true;
+
+        // Invoke
+        featureStates.invalidate(Arrays.asList(File.separator + "other.xml",
+                File.separator + "my-pom.xml.bak"));
+
+        // Check
+        assertFalse(featureStates.isInstalledInModule(feature, MODULE_NAME));
+        assertEquals(1, feature.checks);
+    }
+
+    @Test
+    public void testChangeToPomForgetsState() {
+        // Set up
+        featureStates.isInstalledInModule(feature, MODULE_NAME);
+        feature.installed = true;
+
+        // Invoke
+        featureStates.invalidate(Collections.singleton(POM));
+
+        // Check
+        assertTrue(featureStates.isInstalledInModule(feature, MODULE_NAME));
+        assertEquals(2, feature.checks);
+    }
+
+    @Test
+    public void testChangeToRelevantFileForgetsState() {
+        // Set up
+        featureStates.isInstalledInModule(feature, MODULE_NAME);
+        feature.installed = true;
+
+        // Invoke
+        featureStates.invalidate(Collections.singleton(RELEVANT_FILE));
+
+        // Check
+        assertTrue(featureStates.isInstalledInModule(feature, MODULE_NAME));
+        assertEquals(2, feature.checks);
+    }
+
+    @Test
+    public void testRemovedFeatureIsCheckedAgain() {
+        // Set up
+        featureStates.isInstalledInModule(feature, MODULE_NAME);
+
+        // Invoke
+        featureStates.remove(feature.getName());
+
+        // Check
+        featureStates.isInstalledInModule(feature, MODULE_NAME);
+        assertEquals(2, feature.checks);
+    }
+
+    @Test
+    public void testStateIsCachedPerModule() {
+        // Invoke
+        featureStates.isInstalledInModule(feature, MODULE_NAME);
+        featureStates.isInstalledInModule(feature, MODULE_NAME);
+        featureStates.isInstalledInModule(feature, "");
+
+        // Check
+        assertEquals(2, feature.checks);
+    }
+}
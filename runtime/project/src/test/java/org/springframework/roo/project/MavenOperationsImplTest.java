@@ -2,7 +2,9 @@ package org.springframework.roo.project;
 
 import static org.apache.commons.io.IOUtils.LINE_SEPARATOR;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
@@ -10,16 +12,24 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.roo.file.monitor.FileMonitorService;
+import org.springframework.roo.file.monitor.event.FileDetails;
+import org.springframework.roo.file.monitor.event.FileEvent;
+import org.springframework.roo.file.monitor.event.FileOperation;
 import org.springframework.roo.metadata.MetadataService;
 import org.springframework.roo.process.manager.FileManager;
 import org.springframework.roo.project.maven.Pom;
+import org.springframework.roo.support.util.XmlUtils;
+import org.w3c.dom.Document;
 
 /**
  * Unit test of {@link MavenOperationsImpl}
@@ -29,6 +39,31 @@ import org.springframework.roo.project.maven.Pom;
  */
 public class MavenOperationsImplTest {
 
+    /**
+     * A feature that is installed while a given file exists
+     */
+    private static class StubFeature implements CacheableFeature {
+
+        private final File relevantFile;
+        private boolean installed = true;
+
+        StubFeature(final File relevantFile) {
+            this.relevantFile = relevantFile;
+        }
+
+        public String getName() {
+            return "stub";
+        }
+
+        public Collection<String> getRelevantFiles(final String moduleName) {
+            return Collections.singletonList(relevantFile.getPath());
+        }
+
+        public boolean isInstalledInModule(final String moduleName) {
+            return installed;
+        }
+    }
+
     private static final String ARTIFACT_ID = "foo-lib";
     private static final String CLASSIFIER = "exe";
     private static final String GROUP_ID = "com.example";
@@ -59,6 +94,7 @@ public class MavenOperationsImplTest {
     private static final String SIMPLE_DESCRIPTION = "Foo Library";
 
     @Mock private FileManager mockFileManager;
+    @Mock private FileMonitorService mockFileMonitorService;
     @Mock private MetadataService mockMetadataService;
     @Mock private PathResolver mockPathResolver;
     @Mock private PomManagementService mockPomManagementService;
@@ -90,11 +126,34 @@ public class MavenOperationsImplTest {
         // Object under test
         projectOperations = new MavenOperationsImpl();
         projectOperations.fileManager = mockFileManager;
+        projectOperations.fileMonitorService = mockFileMonitorService;
         projectOperations.metadataService = mockMetadataService;
         projectOperations.pathResolver = mockPathResolver;
         projectOperations.pomManagementService = mockPomManagementService;
     }
 
+    @Test
+    public void testAddingNoDependenciesLeavesPomWithoutDependencies() {
+        // Set up
+        final Document pomDocument = XmlUtils
+                .readXml(new ByteArrayInputStream("<project/>".getBytes()));
+        when(mockFileManager.getXmlDocument(POM_PATH)).thenReturn(pomDocument);
+        when(mockMetadataService.get(ProjectMetadata.getProjectIdentifier("")))
+                .thenReturn(mockProjectMetadata);
+        final Pom pom = mock(Pom.class);
+        when(pom.getPath()).thenReturn(POM_PATH);
+        when(mockProjectMetadata.getPom()).thenReturn(pom);
+        final Dependency mockDependency = mock(Dependency.class);
+        when(pom.canAddDependency(mockDependency)).thenReturn(false);
+
+        // Invoke
+        projectOperations.addDependencies("", Arrays.asList(mockDependency));
+
+        // Check
+        assertNull(XmlUtils.findFirstElement("dependencies",
+                pomDocument.getDocumentElement()));
+    }
+
     @Test
     public void testCannotFocusModuleWhenMoreThanOneModuleExists() {
         assertModuleFocusAllowed(true, "", "core");
@@ -105,6 +164,28 @@ public class MavenOperationsImplTest {
         assertModuleFocusAllowed(false, "");
     }
 
+    @Test
+    public void testDeletingRelevantFileForgetsFeatureState() {
+        // Set up
+        final File relevantFile = new File(File.separator + "project"
+                + File.separator + "persistence.xml").getAbsoluteFile();
+        when(mockFileMonitorService.getDirtyFiles(any(String.class)))
+                .thenReturn(Collections.<String> emptySet());
+        final StubFeature feature = new StubFeature(relevantFile);
+        projectOperations.bindFeature(feature);
+        assertTrue(projectOperations.isFeatureInstalledInModule(
+                feature.getName(), ""));
+        feature.installed = false;
+
+        // Invoke
+        projectOperations.onFileEvent(new FileEvent(new FileDetails(
+                relevantFile, null), FileOperation.DELETED, null));
+
+        // Check
+        assertFalse(projectOperations.isFeatureInstalledInModule(
+                feature.getName(), ""));
+    }
+
     @Test
     public void testGetFocusedModuleWhenChildModuleHasFocus() {
         // Set up
@@ -136,9 +217,10 @@ public class MavenOperationsImplTest {
     @Test
     public void testRemoveDependencyTwiceWhenItExistsOnce() {
         // Set up
-        when(mockFileManager.getInputStream(POM_PATH)).thenReturn(
-                new ByteArrayInputStream(POM_BEFORE_DEPENDENCY_REMOVED
+        final Document pomDocument = XmlUtils
+                .readXml(new ByteArrayInputStream(POM_BEFORE_DEPENDENCY_REMOVED
                         .getBytes()));
+        when(mockFileManager.getXmlDocument(POM_PATH)).thenReturn(pomDocument);
 
         // -- Dependency to remove
         final Dependency mockDependency = mock(Dependency.class);
@@ -167,7 +249,7 @@ public class MavenOperationsImplTest {
         // Check
         final String expectedPom = POM_AFTER_DEPENDENCY_REMOVED.replace("\n",
                 LINE_SEPARATOR);
-        verify(mockFileManager).createOrUpdateTextFileIfRequired(eq(POM_PATH),
-                eq(expectedPom), (String) any(), eq(false));
+        assertEquals(expectedPom, XmlUtils.nodeToString(pomDocument));
+        verify(mockFileManager).updateXmlDocument(eq(POM_PATH), (String) any());
     }
 }
@@ -2,6 +2,7 @@ package org.springframework.roo.project;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
@@ -27,12 +28,12 @@ import org.springframework.roo.file.monitor.FileMonitorService;
 import org.springframework.roo.metadata.MetadataDependencyRegistry;
 import org.springframework.roo.metadata.MetadataService;
 import org.springframework.roo.process.manager.FileManager;
+import org.springframework.roo.project.maven.ParsedPom;
 import org.springframework.roo.project.maven.Pom;
 import org.springframework.roo.project.maven.PomFactory;
 import org.springframework.roo.shell.Shell;
 import org.springframework.roo.support.osgi.OSGiUtils;
 import org.springframework.roo.support.util.FileUtils;
-import org.w3c.dom.Element;
 
 /**
  * Unit test of {@link PomManagementServiceImpl}
@@ -72,7 +73,7 @@ public class PomManagementServiceImplTest {
         when(mockPom.getModuleName()).thenReturn(moduleName);
         when(mockPom.getPath()).thenReturn(canonicalPath);
         when(
-                mockPomFactory.getInstance(any(Element.class),
+                mockPomFactory.getInstance(any(ParsedPom.class),
                         eq(canonicalPath), eq(moduleName))).thenReturn(mockPom);
         return mockPom;
     }
@@ -263,6 +264,41 @@ public class PomManagementServiceImplTest {
         assertEquals(0, poms.size());
     }
 
+    @Test
+    public void testGetModuleForFileIdentifierReturnsDeepestModule() {
+        // Set up
+        final String rootDirectory = FileUtils.getSystemDependentPath("",
+                "users", "jbloggs", "clinic");
+        final String childDirectory = rootDirectory + File.separator
+                + "foo-child";
+        final Pom mockRootPom = getMockPom(ROOT_MODULE_NAME, rootDirectory
+                + File.separator + "pom.xml");
+        final Pom mockChildPom = getMockPom("foo-child", childDirectory
+                + File.separator + "pom.xml");
+        when(
+                mockFileMonitorService
+                        .getDirtyFiles(PomManagementServiceImpl.class.getName()))
+                .thenReturn(Arrays.<String> asList());
+        service.addPom(mockRootPom);
+        service.addPom(mockChildPom);
+
+        // Invoke and check
+        assertEquals(mockChildPom,
+                service.getModuleForFileIdentifier(FileUtils
+                        .getSystemDependentPath(childDirectory, "src", "main",
+                                "java", "Foo.java")));
+        assertEquals(mockChildPom,
+                service.getModuleForFileIdentifier(childDirectory));
+        assertEquals(mockRootPom,
+                service.getModuleForFileIdentifier(rootDirectory
+                        + File.separator + "foo-child-2"));
+        assertEquals(mockRootPom,
+                service.getModuleForFileIdentifier(rootDirectory
+                        + File.separator + "pom.xml"));
+        assertNull(service.getModuleForFileIdentifier(FileUtils
+                .getSystemDependentPath("", "users", "jbloggs", "vets")));
+    }
+
     private void verifyProjectMetadataNotification(final String... moduleNames) {
         for (final String moduleName : moduleNames) {
             final String projectMetadataId = ProjectMetadata
@@ -0,0 +1,204 @@
+package org.springframework.roo.project.maven;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.springframework.roo.project.packaging.JarPackaging;
+import org.springframework.roo.project.packaging.PackagingProvider;
+import org.springframework.roo.project.packaging.PackagingProviderRegistry;
+import org.springframework.roo.project.packaging.PomPackaging;
+import org.springframework.roo.support.util.XmlUtils;
+
+/**
+ * Compares the time and retained heap of building the {@link Pom}s of a
+ * generated 100-module reactor from a DOM (the old way) and from a
+ * {@link ParsedPom}. Not a unit test; run its <code>main</code> method
+ * manually.
+ * 
+ * @since 2.0.0
+ */
+public class ParsedPomBenchmark {
+
+    private static final int DEPENDENCIES_PER_MODULE = 20;
+    private static final int MODULES = 100;
+    private static final int ROUNDS = 20;
+
+    private static String getModulePom(final int index) {
+        final StringBuilder pom = new StringBuilder();
+        pom.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        pom.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n");
+        pom.append("  <modelVersion>4.0.0</modelVersion>\n");
+        pom.append("  <parent><groupId>com.example</groupId>");
+        pom.append("<artifactId>reactor</artifactId>");
+        pom.append("<version>1.0.0</version></parent>\n");
+        pom.append("  <artifactId>module").append(index)
+                .append("</artifactId>\n");
+        pom.append("  <packaging>jar</packaging>\n");
+        pom.append("  <properties><java.version>1.6</java.version>");
+        pom.append("<module.index>").append(index)
+                .append("</module.index></properties>\n");
+        pom.append("  <dependencies>\n");
+        for (int i = 0; i < DEPENDENCIES_PER_MODULE; i++) {
+            pom.append("    <dependency><groupId>org.example.lib")
+                    .append(i).append("</groupId>");
+            pom.append("<artifactId>lib").append(i).append("</artifactId>");
+            pom.append("<version>1.").append(i).append("</version>");
+            pom.append("<exclusions><exclusion><groupId>commons-logging");
+            pom.append("</groupId><artifactId>commons-logging</artifactId>");
+            pom.append("</exclusion></exclusions></dependency>\n");
+        }
+        pom.append("  </dependencies>\n");
+        pom.append("  <build>\n    <resources><resource>");
+        pom.append("<directory>src/main/resources</directory>");
+        pom.append("<filtering>true</filtering></resource></resources>\n");
+        pom.append("    <plugins>\n");
+        for (final String plugin : Arrays.asList("maven-compiler-plugin",
+                "maven-surefire-plugin", "maven-jar-plugin")) {
+            pom.append("      <plugin><groupId>org.apache.maven.plugins");
+            pom.append("</groupId><artifactId>").append(plugin);
+            pom.append("</artifactId><version>2.5</version><configuration>");
+            pom.append("<source>${java.version}</source>");
+            pom.append("<target>${java.version}</target>");
+            pom.append("<encoding>UTF-8</encoding></configuration>");
+            pom.append("<executions><execution><id>default</id>");
+            pom.append("<phase>compile</phase><goals><goal>run</goal>");
+            pom.append("</goals></execution></executions></plugin>\n");
+        }
+        pom.append("    </plugins>\n  </build>\n</project>\n");
+        return pom.toString();
+    }
+
+    private static String getParentPom() {
+        final StringBuilder pom = new StringBuilder();
+        pom.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        pom.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n");
+        pom.append("  <modelVersion>4.0.0</modelVersion>\n");
+        pom.append("  <groupId>com.example</groupId>\n");
+        pom.append("  <artifactId>reactor</artifactId>\n");
+        pom.append("  <version>1.0.0</version>\n");
+        pom.append("  <packaging>pom</packaging>\n");
+        pom.append("  <modules>\n");
+        for (int i = 0; i < MODULES; i++) {
+            pom.append("    <module>module").append(i).append("</module>\n");
+        }
+        pom.append("  </modules>\n</project>\n");
+        return pom.toString();
+    }
+
+    private static long getUsedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final File reactor = new File(FileUtils.getTempDirectory(),
+                "roo-reactor-" + System.nanoTime());
+        try {
+            final List<File> pomFiles = writeReactor(reactor);
+            final PomFactoryImpl pomFactory = new PomFactoryImpl();
+            pomFactory.packagingProviderRegistry = new StubPackagingProviderRegistry();
+            // Warm up both readers before timing them
+            for (int i = 0; i < ROUNDS; i++) {
+                readWithDom(pomFactory, pomFiles);
+                readWithStax(pomFactory, pomFiles);
+            }
+            report("DOM + XPath", pomFactory, pomFiles, false);
+            report("StAX", pomFactory, pomFiles, true);
+        }
+        finally {
+            FileUtils.deleteQuietly(reactor);
+        }
+    }
+
+    private static List<Pom> readWithDom(final PomFactory pomFactory,
+            final List<File> pomFiles) throws IOException {
+        final List<Pom> poms = new ArrayList<Pom>();
+        for (final File pomFile : pomFiles) {
+            poms.add(pomFactory.getInstance(
+                    XmlUtils.readXml(new FileInputStream(pomFile))
+                            .getDocumentElement(), pomFile.getCanonicalPath(),
+                    pomFile.getParentFile().getName()));
+        }
+        return poms;
+    }
+
+    private static List<Pom> readWithStax(final PomFactory pomFactory,
+            final List<File> pomFiles) throws IOException {
+        final List<Pom> poms = new ArrayList<Pom>();
+        for (final File pomFile : pomFiles) {
+            poms.add(pomFactory.getInstance(
+                    ParsedPom.parse(new FileInputStream(pomFile)),
+                    pomFile.getCanonicalPath(), pomFile.getParentFile()
+                            .getName()));
+        }
+        return poms;
+    }
+
+    private static void report(final String reader,
+            final PomFactory pomFactory, final List<File> pomFiles,
+            final boolean stax) throws IOException {
+        long elapsed = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            final long start = System.nanoTime();
+            if (stax) {
+                readWithStax(pomFactory, pomFiles);
+            }
+            else {
+                readWithDom(pomFactory, pomFiles);
+            }
+            elapsed += System.nanoTime() - start;
+        }
+        // The Poms keep their plugin configurations' owner documents alive
+        final long heapBefore = getUsedHeap();
+        final List<Pom> poms = stax ? readWithStax(pomFactory, pomFiles)
+                : readWithDom(pomFactory, pomFiles);
+        final long retainedHeap = getUsedHeap() - heapBefore;
+        System.out.printf("%-12s %4d POMs: %8.2f ms/round, %8d KB retained%n",
+                reader, poms.size(), elapsed / ROUNDS / 1000000.0,
+                retainedHeap / 1024);
+    }
+
+    private static List<File> writeReactor(final File reactor)
+            throws IOException {
+        final List<File> pomFiles = new ArrayList<File>();
+        final File parentPom = new File(reactor, "pom.xml");
+        FileUtils.writeStringToFile(parentPom, getParentPom(), "UTF-8");
+        pomFiles.add(parentPom);
+        for (int i = 0; i < MODULES; i++) {
+            final File modulePom = new File(reactor, "module" + i
+                    + File.separator + "pom.xml");
+            FileUtils.writeStringToFile(modulePom, getModulePom(i), "UTF-8");
+            pomFiles.add(modulePom);
+        }
+        return pomFiles;
+    }
+
+    private static class StubPackagingProviderRegistry implements
+            PackagingProviderRegistry {
+
+        private final PackagingProvider jarPackaging = new JarPackaging();
+        private final PackagingProvider pomPackaging = new PomPackaging();
+
+        public Collection<PackagingProvider> getAllPackagingProviders() {
+            return Arrays.asList(jarPackaging, pomPackaging);
+        }
+
+        public PackagingProvider getDefaultPackagingProvider() {
+            return jarPackaging;
+        }
+
+        public PackagingProvider getPackagingProvider(final String id) {
+            return pomPackaging.getId().equals(id) ? pomPackaging
+                    : jarPackaging;
+        }
+    }
+}
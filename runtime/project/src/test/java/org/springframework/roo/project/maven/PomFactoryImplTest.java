@@ -0,0 +1,163 @@
+package org.springframework.roo.project.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.roo.project.Path;
+import org.springframework.roo.project.Plugin;
+import org.springframework.roo.project.packaging.PackagingProvider;
+import org.springframework.roo.project.packaging.PackagingProviderRegistry;
+import org.springframework.roo.support.util.XmlUtils;
+
+/**
+ * Unit test of {@link PomFactoryImpl}, checking that a {@link Pom} built from a
+ * {@link ParsedPom} is the same as one built from the POM's DOM
+ * 
+ * @since 2.0.0
+ */
+public class PomFactoryImplTest {
+
+    private static final String FULL_POM = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">"
+            + "<parent><groupId>com.example</groupId><version>1.0</version></parent>"
+            + "<groupId> </groupId><artifactId>full-app</artifactId><name>Full</name>"
+            + "<packaging>war</packaging>"
+            + "<properties><roo.packaging.provider>custom</roo.packaging.provider>"
+            + "<java.version>1.6</java.version><!-- comment --></properties>"
+            + "<repositories><repository><id>r1</id><url>http://r1</url></repository></repositories>"
+            + "<pluginRepositories><pluginRepository><id>p1</id><url>http://p1</url>"
+            + "</pluginRepository></pluginRepositories>"
+            + "<dependencies><dependency><groupId>org.apache</groupId>"
+            + "<artifactId>commons-io</artifactId><version>2.0</version><scope>test</scope>"
+            + "<exclusions><exclusion><groupId>x</groupId><artifactId>y</artifactId>"
+            + "</exclusion></exclusions></dependency></dependencies>"
+            + "<build><sourceDirectory>src</sourceDirectory>"
+            + "<filters><filter>a.properties</filter></filters>"
+            + "<resources><resource><directory>res</directory><filtering>true</filtering>"
+            + "</resource></resources>"
+            + "<plugins><plugin><groupId>org.codehaus.mojo</groupId>"
+            + "<artifactId>aspectj-maven-plugin</artifactId><version>1.2</version>"
+            + "<configuration><source><![CDATA[1.6]]></source></configuration>"
+            + "<executions><execution><id>e</id><phase>compile</phase>"
+            + "<goals><goal>compile</goal></goals></execution></executions>"
+            + "</plugin></plugins></build>"
+            + "<version>2.0</version><version>ignored</version></project>";
+    private static final String MODULE_NAME = "foo";
+
+    @Mock private PackagingProvider mockPackagingProvider;
+    @Mock private PackagingProviderRegistry mockPackagingProviderRegistry;
+    // Fixture
+    private PomFactoryImpl pomFactory;
+
+    private void assertSamePom(final String pomContents, final String pomPath) {
+        final Pom expected = pomFactory.getInstance(
+                XmlUtils.stringToElement(pomContents), pomPath, MODULE_NAME);
+
+        final Pom actual = pomFactory.getInstance(
+                ParsedPom.parse(pomContents), pomPath, MODULE_NAME);
+
+        assertEquals(expected.getGroupId(), actual.getGroupId());
+        assertEquals(expected.getArtifactId(), actual.getArtifactId());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getPackaging(), actual.getPackaging());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getSourceDirectory(),
+                actual.getSourceDirectory());
+        assertEquals(expected.getTestSourceDirectory(),
+                actual.getTestSourceDirectory());
+        assertEquals(expected.getDependencies(), actual.getDependencies());
+        // Plugin#hashCode is identity-based on its configuration element
+        assertEquals(new ArrayList<Plugin>(expected.getBuildPlugins()),
+                new ArrayList<Plugin>(actual.getBuildPlugins()));
+        assertEquals(expected.getPomProperties(), actual.getPomProperties());
+        assertEquals(expected.getRepositories(), actual.getRepositories());
+        assertEquals(expected.getPluginRepositories(),
+                actual.getPluginRepositories());
+        assertEquals(expected.getResources(), actual.getResources());
+        assertEquals(expected.getFilters(), actual.getFilters());
+        assertEquals(getModulePaths(expected), getModulePaths(actual));
+        if (expected.getParent() == null) {
+            assertNull(actual.getParent());
+        }
+        else {
+            assertEquals(expected.getParent().getGroupId(), actual.getParent()
+                    .getGroupId());
+            assertEquals(expected.getParent().getArtifactId(), actual
+                    .getParent().getArtifactId());
+            assertEquals(expected.getParent().getVersion(), actual.getParent()
+                    .getVersion());
+            assertEquals(expected.getParent().getRelativePath(), actual
+                    .getParent().getRelativePath());
+            assertEquals(expected.getParent().getPomPath(), actual.getParent()
+                    .getPomPath());
+        }
+    }
+
+    private void assertSamePom(final String resourceName) throws IOException {
+        final URL resource = getClass().getResource(resourceName);
+        assertNotNull(resourceName, resource);
+        assertSamePom(IOUtils.toString(resource),
+                new File(resource.getFile()).getCanonicalPath());
+    }
+
+    private List<String> getModulePaths(final Pom pom) {
+        final List<String> modulePaths = new ArrayList<String>();
+        for (final Module module : pom.getModules()) {
+            modulePaths.add(module.getName() + "=" + module.getPomPath());
+        }
+        return modulePaths;
+    }
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mockPackagingProvider.getPaths()).thenReturn(
+                Arrays.asList(Path.ROOT));
+        for (final String id : Arrays.asList("custom", "jar", "pom")) {
+            when(mockPackagingProviderRegistry.getPackagingProvider(id))
+                    .thenReturn(mockPackagingProvider);
+        }
+        pomFactory = new PomFactoryImpl();
+        pomFactory.packagingProviderRegistry = mockPackagingProviderRegistry;
+    }
+
+    @Test
+    public void testFullPom() {
+        assertSamePom(FULL_POM, File.separator + "clinic" + File.separator
+                + "pom.xml");
+    }
+
+    @Test
+    public void testMinimalPom() throws IOException {
+        assertSamePom("minimal-pom.xml");
+    }
+
+    @Test
+    public void testPomWithDependencies() throws IOException {
+        assertSamePom("pom-with-dependencies.xml");
+    }
+
+    @Test
+    public void testPomWithInheritedGroupId() throws IOException {
+        assertSamePom("inherited-groupId-pom.xml");
+    }
+
+    @Test
+    public void testPomWithModules() throws IOException {
+        assertSamePom("parent-pom.xml");
+    }
+}
@@ -0,0 +1,117 @@
+package org.springframework.roo.shell;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Indexes the {@link CliCommand} methods of the registered
+ * {@link CommandMarker}s by the words of their command names, so that the
+ * {@link SimpleParser} only has to match a buffer against the few commands
+ * whose words it could abbreviate, instead of against every command.
+ * 
+ * @since 2.0.0
+ */
+class CommandTrie {
+
+    /**
+     * A command word, with the targets whose command ends at this word and the
+     * words that can follow it
+     */
+    private static class Node {
+
+        private final SortedMap<String, Node> children = new TreeMap<String, Node>();
+        private final Collection<MethodTarget> targets = new LinkedHashSet<MethodTarget>();
+
+        void addAllTargets(final Collection<MethodTarget> result) {
+            result.addAll(targets);
+            for (final Node child : children.values()) {
+                child.addAllTargets(result);
+            }
+        }
+
+        Collection<Node> getChildrenStartingWith(final String prefix) {
+            return children.subMap(prefix, prefix + Character.MAX_VALUE)
+                    .values();
+        }
+    }
+
+    private final Set<String> commands = new LinkedHashSet<String>();
+    private final Node root = new Node();
+
+    /**
+     * Adds the given command
+     * 
+     * @param command the full name of the command, e.g. "web mvc setup"
+     *            (required)
+     * @param target the method that implements it (required)
+     */
+    void add(final String command, final MethodTarget target) {
+        final String[] words = StringUtils.split(command, " ");
+        Validate.notEmpty(words, "Command required");
+        Validate.notNull(target, "Target required");
+        Node node = root;
+        for (final String word : words) {
+            Node child = node.children.get(word);
+            if (child == null) {
+                child = new Node();
+                node.children.put(word, child);
+            }
+            node = child;
+        }
+        node.targets.add(target);
+        commands.add(command);
+    }
+
+    /**
+     * Returns the targets that {@link SimpleParser#isMatch} might match with
+     * the given buffer, i.e. those with a command whose words start with the
+     * buffer's leading words, followed by anything. This is a superset of the
+     * actual matches, which the caller still has to check.
+     * 
+     * @param buffer the buffer typed so far (required)
+     * @return a non-<code>null</code> set without duplicates
+     */
+    Set<MethodTarget> getCandidates(final String buffer) {
+        final Set<MethodTarget> candidates = new LinkedHashSet<MethodTarget>();
+        final String[] words = StringUtils.split(buffer, " ");
+        Collection<Node> nodes = Collections.singleton(root);
+        for (final String word : words) {
+            final List<Node> matchingNodes = new ArrayList<Node>();
+            for (final Node node : nodes) {
+                matchingNodes.addAll(node.getChildrenStartingWith(word.trim()));
+            }
+            if (matchingNodes.isEmpty()) {
+                // The rest of the buffer can only be options
+                return candidates;
+            }
+            for (final Node node : matchingNodes) {
+                // Commands that end here, with options following
+                candidates.addAll(node.targets);
+            }
+            nodes = matchingNodes;
+        }
+        // Commands that the buffer starts
+        for (final Node node : nodes) {
+            node.addAllTargets(candidates);
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the full names of all the commands
+     * 
+     * @return a non-<code>null</code> set in the order they were added
+     */
+    Set<String> getCommands() {
+        return Collections.unmodifiableSet(commands);
+    }
+}
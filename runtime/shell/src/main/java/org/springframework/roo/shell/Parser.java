@@ -11,6 +11,16 @@ import java.util.List;
  */
 public interface Parser {
 
+    /**
+     * Forgets the results of the {@link CliAvailabilityIndicator}s invoked so
+     * far, e.g. because a transaction may have changed what they depend upon.
+     * Until then, each indicator is invoked at most once, however many
+     * commands it applies to and however many times they're completed.
+     * 
+     * @since 2.0.0
+     */
+    void clearAvailabilityCache();
+
     /**
      * Populates a list of completion candidates. This method is required for
      * backward compatibility for STS versions up to 2.8.0.
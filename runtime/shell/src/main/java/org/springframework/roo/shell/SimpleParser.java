@@ -138,7 +138,11 @@ public class SimpleParser implements Parser {
         return null; // Not a match
     }
 
+    private long availabilityGeneration;
     private final Map<String, MethodTarget> availabilityIndicators = new HashMap<String, MethodTarget>();
+    private final Map<MethodTarget, Boolean> availabilityResults = new HashMap<MethodTarget, Boolean>();
+    private final Map<Method, Set<CliOption>> cliOptionsByMethod = new HashMap<Method, Set<CliOption>>();
+    private CommandTrie commandTrie;
     private final Set<CommandMarker> commands = new HashSet<CommandMarker>();
     private final Set<Converter<?>> converters = new HashSet<Converter<?>>();
 
@@ -147,6 +151,7 @@ public class SimpleParser implements Parser {
     public final void add(final CommandMarker command) {
         synchronized (mutex) {
             commands.add(command);
+            commandTrie = null;
             for (final Method method : command.getClass().getMethods()) {
                 final CliAvailabilityIndicator availability = method
                         .getAnnotation(CliAvailabilityIndicator.class);
@@ -159,6 +164,8 @@ public class SimpleParser implements Parser {
                             method.getReturnType().equals(Boolean.TYPE),
                             "CliAvailabilityIndicator is only legal for primitive boolean return types (%s)",
                             method.toGenericString());
+                    // Skip the access checks on each invocation
+                    method.setAccessible(true);
                     for (final String cmd : availability.value()) {
                         Validate.isTrue(
                                 !availabilityIndicators.containsKey(cmd),
@@ -178,6 +185,13 @@ public class SimpleParser implements Parser {
         }
     }
 
+    public void clearAvailabilityCache() {
+        synchronized (availabilityResults) {
+            availabilityGeneration++;
+            availabilityResults.clear();
+        }
+    }
+
     protected void commandNotFound(final Logger logger, final String buffer) {
         logger.warning("Command '" + buffer
                 + "' not found (for assistance press "
@@ -199,8 +213,8 @@ public class SimpleParser implements Parser {
             final List<Completion> candidates) {
         synchronized (mutex) {
         	
-        	// Loading converters if needed
-        	loadConverters();
+        	// Loading components if needed
+        	loadComponents();
         	
             Validate.notNull(buffer, "Buffer required");
             Validate.notNull(candidates, "Candidates list required");
@@ -714,41 +728,58 @@ public class SimpleParser implements Parser {
         return cliOptions;
     }
 
+    /**
+     * Returns the options of the given command method, as precomputed when
+     * the commands were indexed
+     * 
+     * @param method a {@link CliCommand} method (required)
+     * @return a non-<code>null</code> set
+     */
+    private Set<CliOption> getCliOptions(final Method method) {
+        final Set<CliOption> cliOptions = cliOptionsByMethod.get(method);
+        if (cliOptions == null) {
+            return getCliOptions(method.getParameterAnnotations());
+        }
+        return cliOptions;
+    }
+
+    /**
+     * Returns the index of the current commands, rebuilding it if commands
+     * have been added or removed since it was last built
+     * 
+     * @return a non-<code>null</code> index
+     */
+    private CommandTrie getCommandTrie() {
+        if (commandTrie == null) {
+            commandTrie = new CommandTrie();
+            cliOptionsByMethod.clear();
+            for (final CommandMarker command : commands) {
+                for (final Method method : command.getClass().getMethods()) {
+                    final CliCommand cmd = method
+                            .getAnnotation(CliCommand.class);
+                    if (cmd != null) {
+                        final MethodTarget target = new MethodTarget(method,
+                                command);
+                        for (final String value : cmd.value()) {
+                            commandTrie.add(value, target);
+                        }
+                        cliOptionsByMethod.put(method,
+                                getCliOptions(method.getParameterAnnotations()));
+                    }
+                }
+            }
+        }
+        return commandTrie;
+    }
+
     public Set<String> getEveryCommand() {
         synchronized (mutex) {
         	
-        	if(commands.isEmpty() || hasToReloadComponents()){
-        		// Cleaning commands
-        		commands.clear();
-        		availabilityIndicators.clear();
-        		// Get all Services implement CommandMarker interface
-        		try {
-        			ServiceReference<?>[] references = this.context.getAllServiceReferences(CommandMarker.class.getName(), null);
-        			
-        			for(ServiceReference<?> ref : references){
-        				CommandMarker command = (CommandMarker) this.context.getService(ref);
-    					add(command);
-        			}
-        			
-        		} catch (InvalidSyntaxException e) {
-        			LOGGER.warning("Cannot load CommandMarker on SimpleParser.");
-        		}
-        		
-        		setLasTimeUpdateComponents(System.currentTimeMillis());
-        		
-        	}
-        	
+        	// Loading components if needed
+        	loadComponents();
         	
             final SortedSet<String> result = new TreeSet<String>(COMPARATOR);
-            for (final Object o : commands) {
-                final Method[] methods = o.getClass().getMethods();
-                for (final Method m : methods) {
-                    final CliCommand cmd = m.getAnnotation(CliCommand.class);
-                    if (cmd != null) {
-                        result.addAll(Arrays.asList(cmd.value()));
-                    }
-                }
-            }
+            result.addAll(getCommandTrie().getCommands());
             return result;
         }
     }
@@ -770,78 +801,85 @@ public class SimpleParser implements Parser {
         return unavailableOptions;
     }
 
+    /**
+     * Invokes the given availability indicator, unless its result is cached
+     * 
+     * @param availabilityIndicator the indicator to invoke (required)
+     * @return whether the commands it applies to are available
+     * @throws Exception if the indicator throws one (not cached)
+     * @see #clearAvailabilityCache()
+     */
+    private boolean isAvailable(final MethodTarget availabilityIndicator)
+            throws Exception {
+        final long generation;
+        synchronized (availabilityResults) {
+            final Boolean available = availabilityResults
+                    .get(availabilityIndicator);
+            if (available != null) {
+                return available;
+            }
+            generation = availabilityGeneration;
+        }
+        // Invoked without holding the lock, so that the cache can be cleared
+        // meanwhile
+        final Boolean available = (Boolean) availabilityIndicator.getMethod()
+                .invoke(availabilityIndicator.getTarget());
+        synchronized (availabilityResults) {
+            // Don't cache a result that may be out of date already
+            if (generation == availabilityGeneration) {
+                availabilityResults.put(availabilityIndicator, available);
+            }
+        }
+        return available;
+    }
+
     private Collection<MethodTarget> locateTargets(final String buffer,
             final boolean strictMatching,
             final boolean checkAvailabilityIndicators) {
     	
-    	if(commands.isEmpty() || hasToReloadComponents()){
-    		// Cleaning commands
-    		commands.clear();
-    		availabilityIndicators.clear();
-    		// Get all Services implement CommandMarker interface
-    		try {
-    			ServiceReference<?>[] references = this.context.getAllServiceReferences(CommandMarker.class.getName(), null);
-    			
-    			for(ServiceReference<?> ref : references){
-    				CommandMarker command = (CommandMarker) this.context.getService(ref);
-					add(command);
-    			}
-    			
-    		} catch (InvalidSyntaxException e) {
-    			LOGGER.warning("Cannot load CommandMarker on SimpleParser.");
-    		}
-    		
-    		setLasTimeUpdateComponents(System.currentTimeMillis());
-    	}
+    	// Loading components if needed
+    	loadComponents();
     	
         Validate.notNull(buffer, "Buffer required");
         final Collection<MethodTarget> result = new HashSet<MethodTarget>();
 
-        // The reflection could certainly be optimised, but it's good enough for
-        // now (and cached reflection
-        // is unlikely to be noticeable to a human being using the CLI)
-        for (final CommandMarker command : commands) {
-            for (final Method method : command.getClass().getMethods()) {
-                final CliCommand cmd = method.getAnnotation(CliCommand.class);
-                if (cmd != null) {
-                    // We have a @CliCommand.
-                    if (checkAvailabilityIndicators) {
-                        // Decide if this @CliCommand is available at this
-                        // moment
-                        Boolean available = null;
-                        for (final String value : cmd.value()) {
-                            final MethodTarget mt = getAvailabilityIndicator(value);
-                            if (mt != null) {
-                                Validate.isTrue(available == null,
-                                        "More than one availability indicator is defined for '"
-                                                + method.toGenericString()
-                                                + "'");
-                                try {
-                                    available = (Boolean) mt.getMethod()
-                                            .invoke(mt.getTarget());
-                                    // We should "break" here, but we loop over
-                                    // all to ensure no conflicting availability
-                                    // indicators are defined
-                                }
-                                catch (final Exception e) {
-                                    available = false;
-                                }
-                            }
+        // Only consider the commands whose words the buffer could match
+        for (final MethodTarget candidate : getCommandTrie().getCandidates(
+                buffer)) {
+            final Method method = candidate.getMethod();
+            final CliCommand cmd = method.getAnnotation(CliCommand.class);
+            if (checkAvailabilityIndicators) {
+                // Decide if this @CliCommand is available at this moment
+                Boolean available = null;
+                for (final String value : cmd.value()) {
+                    final MethodTarget mt = getAvailabilityIndicator(value);
+                    if (mt != null) {
+                        Validate.isTrue(available == null,
+                                "More than one availability indicator is defined for '"
+                                        + method.toGenericString() + "'");
+                        try {
+                            available = isAvailable(mt);
+                            // We should "break" here, but we loop over all to
+                            // ensure no conflicting availability indicators
+                            // are defined
                         }
-                        // Skip this @CliCommand if it's not available
-                        if (available != null && !available) {
-                            continue;
+                        catch (final Exception e) {
+                            available = false;
                         }
                     }
+                }
+                // Skip this @CliCommand if it's not available
+                if (available != null && !available) {
+                    continue;
+                }
+            }
 
-                    for (final String value : cmd.value()) {
-                        final String remainingBuffer = isMatch(buffer, value,
-                                strictMatching);
-                        if (remainingBuffer != null) {
-                            result.add(new MethodTarget(method, command,
-                                    remainingBuffer, value));
-                        }
-                    }
+            for (final String value : cmd.value()) {
+                final String remainingBuffer = isMatch(buffer, value,
+                        strictMatching);
+                if (remainingBuffer != null) {
+                    result.add(new MethodTarget(method, candidate.getTarget(),
+                            remainingBuffer, value));
                 }
             }
         }
@@ -862,8 +900,8 @@ public class SimpleParser implements Parser {
     public ParseResult parse(final String rawInput) {
         synchronized (mutex) {
         	
-        	// Load converters if needed
-        	loadConverters();
+        	// Load components if needed
+        	loadComponents();
         	
             Validate.notNull(rawInput, "Raw input required");
             final String input = normalise(rawInput);
@@ -922,7 +960,8 @@ public class SimpleParser implements Parser {
                 return null;
             }
 
-            final Set<CliOption> cliOptions = getCliOptions(parameterAnnotations);
+            final Set<CliOption> cliOptions = getCliOptions(methodTarget
+                    .getMethod());
             for (final CliOption cliOption : cliOptions) {
                 final Class<?> requiredType = methodTarget.getMethod()
                         .getParameterTypes()[arguments.size()];
@@ -1109,6 +1148,7 @@ public class SimpleParser implements Parser {
     public final void remove(final CommandMarker command) {
         synchronized (mutex) {
             commands.remove(command);
+            commandTrie = null;
             for (final Method m : command.getClass().getMethods()) {
                 final CliAvailabilityIndicator availability = m
                         .getAnnotation(CliAvailabilityIndicator.class);
@@ -1118,6 +1158,7 @@ public class SimpleParser implements Parser {
                     }
                 }
             }
+            clearAvailabilityCache();
         }
     }
 
@@ -1127,25 +1168,53 @@ public class SimpleParser implements Parser {
         }
     }
     
+    /**
+     * Reloads the commands and converters if they haven't been loaded yet or
+     * some bundle has changed since they were. Both are reloaded together, as
+     * they share the time of the last update.
+     */
+    private void loadComponents() {
+    	if(commands.isEmpty() || converters.isEmpty() || hasToReloadComponents()){
+    		loadCommands();
+    		loadConverters();
+    		setLasTimeUpdateComponents(System.currentTimeMillis());
+    	}
+    }
+    
+    private void loadCommands(){
+    	// Cleaning commands
+    	commands.clear();
+    	availabilityIndicators.clear();
+    	clearAvailabilityCache();
+    	commandTrie = null;
+    	// Get all Services implement CommandMarker interface
+    	try {
+    		ServiceReference<?>[] references = this.context.getAllServiceReferences(CommandMarker.class.getName(), null);
+    		
+    		for(ServiceReference<?> ref : references){
+    			CommandMarker command = (CommandMarker) this.context.getService(ref);
+    			add(command);
+    		}
+    		
+    	} catch (InvalidSyntaxException e) {
+    		LOGGER.warning("Cannot load CommandMarker on SimpleParser.");
+    	}
+    }
+    
     public final void loadConverters(){
-    	if(converters.isEmpty() || hasToReloadComponents()){
-    		// Cleaning converters
-    		converters.clear();
-    		availabilityIndicators.clear();
-    		// Get all Services implement Converter interface
-    		try {
-    			ServiceReference<?>[] references = this.context.getAllServiceReferences(Converter.class.getName(), null);
-    			
-    			for(ServiceReference<?> ref : references){
-    				Converter<?> converter = (Converter<?>) this.context.getService(ref);
-					add(converter);
-    			}
-    			
-    		} catch (InvalidSyntaxException e) {
-    			LOGGER.warning("Cannot load Converter on SimpleParser.");
+    	// Cleaning converters
+    	converters.clear();
+    	// Get all Services implement Converter interface
+    	try {
+    		ServiceReference<?>[] references = this.context.getAllServiceReferences(Converter.class.getName(), null);
+    		
+    		for(ServiceReference<?> ref : references){
+    			Converter<?> converter = (Converter<?>) this.context.getService(ref);
+    			add(converter);
     		}
     		
-    		setLasTimeUpdateComponents(System.currentTimeMillis());
+    	} catch (InvalidSyntaxException e) {
+    		LOGGER.warning("Cannot load Converter on SimpleParser.");
     	}
     }
     
@@ -1173,7 +1242,7 @@ public class SimpleParser implements Parser {
 	 * @param lasTimeUpdateCommands the lasTimeUpdateCommands to set
 	 */
 	public void setLasTimeUpdateComponents(Long lasTimeUpdateComponents) {
-		this.lastTimeUpdateComponents = lastTimeUpdateComponents;
+		this.lastTimeUpdateComponents = lasTimeUpdateComponents;
 	}
 	
 	/**
@@ -0,0 +1,120 @@
+package org.springframework.roo.shell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test of {@link CommandTrie}
+ * 
+ * @since 2.0.0
+ */
+public class CommandTrieTest {
+
+    /**
+     * Commands whose method names don't matter
+     */
+    public static class StubCommands implements CommandMarker {
+
+        public void entity() {
+        }
+
+        public void hint() {
+        }
+
+        public void jpaSetup() {
+        }
+
+        public void webMvcSetup() {
+        }
+
+        public void webMvcView() {
+        }
+    }
+
+    private static final List<String> BUFFERS = Arrays.asList("", " ", "h",
+            "hint", "hint topic", "hi topics", "j", "jpa", "jpa ",
+            "jpa setup", "jpa s --provider HIBERNATE", "jpa setup --database",
+            "w", "web m", "web mvc ", "web mvc s", "web mvc view --path /x",
+            "web mvc setup setup", "mvc", "setup", "x", "entity jpa --class ~.X",
+            "ent", "e j");
+
+    private Map<String, MethodTarget> targets;
+    private CommandTrie trie;
+
+    private void add(final String command, final String methodName)
+            throws Exception {
+        final MethodTarget target = new MethodTarget(
+                StubCommands.class.getMethod(methodName), new StubCommands());
+        targets.put(command, target);
+        trie.add(command, target);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        targets = new HashMap<String, MethodTarget>();
+        trie = new CommandTrie();
+        add("entity jpa", "entity");
+        add("hint", "hint");
+        add("jpa setup", "jpaSetup");
+        add("web mvc setup", "webMvcSetup");
+        add("web mvc view", "webMvcView");
+    }
+
+    @Test
+    public void testCandidatesIncludeEveryMatch() {
+        for (final String buffer : BUFFERS) {
+            final Collection<MethodTarget> candidates = trie
+                    .getCandidates(buffer);
+            for (final Map.Entry<String, MethodTarget> entry : targets
+                    .entrySet()) {
+                if (SimpleParser.isMatch(buffer, entry.getKey(), false) != null) {
+                    assertTrue("'" + buffer + "' should find '"
+                            + entry.getKey() + "'",
+                            candidates.contains(entry.getValue()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGetCandidatesForBlankBuffer() {
+        assertEquals(5, trie.getCandidates(" ").size());
+    }
+
+    @Test
+    public void testGetCandidatesForOtherCommand() {
+        assertEquals(0, trie.getCandidates("x --y z").size());
+    }
+
+    @Test
+    public void testGetCandidatesForPartialCommand() {
+        final Set<MethodTarget> expected = new HashSet<MethodTarget>(
+                Arrays.asList(targets.get("web mvc setup"),
+                        targets.get("web mvc view")));
+        assertEquals(expected, trie.getCandidates("w m"));
+    }
+
+    @Test
+    public void testGetCandidatesWithOptions() {
+        assertEquals(
+                new HashSet<MethodTarget>(Arrays.asList(targets
+                        .get("jpa setup"))),
+                trie.getCandidates("jpa setup --provider HIBERNATE"));
+    }
+
+    @Test
+    public void testGetCommands() {
+        assertEquals(targets.keySet(), trie.getCommands());
+    }
+}
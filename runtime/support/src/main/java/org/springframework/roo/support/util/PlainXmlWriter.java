@@ -0,0 +1,301 @@
+package org.springframework.roo.support.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Writes the plain DOMs that Roo generates (elements with attributes, each
+ * containing either child elements or a single text node) in the same indented
+ * form as {@link XmlUtils#createIndentingTransformer()}, without the overhead
+ * of a {@link javax.xml.transform.Transformer}.
+ * <p>
+ * Callers must check {@link #isPlain(Node)} first; anything else (comments,
+ * CDATA, mixed content, namespaced nodes, unusual characters) is formatted
+ * differently by the transformer and must be written by it.
+ * 
+ * @since 2.0.0
+ */
+final class PlainXmlWriter {
+
+    private static final String INDENT = "    ";
+    private static final String XMLNS = "xmlns";
+    private static final String XMLNS_PREFIX = XMLNS + ":";
+
+    private final String documentDeclaration;
+    private final String elementDeclaration;
+    private final String lineSeparator;
+
+    /**
+     * Constructor
+     * 
+     * @param documentDeclaration what the transformer writes before the
+     *            document element when given a {@link Document}
+     * @param elementDeclaration what the transformer writes before the
+     *            element when given an {@link Element}
+     * @param lineSeparator what the transformer writes between lines
+     */
+    PlainXmlWriter(final String documentDeclaration,
+            final String elementDeclaration, final String lineSeparator) {
+        this.documentDeclaration = documentDeclaration;
+        this.elementDeclaration = elementDeclaration;
+        this.lineSeparator = lineSeparator;
+    }
+
+    private void indent(final int depth, final Writer writer)
+            throws IOException {
+        for (int i = 0; i < depth; i++) {
+            writer.write(INDENT);
+        }
+    }
+
+    private static boolean isDeclared(final String name,
+            final Set<String> prefixes) {
+        final int colon = name.indexOf(':');
+        return colon < 0 || prefixes.contains(name.substring(0, colon))
+                || name.startsWith("xml:");
+    }
+
+    private static boolean isPlain(final Element element,
+            final Set<String> prefixes) {
+        if (element.getNamespaceURI() != null
+                || !isPlain(element.getNodeName())) {
+            return false;
+        }
+        final NamedNodeMap attributes = element.getAttributes();
+        Set<String> scopePrefixes = prefixes;
+        for (int i = 0; i < attributes.getLength(); i++) {
+            final Attr attribute = (Attr) attributes.item(i);
+            if (attribute.getNamespaceURI() != null
+                    || !isPlain(attribute.getName())
+                    || !isPlain(attribute.getValue())) {
+                return false;
+            }
+            if (attribute.getName().startsWith(XMLNS_PREFIX)) {
+                if (scopePrefixes == prefixes) {
+                    scopePrefixes = new HashSet<String>(prefixes);
+                }
+                scopePrefixes.add(StringUtils.substringAfter(
+                        attribute.getName(), XMLNS_PREFIX));
+            }
+        }
+        // The transformer fails on attribute prefixes declared outside the
+        // written node
+        for (int i = 0; i < attributes.getLength(); i++) {
+            final String name = attributes.item(i).getNodeName();
+            if (!name.startsWith(XMLNS_PREFIX)
+                    && !isDeclared(name, scopePrefixes)) {
+                return false;
+            }
+        }
+        final Node firstChild = element.getFirstChild();
+        if (firstChild != null && firstChild.getNodeType() == Node.TEXT_NODE) {
+            // Mixed content and empty or whitespace text nodes between
+            // elements are indented differently
+            return firstChild.getNextSibling() == null
+                    && firstChild.getNodeValue().length() > 0
+                    && isPlain(firstChild.getNodeValue());
+        }
+        for (Node child = firstChild; child != null; child = child
+                .getNextSibling()) {
+            if (child.getNodeType() != Node.ELEMENT_NODE
+                    || !isPlain((Element) child, scopePrefixes)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indicates whether the given node can be written by this class. That is,
+     * it's an element, or a document with nothing but a document element, of
+     * the shape described in the class comment.
+     * 
+     * @param node the node to check (can be <code>null</code>)
+     * @return see above
+     */
+    static boolean isPlain(final Node node) {
+        final Element element;
+        if (node instanceof Document) {
+            final Document document = (Document) node;
+            // The transformer declares (and encodes for) any parsed encoding
+            if (!"1.0".equals(document.getXmlVersion())
+                    || document.getXmlEncoding() != null
+                    && !"UTF-8".equals(document.getXmlEncoding())
+                    || document.getXmlStandalone()
+                    || document.getFirstChild() != document
+                            .getLastChild()) {
+                return false;
+            }
+            element = document.getDocumentElement();
+        }
+        else if (node instanceof Element) {
+            element = (Element) node;
+        }
+        else {
+            return false;
+        }
+        // The transformer switches to HTML output for "html" roots
+        return element != null
+                && !"html".equalsIgnoreCase(element.getNodeName())
+                && isPlain(element, Collections.<String> emptySet());
+    }
+
+    /**
+     * Indicates whether the given text only contains characters that the
+     * transformer writes either as-is or as one of the escapes used below
+     */
+    private static boolean isPlain(final String text) {
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (!(c >= 0x20 && c <= 0x7E || c >= 0xA0 && c <= 0xD7FF
+                    || c >= 0xE000 && c <= 0xFFFD || c == '\t' || c == '\n')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void write(final Element element, final int depth,
+            final String firstAttribute, final Writer writer)
+            throws IOException {
+        indent(depth, writer);
+        writer.write('<');
+        writer.write(element.getNodeName());
+        if (firstAttribute != null) {
+            writeAttribute(element.getAttributeNode(firstAttribute), writer);
+        }
+        // Like the transformer, namespace declarations first
+        writeAttributes(element, true, firstAttribute, writer);
+        writeAttributes(element, false, firstAttribute, writer);
+        final Node firstChild = element.getFirstChild();
+        if (firstChild == null) {
+            writer.write("/>");
+        }
+        else if (firstChild.getNodeType() == Node.TEXT_NODE) {
+            writer.write('>');
+            writeEscaped(firstChild.getNodeValue(), false, writer);
+            writeEndTag(element, writer);
+        }
+        else {
+            writer.write('>');
+            writer.write(lineSeparator);
+            for (Node child = firstChild; child != null; child = child
+                    .getNextSibling()) {
+                write((Element) child, depth + 1, null, writer);
+            }
+            indent(depth, writer);
+            writeEndTag(element, writer);
+        }
+        writer.write(lineSeparator);
+    }
+
+    /**
+     * Writes the given node
+     * 
+     * @param node a node for which {@link #isPlain(Node)} returns
+     *            <code>true</code>
+     * @param ownNamespaceFirst whether the root element's declaration of its
+     *            own namespace comes before its other attributes, as it does
+     *            when the transformer has no output method set
+     * @param writer the writer to write to (not flushed or closed)
+     * @throws IOException if the writer does
+     */
+    void write(final Node node, final boolean ownNamespaceFirst,
+            final Writer writer) throws IOException {
+        final Element element;
+        if (node instanceof Document) {
+            writer.write(documentDeclaration);
+            element = ((Document) node).getDocumentElement();
+        }
+        else {
+            writer.write(elementDeclaration);
+            element = (Element) node;
+        }
+        String firstAttribute = null;
+        if (ownNamespaceFirst) {
+            final String prefix = StringUtils.substringBefore(
+                    element.getNodeName(), ":");
+            firstAttribute = prefix.equals(element.getNodeName()) ? XMLNS
+                    : XMLNS_PREFIX + prefix;
+            if (!element.hasAttribute(firstAttribute)) {
+                firstAttribute = null;
+            }
+        }
+        write(element, 0, firstAttribute, writer);
+    }
+
+    private void writeAttribute(final Attr attribute, final Writer writer)
+            throws IOException {
+        writer.write(' ');
+        writer.write(attribute.getName());
+        writer.write("=\"");
+        writeEscaped(attribute.getValue(), true, writer);
+        writer.write('"');
+    }
+
+    private void writeAttributes(final Element element,
+            final boolean namespaceDeclarations, final String excluded,
+            final Writer writer) throws IOException {
+        final NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            final Attr attribute = (Attr) attributes.item(i);
+            if (attribute.getName().startsWith(XMLNS) == namespaceDeclarations
+                    && !attribute.getName().equals(excluded)) {
+                writeAttribute(attribute, writer);
+            }
+        }
+    }
+
+    private void writeEndTag(final Element element, final Writer writer)
+            throws IOException {
+        writer.write("</");
+        writer.write(element.getNodeName());
+        writer.write('>');
+    }
+
+    private void writeEscaped(final String text, final boolean attribute,
+            final Writer writer) throws IOException {
+        int unescaped = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final String escape;
+            switch (text.charAt(i)) {
+            case '&':
+                escape = "&amp;";
+                break;
+            case '<':
+                escape = "&lt;";
+                break;
+            case '>':
+                escape = "&gt;";
+                break;
+            case '"':
+                escape = attribute ? "&quot;" : null;
+                break;
+            case '\t':
+                escape = attribute ? "&#9;" : null;
+                break;
+            case '\n':
+                escape = attribute ? "&#10;" : lineSeparator;
+                break;
+            default:
+                escape = null;
+            }
+            if (escape != null) {
+                writer.write(text, unescaped, i - unescaped);
+                writer.write(escape);
+                unescaped = i + 1;
+            }
+        }
+        writer.write(text, unescaped, text.length() - unescaped);
+    }
+}
@@ -2,6 +2,7 @@ package org.springframework.roo.support.util;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -11,9 +12,11 @@ import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -57,12 +60,96 @@ import org.xml.sax.SAXException;
  */
 public final class XmlUtils {
 
-    private static final Map<String, XPathExpression> COMPILED_EXPRESSION_CACHE = new HashMap<String, XPathExpression>();
+    /**
+     * An XPath expression compiled for the current thread, along with the
+     * element names it consists of if it only selects child elements by name,
+     * in which case it can be evaluated by walking the DOM directly
+     */
+    private static class CompiledExpression {
+        private final boolean absolute;
+        private final XPathExpression expression;
+        private final String[] steps;
+
+        private CompiledExpression(final String xPathExpression,
+                final XPathExpression expression) {
+            this.expression = expression;
+            if (CHILD_ELEMENT_PATH.matcher(xPathExpression).matches()) {
+                absolute = xPathExpression.startsWith("/");
+                steps = StringUtils.split(xPathExpression, '/');
+            }
+            else {
+                absolute = false;
+                steps = null;
+            }
+        }
+    }
+
+    /** Matches paths like "/project/build/plugins" or "dependency" */
+    private static final Pattern CHILD_ELEMENT_PATH = Pattern
+            .compile("/?[A-Za-z_][\\w.-]*(/[A-Za-z_][\\w.-]*)*");
+    private static final AtomicLong COMPILED_EXPRESSION_HITS = new AtomicLong();
+    private static final AtomicLong COMPILED_EXPRESSION_MISSES = new AtomicLong();
+    private static final int MAX_COMPILED_EXPRESSIONS = 1000;
+
+    /**
+     * Neither {@link XPath} nor {@link XPathExpression} is thread-safe, so each
+     * thread compiles and caches its own expressions, least recently used
+     * first out
+     */
+    private static final ThreadLocal<Map<String, CompiledExpression>> COMPILED_EXPRESSIONS = new ThreadLocal<Map<String, CompiledExpression>>() {
+        @Override
+        protected Map<String, CompiledExpression> initialValue() {
+            return new LinkedHashMap<String, CompiledExpression>(16, 0.75f,
+                    true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        final Map.Entry<String, CompiledExpression> eldest) {
+                    return size() > MAX_COMPILED_EXPRESSIONS;
+                }
+            };
+        }
+    };
     private static final DocumentBuilderFactory FACTORY = DocumentBuilderFactory
             .newInstance();
+
+    /**
+     * Transformers are expensive to create but not thread-safe, so each thread
+     * reuses its own; this one is for {@link #nodeToString(Node)}, which unlike
+     * {@link #writeXml(OutputStream, Document)} leaves the output method unset
+     */
+    private static final ThreadLocal<Transformer> INDENTING_TRANSFORMER = new ThreadLocal<Transformer>() {
+        @Override
+        protected Transformer initialValue() {
+            return createIndentingTransformer();
+        }
+    };
+
+    /**
+     * Writes plain DOMs without a transformer; <code>null</code> if it can't
+     * reproduce this JVM's transformer output exactly
+     */
+    private static final PlainXmlWriter PLAIN_XML_WRITER;
     private static final TransformerFactory TRANSFORMER_FACTORY = TransformerFactory
             .newInstance();
-    private static final XPath XPATH = XPathFactory.newInstance().newXPath();
+    private static final ThreadLocal<Transformer> XML_WRITING_TRANSFORMER = new ThreadLocal<Transformer>() {
+        @Override
+        protected Transformer initialValue() {
+            return createIndentingTransformer();
+        }
+    };
+    private static final ThreadLocal<XPath> XPATH = new ThreadLocal<XPath>() {
+        @Override
+        protected XPath initialValue() {
+            return XPathFactory.newInstance().newXPath();
+        }
+    };
+
+    static {
+        // Needs the transformer factory, so can't be initialised in place
+        PLAIN_XML_WRITER = createPlainXmlWriter();
+    }
 
     /**
      * Checks the presented element for illegal characters that could cause
@@ -149,6 +236,54 @@ public final class XmlUtils {
         return transformer;
     }
 
+    /**
+     * Creates a {@link PlainXmlWriter} that writes the same characters as the
+     * indenting transformer on this JVM, whose XML declaration and line breaks
+     * vary between JDK versions
+     * 
+     * @return <code>null</code> if the two don't agree on a sample document
+     */
+    private static PlainXmlWriter createPlainXmlWriter() {
+        try {
+            final Document document = getDocumentBuilder().newDocument();
+            document.appendChild(document.createElement("a"));
+            final String rootXml = "<a/>" + IOUtils.LINE_SEPARATOR;
+            final String documentXml = transform(document);
+            final String elementXml = transform(document.getDocumentElement());
+            if (!documentXml.endsWith(rootXml) || !elementXml.endsWith(rootXml)) {
+                return null;
+            }
+            final PlainXmlWriter plainXmlWriter = new PlainXmlWriter(
+                    StringUtils.removeEnd(documentXml, rootXml),
+                    StringUtils.removeEnd(elementXml, rootXml),
+                    IOUtils.LINE_SEPARATOR);
+
+            final Element root = document.getDocumentElement();
+            root.setAttribute("escaped", "&<>\"'\t\n \u00e9");
+            root.setAttribute("xmlns:z", "http://z");
+            final Element child = document.createElement("roo:child");
+            child.setAttribute("xmlns:a", "http://a");
+            child.setAttribute("xmlns:roo", "http://roo");
+            child.appendChild(createTextElement(document, "text",
+                    "&<>\"'\t\n \u00e9"));
+            child.appendChild(document.createElement("empty"));
+            root.appendChild(child);
+            root.appendChild(createTextElement(document, "text", " text "));
+            for (final Node node : new Node[] { document, root, child }) {
+                final StringWriter writer = new StringWriter();
+                plainXmlWriter.write(node, true, writer);
+                if (!PlainXmlWriter.isPlain(node)
+                        || !writer.toString().equals(transform(node))) {
+                    return null;
+                }
+            }
+            return plainXmlWriter;
+        }
+        catch (final Exception e) {
+            return null;
+        }
+    }
+
     /**
      * Creates an {@link Element} containing the given text
      * 
@@ -166,16 +301,15 @@ public final class XmlUtils {
     }
 
     /**
-     * Creates a {@link StreamResult} by wrapping the given outputStream in an
-     * {@link OutputStreamWriter} that transforms Windows line endings (\r\n)
-     * into Unix line endings (\n) on Windows for consistency with Roo's
-     * templates.
+     * Wraps the given outputStream in an {@link OutputStreamWriter} that
+     * transforms Windows line endings (\r\n) into Unix line endings (\n) on
+     * Windows for consistency with Roo's templates.
      * 
      * @param outputStream
-     * @return StreamResult
+     * @return Writer
      * @throws UnsupportedEncodingException
      */
-    private static StreamResult createUnixStreamResultForEntry(
+    private static Writer createUnixWriterForEntry(
             final OutputStream outputStream)
             throws UnsupportedEncodingException {
         final Writer writer;
@@ -219,7 +353,67 @@ public final class XmlUtils {
         else {
             writer = new OutputStreamWriter(outputStream, "ISO-8859-1");
         }
-        return new StreamResult(writer);
+        return writer;
+    }
+
+    /**
+     * Adds the elements reached from the given node by following the given
+     * child element names, in document order
+     * 
+     * @param node the node whose children to search
+     * @param steps the element names to follow
+     * @param step the index of the name to match against the node's children
+     * @param elements the list to add the elements to
+     * @param firstOnly whether to stop after the first element
+     * @return whether to stop searching
+     */
+    private static boolean addChildElements(final Node node,
+            final String[] steps, final int step, final List<Element> elements,
+            final boolean firstOnly) {
+        for (Node child = node.getFirstChild(); child != null; child = child
+                .getNextSibling()) {
+            if (child.getNodeType() != Node.ELEMENT_NODE
+                    || !isNamed(child, steps[step])) {
+                continue;
+            }
+            if (step == steps.length - 1) {
+                elements.add((Element) child);
+                if (firstOnly) {
+                    return true;
+                }
+            }
+            else if (addChildElements(child, steps, step + 1, elements,
+                    firstOnly)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the compiled form of the given XPath expression for the current
+     * thread, compiling it if necessary
+     * 
+     * @param xPathExpression the expression to compile
+     * @return a non-<code>null</code> expression
+     * @throws XPathExpressionException if the expression is invalid
+     */
+    private static CompiledExpression compile(final String xPathExpression)
+            throws XPathExpressionException {
+        final Map<String, CompiledExpression> compiledExpressions = COMPILED_EXPRESSIONS
+                .get();
+        CompiledExpression compiledExpression = compiledExpressions
+                .get(xPathExpression);
+        if (compiledExpression == null) {
+            COMPILED_EXPRESSION_MISSES.incrementAndGet();
+            compiledExpression = new CompiledExpression(xPathExpression, XPATH
+                    .get().compile(xPathExpression));
+            compiledExpressions.put(xPathExpression, compiledExpression);
+        }
+        else {
+            COMPILED_EXPRESSION_HITS.incrementAndGet();
+        }
+        return compiledExpression;
     }
 
     /**
@@ -240,13 +434,14 @@ public final class XmlUtils {
         NodeList nodes = null;
 
         try {
-            XPathExpression expr = COMPILED_EXPRESSION_CACHE
-                    .get(xPathExpression);
-            if (expr == null) {
-                expr = XPATH.compile(xPathExpression);
-                COMPILED_EXPRESSION_CACHE.put(xPathExpression, expr);
+            final CompiledExpression expr = compile(xPathExpression);
+            final Node start = getStartNode(expr, root);
+            if (start != null) {
+                addChildElements(start, expr.steps, 0, elements, false);
+                return elements;
             }
-            nodes = (NodeList) expr.evaluate(root, XPathConstants.NODESET);
+            nodes = (NodeList) expr.expression.evaluate(root,
+                    XPathConstants.NODESET);
         }
         catch (final XPathExpressionException e) {
             throw new IllegalArgumentException(
@@ -271,13 +466,8 @@ public final class XmlUtils {
             final Element element) {
         Node attr = null;
         try {
-            XPathExpression expr = COMPILED_EXPRESSION_CACHE
-                    .get(xPathExpression);
-            if (expr == null) {
-                expr = XPATH.compile(xPathExpression);
-                COMPILED_EXPRESSION_CACHE.put(xPathExpression, expr);
-            }
-            attr = (Node) expr.evaluate(element, XPathConstants.NODE);
+            attr = (Node) compile(xPathExpression).expression.evaluate(
+                    element, XPathConstants.NODE);
         }
         catch (final XPathExpressionException e) {
             throw new IllegalArgumentException(
@@ -338,13 +528,14 @@ public final class XmlUtils {
         Validate.notNull(root, "Root element required");
         Node node = null;
         try {
-            XPathExpression expr = COMPILED_EXPRESSION_CACHE
-                    .get(xPathExpression);
-            if (expr == null) {
-                expr = XPATH.compile(xPathExpression);
-                COMPILED_EXPRESSION_CACHE.put(xPathExpression, expr);
+            final CompiledExpression expr = compile(xPathExpression);
+            final Node start = getStartNode(expr, root);
+            if (start != null) {
+                final List<Element> elements = new ArrayList<Element>(1);
+                addChildElements(start, expr.steps, 0, elements, true);
+                return elements.isEmpty() ? null : elements.get(0);
             }
-            node = (Node) expr.evaluate(root, XPathConstants.NODE);
+            node = (Node) expr.expression.evaluate(root, XPathConstants.NODE);
         }
         catch (final XPathExpressionException e) {
             throw new IllegalArgumentException(
@@ -377,6 +568,26 @@ public final class XmlUtils {
         return element;
     }
 
+    /**
+     * Returns the number of XPath expressions that were found already compiled
+     * 
+     * @return zero or more
+     * @since 2.0.0
+     */
+    public static long getCompiledExpressionCacheHits() {
+        return COMPILED_EXPRESSION_HITS.get();
+    }
+
+    /**
+     * Returns the number of XPath expressions that had to be compiled
+     * 
+     * @return zero or more
+     * @since 2.0.0
+     */
+    public static long getCompiledExpressionCacheMisses() {
+        return COMPILED_EXPRESSION_MISSES.get();
+    }
+
     /**
      * Returns the root element of an addon's configuration file.
      * 
@@ -418,6 +629,30 @@ public final class XmlUtils {
         return readXml(inputStream).getDocumentElement();
     }
 
+    /**
+     * Returns the node from which the given expression can be evaluated by
+     * walking child elements, i.e. without XPath
+     * 
+     * @param expr the compiled expression
+     * @param root the node against which it's being evaluated
+     * @return <code>null</code> if XPath has to be used
+     */
+    private static Node getStartNode(final CompiledExpression expr,
+            final Node root) {
+        if (expr.steps == null) {
+            return null;
+        }
+        if (!expr.absolute) {
+            return root;
+        }
+        Node top = root;
+        while (top.getParentNode() != null) {
+            top = top.getParentNode();
+        }
+        // Absolute paths select nothing from a detached element
+        return top.getNodeType() == Node.DOCUMENT_NODE ? top : null;
+    }
+
     public static String getTextContent(final String path,
             final Element parentElement) {
         return getTextContent(path, parentElement, null);
@@ -432,6 +667,24 @@ public final class XmlUtils {
         return valueIfNull;
     }
 
+    /**
+     * Indicates whether the given element matches the given XPath name test,
+     * which (as XPath does for DOM level 1 nodes) ignores any prefix
+     * 
+     * @param element the element to check
+     * @param name the unprefixed name to match
+     * @return see above
+     */
+    private static boolean isNamed(final Node element, final String name) {
+        if (element.getNamespaceURI() != null) {
+            return false;
+        }
+        final String nodeName = element.getNodeName();
+        final int colon = nodeName.lastIndexOf(':');
+        return colon < 0 ? nodeName.equals(name) : nodeName.substring(
+                colon + 1).equals(name);
+    }
+
     /**
      * Converts a {@link Node node} to an XML string
      * 
@@ -439,13 +692,15 @@ public final class XmlUtils {
      * @return the XML String representation of the node, never null
      */
     public static String nodeToString(final Node node) {
+        if (PLAIN_XML_WRITER == null || !PlainXmlWriter.isPlain(node)) {
+            return transform(node);
+        }
         try {
             final StringWriter writer = new StringWriter();
-            createIndentingTransformer().transform(new DOMSource(node),
-                    new StreamResult(writer));
+            PLAIN_XML_WRITER.write(node, true, writer);
             return writer.toString();
         }
-        catch (final TransformerException e) {
+        catch (final IOException e) {
             throw new IllegalStateException(e);
         }
     }
@@ -514,6 +769,25 @@ public final class XmlUtils {
         }
     }
 
+    /**
+     * Converts the given node to an XML string using this thread's indenting
+     * transformer
+     * 
+     * @param node the node to convert (required)
+     * @return a non-<code>null</code> string
+     */
+    private static String transform(final Node node) {
+        try {
+            final StringWriter writer = new StringWriter();
+            INDENTING_TRANSFORMER.get().transform(new DOMSource(node),
+                    new StreamResult(writer));
+            return writer.toString();
+        }
+        catch (final TransformerException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Write an XML document to the OutputStream provided. This method will
      * detect if the JDK supports the DOM Level 3 "format-pretty-print"
@@ -608,9 +882,29 @@ public final class XmlUtils {
      *            upon completion.
      * @param document the document to write.
      */
-    public static void writeXml(final OutputStream outputStream,
+    public static void writeXml(OutputStream outputStream,
             final Document document) {
-        writeXml(createIndentingTransformer(), outputStream, document);
+        if (PLAIN_XML_WRITER == null || !PlainXmlWriter.isPlain(document)) {
+            writeXml(XML_WRITING_TRANSFORMER.get(), outputStream, document);
+            return;
+        }
+        Validate.notNull(outputStream, "OutputStream required");
+        try {
+            if (!(outputStream instanceof BufferedOutputStream)) {
+                outputStream = new BufferedOutputStream(outputStream);
+            }
+            final Writer writer = new BufferedWriter(
+                    createUnixWriterForEntry(outputStream));
+            // Unlike nodeToString's, this transformer has its method set
+            PLAIN_XML_WRITER.write(document, false, writer);
+            writer.flush();
+        }
+        catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        finally {
+            IOUtils.closeQuietly(outputStream);
+        }
     }
 
     /**
@@ -634,7 +928,8 @@ public final class XmlUtils {
             if (!(outputStream instanceof BufferedOutputStream)) {
                 outputStream = new BufferedOutputStream(outputStream);
             }
-            final StreamResult streamResult = createUnixStreamResultForEntry(outputStream);
+            final StreamResult streamResult = new StreamResult(
+                    createUnixWriterForEntry(outputStream));
             transformer.transform(new DOMSource(document), streamResult);
         }
         catch (final Exception e) {
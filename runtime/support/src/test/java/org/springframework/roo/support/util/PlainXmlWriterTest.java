@@ -0,0 +1,61 @@
+package org.springframework.roo.support.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Unit test of {@link PlainXmlWriter}
+ * 
+ * @since 2.0.0
+ */
+public class PlainXmlWriterTest {
+
+    private Document parse(final String xml) {
+        return XmlUtils.readXml(IOUtils.toInputStream(xml));
+    }
+
+    @Test
+    public void testDocumentWithCommentIsNotPlain() {
+        assertFalse(PlainXmlWriter.isPlain(parse("<a><!-- b --></a>")));
+        assertFalse(PlainXmlWriter.isPlain(parse("<!-- b --><a/>")));
+    }
+
+    @Test
+    public void testDocumentWithOtherEncodingIsNotPlain() {
+        assertFalse(PlainXmlWriter.isPlain(parse("<?xml version=\"1.0\" "
+                + "encoding=\"ISO-8859-1\"?><a/>")));
+    }
+
+    @Test
+    public void testElementsAndTextAreKeptPlain() {
+        assertTrue(PlainXmlWriter.isPlain(parse("<?xml version=\"1.0\" "
+                + "encoding=\"UTF-8\"?><a b=\"c\"><d>e &amp; f</d><g/></a>")));
+    }
+
+    @Test
+    public void testMixedContentIsNotPlain() {
+        assertFalse(PlainXmlWriter.isPlain(parse("<a>b<c/></a>")));
+        assertFalse(PlainXmlWriter.isPlain(parse("<a>\n  <c/>\n</a>")));
+    }
+
+    @Test
+    public void testUndeclaredAttributePrefixIsNotPlain() {
+        // Set up
+        final Document document = parse("<a xmlns:p=\"urn:p\"><b p:c=\"d\"/></a>");
+
+        // Invoke and check
+        assertTrue(PlainXmlWriter.isPlain(document));
+        assertFalse(PlainXmlWriter.isPlain(document.getDocumentElement()
+                .getFirstChild()));
+    }
+
+    @Test
+    public void testUnusualCharactersAreNotPlain() {
+        assertFalse(PlainXmlWriter.isPlain(parse("<a>&#13;</a>")));
+        assertFalse(PlainXmlWriter.isPlain(parse("<a b=\"&#133;\"/>")));
+    }
+}
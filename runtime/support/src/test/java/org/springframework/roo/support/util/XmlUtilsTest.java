@@ -0,0 +1,156 @@
+package org.springframework.roo.support.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.List;
+
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Unit test of {@link XmlUtils}
+ * 
+ * @since 2.0.0
+ */
+public class XmlUtilsTest {
+
+    private static final String XML = "<beans xmlns:sec=\"urn:sec\">"
+            + "<bean id=\"a\"><property name=\"a1\"/><property name=\"a2\"/></bean>"
+            + "<sec:http id=\"http\"/>"
+            + "<bean id=\"b\"><property name=\"b1\"/></bean></beans>";
+
+    // Fixture
+    private Document document;
+
+    private String transform(final Node node) throws TransformerException {
+        final StringWriter writer = new StringWriter();
+        XmlUtils.createIndentingTransformer().transform(new DOMSource(node),
+                new StreamResult(writer));
+        return writer.toString();
+    }
+
+    @Before
+    public void setUp() {
+        document = XmlUtils.readXml(IOUtils.toInputStream(XML));
+    }
+
+    @Test
+    public void testFindElementsReturnsChildPathInDocumentOrder() {
+        // Invoke
+        final List<Element> properties = XmlUtils.findElements(
+                "bean/property", document.getDocumentElement());
+
+        // Check
+        assertEquals(3, properties.size());
+        assertEquals("a1", properties.get(0).getAttribute("name"));
+        assertEquals("a2", properties.get(1).getAttribute("name"));
+        assertEquals("b1", properties.get(2).getAttribute("name"));
+    }
+
+    @Test
+    public void testFindFirstElementIgnoresPrefix() {
+        assertEquals("http", XmlUtils.findFirstElement("/beans/http", document)
+                .getAttribute("id"));
+    }
+
+    @Test
+    public void testAbsolutePathIsEvaluatedFromDocument() {
+        // Set up
+        final Element property = XmlUtils.findFirstElement(
+                "/beans/bean/property", document);
+
+        // Invoke
+        final Element bean = XmlUtils.findFirstElement("/beans/bean", property);
+
+        // Check
+        assertEquals("a1", property.getAttribute("name"));
+        assertEquals("a", bean.getAttribute("id"));
+    }
+
+    @Test
+    public void testAbsolutePathSelectsNothingFromDetachedElement() {
+        // Set up
+        final Element bean = document.createElement("bean");
+        bean.appendChild(document.createElement("property"));
+
+        // Invoke and check
+        assertNull(XmlUtils.findFirstElement("/bean/property", bean));
+        assertEquals(1, XmlUtils.findElements("property", bean).size());
+    }
+
+    @Test
+    public void testOtherExpressionsAreEvaluatedByXPath() {
+        assertEquals("b1",
+                XmlUtils.findFirstElement("bean[@id = 'b']/property",
+                        document.getDocumentElement()).getAttribute("name"));
+        assertEquals("a2",
+                XmlUtils.findFirstAttribute("@name",
+                        XmlUtils.findElements("//property", document
+                                .getDocumentElement()).get(1)).getNodeValue());
+    }
+
+    @Test
+    public void testRepeatedExpressionIsNotRecompiled() {
+        // Set up
+        final String expression = "bean/property[@name = 'a2']";
+        XmlUtils.findFirstElement(expression, document.getDocumentElement());
+        final long misses = XmlUtils.getCompiledExpressionCacheMisses();
+        final long hits = XmlUtils.getCompiledExpressionCacheHits();
+
+        // Invoke
+        XmlUtils.findFirstElement(expression, document.getDocumentElement());
+
+        // Check
+        assertEquals(misses, XmlUtils.getCompiledExpressionCacheMisses());
+        assertTrue(XmlUtils.getCompiledExpressionCacheHits() > hits);
+    }
+
+    @Test
+    public void testNodeToStringMatchesTransformer()
+            throws TransformerException {
+        // Set up
+        final Element bean = XmlUtils.findFirstElement("/beans/bean", document);
+        bean.appendChild(XmlUtils.createTextElement(document, "description",
+                "<a> & \"b\"\tc\n\u00e9"));
+        final Element mixed = XmlUtils.createTextElement(document, "mixed",
+                "text");
+        mixed.appendChild(document.createElement("child"));
+        document.getDocumentElement().appendChild(mixed);
+
+        // Invoke and check
+        for (final Node node : new Node[] { document,
+                document.getDocumentElement(), bean, mixed,
+                XmlUtils.findFirstElement("/beans/http", document) }) {
+            assertEquals(transform(node), XmlUtils.nodeToString(node));
+        }
+    }
+
+    @Test
+    public void testWriteXmlMatchesTransformer() {
+        // Set up
+        XmlUtils.findFirstElement("/beans/bean", document).setAttribute(
+                "class", "<a> & \"b\"\tc\n\u00e9");
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        XmlUtils.writeXml(XmlUtils.createIndentingTransformer(), expected,
+                document);
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+        // Invoke
+        XmlUtils.writeXml(actual, document);
+
+        // Check
+        assertEquals(expected.toString(), actual.toString());
+    }
+}